@@ -19,6 +19,22 @@ public final class Constants {
     public static final String ERROR_PRODUCT_NOT_FOUND = "Product not found";
     public static final String ERROR_INVALID_STOCK = "Stock must be a positive number";
     public static final String ERROR_INVALID_NAME = "Name cannot be empty";
+    public static final String ERROR_INVALID_STOCK_DELTA = "Stock delta is required";
+    public static final String ERROR_INSUFFICIENT_STOCK = "Insufficient stock for the requested adjustment";
+    public static final String ERROR_STOCK_LIMIT_EXCEEDED = "Stock adjustment exceeds the maximum stock";
+    public static final String ERROR_INVALID_RANKING_SIZE = "Ranking size must be between 1 and 100";
+    public static final String ERROR_INVALID_PAGE_SIZE = "Page size must be between 1 and 100";
+    public static final String ERROR_INVALID_CURSOR = "Invalid pagination cursor";
+    public static final String ERROR_UNSUPPORTED_SORT = "Unsupported sort for this listing";
+    public static final String ERROR_VERSION_CONFLICT = "Resource was modified by another request";
+    public static final String ERROR_UNSUPPORTED_EXPAND = "Unsupported expand value";
+    public static final String ERROR_EXPANSION_TOO_LARGE = "Franchise is too large to expand, use the paginated listings";
+
+    public static final int MAX_STOCK = 999_999;
+    public static final int MAX_RANKING_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_EXPANDED_BRANCHES = 500;
+    public static final int MAX_EXPANDED_PRODUCTS = 10_000;
     
     public static final String API_BASE_PATH = "/api/franchises";
     public static final String PATH_ID = "/{id}";
@@ -28,6 +44,9 @@ public final class Constants {
     public static final String PATH_PRODUCT_ID = "/{franchiseId}/branches/{branchId}/products/{productId}";
     public static final String PATH_STOCK = "/{franchiseId}/branches/{branchId}/products/{productId}/stock";
     public static final String PATH_MAX_STOCK = "/{franchiseId}/max-stock-products";
+    public static final String PATH_STOCK_RANKING = "/{franchiseId}/stock-ranking";
     public static final String PATH_FRANCHISE_ID = "/{franchiseId}";
+    public static final String PATH_PRODUCTS_IMPORT = "/{franchiseId}/branches/{branchId}/products/import";
+    public static final String PATH_FRANCHISE_PRODUCTS_IMPORT = "/{franchiseId}/products/import";
     public static final String PATH_PRODUCT_BY_NAME = "/{franchiseId}/branches/{branchId}/products/name/{productName}";
 }
@@ -0,0 +1,23 @@
+package co.com.pragma.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Franquicia junto con la cantidad de sucursales y productos que tiene, para decidir si se puede
+ * expandir completa en una respuesta.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder
+public class FranchiseSize {
+    private Franchise franchise;
+    private long branchCount;
+    private long productCount;
+}
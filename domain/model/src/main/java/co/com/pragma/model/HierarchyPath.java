@@ -0,0 +1,39 @@
+package co.com.pragma.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resultado de resolver una ruta franquicia → sucursal → producto en una sola consulta.
+ * Cada nivel queda en {@code null} cuando no existe; {@code branchVersion} y {@code productVersion} son
+ * las versiones de la sucursal y del producto leídas en la misma consulta.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder
+public class HierarchyPath {
+    private Franchise franchise;
+    private Branch branch;
+    private Product product;
+    private long branchVersion;
+    private long productVersion;
+
+    /**
+     * @return el error del primer ancestro (franquicia o sucursal) que falta, o {@code null} si ambos existen
+     */
+    public String missingAncestorError() {
+        if (franchise == null) {
+            return Constants.ERROR_FRANCHISE_NOT_FOUND;
+        }
+        if (branch == null) {
+            return Constants.ERROR_BRANCH_NOT_FOUND;
+        }
+        return null;
+    }
+}
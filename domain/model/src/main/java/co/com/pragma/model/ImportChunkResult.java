@@ -0,0 +1,24 @@
+package co.com.pragma.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder
+public class ImportChunkResult {
+    private long chunk;
+    private int received;
+    private int inserted;
+    @Builder.Default
+    private List<ImportRecordError> errors = new ArrayList<>();
+}
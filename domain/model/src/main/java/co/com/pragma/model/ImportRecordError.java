@@ -0,0 +1,15 @@
+package co.com.pragma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRecordError {
+    private long line;
+    private String message;
+}
@@ -0,0 +1,11 @@
+package co.com.pragma.model;
+
+/**
+ * Criterio de orden de los listados paginados. {@link #ID} y {@link #NAME} ordenan de forma ascendente y
+ * {@link #STOCK} de mayor a menor; este último solo aplica a productos.
+ */
+public enum ListingSort {
+    ID,
+    NAME,
+    STOCK
+}
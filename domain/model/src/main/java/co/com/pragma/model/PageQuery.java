@@ -0,0 +1,21 @@
+package co.com.pragma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Petición de una página de un listado por cursor. El cursor es opaco: lo genera el adaptador en
+ * {@link ResultPage#getNext()} y solo es válido con el mismo {@link ListingSort}. Sin cursor se pide la
+ * primera página.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageQuery {
+    private int limit;
+    private String cursor;
+    private ListingSort sort;
+}
@@ -0,0 +1,20 @@
+package co.com.pragma.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder
+public class ProductImportRecord {
+    private long line;
+    private String branchId;
+    private Product product;
+    private String error;
+}
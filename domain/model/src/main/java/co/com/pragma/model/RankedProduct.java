@@ -0,0 +1,20 @@
+package co.com.pragma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Producto dentro de un ranking de stock. La posición empieza en 1 y es relativa a la sucursal o a la
+ * franquicia según el {@link RankingScope} consultado.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankedProduct {
+    private int rank;
+    private Product product;
+    private Branch branch;
+}
@@ -0,0 +1,9 @@
+package co.com.pragma.model;
+
+/**
+ * Sentido del ranking de stock: {@link #DESC} para los productos con más stock, {@link #ASC} para los de menos.
+ */
+public enum RankingOrder {
+    ASC,
+    DESC
+}
@@ -0,0 +1,9 @@
+package co.com.pragma.model;
+
+/**
+ * Alcance del ranking de stock: los K primeros de cada sucursal o los K primeros de toda la franquicia.
+ */
+public enum RankingScope {
+    BRANCH,
+    FRANCHISE
+}
@@ -0,0 +1,21 @@
+package co.com.pragma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Página de un listado por cursor. {@code next} es el cursor de la página siguiente, o {@code null} si
+ * esta es la última.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultPage<T> {
+    private List<T> items;
+    private String next;
+}
@@ -0,0 +1,18 @@
+package co.com.pragma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Recurso junto con la versión leída en la misma consulta, de la que se obtiene su ETag.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Versioned<T> {
+    private T value;
+    private long version;
+}
@@ -1,14 +1,19 @@
 package co.com.pragma.model.gateways;
 
 import co.com.pragma.model.Branch;
+import co.com.pragma.model.Versioned;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface BranchGateway {
     Mono<Branch> save(String franchiseId, Branch branch);
     Mono<Branch> findById(String franchiseId, String branchId);
+    Mono<Versioned<Branch>> findVersionedById(String franchiseId, String branchId);
     Mono<Void> deleteById(String franchiseId, String branchId);
     Mono<Branch> update(String franchiseId, Branch branch);
+    Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes);
+    Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes, long expectedVersion);
     Flux<Branch> findAllByFranchiseId(String franchiseId);
+    Mono<Long> findVersion(String franchiseId, String branchId);
     Mono<String> getNextId();
 }
@@ -1,6 +1,9 @@
 package co.com.pragma.model.gateways;
 
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -9,6 +12,10 @@ public interface FranchiseGateway {
     Mono<Franchise> findById(String id);
     Mono<Void> deleteById(String id);
     Mono<Franchise> update(Franchise franchise);
+    Mono<Franchise> updateName(String franchiseId, String name);
     Flux<Franchise> findAll();
+    Mono<ResultPage<Franchise>> findPage(PageQuery pageQuery);
+    Mono<Versioned<Franchise>> findVersionedById(String id);
+    Mono<Long> findVersion(String franchiseId);
     Mono<String> getNextId();
 }
@@ -0,0 +1,29 @@
+package co.com.pragma.model.gateways;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.FranchiseSize;
+import co.com.pragma.model.HierarchyPath;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resuelve y valida rutas franquicia → sucursal → producto en un único viaje a la base de datos.
+ * Los métodos {@code resolve*} siempre emiten un {@link HierarchyPath}; los niveles inexistentes quedan en
+ * {@code null}.
+ */
+public interface HierarchyGateway {
+    Mono<HierarchyPath> resolveBranch(String franchiseId, String branchId);
+    Mono<HierarchyPath> resolveProduct(String franchiseId, String branchId, String productId);
+    Mono<HierarchyPath> resolveProductByName(String franchiseId, String branchId, String productName);
+
+    /**
+     * Franquicia con sus conteos de sucursales y productos; vacío si la franquicia no existe.
+     */
+    Mono<FranchiseSize> measureFranchise(String franchiseId);
+
+    /**
+     * Sucursales de la franquicia en orden de ID, con sus productos si {@code withProducts}. Los límites
+     * acotan la respuesta aunque la franquicia crezca mientras se recorre.
+     */
+    Flux<Branch> findBranches(String franchiseId, boolean withProducts, int maxBranches, int maxProductsPerBranch);
+}
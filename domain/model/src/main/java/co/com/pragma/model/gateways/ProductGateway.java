@@ -1,17 +1,37 @@
 package co.com.pragma.model.gateways;
 
+import co.com.pragma.model.ImportRecordError;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
 import co.com.pragma.model.ProductWithBranch;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.ResultPage;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface ProductGateway {
     Mono<Product> save(String franchiseId, String branchId, Product product);
     Mono<Product> findById(String franchiseId, String branchId, String productId);
     Mono<Product> findByName(String franchiseId, String branchId, String productName);
     Mono<Void> deleteById(String franchiseId, String branchId, String productId);
     Mono<Product> update(String franchiseId, String branchId, Product product);
+    Mono<Product> updateStock(String franchiseId, String branchId, String productId, Integer stock);
+    Mono<Product> updateName(String franchiseId, String branchId, String productId, String name);
+    Mono<Product> updateStock(String franchiseId, String branchId, String productId, Integer stock, long expectedVersion);
+    Mono<Product> updateName(String franchiseId, String branchId, String productId, String name, long expectedVersion);
+    Mono<Product> adjustStock(String franchiseId, String branchId, String productId, int delta);
     Flux<ProductWithBranch> findMaxStockProductsByFranchise(String franchiseId);
+    Flux<RankedProduct> findStockRanking(String franchiseId, RankingScope scope, RankingOrder order, int size);
     Flux<Product> findAllByBranch(String franchiseId, String branchId);
+    Mono<ResultPage<Product>> findPageByBranch(String franchiseId, String branchId, PageQuery pageQuery);
+    Mono<Long> findVersion(String franchiseId, String branchId, String productId);
+    Mono<Long> findListVersion(String franchiseId, String branchId);
     Mono<String> getNextId();
+    Flux<String> getNextIds(int count);
+    Flux<ImportRecordError> insertAll(String franchiseId, List<ProductImportRecord> records);
 }
@@ -2,8 +2,7 @@ package co.com.pragma.usecase.addproduct;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
-import co.com.pragma.model.gateways.FranchiseGateway;
+import co.com.pragma.model.gateways.HierarchyGateway;
 import co.com.pragma.model.gateways.ProductGateway;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
@@ -11,8 +10,7 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class AddProductUseCase {
     private final ProductGateway productGateway;
-    private final BranchGateway branchGateway;
-    private final FranchiseGateway franchiseGateway;
+    private final HierarchyGateway hierarchyGateway;
 
     public Mono<Product> execute(String franchiseId, String branchId, Product product) {
         if (product.getName() == null || product.getName().trim().isEmpty()) {
@@ -23,11 +21,10 @@ public class AddProductUseCase {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_STOCK));
         }
         
-        return franchiseGateway.findById(franchiseId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> branchGateway.findById(franchiseId, branchId))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
-                .flatMap(branch -> productGateway.getNextId())
+        return hierarchyGateway.resolveBranch(franchiseId, branchId)
+                .flatMap(path -> path.missingAncestorError() != null
+                        ? Mono.<String>error(new IllegalArgumentException(path.missingAncestorError()))
+                        : productGateway.getNextId())
                 .flatMap(nextId -> {
                     product.setId(nextId);
                     return productGateway.save(franchiseId, branchId, product);
@@ -0,0 +1,28 @@
+package co.com.pragma.usecase.adjustproductstock;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.gateways.ProductGateway;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class AdjustProductStockUseCase {
+    private final ProductGateway productGateway;
+
+    public Mono<Product> execute(String franchiseId, String branchId, String productId, Integer delta) {
+        if (delta == null) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_STOCK_DELTA));
+        }
+
+        return productGateway.adjustStock(franchiseId, branchId, productId, delta)
+                .switchIfEmpty(Mono.defer(() -> rejected(franchiseId, branchId, productId, delta)));
+    }
+
+    private Mono<Product> rejected(String franchiseId, String branchId, String productId, int delta) {
+        String conflict = delta < 0 ? Constants.ERROR_INSUFFICIENT_STOCK : Constants.ERROR_STOCK_LIMIT_EXCEEDED;
+        return productGateway.findById(franchiseId, branchId, productId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)))
+                .then(Mono.error(new IllegalStateException(conflict)));
+    }
+}
@@ -0,0 +1,40 @@
+package co.com.pragma.usecase.expandfranchise;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.gateways.HierarchyGateway;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Vista completa de una franquicia: sus datos y, por separado, sus sucursales con o sin productos, para
+ * que la respuesta pueda escribir las sucursales a medida que llegan.
+ * <p>
+ * {@link #franchise(String, boolean)} comprueba antes que la franquicia exista y que no supere
+ * {@link Constants#MAX_EXPANDED_BRANCHES} ni {@link Constants#MAX_EXPANDED_PRODUCTS}; las franquicias más
+ * grandes deben recorrerse con los listados paginados.
+ */
+@RequiredArgsConstructor
+public class ExpandFranchiseUseCase {
+    private final HierarchyGateway hierarchyGateway;
+
+    public Mono<Franchise> franchise(String franchiseId, boolean withProducts) {
+        if (franchiseId == null || franchiseId.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND));
+        }
+
+        return hierarchyGateway.measureFranchise(franchiseId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
+                .flatMap(size -> size.getBranchCount() > Constants.MAX_EXPANDED_BRANCHES
+                        || withProducts && size.getProductCount() > Constants.MAX_EXPANDED_PRODUCTS
+                        ? Mono.<Franchise>error(new IllegalArgumentException(Constants.ERROR_EXPANSION_TOO_LARGE))
+                        : Mono.just(size.getFranchise()));
+    }
+
+    public Flux<Branch> branches(String franchiseId, boolean withProducts) {
+        return hierarchyGateway.findBranches(franchiseId, withProducts,
+                Constants.MAX_EXPANDED_BRANCHES, Constants.MAX_EXPANDED_PRODUCTS);
+    }
+}
@@ -1,9 +1,14 @@
 package co.com.pragma.usecase.getallfranchises;
 
+import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RequiredArgsConstructor
 public class GetAllFranchisesUseCase {
@@ -12,4 +17,15 @@ public class GetAllFranchisesUseCase {
     public Flux<Franchise> execute() {
         return franchiseGateway.findAll();
     }
+
+    public Mono<ResultPage<Franchise>> execute(PageQuery pageQuery) {
+        if (pageQuery.getLimit() < 1 || pageQuery.getLimit() > Constants.MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_PAGE_SIZE));
+        }
+        if (pageQuery.getSort() == ListingSort.STOCK) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_UNSUPPORTED_SORT));
+        }
+
+        return franchiseGateway.findPage(pageQuery);
+    }
 }
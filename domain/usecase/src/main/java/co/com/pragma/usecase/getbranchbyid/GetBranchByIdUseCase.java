@@ -2,6 +2,7 @@ package co.com.pragma.usecase.getbranchbyid;
 
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.BranchGateway;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import lombok.RequiredArgsConstructor;
@@ -9,10 +10,18 @@ import reactor.core.publisher.Mono;
 
 @RequiredArgsConstructor
 public class GetBranchByIdUseCase {
-    private final BranchGateway branchGateway;
     private final FranchiseGateway franchiseGateway;
+    private final BranchGateway branchGateway;
 
     public Mono<Branch> execute(String franchiseId, String branchId) {
+        return executeVersioned(franchiseId, branchId)
+                .map(Versioned::getValue);
+    }
+
+    /**
+     * Sucursal y versión de una misma lectura.
+     */
+    public Mono<Versioned<Branch>> executeVersioned(String franchiseId, String branchId) {
         if (franchiseId == null || franchiseId.trim().isEmpty()) {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND));
         }
@@ -23,7 +32,18 @@ public class GetBranchByIdUseCase {
         
         return franchiseGateway.findById(franchiseId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> branchGateway.findById(franchiseId, branchId))
+                .then(Mono.defer(() -> branchGateway.findVersionedById(franchiseId, branchId)))
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
     }
+
+    /**
+     * Solo la versión de la sucursal; vacío si no existe.
+     */
+    public Mono<Long> executeVersion(String franchiseId, String branchId) {
+        if (franchiseId == null || franchiseId.trim().isEmpty() || branchId == null || branchId.trim().isEmpty()) {
+            return Mono.empty();
+        }
+
+        return branchGateway.findVersion(franchiseId, branchId);
+    }
 }
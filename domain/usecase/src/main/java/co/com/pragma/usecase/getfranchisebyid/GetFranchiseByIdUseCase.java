@@ -2,6 +2,7 @@ package co.com.pragma.usecase.getfranchisebyid;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
@@ -18,4 +19,27 @@ public class GetFranchiseByIdUseCase {
         return franchiseGateway.findById(franchiseId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
     }
+
+    /**
+     * Franquicia y versión de una misma lectura.
+     */
+    public Mono<Versioned<Franchise>> executeVersioned(String franchiseId) {
+        if (franchiseId == null || franchiseId.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND));
+        }
+
+        return franchiseGateway.findVersionedById(franchiseId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
+    }
+
+    /**
+     * Solo la versión de la franquicia; vacío si no existe.
+     */
+    public Mono<Long> executeVersion(String franchiseId) {
+        if (franchiseId == null || franchiseId.trim().isEmpty()) {
+            return Mono.empty();
+        }
+
+        return franchiseGateway.findVersion(franchiseId);
+    }
 }
@@ -2,19 +2,24 @@ package co.com.pragma.usecase.getproductbyname;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
-import co.com.pragma.model.gateways.FranchiseGateway;
-import co.com.pragma.model.gateways.ProductGateway;
+import co.com.pragma.model.Versioned;
+import co.com.pragma.model.gateways.HierarchyGateway;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
 @RequiredArgsConstructor
 public class GetProductByNameUseCase {
-    private final ProductGateway productGateway;
-    private final BranchGateway branchGateway;
-    private final FranchiseGateway franchiseGateway;
+    private final HierarchyGateway hierarchyGateway;
 
     public Mono<Product> execute(String franchiseId, String branchId, String productName) {
+        return executeVersioned(franchiseId, branchId, productName)
+                .map(Versioned::getValue);
+    }
+
+    /**
+     * Producto y versión resueltos en la misma consulta.
+     */
+    public Mono<Versioned<Product>> executeVersioned(String franchiseId, String branchId, String productName) {
         if (franchiseId == null || franchiseId.trim().isEmpty()) {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND));
         }
@@ -27,11 +32,15 @@ public class GetProductByNameUseCase {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_NAME));
         }
         
-        return franchiseGateway.findById(franchiseId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> branchGateway.findById(franchiseId, branchId))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
-                .flatMap(branch -> productGateway.findByName(franchiseId, branchId, productName))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)));
+        return hierarchyGateway.resolveProductByName(franchiseId, branchId, productName)
+                .flatMap(path -> {
+                    if (path.missingAncestorError() != null) {
+                        return Mono.error(new IllegalArgumentException(path.missingAncestorError()));
+                    }
+                    if (path.getProduct() == null) {
+                        return Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND));
+                    }
+                    return Mono.just(new Versioned<>(path.getProduct(), path.getProductVersion()));
+                });
     }
 }
@@ -1,6 +1,8 @@
 package co.com.pragma.usecase.getproductsbybranch;
 
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.ResultPage;
 import co.com.pragma.model.gateways.BranchGateway;
 import co.com.pragma.model.gateways.ProductGateway;
 import co.com.pragma.model.Constants;
@@ -18,4 +20,14 @@ public class GetProductsByBranchUseCase {
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
                 .flatMapMany(branch -> productGateway.findAllByBranch(franchiseId, branchId));
     }
+
+    public Mono<ResultPage<Product>> execute(String franchiseId, String branchId, PageQuery pageQuery) {
+        if (pageQuery.getLimit() < 1 || pageQuery.getLimit() > Constants.MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_PAGE_SIZE));
+        }
+
+        return branchGateway.findById(franchiseId, branchId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
+                .flatMap(branch -> productGateway.findPageByBranch(franchiseId, branchId, pageQuery));
+    }
 }
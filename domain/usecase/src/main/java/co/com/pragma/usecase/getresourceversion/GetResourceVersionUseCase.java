@@ -0,0 +1,18 @@
+package co.com.pragma.usecase.getresourceversion;
+
+import co.com.pragma.model.gateways.ProductGateway;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versiones de los recursos que admiten peticiones condicionales. Cada método completa vacío cuando el
+ * recurso no existe, para que la petición siga por la lectura completa y responda el error habitual.
+ */
+@RequiredArgsConstructor
+public class GetResourceVersionUseCase {
+    private final ProductGateway productGateway;
+
+    public Mono<Long> productListVersion(String franchiseId, String branchId) {
+        return productGateway.findListVersion(franchiseId, branchId);
+    }
+}
@@ -0,0 +1,22 @@
+package co.com.pragma.usecase.getstockranking;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.gateways.ProductGateway;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+
+@RequiredArgsConstructor
+public class GetStockRankingUseCase {
+    private final ProductGateway productGateway;
+
+    public Flux<RankedProduct> execute(String franchiseId, RankingScope scope, RankingOrder order, int size) {
+        if (size < 1 || size > Constants.MAX_RANKING_SIZE) {
+            return Flux.error(new IllegalArgumentException(Constants.ERROR_INVALID_RANKING_SIZE));
+        }
+
+        return productGateway.findStockRanking(franchiseId, scope, order, size);
+    }
+}
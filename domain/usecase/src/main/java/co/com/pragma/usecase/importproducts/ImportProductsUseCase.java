@@ -0,0 +1,103 @@
+package co.com.pragma.usecase.importproducts;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.ImportChunkResult;
+import co.com.pragma.model.ImportRecordError;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.gateways.BranchGateway;
+import co.com.pragma.model.gateways.ProductGateway;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importa productos a una franquicia por bloques de tamaño fijo, reportando los registros inválidos en el
+ * resultado de cada bloque
+ */
+@RequiredArgsConstructor
+public class ImportProductsUseCase {
+    static final int CHUNK_SIZE = 500;
+
+    private final ProductGateway productGateway;
+    private final BranchGateway branchGateway;
+
+    public Flux<ImportChunkResult> execute(String franchiseId, Flux<ProductImportRecord> records) {
+        Mono<Set<String>> branchIds = branchGateway.findAllByFranchiseId(franchiseId)
+                .map(Branch::getId)
+                .collect(Collectors.toSet())
+                .cache();
+
+        return records
+                .buffer(CHUNK_SIZE)
+                .index()
+                .concatMap(chunk -> branchIds.flatMap(ids ->
+                        importChunk(franchiseId, ids, chunk.getT1() + 1, chunk.getT2())), 1);
+    }
+
+    private Mono<ImportChunkResult> importChunk(String franchiseId, Set<String> branchIds,
+                                                long chunkNumber, List<ProductImportRecord> chunk) {
+        List<ImportRecordError> errors = new ArrayList<>();
+        List<ProductImportRecord> valid = new ArrayList<>(chunk.size());
+        for (ProductImportRecord importRecord : chunk) {
+            String error = validate(importRecord, branchIds);
+            if (error != null) {
+                errors.add(new ImportRecordError(importRecord.getLine(), error));
+            } else {
+                valid.add(importRecord);
+            }
+        }
+
+        if (valid.isEmpty()) {
+            return Mono.just(result(chunkNumber, chunk.size(), 0, errors));
+        }
+
+        return productGateway.getNextIds(valid.size())
+                .collectList()
+                .flatMapMany(ids -> {
+                    for (int i = 0; i < valid.size(); i++) {
+                        valid.get(i).getProduct().setId(ids.get(i));
+                    }
+                    return productGateway.insertAll(franchiseId, valid);
+                })
+                .collectList()
+                .map(failed -> {
+                    errors.addAll(failed);
+                    return result(chunkNumber, chunk.size(), valid.size() - failed.size(), errors);
+                });
+    }
+
+    private String validate(ProductImportRecord importRecord, Set<String> branchIds) {
+        if (importRecord.getError() != null) {
+            return importRecord.getError();
+        }
+        Product product = importRecord.getProduct();
+        if (product == null || product.getName() == null || product.getName().trim().isEmpty()) {
+            return Constants.ERROR_INVALID_NAME;
+        }
+        if (product.getStock() == null || product.getStock() < 0) {
+            return Constants.ERROR_INVALID_STOCK;
+        }
+        if (!branchIds.contains(importRecord.getBranchId())) {
+            return Constants.ERROR_BRANCH_NOT_FOUND;
+        }
+        return null;
+    }
+
+    private ImportChunkResult result(long chunkNumber, int received, int inserted, List<ImportRecordError> errors) {
+        errors.sort(Comparator.comparingLong(ImportRecordError::getLine));
+        return ImportChunkResult.builder()
+                .chunk(chunkNumber)
+                .received(received)
+                .inserted(inserted)
+                .errors(errors)
+                .build();
+    }
+}
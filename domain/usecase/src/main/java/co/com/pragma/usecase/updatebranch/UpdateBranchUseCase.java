@@ -13,21 +13,38 @@ public class UpdateBranchUseCase {
     private final FranchiseGateway franchiseGateway;
 
     public Mono<Branch> execute(String franchiseId, String branchId, Branch branchUpdate) {
+        return branchGateway.updateBranchFields(franchiseId, branchId, changes(branchUpdate))
+                .switchIfEmpty(Mono.defer(() -> notFound(franchiseId)));
+    }
+
+    /**
+     * Aplica los cambios solo si la sucursal sigue en {@code expectedVersion}. Si otra escritura se
+     * adelantó falla con {@link Constants#ERROR_VERSION_CONFLICT}; la escritura no se reintenta.
+     */
+    public Mono<Branch> execute(String franchiseId, String branchId, Branch branchUpdate, long expectedVersion) {
+        return branchGateway.updateBranchFields(franchiseId, branchId, changes(branchUpdate), expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> branchGateway.findVersion(franchiseId, branchId)
+                        .flatMap(current -> Mono.<Branch>error(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)))
+                        .switchIfEmpty(Mono.defer(() -> notFound(franchiseId)))));
+    }
+
+    private Branch changes(Branch branchUpdate) {
+        Branch changes = new Branch();
+        if (branchUpdate.getName() != null && !branchUpdate.getName().trim().isEmpty()) {
+            changes.setName(branchUpdate.getName().trim());
+        }
+        if (branchUpdate.getAddress() != null) {
+            changes.setAddress(branchUpdate.getAddress().trim());
+        }
+        if (branchUpdate.getCity() != null) {
+            changes.setCity(branchUpdate.getCity().trim());
+        }
+        return changes;
+    }
+
+    private Mono<Branch> notFound(String franchiseId) {
         return franchiseGateway.findById(franchiseId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> branchGateway.findById(franchiseId, branchId))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
-                .flatMap(existingBranch -> {
-                    if (branchUpdate.getName() != null && !branchUpdate.getName().trim().isEmpty()) {
-                        existingBranch.setName(branchUpdate.getName().trim());
-                    }
-                    if (branchUpdate.getAddress() != null) {
-                        existingBranch.setAddress(branchUpdate.getAddress().trim());
-                    }
-                    if (branchUpdate.getCity() != null) {
-                        existingBranch.setCity(branchUpdate.getCity().trim());
-                    }
-                    return branchGateway.update(franchiseId, existingBranch);
-                });
+                .then(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
     }
 }
@@ -17,13 +17,13 @@ public class UpdateBranchNameUseCase {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_NAME));
         }
         
+        return branchGateway.updateBranchFields(franchiseId, branchId, Branch.builder().name(newName).build())
+                .switchIfEmpty(Mono.defer(() -> notFound(franchiseId)));
+    }
+
+    private Mono<Branch> notFound(String franchiseId) {
         return franchiseGateway.findById(franchiseId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> branchGateway.findById(franchiseId, branchId))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
-                .flatMap(branch -> {
-                    branch.setName(newName);
-                    return branchGateway.update(franchiseId, branch);
-                });
+                .then(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
     }
 }
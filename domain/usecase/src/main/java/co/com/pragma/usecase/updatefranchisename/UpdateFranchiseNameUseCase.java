@@ -15,11 +15,7 @@ public class UpdateFranchiseNameUseCase {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_NAME));
         }
         
-        return franchiseGateway.findById(franchiseId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> {
-                    franchise.setName(newName);
-                    return franchiseGateway.update(franchise);
-                });
+        return franchiseGateway.updateName(franchiseId, newName)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
     }
 }
@@ -2,8 +2,7 @@ package co.com.pragma.usecase.updateproductname;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
-import co.com.pragma.model.gateways.FranchiseGateway;
+import co.com.pragma.model.gateways.HierarchyGateway;
 import co.com.pragma.model.gateways.ProductGateway;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
@@ -11,23 +10,37 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class UpdateProductNameUseCase {
     private final ProductGateway productGateway;
-    private final BranchGateway branchGateway;
-    private final FranchiseGateway franchiseGateway;
+    private final HierarchyGateway hierarchyGateway;
 
     public Mono<Product> execute(String franchiseId, String branchId, String productId, String newName) {
         if (newName == null || newName.trim().isEmpty()) {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_NAME));
         }
         
-        return franchiseGateway.findById(franchiseId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(franchise -> branchGateway.findById(franchiseId, branchId))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
-                .flatMap(branch -> productGateway.findById(franchiseId, branchId, productId))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)))
-                .flatMap(product -> {
-                    product.setName(newName);
-                    return productGateway.update(franchiseId, branchId, product);
-                });
+        return productGateway.updateName(franchiseId, branchId, productId, newName)
+                .switchIfEmpty(Mono.defer(() -> notFound(franchiseId, branchId)));
+    }
+
+    /**
+     * Renombra solo si el producto sigue en {@code expectedVersion}; si cambió entre medias falla con
+     * {@link Constants#ERROR_VERSION_CONFLICT}.
+     */
+    public Mono<Product> execute(String franchiseId, String branchId, String productId, String newName,
+                                 long expectedVersion) {
+        if (newName == null || newName.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_NAME));
+        }
+
+        return productGateway.updateName(franchiseId, branchId, productId, newName, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> productGateway.findVersion(franchiseId, branchId, productId)
+                        .flatMap(current -> Mono.<Product>error(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)))
+                        .switchIfEmpty(Mono.defer(() -> notFound(franchiseId, branchId)))));
+    }
+
+    private Mono<Product> notFound(String franchiseId, String branchId) {
+        return hierarchyGateway.resolveBranch(franchiseId, branchId)
+                .flatMap(path -> Mono.error(new IllegalArgumentException(path.missingAncestorError() != null
+                        ? path.missingAncestorError()
+                        : Constants.ERROR_PRODUCT_NOT_FOUND)));
     }
 }
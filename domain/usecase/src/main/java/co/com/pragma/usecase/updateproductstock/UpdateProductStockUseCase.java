@@ -15,11 +15,23 @@ public class UpdateProductStockUseCase {
             return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_STOCK));
         }
         
-        return productGateway.findById(franchiseId, branchId, productId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)))
-                .flatMap(product -> {
-                    product.setStock(stock);
-                    return productGateway.update(franchiseId, branchId, product);
-                });
+        return productGateway.updateStock(franchiseId, branchId, productId, stock)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)));
+    }
+
+    /**
+     * Fija el stock solo si el producto sigue en {@code expectedVersion}; si cambió entre medias falla con
+     * {@link Constants#ERROR_VERSION_CONFLICT}.
+     */
+    public Mono<Product> execute(String franchiseId, String branchId, String productId, Integer stock,
+                                 long expectedVersion) {
+        if (stock == null || stock < 0) {
+            return Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_STOCK));
+        }
+
+        return productGateway.updateStock(franchiseId, branchId, productId, stock, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> productGateway.findVersion(franchiseId, branchId, productId)
+                        .flatMap(current -> Mono.<Product>error(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)))
+                        .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)))));
     }
 }
@@ -3,9 +3,9 @@ package co.com.pragma.usecase.addproduct;
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.HierarchyPath;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
-import co.com.pragma.model.gateways.FranchiseGateway;
+import co.com.pragma.model.gateways.HierarchyGateway;
 import co.com.pragma.model.gateways.ProductGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,16 +29,13 @@ class AddProductUseCaseTest {
     private ProductGateway productGateway;
 
     @Mock
-    private BranchGateway branchGateway;
-
-    @Mock
-    private FranchiseGateway franchiseGateway;
+    private HierarchyGateway hierarchyGateway;
 
     private AddProductUseCase useCase;
 
     @BeforeEach
     void setUp() {
-        useCase = new AddProductUseCase(productGateway, branchGateway, franchiseGateway);
+        useCase = new AddProductUseCase(productGateway, hierarchyGateway);
     }
 
     @Test
@@ -62,8 +59,8 @@ class AddProductUseCaseTest {
         savedProduct.setName("Test Product");
         savedProduct.setStock(50);
 
-        when(franchiseGateway.findById(franchiseId)).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById(franchiseId, branchId)).thenReturn(Mono.just(branch));
+        when(hierarchyGateway.resolveBranch(franchiseId, branchId))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).branch(branch).build()));
         when(productGateway.getNextId()).thenReturn(Mono.just(productId));
         when(productGateway.save(eq(franchiseId), eq(branchId), any(Product.class))).thenReturn(Mono.just(savedProduct));
 
@@ -118,7 +115,7 @@ class AddProductUseCaseTest {
         product.setName("Test Product");
         product.setStock(10);
 
-        when(franchiseGateway.findById("999")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveBranch("999", "10")).thenReturn(Mono.just(new HierarchyPath()));
 
         StepVerifier.create(useCase.execute("999", "10", product))
                 .expectErrorMatches(error -> error instanceof IllegalArgumentException 
@@ -138,8 +135,8 @@ class AddProductUseCaseTest {
         Franchise franchise = new Franchise();
         franchise.setId(franchiseId);
 
-        when(franchiseGateway.findById(franchiseId)).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById(franchiseId, branchId)).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveBranch(franchiseId, branchId))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).build()));
 
         StepVerifier.create(useCase.execute(franchiseId, branchId, product))
                 .expectErrorMatches(error -> error instanceof IllegalArgumentException 
@@ -168,8 +165,8 @@ class AddProductUseCaseTest {
         savedProduct.setName("Test Product");
         savedProduct.setStock(0);
 
-        when(franchiseGateway.findById(franchiseId)).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById(franchiseId, branchId)).thenReturn(Mono.just(branch));
+        when(hierarchyGateway.resolveBranch(franchiseId, branchId))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).branch(branch).build()));
         when(productGateway.getNextId()).thenReturn(Mono.just(productId));
         when(productGateway.save(eq(franchiseId), eq(branchId), any(Product.class))).thenReturn(Mono.just(savedProduct));
 
@@ -0,0 +1,124 @@
+package co.com.pragma.usecase.adjustproductstock;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.gateways.ProductGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdjustProductStockUseCaseTest {
+
+    @Mock
+    private ProductGateway productGateway;
+
+    private AdjustProductStockUseCase adjustProductStockUseCase;
+
+    @BeforeEach
+    void setUp() {
+        adjustProductStockUseCase = new AdjustProductStockUseCase(productGateway);
+    }
+
+    @Test
+    void testExecuteWithNullDelta() {
+        StepVerifier.create(adjustProductStockUseCase.execute("1", "1", "1", null))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_INVALID_STOCK_DELTA))
+                .verify();
+
+        verifyNoInteractions(productGateway);
+    }
+
+    @Test
+    void testExecuteSuccess() {
+        Product updatedProduct = new Product("1", "Product 1", 7);
+
+        when(productGateway.adjustStock("1", "1", "1", -3)).thenReturn(Mono.just(updatedProduct));
+
+        StepVerifier.create(adjustProductStockUseCase.execute("1", "1", "1", -3))
+                .expectNextMatches(p -> p.getStock().equals(7))
+                .verifyComplete();
+
+        verify(productGateway, never()).findById(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testExecuteProductNotFound() {
+        when(productGateway.adjustStock("1", "1", "999", -3)).thenReturn(Mono.empty());
+        when(productGateway.findById("1", "1", "999")).thenReturn(Mono.empty());
+
+        StepVerifier.create(adjustProductStockUseCase.execute("1", "1", "999", -3))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_PRODUCT_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void testExecuteInsufficientStock() {
+        when(productGateway.adjustStock("1", "1", "1", -30)).thenReturn(Mono.empty());
+        when(productGateway.findById("1", "1", "1")).thenReturn(Mono.just(new Product("1", "Product 1", 10)));
+
+        StepVerifier.create(adjustProductStockUseCase.execute("1", "1", "1", -30))
+                .expectErrorMatches(e -> e instanceof IllegalStateException
+                        && e.getMessage().equals(Constants.ERROR_INSUFFICIENT_STOCK))
+                .verify();
+    }
+
+    @Test
+    void testExecuteStockLimitExceeded() {
+        when(productGateway.adjustStock("1", "1", "1", 10)).thenReturn(Mono.empty());
+        when(productGateway.findById("1", "1", "1")).thenReturn(Mono.just(new Product("1", "Product 1", 999_995)));
+
+        StepVerifier.create(adjustProductStockUseCase.execute("1", "1", "1", 10))
+                .expectErrorMatches(e -> e instanceof IllegalStateException
+                        && e.getMessage().equals(Constants.ERROR_STOCK_LIMIT_EXCEEDED))
+                .verify();
+    }
+
+    @Test
+    void testExecuteConcurrentDecrementsKeepExactCount() {
+        AtomicInteger stock = new AtomicInteger(300);
+        when(productGateway.adjustStock(eq("1"), eq("1"), eq("1"), anyInt())).thenAnswer(invocation -> {
+            int delta = invocation.getArgument(3);
+            return Mono.fromCallable(() -> {
+                while (true) {
+                    int current = stock.get();
+                    if (current + delta < 0) {
+                        return null;
+                    }
+                    if (stock.compareAndSet(current, current + delta)) {
+                        return new Product("1", "Product 1", current + delta);
+                    }
+                }
+            });
+        });
+        when(productGateway.findById("1", "1", "1")).thenAnswer(invocation -> Mono.just(new Product("1", "Product 1", stock.get())));
+
+        AtomicInteger rejected = new AtomicInteger();
+        StepVerifier.create(Flux.range(0, 500)
+                        .flatMap(i -> adjustProductStockUseCase.execute("1", "1", "1", -1)
+                                .subscribeOn(Schedulers.parallel())
+                                .onErrorResume(IllegalStateException.class, e -> {
+                                    rejected.incrementAndGet();
+                                    return Mono.empty();
+                                }))
+                        .count())
+                .expectNext(300L)
+                .verifyComplete();
+
+        assertEquals(0, stock.get());
+        assertEquals(200, rejected.get());
+    }
+}
@@ -0,0 +1,107 @@
+package co.com.pragma.usecase.expandfranchise;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.FranchiseSize;
+import co.com.pragma.model.gateways.HierarchyGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpandFranchiseUseCaseTest {
+
+    @Mock
+    private HierarchyGateway hierarchyGateway;
+
+    private ExpandFranchiseUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        useCase = new ExpandFranchiseUseCase(hierarchyGateway);
+    }
+
+    @Test
+    void franchise_Success() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+
+        when(hierarchyGateway.measureFranchise("1")).thenReturn(Mono.just(size(franchise, 2, 10)));
+
+        StepVerifier.create(useCase.franchise("1", true))
+                .expectNext(franchise)
+                .verifyComplete();
+    }
+
+    @Test
+    void franchise_NotFound() {
+        when(hierarchyGateway.measureFranchise("999")).thenReturn(Mono.empty());
+
+        StepVerifier.create(useCase.franchise("999", true))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void franchise_IdEmpty() {
+        StepVerifier.create(useCase.franchise(" ", false))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
+                .verify();
+
+        verifyNoInteractions(hierarchyGateway);
+    }
+
+    @Test
+    void franchise_TooManyBranches() {
+        Franchise franchise = Franchise.builder().id("1").build();
+
+        when(hierarchyGateway.measureFranchise("1"))
+                .thenReturn(Mono.just(size(franchise, Constants.MAX_EXPANDED_BRANCHES + 1L, 0)));
+
+        StepVerifier.create(useCase.franchise("1", false))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_EXPANSION_TOO_LARGE))
+                .verify();
+    }
+
+    @Test
+    void franchise_ProductLimitOnlyAppliesWhenExpandingProducts() {
+        Franchise franchise = Franchise.builder().id("1").build();
+
+        when(hierarchyGateway.measureFranchise("1"))
+                .thenReturn(Mono.just(size(franchise, 1, Constants.MAX_EXPANDED_PRODUCTS + 1L)));
+
+        StepVerifier.create(useCase.franchise("1", false))
+                .expectNext(franchise)
+                .verifyComplete();
+        StepVerifier.create(useCase.franchise("1", true))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_EXPANSION_TOO_LARGE))
+                .verify();
+    }
+
+    @Test
+    void branches_PassesLimitsToGateway() {
+        Branch branch = Branch.builder().id("1").name("Branch 1").build();
+
+        when(hierarchyGateway.findBranches("1", true, Constants.MAX_EXPANDED_BRANCHES, Constants.MAX_EXPANDED_PRODUCTS))
+                .thenReturn(Flux.just(branch));
+
+        StepVerifier.create(useCase.branches("1", true))
+                .expectNext(branch)
+                .verifyComplete();
+    }
+
+    private static FranchiseSize size(Franchise franchise, long branches, long products) {
+        return FranchiseSize.builder().franchise(franchise).branchCount(branches).productCount(products).build();
+    }
+}
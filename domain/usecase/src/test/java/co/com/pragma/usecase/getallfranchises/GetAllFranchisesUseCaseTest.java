@@ -1,6 +1,10 @@
 package co.com.pragma.usecase.getallfranchises;
 
+import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,8 +12,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,4 +47,36 @@ class GetAllFranchisesUseCaseTest {
 
         verify(franchiseGateway).findAll();
     }
+
+    @Test
+    void testExecutePage() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+        PageQuery pageQuery = new PageQuery(1, null, ListingSort.NAME);
+
+        when(franchiseGateway.findPage(pageQuery)).thenReturn(Mono.just(new ResultPage<>(List.of(franchise), "cursor")));
+
+        StepVerifier.create(getAllFranchisesUseCase.execute(pageQuery))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getNext().equals("cursor"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testExecutePageInvalidLimit() {
+        StepVerifier.create(getAllFranchisesUseCase.execute(new PageQuery(Constants.MAX_PAGE_SIZE + 1, null, ListingSort.ID)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_INVALID_PAGE_SIZE))
+                .verify();
+
+        verify(franchiseGateway, never()).findPage(any());
+    }
+
+    @Test
+    void testExecutePageRejectsStockSort() {
+        StepVerifier.create(getAllFranchisesUseCase.execute(new PageQuery(10, null, ListingSort.STOCK)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_UNSUPPORTED_SORT))
+                .verify();
+
+        verify(franchiseGateway, never()).findPage(any());
+    }
 }
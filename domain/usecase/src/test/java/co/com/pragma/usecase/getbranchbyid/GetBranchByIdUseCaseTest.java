@@ -3,6 +3,7 @@ package co.com.pragma.usecase.getbranchbyid;
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.BranchGateway;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,16 +19,17 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class GetBranchByIdUseCaseTest {
 
-    @Mock
-    private BranchGateway branchGateway;
     @Mock
     private FranchiseGateway franchiseGateway;
 
+    @Mock
+    private BranchGateway branchGateway;
+
     private GetBranchByIdUseCase useCase;
 
     @BeforeEach
     void setUp() {
-        useCase = new GetBranchByIdUseCase(branchGateway, franchiseGateway);
+        useCase = new GetBranchByIdUseCase(franchiseGateway, branchGateway);
     }
 
     @Test
@@ -38,14 +40,46 @@ class GetBranchByIdUseCaseTest {
         branch.setId("1");
 
         when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(branch));
+        when(branchGateway.findVersionedById("1", "1")).thenReturn(Mono.just(new Versioned<>(branch, 0L)));
 
         StepVerifier.create(useCase.execute("1", "1"))
                 .expectNext(branch)
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
+        verify(branchGateway).findVersionedById("1", "1");
+    }
+
+    @Test
+    void executeVersioned_KeepsVersionOfTheSameRead() {
+        Branch branch = new Branch();
+        branch.setId("1");
+
+        when(franchiseGateway.findById("1")).thenReturn(Mono.just(new Franchise()));
+        when(branchGateway.findVersionedById("1", "1")).thenReturn(Mono.just(new Versioned<>(branch, 4L)));
+
+        StepVerifier.create(useCase.executeVersioned("1", "1"))
+                .expectNextMatches(versioned -> versioned.getValue() == branch && versioned.getVersion() == 4L)
+                .verifyComplete();
+    }
+
+    @Test
+    void executeVersion_ReadsOnlyTheVersion() {
+        when(branchGateway.findVersion("1", "1")).thenReturn(Mono.just(4L));
+
+        StepVerifier.create(useCase.executeVersion("1", "1"))
+                .expectNext(4L)
+                .verifyComplete();
+
+        verifyNoInteractions(franchiseGateway);
+        verify(branchGateway, never()).findVersionedById(anyString(), anyString());
+    }
+
+    @Test
+    void executeVersion_BlankIdsCompleteEmpty() {
+        StepVerifier.create(useCase.executeVersion("1", " "))
+                .verifyComplete();
+
+        verifyNoInteractions(branchGateway);
     }
 
     @Test
@@ -97,7 +131,6 @@ class GetBranchByIdUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
 
-        verify(franchiseGateway).findById("999");
         verifyNoInteractions(branchGateway);
     }
 
@@ -107,14 +140,13 @@ class GetBranchByIdUseCaseTest {
         franchise.setId("1");
 
         when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "999")).thenReturn(Mono.empty());
+        when(branchGateway.findVersionedById("1", "999")).thenReturn(Mono.empty());
 
         StepVerifier.create(useCase.execute("1", "999"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
                 .verify();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "999");
+        verify(branchGateway).findVersionedById("1", "999");
     }
 }
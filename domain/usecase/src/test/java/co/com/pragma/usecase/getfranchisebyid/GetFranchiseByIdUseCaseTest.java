@@ -2,6 +2,7 @@ package co.com.pragma.usecase.getfranchisebyid;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -65,4 +66,47 @@ class GetFranchiseByIdUseCaseTest {
 
         verify(franchiseGateway).findById("999");
     }
-}
\ No newline at end of file
+
+    @Test
+    void executeVersioned_Success() {
+        Versioned<Franchise> franchise = new Versioned<>(Franchise.builder().id("1").name("Test Franchise").build(), 3L);
+
+        when(franchiseGateway.findVersionedById("1")).thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(useCase.executeVersioned("1"))
+                .expectNext(franchise)
+                .verifyComplete();
+
+        verify(franchiseGateway, never()).findById(anyString());
+    }
+
+    @Test
+    void executeVersioned_FranchiseNotFound() {
+        when(franchiseGateway.findVersionedById("999")).thenReturn(Mono.empty());
+
+        StepVerifier.create(useCase.executeVersioned("999"))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void executeVersion_ReadsOnlyTheVersion() {
+        when(franchiseGateway.findVersion("1")).thenReturn(Mono.just(3L));
+
+        StepVerifier.create(useCase.executeVersion("1"))
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(franchiseGateway, never()).findVersionedById(anyString());
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    void executeVersion_InvalidIdCompletesEmpty(String franchiseId) {
+        StepVerifier.create(useCase.executeVersion(franchiseId))
+                .verifyComplete();
+
+        verifyNoInteractions(franchiseGateway);
+    }
+}
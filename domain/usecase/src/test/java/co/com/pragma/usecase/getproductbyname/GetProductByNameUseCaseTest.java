@@ -3,10 +3,9 @@ package co.com.pragma.usecase.getproductbyname;
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.HierarchyPath;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
-import co.com.pragma.model.gateways.FranchiseGateway;
-import co.com.pragma.model.gateways.ProductGateway;
+import co.com.pragma.model.gateways.HierarchyGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,17 +23,13 @@ import static org.mockito.Mockito.*;
 class GetProductByNameUseCaseTest {
 
     @Mock
-    private ProductGateway productGateway;
-    @Mock
-    private BranchGateway branchGateway;
-    @Mock
-    private FranchiseGateway franchiseGateway;
+    private HierarchyGateway hierarchyGateway;
 
     private GetProductByNameUseCase useCase;
 
     @BeforeEach
     void setUp() {
-        useCase = new GetProductByNameUseCase(productGateway, branchGateway, franchiseGateway);
+        useCase = new GetProductByNameUseCase(hierarchyGateway);
     }
 
     @Test
@@ -44,17 +39,30 @@ class GetProductByNameUseCaseTest {
         branch.setId("1");
         Product product = new Product("1", "Test Product", 100);
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(branch));
-        when(productGateway.findByName("1", "1", "Test Product")).thenReturn(Mono.just(product));
+        when(hierarchyGateway.resolveProductByName("1", "1", "Test Product"))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).branch(branch).product(product).build()));
 
         StepVerifier.create(useCase.execute("1", "1", "Test Product"))
                 .expectNext(product)
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(productGateway).findByName("1", "1", "Test Product");
+        verify(hierarchyGateway).resolveProductByName("1", "1", "Test Product");
+    }
+
+    @Test
+    void executeVersioned_KeepsVersionOfTheSameRead() {
+        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
+        Branch branch = new Branch();
+        branch.setId("1");
+        Product product = new Product("1", "Test Product", 100);
+
+        when(hierarchyGateway.resolveProductByName("1", "1", "Test Product"))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).branch(branch).product(product)
+                        .productVersion(6L).build()));
+
+        StepVerifier.create(useCase.executeVersioned("1", "1", "Test Product"))
+                .expectNextMatches(versioned -> versioned.getValue() == product && versioned.getVersion() == 6L)
+                .verifyComplete();
     }
 
     @Test
@@ -64,7 +72,7 @@ class GetProductByNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
 
-        verifyNoInteractions(franchiseGateway, branchGateway, productGateway);
+        verifyNoInteractions(hierarchyGateway);
     }
 
     @Test
@@ -74,7 +82,7 @@ class GetProductByNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
 
-        verifyNoInteractions(franchiseGateway, branchGateway, productGateway);
+        verifyNoInteractions(hierarchyGateway);
     }
 
     @Test
@@ -84,7 +92,7 @@ class GetProductByNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
                 .verify();
 
-        verifyNoInteractions(franchiseGateway, branchGateway, productGateway);
+        verifyNoInteractions(hierarchyGateway);
     }
 
     @Test
@@ -94,7 +102,7 @@ class GetProductByNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
                 .verify();
 
-        verifyNoInteractions(franchiseGateway, branchGateway, productGateway);
+        verifyNoInteractions(hierarchyGateway);
     }
 
     @ParameterizedTest
@@ -106,37 +114,30 @@ class GetProductByNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_INVALID_NAME))
                 .verify();
 
-        verifyNoInteractions(franchiseGateway, branchGateway, productGateway);
+        verifyNoInteractions(hierarchyGateway);
     }
 
     @Test
     void execute_FranchiseNotFound() {
-        when(franchiseGateway.findById("999")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveProductByName("999", "1", "Test Product")).thenReturn(Mono.just(new HierarchyPath()));
 
         StepVerifier.create(useCase.execute("999", "1", "Test Product"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
-
-        verify(franchiseGateway).findById("999");
-        verifyNoInteractions(branchGateway, productGateway);
     }
 
     @Test
     void execute_BranchNotFound() {
         Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "999")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveProductByName("1", "999", "Test Product"))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).build()));
 
         StepVerifier.create(useCase.execute("1", "999", "Test Product"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
                 .verify();
-
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "999");
-        verifyNoInteractions(productGateway);
     }
 
     @Test
@@ -145,17 +146,12 @@ class GetProductByNameUseCaseTest {
         Branch branch = new Branch();
         branch.setId("1");
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(branch));
-        when(productGateway.findByName("1", "1", "NonExistent")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveProductByName("1", "1", "NonExistent"))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).branch(branch).build()));
 
         StepVerifier.create(useCase.execute("1", "1", "NonExistent"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_PRODUCT_NOT_FOUND))
                 .verify();
-
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(productGateway).findByName("1", "1", "NonExistent");
     }
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package co.com.pragma.usecase.getproductsbybranch;
 
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.ResultPage;
 import co.com.pragma.model.gateways.BranchGateway;
 import co.com.pragma.model.gateways.ProductGateway;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +17,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -78,4 +84,41 @@ class GetProductsByBranchUseCaseTest {
         verify(branchGateway).findById("franchise1", "branch1");
         verify(productGateway).findAllByBranch("franchise1", "branch1");
     }
+
+    @Test
+    void executePage_Success() {
+        Branch branch = Branch.builder().id("1").name("Branch 1").build();
+        Product product = new Product("1", "Product 1", 10);
+        PageQuery pageQuery = new PageQuery(1, "cursor", ListingSort.STOCK);
+
+        when(branchGateway.findById("franchise1", "branch1")).thenReturn(Mono.just(branch));
+        when(productGateway.findPageByBranch("franchise1", "branch1", pageQuery))
+                .thenReturn(Mono.just(new ResultPage<>(List.of(product), null)));
+
+        StepVerifier.create(getProductsByBranchUseCase.execute("franchise1", "branch1", pageQuery))
+                .expectNextMatches(page -> page.getItems().equals(List.of(product)) && page.getNext() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void executePage_BranchNotFound() {
+        when(branchGateway.findById("franchise1", "branch1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(getProductsByBranchUseCase.execute("franchise1", "branch1", new PageQuery(10, null, ListingSort.ID)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
+                .verify();
+
+        verify(productGateway, never()).findPageByBranch(anyString(), anyString(), any());
+    }
+
+    @Test
+    void executePage_InvalidLimit() {
+        StepVerifier.create(getProductsByBranchUseCase.execute("franchise1", "branch1", new PageQuery(0, null, ListingSort.ID)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_INVALID_PAGE_SIZE))
+                .verify();
+
+        verifyNoInteractions(branchGateway, productGateway);
+    }
 }
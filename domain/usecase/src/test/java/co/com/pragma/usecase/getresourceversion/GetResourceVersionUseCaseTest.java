@@ -0,0 +1,35 @@
+package co.com.pragma.usecase.getresourceversion;
+
+import co.com.pragma.model.gateways.ProductGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GetResourceVersionUseCaseTest {
+
+    @Mock
+    private ProductGateway productGateway;
+
+    private GetResourceVersionUseCase getResourceVersionUseCase;
+
+    @BeforeEach
+    void setUp() {
+        getResourceVersionUseCase = new GetResourceVersionUseCase(productGateway);
+    }
+
+    @Test
+    void productListVersion_Success() {
+        when(productGateway.findListVersion("1", "2")).thenReturn(Mono.just(7L));
+
+        StepVerifier.create(getResourceVersionUseCase.productListVersion("1", "2"))
+                .expectNext(7L)
+                .verifyComplete();
+    }
+}
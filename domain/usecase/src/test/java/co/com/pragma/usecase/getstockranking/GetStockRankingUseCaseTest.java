@@ -0,0 +1,60 @@
+package co.com.pragma.usecase.getstockranking;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.gateways.ProductGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GetStockRankingUseCaseTest {
+
+    @Mock
+    private ProductGateway productGateway;
+
+    private GetStockRankingUseCase getStockRankingUseCase;
+
+    @BeforeEach
+    void setUp() {
+        getStockRankingUseCase = new GetStockRankingUseCase(productGateway);
+    }
+
+    @Test
+    void testExecute() {
+        RankedProduct ranked = new RankedProduct(1, new Product("1", "Product 1", 100),
+                Branch.builder().id("1").name("Branch 1").build());
+
+        when(productGateway.findStockRanking("franchise1", RankingScope.FRANCHISE, RankingOrder.DESC, 5))
+                .thenReturn(Flux.just(ranked));
+
+        StepVerifier.create(getStockRankingUseCase.execute("franchise1", RankingScope.FRANCHISE, RankingOrder.DESC, 5))
+                .expectNext(ranked)
+                .verifyComplete();
+    }
+
+    @Test
+    void testExecuteRejectsInvalidSize() {
+        StepVerifier.create(getStockRankingUseCase.execute("franchise1", RankingScope.BRANCH, RankingOrder.ASC, 0))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_INVALID_RANKING_SIZE))
+                .verify();
+        StepVerifier.create(getStockRankingUseCase.execute("franchise1", RankingScope.BRANCH, RankingOrder.ASC,
+                        Constants.MAX_RANKING_SIZE + 1))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(productGateway, never()).findStockRanking(anyString(), any(), any(), anyInt());
+    }
+}
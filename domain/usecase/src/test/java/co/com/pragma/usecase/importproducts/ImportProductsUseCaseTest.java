@@ -0,0 +1,122 @@
+package co.com.pragma.usecase.importproducts;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.ImportRecordError;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.gateways.BranchGateway;
+import co.com.pragma.model.gateways.ProductGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportProductsUseCaseTest {
+
+    @Mock
+    private ProductGateway productGateway;
+
+    @Mock
+    private BranchGateway branchGateway;
+
+    private ImportProductsUseCase importProductsUseCase;
+
+    @BeforeEach
+    void setUp() {
+        importProductsUseCase = new ImportProductsUseCase(productGateway, branchGateway);
+        when(branchGateway.findAllByFranchiseId("1"))
+                .thenReturn(Flux.just(Branch.builder().id("10").build(), Branch.builder().id("20").build()));
+    }
+
+    @Test
+    void testExecuteInsertsValidRecordsAndReportsInvalidOnes() {
+        when(productGateway.getNextIds(2)).thenReturn(Flux.just("100", "101"));
+        when(productGateway.insertAll(eq("1"), anyList())).thenReturn(Flux.empty());
+
+        Flux<ProductImportRecord> records = Flux.just(
+                importRecord(1, "10", "Product A", 5),
+                importRecord(2, "20", "Product B", 0),
+                importRecord(3, "10", " ", 5),
+                importRecord(4, "10", "Product C", -1),
+                importRecord(5, "99", "Product D", 1),
+                ProductImportRecord.builder().line(6).error("Malformed JSON").build());
+
+        StepVerifier.create(importProductsUseCase.execute("1", records))
+                .assertNext(result -> {
+                    assertEquals(1, result.getChunk());
+                    assertEquals(6, result.getReceived());
+                    assertEquals(2, result.getInserted());
+                    assertEquals(List.of(3L, 4L, 5L, 6L), result.getErrors().stream().map(ImportRecordError::getLine).toList());
+                    assertEquals(Constants.ERROR_INVALID_NAME, result.getErrors().get(0).getMessage());
+                    assertEquals(Constants.ERROR_INVALID_STOCK, result.getErrors().get(1).getMessage());
+                    assertEquals(Constants.ERROR_BRANCH_NOT_FOUND, result.getErrors().get(2).getMessage());
+                    assertEquals("Malformed JSON", result.getErrors().get(3).getMessage());
+                })
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ProductImportRecord>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(productGateway).insertAll(eq("1"), inserted.capture());
+        assertEquals(List.of("100", "101"), inserted.getValue().stream().map(r -> r.getProduct().getId()).toList());
+    }
+
+    @Test
+    void testExecuteReportsRejectedWrites() {
+        when(productGateway.getNextIds(2)).thenReturn(Flux.just("100", "101"));
+        when(productGateway.insertAll(eq("1"), anyList()))
+                .thenReturn(Flux.just(new ImportRecordError(2, "Duplicate product name")));
+
+        StepVerifier.create(importProductsUseCase.execute("1", Flux.just(
+                        importRecord(1, "10", "Product A", 5),
+                        importRecord(2, "10", "Product A", 7))))
+                .assertNext(result -> {
+                    assertEquals(1, result.getInserted());
+                    assertEquals(1, result.getErrors().size());
+                    assertEquals(2, result.getErrors().get(0).getLine());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testExecuteWritesOneChunkAtATime() {
+        int total = ImportProductsUseCase.CHUNK_SIZE * 2 + 1;
+        when(productGateway.getNextIds(anyInt()))
+                .thenAnswer(invocation -> Flux.range(0, invocation.getArgument(0)).map(String::valueOf));
+        when(productGateway.insertAll(eq("1"), anyList())).thenReturn(Flux.empty());
+
+        Flux<ProductImportRecord> records = Flux.range(1, total)
+                .map(i -> importRecord(i, "10", "Product " + i, i));
+
+        StepVerifier.create(importProductsUseCase.execute("1", records), 1)
+                .assertNext(result -> assertEquals(ImportProductsUseCase.CHUNK_SIZE, result.getInserted()))
+                .thenRequest(2)
+                .assertNext(result -> assertEquals(ImportProductsUseCase.CHUNK_SIZE, result.getInserted()))
+                .assertNext(result -> {
+                    assertEquals(3, result.getChunk());
+                    assertEquals(1, result.getInserted());
+                })
+                .verifyComplete();
+
+        verify(productGateway, times(3)).insertAll(eq("1"), anyList());
+        verify(branchGateway, times(1)).findAllByFranchiseId("1");
+    }
+
+    private ProductImportRecord importRecord(long line, String branchId, String name, Integer stock) {
+        return ProductImportRecord.builder()
+                .line(line)
+                .branchId(branchId)
+                .product(new Product(null, name, stock))
+                .build();
+    }
+}
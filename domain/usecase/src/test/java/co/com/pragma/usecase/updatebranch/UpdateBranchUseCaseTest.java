@@ -8,12 +8,15 @@ import co.com.pragma.model.gateways.FranchiseGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,37 +36,29 @@ class UpdateBranchUseCaseTest {
 
     @Test
     void execute_UpdateAllFields() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
-        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
         branchUpdate.setName("New Name");
         branchUpdate.setAddress("New Address");
         branchUpdate.setCity("New City");
         Branch updatedBranch = Branch.builder().id("1").name("New Name").address("New Address").city("New City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(updatedBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(updatedBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
                 .expectNext(updatedBranch)
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges("New Name", "New Address", "New City");
+        verifyNoInteractions(franchiseGateway);
     }
 
     @Test
     void execute_UpdateOnlyName() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
-        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
         branchUpdate.setName("New Name");
+        Branch updatedBranch = Branch.builder().id("1").name("New Name").address("Old Address").city("Old City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(existingBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(updatedBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
                 .assertNext(branch -> {
@@ -73,21 +68,16 @@ class UpdateBranchUseCaseTest {
                 })
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges("New Name", null, null);
     }
 
     @Test
     void execute_UpdateOnlyAddress() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
-        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
         branchUpdate.setAddress("New Address");
+        Branch updatedBranch = Branch.builder().id("1").name("Old Name").address("New Address").city("Old City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(existingBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(updatedBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
                 .assertNext(branch -> {
@@ -97,21 +87,16 @@ class UpdateBranchUseCaseTest {
                 })
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges(null, "New Address", null);
     }
 
     @Test
     void execute_UpdateOnlyCity() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
-        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
         branchUpdate.setCity("New City");
+        Branch updatedBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("New City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(existingBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(updatedBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
                 .assertNext(branch -> {
@@ -121,66 +106,47 @@ class UpdateBranchUseCaseTest {
                 })
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges(null, null, "New City");
     }
 
     @Test
     void execute_TrimWhitespace() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
-        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
         branchUpdate.setName("  New Name  ");
         branchUpdate.setAddress("  New Address  ");
         branchUpdate.setCity("  New City  ");
+        Branch updatedBranch = Branch.builder().id("1").name("New Name").address("New Address").city("New City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(existingBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(updatedBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
-                .assertNext(branch -> {
-                    assertEquals("New Name", branch.getName());
-                    assertEquals("New Address", branch.getAddress());
-                    assertEquals("New City", branch.getCity());
-                })
+                .expectNext(updatedBranch)
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges("New Name", "New Address", "New City");
     }
 
     @Test
     void execute_IgnoreEmptyName() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
-        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
         branchUpdate.setName("   ");
+        Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(existingBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(existingBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
                 .assertNext(branch -> assertEquals("Old Name", branch.getName()))
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges(null, null, null);
     }
 
     @Test
     void execute_NoFieldsToUpdate() {
-        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
         Branch existingBranch = Branch.builder().id("1").name("Old Name").address("Old Address").city("Old City").build();
         Branch branchUpdate = new Branch();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(existingBranch));
-        when(branchGateway.update("1", existingBranch)).thenReturn(Mono.just(existingBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class))).thenReturn(Mono.just(existingBranch));
 
         StepVerifier.create(useCase.execute("1", "1", branchUpdate))
                 .assertNext(branch -> {
@@ -190,9 +156,7 @@ class UpdateBranchUseCaseTest {
                 })
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update("1", existingBranch);
+        assertChanges(null, null, null);
     }
 
     @Test
@@ -200,6 +164,7 @@ class UpdateBranchUseCaseTest {
         Branch branchUpdate = new Branch();
         branchUpdate.setName("New Name");
 
+        when(branchGateway.updateBranchFields(eq("999"), eq("1"), any(Branch.class))).thenReturn(Mono.empty());
         when(franchiseGateway.findById("999")).thenReturn(Mono.empty());
 
         StepVerifier.create(useCase.execute("999", "1", branchUpdate))
@@ -208,7 +173,6 @@ class UpdateBranchUseCaseTest {
                 .verify();
 
         verify(franchiseGateway).findById("999");
-        verifyNoInteractions(branchGateway);
     }
 
     @Test
@@ -217,8 +181,8 @@ class UpdateBranchUseCaseTest {
         Branch branchUpdate = new Branch();
         branchUpdate.setName("New Name");
 
+        when(branchGateway.updateBranchFields(eq("1"), eq("999"), any(Branch.class))).thenReturn(Mono.empty());
         when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "999")).thenReturn(Mono.empty());
 
         StepVerifier.create(useCase.execute("1", "999", branchUpdate))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
@@ -226,7 +190,46 @@ class UpdateBranchUseCaseTest {
                 .verify();
 
         verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "999");
         verify(branchGateway, never()).update(anyString(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void execute_IfVersionConflict() {
+        Branch branchUpdate = new Branch();
+        branchUpdate.setCity("New City");
+
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), any(Branch.class), eq(7L))).thenReturn(Mono.empty());
+        when(branchGateway.findVersion("1", "1")).thenReturn(Mono.just(8L));
+
+        StepVerifier.create(useCase.execute("1", "1", branchUpdate, 7L))
+                .expectErrorMatches(e -> e instanceof IllegalStateException
+                        && e.getMessage().equals(Constants.ERROR_VERSION_CONFLICT))
+                .verify();
+
+        verifyNoInteractions(franchiseGateway);
+    }
+
+    @Test
+    void execute_IfVersionBranchNotFound() {
+        Franchise franchise = Franchise.builder().id("1").name("Test Franchise").build();
+        Branch branchUpdate = new Branch();
+        branchUpdate.setCity("New City");
+
+        when(branchGateway.updateBranchFields(eq("1"), eq("999"), any(Branch.class), eq(7L))).thenReturn(Mono.empty());
+        when(branchGateway.findVersion("1", "999")).thenReturn(Mono.empty());
+        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(useCase.execute("1", "999", branchUpdate, 7L))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
+                .verify();
+    }
+
+    private void assertChanges(String name, String address, String city) {
+        ArgumentCaptor<Branch> changes = ArgumentCaptor.forClass(Branch.class);
+        verify(branchGateway).updateBranchFields(eq("1"), eq("1"), changes.capture());
+        assertEquals(name, changes.getValue().getName());
+        assertEquals(address, changes.getValue().getAddress());
+        assertEquals(city, changes.getValue().getCity());
+    }
+}
@@ -45,11 +45,12 @@ class UpdateBranchNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_INVALID_NAME))
                 .verify();
 
-        verify(franchiseGateway, never()).findById(anyString());
+        verify(branchGateway, never()).updateBranchFields(anyString(), anyString(), any());
     }
 
     @Test
     void testExecuteFranchiseNotFound() {
+        when(branchGateway.updateBranchFields(eq("999"), eq("1"), any(Branch.class))).thenReturn(Mono.empty());
         when(franchiseGateway.findById("999")).thenReturn(Mono.empty());
 
         StepVerifier.create(updateBranchNameUseCase.execute("999", "1", "New Name"))
@@ -58,14 +59,13 @@ class UpdateBranchNameUseCaseTest {
                 .verify();
 
         verify(franchiseGateway).findById("999");
-        verify(branchGateway, never()).findById(anyString(), anyString());
     }
 
     @Test
     void testExecuteBranchNotFound() {
         Franchise franchise = Franchise.builder().id("1").name("Franchise 1").description("Description").build();
+        when(branchGateway.updateBranchFields(eq("1"), eq("999"), any(Branch.class))).thenReturn(Mono.empty());
         when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "999")).thenReturn(Mono.empty());
 
         StepVerifier.create(updateBranchNameUseCase.execute("1", "999", "New Name"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
@@ -73,26 +73,22 @@ class UpdateBranchNameUseCaseTest {
                 .verify();
 
         verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "999");
         verify(branchGateway, never()).update(anyString(), any());
     }
 
     @Test
     void testExecuteSuccess() {
-        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").description("Description").build();
-        Branch branch = Branch.builder().id("1").name("Old Name").address("Address").city("City").build();
         Branch updatedBranch = Branch.builder().id("1").name("New Name").address("Address").city("City").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(branch));
-        when(branchGateway.update(eq("1"), any(Branch.class))).thenReturn(Mono.just(updatedBranch));
+        when(branchGateway.updateBranchFields(eq("1"), eq("1"), argThat(b -> "New Name".equals(b.getName())
+                && b.getAddress() == null && b.getCity() == null)))
+                .thenReturn(Mono.just(updatedBranch));
 
         StepVerifier.create(updateBranchNameUseCase.execute("1", "1", "New Name"))
                 .expectNextMatches(b -> b.getName().equals("New Name"))
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(branchGateway).update(eq("1"), any(Branch.class));
+        verifyNoInteractions(franchiseGateway);
+        verify(branchGateway, never()).findById(anyString(), anyString());
     }
 }
@@ -39,36 +39,33 @@ class UpdateFranchiseNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_INVALID_NAME))
                 .verify();
 
-        verify(franchiseGateway, never()).findById(anyString());
-        verify(franchiseGateway, never()).update(any());
+        verify(franchiseGateway, never()).updateName(anyString(), anyString());
     }
 
     @Test
     void testExecuteFranchiseNotFound() {
-        when(franchiseGateway.findById("999")).thenReturn(Mono.empty());
+        when(franchiseGateway.updateName("999", "New Name")).thenReturn(Mono.empty());
 
         StepVerifier.create(updateFranchiseNameUseCase.execute("999", "New Name"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
 
-        verify(franchiseGateway).findById("999");
+        verify(franchiseGateway).updateName("999", "New Name");
         verify(franchiseGateway, never()).update(any());
     }
 
     @Test
     void testExecuteSuccess() {
-        Franchise franchise = Franchise.builder().id("1").name("Old Name").description("Description").build();
         Franchise updatedFranchise = Franchise.builder().id("1").name("New Name").description("Description").build();
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(franchiseGateway.update(any(Franchise.class))).thenReturn(Mono.just(updatedFranchise));
+        when(franchiseGateway.updateName("1", "New Name")).thenReturn(Mono.just(updatedFranchise));
 
         StepVerifier.create(updateFranchiseNameUseCase.execute("1", "New Name"))
                 .expectNextMatches(f -> f.getName().equals("New Name"))
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(franchiseGateway).update(any(Franchise.class));
+        verify(franchiseGateway).updateName("1", "New Name");
+        verify(franchiseGateway, never()).findById(anyString());
     }
 }
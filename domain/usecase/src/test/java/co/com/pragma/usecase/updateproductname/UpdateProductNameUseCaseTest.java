@@ -3,9 +3,9 @@ package co.com.pragma.usecase.updateproductname;
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.HierarchyPath;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
-import co.com.pragma.model.gateways.FranchiseGateway;
+import co.com.pragma.model.gateways.HierarchyGateway;
 import co.com.pragma.model.gateways.ProductGateway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,7 +19,6 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,16 +28,13 @@ class UpdateProductNameUseCaseTest {
     private ProductGateway productGateway;
 
     @Mock
-    private BranchGateway branchGateway;
-
-    @Mock
-    private FranchiseGateway franchiseGateway;
+    private HierarchyGateway hierarchyGateway;
 
     private UpdateProductNameUseCase updateProductNameUseCase;
 
     @BeforeEach
     void setUp() {
-        updateProductNameUseCase = new UpdateProductNameUseCase(productGateway, branchGateway, franchiseGateway);
+        updateProductNameUseCase = new UpdateProductNameUseCase(productGateway, hierarchyGateway);
     }
 
     @ParameterizedTest
@@ -50,76 +46,89 @@ class UpdateProductNameUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_INVALID_NAME))
                 .verify();
 
-        verify(franchiseGateway, never()).findById(anyString());
+        verify(productGateway, never()).updateName(anyString(), anyString(), anyString(), anyString());
     }
 
     @Test
     void testExecuteFranchiseNotFound() {
-        when(franchiseGateway.findById("999")).thenReturn(Mono.empty());
+        when(productGateway.updateName("999", "1", "1", "New Name")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveBranch("999", "1")).thenReturn(Mono.just(new HierarchyPath()));
 
         StepVerifier.create(updateProductNameUseCase.execute("999", "1", "1", "New Name"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
 
-        verify(franchiseGateway).findById("999");
-        verify(branchGateway, never()).findById(anyString(), anyString());
+        verify(hierarchyGateway).resolveBranch("999", "1");
     }
 
     @Test
     void testExecuteBranchNotFound() {
         Franchise franchise = Franchise.builder().id("1").name("Franchise 1").description("Description").build();
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "999")).thenReturn(Mono.empty());
+        when(productGateway.updateName("1", "999", "1", "New Name")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveBranch("1", "999"))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).build()));
 
         StepVerifier.create(updateProductNameUseCase.execute("1", "999", "1", "New Name"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
                 .verify();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "999");
-        verify(productGateway, never()).findById(anyString(), anyString(), anyString());
+        verify(hierarchyGateway).resolveBranch("1", "999");
     }
 
     @Test
     void testExecuteProductNotFound() {
         Franchise franchise = Franchise.builder().id("1").name("Franchise 1").description("Description").build();
         Branch branch = Branch.builder().id("1").name("Branch 1").address("Address").city("City").build();
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(branch));
-        when(productGateway.findById("1", "1", "999")).thenReturn(Mono.empty());
+        when(productGateway.updateName("1", "1", "999", "New Name")).thenReturn(Mono.empty());
+        when(hierarchyGateway.resolveBranch("1", "1"))
+                .thenReturn(Mono.just(HierarchyPath.builder().franchise(franchise).branch(branch).build()));
 
         StepVerifier.create(updateProductNameUseCase.execute("1", "1", "999", "New Name"))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_PRODUCT_NOT_FOUND))
                 .verify();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(productGateway).findById("1", "1", "999");
+        verify(hierarchyGateway).resolveBranch("1", "1");
         verify(productGateway, never()).update(anyString(), anyString(), any());
     }
 
     @Test
     void testExecuteSuccess() {
-        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").description("Description").build();
-        Branch branch = Branch.builder().id("1").name("Branch 1").address("Address").city("City").build();
-        Product product = new Product("1", "Old Name", 10);
         Product updatedProduct = new Product("1", "New Name", 10);
 
-        when(franchiseGateway.findById("1")).thenReturn(Mono.just(franchise));
-        when(branchGateway.findById("1", "1")).thenReturn(Mono.just(branch));
-        when(productGateway.findById("1", "1", "1")).thenReturn(Mono.just(product));
-        when(productGateway.update(eq("1"), eq("1"), any(Product.class))).thenReturn(Mono.just(updatedProduct));
+        when(productGateway.updateName("1", "1", "1", "New Name")).thenReturn(Mono.just(updatedProduct));
 
         StepVerifier.create(updateProductNameUseCase.execute("1", "1", "1", "New Name"))
                 .expectNextMatches(p -> p.getName().equals("New Name"))
                 .verifyComplete();
 
-        verify(franchiseGateway).findById("1");
-        verify(branchGateway).findById("1", "1");
-        verify(productGateway).findById("1", "1", "1");
-        verify(productGateway).update(eq("1"), eq("1"), any(Product.class));
+        verify(productGateway).updateName("1", "1", "1", "New Name");
+        verifyNoInteractions(hierarchyGateway);
+    }
+
+    @Test
+    void testExecuteIfVersionSuccess() {
+        when(productGateway.updateName("1", "1", "1", "New Name", 2L)).thenReturn(Mono.just(new Product("1", "New Name", 10)));
+
+        StepVerifier.create(updateProductNameUseCase.execute("1", "1", "1", "New Name", 2L))
+                .expectNextMatches(p -> p.getName().equals("New Name"))
+                .verifyComplete();
+
+        verify(productGateway, never()).findVersion(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testExecuteIfVersionConflict() {
+        when(productGateway.updateName("1", "1", "1", "New Name", 2L)).thenReturn(Mono.empty());
+        when(productGateway.findVersion("1", "1", "1")).thenReturn(Mono.just(3L));
+
+        StepVerifier.create(updateProductNameUseCase.execute("1", "1", "1", "New Name", 2L))
+                .expectErrorMatches(e -> e instanceof IllegalStateException
+                        && e.getMessage().equals(Constants.ERROR_VERSION_CONFLICT))
+                .verify();
+
+        verifyNoInteractions(hierarchyGateway);
     }
 }
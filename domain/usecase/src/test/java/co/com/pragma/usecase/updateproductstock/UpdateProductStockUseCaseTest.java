@@ -12,7 +12,6 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,7 +34,7 @@ class UpdateProductStockUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_INVALID_STOCK))
                 .verify();
 
-        verify(productGateway, never()).findById(anyString(), anyString(), anyString());
+        verify(productGateway, never()).updateStock(anyString(), anyString(), anyString(), any());
     }
 
     @Test
@@ -45,51 +44,69 @@ class UpdateProductStockUseCaseTest {
                         && e.getMessage().equals(Constants.ERROR_INVALID_STOCK))
                 .verify();
 
-        verify(productGateway, never()).findById(anyString(), anyString(), anyString());
+        verify(productGateway, never()).updateStock(anyString(), anyString(), anyString(), any());
     }
 
     @Test
     void testExecuteProductNotFound() {
-        when(productGateway.findById("1", "1", "999")).thenReturn(Mono.empty());
+        when(productGateway.updateStock("1", "1", "999", 100)).thenReturn(Mono.empty());
 
         StepVerifier.create(updateProductStockUseCase.execute("1", "1", "999", 100))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_PRODUCT_NOT_FOUND))
                 .verify();
 
-        verify(productGateway).findById("1", "1", "999");
-        verify(productGateway, never()).update(anyString(), anyString(), any());
+        verify(productGateway).updateStock("1", "1", "999", 100);
+        verify(productGateway, never()).findById(anyString(), anyString(), anyString());
     }
 
     @Test
     void testExecuteSuccess() {
-        Product product = new Product("1", "Product 1", 10);
         Product updatedProduct = new Product("1", "Product 1", 100);
 
-        when(productGateway.findById("1", "1", "1")).thenReturn(Mono.just(product));
-        when(productGateway.update(eq("1"), eq("1"), any(Product.class))).thenReturn(Mono.just(updatedProduct));
+        when(productGateway.updateStock("1", "1", "1", 100)).thenReturn(Mono.just(updatedProduct));
 
         StepVerifier.create(updateProductStockUseCase.execute("1", "1", "1", 100))
                 .expectNextMatches(p -> p.getStock().equals(100))
                 .verifyComplete();
 
-        verify(productGateway).findById("1", "1", "1");
-        verify(productGateway).update(eq("1"), eq("1"), any(Product.class));
+        verify(productGateway).updateStock("1", "1", "1", 100);
+        verify(productGateway, never()).findById(anyString(), anyString(), anyString());
+        verify(productGateway, never()).update(anyString(), anyString(), any());
     }
 
     @Test
     void testExecuteWithZeroStock() {
-        Product product = new Product("1", "Product 1", 10);
         Product updatedProduct = new Product("1", "Product 1", 0);
 
-        when(productGateway.findById("1", "1", "1")).thenReturn(Mono.just(product));
-        when(productGateway.update(eq("1"), eq("1"), any(Product.class))).thenReturn(Mono.just(updatedProduct));
+        when(productGateway.updateStock("1", "1", "1", 0)).thenReturn(Mono.just(updatedProduct));
 
         StepVerifier.create(updateProductStockUseCase.execute("1", "1", "1", 0))
                 .expectNextMatches(p -> p.getStock().equals(0))
                 .verifyComplete();
 
-        verify(productGateway).findById("1", "1", "1");
-        verify(productGateway).update(eq("1"), eq("1"), any(Product.class));
+        verify(productGateway).updateStock("1", "1", "1", 0);
+    }
+
+    @Test
+    void testExecuteIfVersionConflict() {
+        when(productGateway.updateStock("1", "1", "1", 100, 4L)).thenReturn(Mono.empty());
+        when(productGateway.findVersion("1", "1", "1")).thenReturn(Mono.just(5L));
+
+        StepVerifier.create(updateProductStockUseCase.execute("1", "1", "1", 100, 4L))
+                .expectErrorMatches(e -> e instanceof IllegalStateException
+                        && e.getMessage().equals(Constants.ERROR_VERSION_CONFLICT))
+                .verify();
+    }
+
+    @Test
+    void testExecuteIfVersionProductNotFound() {
+        when(productGateway.updateStock("1", "1", "999", 100, 4L)).thenReturn(Mono.empty());
+        when(productGateway.findVersion("1", "1", "999")).thenReturn(Mono.empty());
+
+        StepVerifier.create(updateProductStockUseCase.execute("1", "1", "999", 100, 4L))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_PRODUCT_NOT_FOUND))
+                .verify();
     }
 }
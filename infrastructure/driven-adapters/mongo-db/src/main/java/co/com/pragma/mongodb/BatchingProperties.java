@@ -0,0 +1,28 @@
+package co.com.pragma.mongodb;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuración de la agrupación de búsquedas por ID de franquicias y sucursales.
+ *
+ * @param window       tiempo máximo que una búsqueda espera a otras antes de lanzar la consulta {@code $in}
+ * @param maxBatchSize cantidad de IDs que lanza la consulta sin esperar a que termine la ventana; con
+ *                     {@code 1} cada búsqueda se lanza de inmediato, es decir, sin agrupar
+ */
+@ConfigurationProperties(prefix = "adapters.mongo.batching")
+public record BatchingProperties(
+        @DefaultValue("1ms") Duration window,
+        @DefaultValue("100") int maxBatchSize) {
+
+    public BatchingProperties {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("adapters.mongo.batching.window must be positive");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("adapters.mongo.batching.max-batch-size must be greater than zero");
+        }
+    }
+}
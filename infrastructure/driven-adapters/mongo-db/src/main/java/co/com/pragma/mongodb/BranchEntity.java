@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "branches")
@@ -19,10 +20,20 @@ public class BranchEntity {
     private String name;
     private String address;
     private String city;
+    @Version
+    private Long version;
 
     public BranchEntity(String franchiseId, String id, String name) {
         this.franchiseId = franchiseId;
         this.id = id;
         this.name = name;
     }
+
+    public BranchEntity(String id, String franchiseId, String name, String address, String city) {
+        this.id = id;
+        this.franchiseId = franchiseId;
+        this.name = name;
+        this.address = address;
+        this.city = city;
+    }
 }
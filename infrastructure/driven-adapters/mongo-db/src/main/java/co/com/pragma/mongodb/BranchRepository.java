@@ -2,10 +2,14 @@ package co.com.pragma.mongodb;
 
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.BranchGateway;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -14,19 +18,36 @@ import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
 
 @Slf4j
 @Repository
+@Profile("!" + EmbeddedDocuments.PROFILE)
 public class BranchRepository implements BranchGateway {
 
     private static final String FIELD_FRANCHISE_ID = "franchiseId";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_ADDRESS = "address";
+    private static final String FIELD_CITY = "city";
+    private static final String SEQUENCE_NAME = "branch_sequence";
 
     private final ReactiveMongoTemplate mongoTemplate;
     private final CircuitBreaker circuitBreaker;
+    private final HiLoIdAllocator idAllocator;
+    private final StockLeaderRepository stockLeaders;
+    private final PointLookupBatcher<String, Document> lookups;
 
-    public BranchRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker) {
+    public BranchRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                            HiLoIdAllocator idAllocator, StockLeaderRepository stockLeaderRepository,
+                            BatchingProperties batchingProperties, MeterRegistry meterRegistry) {
         this.mongoTemplate = mongoTemplate;
         this.circuitBreaker = mongoCircuitBreaker;
+        this.idAllocator = idAllocator;
+        this.stockLeaders = stockLeaderRepository;
+        this.lookups = new PointLookupBatcher<>(DocumentMappers.BRANCHES_COLLECTION, batchingProperties, meterRegistry,
+                Schedulers.parallel(), this::findDocuments, document -> document.getString(DocumentMappers.FIELD_ID));
     }
 
     @Override
@@ -34,15 +55,29 @@ public class BranchRepository implements BranchGateway {
         BranchEntity entity = new BranchEntity(branch.getId(), franchiseId, branch.getName(), branch.getAddress(), branch.getCity());
         return mongoTemplate.save(entity)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(this::mapToBranch);
+                .map(this::mapToBranch)
+                .flatMap(saved -> stockLeaders.markStale(franchiseId, List.of(saved.getId())).thenReturn(saved));
     }
 
+    /**
+     * Búsqueda agrupada con otras del mismo instante en una consulta {@code $in}
+     */
     @Override
     public Mono<Branch> findById(String franchiseId, String branchId) {
-        Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and("id").is(branchId));
-        return mongoTemplate.findOne(query, BranchEntity.class)
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(this::mapToBranch);
+        return lookups.load(branchId)
+                .filter(document -> franchiseId.equals(document.getString(FIELD_FRANCHISE_ID)))
+                .map(DocumentMappers::toBranch);
+    }
+
+    /**
+     * Sucursal y su versión leídas en la misma consulta
+     */
+    @Override
+    public Mono<Versioned<Branch>> findVersionedById(String franchiseId, String branchId) {
+        return lookups.load(branchId)
+                .filter(document -> franchiseId.equals(document.getString(FIELD_FRANCHISE_ID)))
+                .map(document -> new Versioned<>(DocumentMappers.toBranch(document),
+                        DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION)));
     }
 
     @Override
@@ -50,52 +85,97 @@ public class BranchRepository implements BranchGateway {
         Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and("id").is(branchId));
         return mongoTemplate.remove(query, BranchEntity.class)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .then();
+                .then(Mono.defer(() -> stockLeaders.markStale(franchiseId, List.of(branchId))));
     }
 
     @Override
     public Mono<Branch> update(String franchiseId, Branch branch) {
-        return findById(franchiseId, branch.getId())
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)))
-                .flatMap(existing -> save(franchiseId, branch));
+        Update update = new Update()
+                .set(FIELD_NAME, branch.getName())
+                .set(FIELD_ADDRESS, branch.getAddress())
+                .set(FIELD_CITY, branch.getCity());
+        return modify(byId(franchiseId, branch.getId()), franchiseId, branch.getId(), update)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
+    }
+
+    /**
+     * Actualiza solo los campos no nulos de {@code changes}
+     */
+    @Override
+    public Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes) {
+        Update update = fieldUpdate(changes);
+        if (update.getUpdateObject().isEmpty()) {
+            return findById(franchiseId, branchId);
+        }
+        return modify(byId(franchiseId, branchId), franchiseId, branchId, update);
+    }
+
+    /**
+     * Actualiza la sucursal solo si sigue en {@code expectedVersion}; vacío si no existe o cambió
+     */
+    @Override
+    public Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes, long expectedVersion) {
+        return modify(DocumentMappers.atVersion(byId(franchiseId, branchId), expectedVersion), franchiseId, branchId,
+                fieldUpdate(changes));
+    }
+
+    private Update fieldUpdate(Branch changes) {
+        Update update = new Update();
+        if (changes.getName() != null) {
+            update.set(FIELD_NAME, changes.getName());
+        }
+        if (changes.getAddress() != null) {
+            update.set(FIELD_ADDRESS, changes.getAddress());
+        }
+        if (changes.getCity() != null) {
+            update.set(FIELD_CITY, changes.getCity());
+        }
+        return update;
     }
 
     @Override
     public Flux<Branch> findAllByFranchiseId(String franchiseId) {
         Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId));
-        return mongoTemplate.find(query, BranchEntity.class)
+        return DomainCodecs.find(mongoTemplate, DocumentMappers.projectBranch(query), Branch.class,
+                        DocumentMappers.BRANCHES_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Versión de la sucursal; vacío si no existe
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId, String branchId) {
+        Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(DocumentMappers.FIELD_ID).is(branchId));
+        return mongoTemplate.findOne(DocumentMappers.projectVersion(query, DocumentMappers.FIELD_VERSION), Document.class,
+                        DocumentMappers.BRANCHES_COLLECTION)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(this::mapToBranch);
+                .map(document -> DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION));
     }
 
     @Override
     public Mono<String> getNextId() {
-        log.info("Getting next branch ID - Thread: {}", Thread.currentThread().getName());
-        String sequenceName = "branch_sequence";
-        Query query = new Query(Criteria.where("id").is(sequenceName));
-        Update update = new Update().inc("sequence", 1);
-        FindAndModifyOptions options = new FindAndModifyOptions().returnNew(true).upsert(true);
-        
-        return mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
+        return idAllocator.nextId(SEQUENCE_NAME)
+                .map(String::valueOf);
+    }
+
+    private Flux<Document> findDocuments(List<String> branchIds) {
+        Query query = DocumentMappers.projectBranch(new Query(Criteria.where(DocumentMappers.FIELD_ID).in(branchIds)));
+        query.fields().include(FIELD_FRANCHISE_ID).include(DocumentMappers.FIELD_VERSION);
+        return mongoTemplate.find(query, Document.class, DocumentMappers.BRANCHES_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private Criteria byId(String franchiseId, String branchId) {
+        return Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and("id").is(branchId);
+    }
+
+    private Mono<Branch> modify(Criteria criteria, String franchiseId, String branchId, Update update) {
+        update.inc(DocumentMappers.FIELD_VERSION, 1);
+        return mongoTemplate.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(true), BranchEntity.class)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .doOnNext(seq -> log.info("Sequence found, current value: {}", seq.getSequence()))
-                .switchIfEmpty(
-                    Mono.defer(() -> {
-                        log.info("Sequence not found, creating initial sequence");
-                        SequenceEntity initial = new SequenceEntity(sequenceName, 0L);
-                        return mongoTemplate.save(initial)
-                                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                                .doOnNext(saved -> log.info("Initial sequence created with ID: {}", saved.getId()))
-                                .then(mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
-                                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)));
-                    })
-                )
-                .map(sequence -> {
-                    String nextId = String.valueOf(sequence.getSequence());
-                    log.info("✓ Generated next branch ID: {} - Thread: {}", nextId, Thread.currentThread().getName());
-                    return nextId;
-                })
-                .doOnError(error -> log.error("✗ Error generating next branch ID: {} - Thread: {}", error.getMessage(), Thread.currentThread().getName(), error));
+                .map(this::mapToBranch)
+                .flatMap(updated -> stockLeaders.markStale(franchiseId, List.of(branchId)).thenReturn(updated));
     }
 
     private Branch mapToBranch(BranchEntity entity) {
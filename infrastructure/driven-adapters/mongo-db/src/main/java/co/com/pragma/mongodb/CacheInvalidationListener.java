@@ -0,0 +1,162 @@
+package co.com.pragma.mongodb;
+
+import com.mongodb.MongoException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Invalida las cachés de franquicias y sucursales con un change stream sobre sus colecciones, de modo
+ * que las escrituras hechas por cualquier instancia se reflejan en todas.
+ * <p>
+ * Se guarda el resume token del último evento aplicado y, tras una desconexión, el stream se reabre a
+ * partir de él sin perder eventos. Al perder el stream se vacían ambas cachés, ya que no se sabe qué
+ * cambió mientras tanto; si el token ya no está en el oplog se descarta y se vuelve a vaciar al reabrir.
+ * El TTL de las cachés sigue acotando cualquier ventana restante.
+ * <p>
+ * Los change streams requieren un replica set o un clúster fragmentado: contra un mongod standalone el
+ * listener no se abre y las cachés dependen solo de su TTL.
+ */
+@Slf4j
+@Component
+@Profile("!" + EmbeddedDocuments.PROFILE)
+@ConditionalOnProperty(prefix = "adapters.mongo.cache", name = {"enabled", "invalidation.enabled"},
+        havingValue = "true", matchIfMissing = true)
+public class CacheInvalidationListener {
+
+    static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final String PRODUCTS_VERSION_UPDATE = "updateDescription.updatedFields." + DocumentMappers.FIELD_PRODUCTS_VERSION;
+
+    private static final String SHARDED_CLUSTER_MSG = "isdbgrid";
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CachedFranchiseGateway franchiseGateway;
+    private final CachedBranchGateway branchGateway;
+    private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    private Disposable subscription;
+
+    public CacheInvalidationListener(ReactiveMongoTemplate mongoTemplate, CachedFranchiseGateway franchiseGateway,
+                                     CachedBranchGateway branchGateway) {
+        this.mongoTemplate = mongoTemplate;
+        this.franchiseGateway = franchiseGateway;
+        this.branchGateway = branchGateway;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        subscription = start().subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Flux<ChangeStreamEvent<Document>> start() {
+        return supportsChangeStreams().flatMapMany(supported -> {
+            if (!supported) {
+                log.warn("MongoDB deployment is not a replica set, cache invalidation change stream disabled;"
+                        + " cached franchises and branches expire by TTL only");
+                return Flux.empty();
+            }
+            return listen();
+        });
+    }
+
+    Mono<Boolean> supportsChangeStreams() {
+        return mongoTemplate.executeCommand(new Document("hello", 1))
+                .map(hello -> hello.containsKey("setName") || SHARDED_CLUSTER_MSG.equals(hello.getString("msg")))
+                .doOnError(error -> log.warn("Could not detect MongoDB topology: {}", error.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF).maxBackoff(MAX_BACKOFF));
+    }
+
+    Flux<ChangeStreamEvent<Document>> listen() {
+        return Flux.defer(this::openStream)
+                .doOnNext(this::apply)
+                .doOnError(this::onStreamLost)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF).maxBackoff(MAX_BACKOFF).transientErrors(true));
+    }
+
+    private Flux<ChangeStreamEvent<Document>> openStream() {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .filter(new Document("$match", new Document("ns.coll", new Document("$in",
+                        List.of(DocumentMappers.FRANCHISES_COLLECTION, DocumentMappers.BRANCHES_COLLECTION)))
+                        // las escrituras de productos solo incrementan la versión del listado de la sucursal,
+                        // que no está en la caché
+                        .append(PRODUCTS_VERSION_UPDATE, new Document("$exists", false))));
+        BsonValue token = resumeToken.get();
+        if (token != null) {
+            options.resumeAfter(token);
+        } else {
+            evictAll();
+        }
+        log.info("Opening cache invalidation change stream{}", token != null ? " from stored resume token" : "");
+        return mongoTemplate.changeStream(null, options.build(), Document.class);
+    }
+
+    void apply(ChangeStreamEvent<Document> event) {
+        String id = documentId(event);
+        if (id == null) {
+            // drop, rename o invalidate de la colección: no hay documento concreto que descartar
+            evictAll();
+        } else if (DocumentMappers.FRANCHISES_COLLECTION.equals(event.getCollectionName())) {
+            franchiseGateway.evict(id);
+        } else if (DocumentMappers.BRANCHES_COLLECTION.equals(event.getCollectionName())) {
+            branchGateway.evict(id);
+        }
+        resumeToken.set(event.getResumeToken());
+    }
+
+    private void onStreamLost(Throwable error) {
+        log.warn("Cache invalidation change stream lost, flushing caches: {}", error.getMessage());
+        evictAll();
+        if (isHistoryLost(error)) {
+            resumeToken.set(null);
+        }
+    }
+
+    private void evictAll() {
+        franchiseGateway.evictAll();
+        branchGateway.evictAll();
+    }
+
+    private static String documentId(ChangeStreamEvent<Document> event) {
+        BsonDocument key = event.getRaw() != null ? event.getRaw().getDocumentKey() : null;
+        BsonValue id = key != null ? key.get(DocumentMappers.FIELD_ID) : null;
+        return id != null && id.isString() ? id.asString().getValue() : null;
+    }
+
+    private static boolean isHistoryLost(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException
+                    && mongoException.getCode() == CHANGE_STREAM_HISTORY_LOST) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
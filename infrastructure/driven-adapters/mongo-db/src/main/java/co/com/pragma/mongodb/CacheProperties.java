@@ -0,0 +1,27 @@
+package co.com.pragma.mongodb;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuración de las cachés de lectura de franquicias y sucursales.
+ *
+ * @param maximumSize cantidad máxima de entradas por caché; al superarla se desalojan las menos usadas
+ * @param ttl         tiempo que una entrada permanece en caché desde que se cargó
+ */
+@ConfigurationProperties(prefix = "adapters.mongo.cache")
+public record CacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration ttl) {
+
+    public CacheProperties {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("adapters.mongo.cache.maximum-size must be greater than zero");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("adapters.mongo.cache.ttl must be positive");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Versioned;
+import co.com.pragma.model.gateways.BranchGateway;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorador de {@link BranchRepository} que cachea la sucursal junto con su versión, de modo que
+ * {@link #findById(String, String)} y el ETag salen de la misma entrada. Toda escritura invalida la entrada.
+ */
+@Primary
+@Component
+@Profile("!" + EmbeddedDocuments.PROFILE)
+@ConditionalOnProperty(prefix = "adapters.mongo.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachedBranchGateway implements BranchGateway {
+
+    static final String CACHE_NAME = "branches";
+
+    private final BranchRepository delegate;
+    private final ReadThroughCache<BranchKey, Versioned<Branch>> cache;
+
+    public CachedBranchGateway(BranchRepository branchRepository, CacheProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.delegate = branchRepository;
+        this.cache = new ReadThroughCache<>(CACHE_NAME, properties, meterRegistry, CachedBranchGateway::copy);
+    }
+
+    @Override
+    public Mono<Branch> save(String franchiseId, Branch branch) {
+        return delegate.save(franchiseId, branch)
+                .doFinally(signal -> cache.invalidate(new BranchKey(franchiseId, branch.getId())));
+    }
+
+    @Override
+    public Mono<Branch> findById(String franchiseId, String branchId) {
+        return findVersionedById(franchiseId, branchId)
+                .map(Versioned::getValue);
+    }
+
+    @Override
+    public Mono<Versioned<Branch>> findVersionedById(String franchiseId, String branchId) {
+        return cache.get(new BranchKey(franchiseId, branchId),
+                key -> delegate.findVersionedById(key.franchiseId(), key.branchId()));
+    }
+
+    @Override
+    public Mono<Void> deleteById(String franchiseId, String branchId) {
+        return delegate.deleteById(franchiseId, branchId)
+                .doFinally(signal -> cache.invalidate(new BranchKey(franchiseId, branchId)));
+    }
+
+    @Override
+    public Mono<Branch> update(String franchiseId, Branch branch) {
+        return delegate.update(franchiseId, branch)
+                .doFinally(signal -> cache.invalidate(new BranchKey(franchiseId, branch.getId())));
+    }
+
+    @Override
+    public Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes) {
+        return delegate.updateBranchFields(franchiseId, branchId, changes)
+                .doFinally(signal -> cache.invalidate(new BranchKey(franchiseId, branchId)));
+    }
+
+    @Override
+    public Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes, long expectedVersion) {
+        return delegate.updateBranchFields(franchiseId, branchId, changes, expectedVersion)
+                .doFinally(signal -> cache.invalidate(new BranchKey(franchiseId, branchId)));
+    }
+
+    @Override
+    public Flux<Branch> findAllByFranchiseId(String franchiseId) {
+        return delegate.findAllByFranchiseId(franchiseId);
+    }
+
+    /**
+     * Versión de la entrada cacheada o, si no está, leída con una proyección de solo la versión. Como toda
+     * escritura invalida la entrada, tras un compare-and-set fallido se lee de la base de datos.
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId, String branchId) {
+        return cache.getIfPresent(new BranchKey(franchiseId, branchId))
+                .map(Versioned::getVersion)
+                .switchIfEmpty(Mono.defer(() -> delegate.findVersion(franchiseId, branchId)));
+    }
+
+    @Override
+    public Mono<String> getNextId() {
+        return delegate.getNextId();
+    }
+
+    /**
+     * Entrada cacheada sin lanzar la carga; vacío si no está.
+     */
+    Mono<Versioned<Branch>> findCached(String franchiseId, String branchId) {
+        return cache.getIfPresent(new BranchKey(franchiseId, branchId));
+    }
+
+    /**
+     * Descarta las entradas de una sucursal modificada fuera de esta instancia. Los eventos de borrado
+     * solo traen el {@code _id}, por lo que se recorren las claves de todas las franquicias.
+     */
+    void evict(String branchId) {
+        cache.invalidateIf(key -> key.branchId().equals(branchId));
+    }
+
+    void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private static Versioned<Branch> copy(Versioned<Branch> versioned) {
+        Branch branch = versioned.getValue();
+        return new Versioned<>(Branch.builder()
+                .id(branch.getId())
+                .name(branch.getName())
+                .address(branch.getAddress())
+                .city(branch.getCity())
+                .build(), versioned.getVersion());
+    }
+
+    record BranchKey(String franchiseId, String branchId) {
+    }
+}
@@ -0,0 +1,123 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
+import co.com.pragma.model.gateways.FranchiseGateway;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorador de {@link FranchiseRepository} que cachea la franquicia junto con su versión, de modo que
+ * {@link #findById(String)} y el ETag salen de la misma entrada. Toda escritura invalida la entrada.
+ */
+@Primary
+@Component
+@Profile("!" + EmbeddedDocuments.PROFILE)
+@ConditionalOnProperty(prefix = "adapters.mongo.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachedFranchiseGateway implements FranchiseGateway {
+
+    static final String CACHE_NAME = "franchises";
+
+    private final FranchiseRepository delegate;
+    private final ReadThroughCache<String, Versioned<Franchise>> cache;
+
+    public CachedFranchiseGateway(FranchiseRepository franchiseRepository, CacheProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = franchiseRepository;
+        this.cache = new ReadThroughCache<>(CACHE_NAME, properties, meterRegistry, CachedFranchiseGateway::copy);
+    }
+
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        return delegate.save(franchise)
+                .doFinally(signal -> cache.invalidate(franchise.getId()));
+    }
+
+    @Override
+    public Mono<Franchise> findById(String id) {
+        return cache.get(id, delegate::findVersionedById)
+                .map(Versioned::getValue);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return delegate.deleteById(id)
+                .doFinally(signal -> cache.invalidate(id));
+    }
+
+    @Override
+    public Mono<Franchise> update(Franchise franchise) {
+        return delegate.update(franchise)
+                .doFinally(signal -> cache.invalidate(franchise.getId()));
+    }
+
+    @Override
+    public Mono<Franchise> updateName(String franchiseId, String name) {
+        return delegate.updateName(franchiseId, name)
+                .doFinally(signal -> cache.invalidate(franchiseId));
+    }
+
+    @Override
+    public Flux<Franchise> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Mono<ResultPage<Franchise>> findPage(PageQuery pageQuery) {
+        return delegate.findPage(pageQuery);
+    }
+
+    @Override
+    public Mono<Versioned<Franchise>> findVersionedById(String id) {
+        return cache.get(id, delegate::findVersionedById);
+    }
+
+    /**
+     * Versión de la entrada cacheada o, si no está, leída con una proyección de solo la versión.
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId) {
+        return cache.getIfPresent(franchiseId)
+                .map(Versioned::getVersion)
+                .switchIfEmpty(Mono.defer(() -> delegate.findVersion(franchiseId)));
+    }
+
+    @Override
+    public Mono<String> getNextId() {
+        return delegate.getNextId();
+    }
+
+    /**
+     * Entrada cacheada sin lanzar la carga; vacío si no está.
+     */
+    Mono<Versioned<Franchise>> findCached(String franchiseId) {
+        return cache.getIfPresent(franchiseId);
+    }
+
+    /**
+     * Descarta la entrada de una franquicia modificada fuera de esta instancia.
+     */
+    void evict(String franchiseId) {
+        cache.invalidate(franchiseId);
+    }
+
+    void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private static Versioned<Franchise> copy(Versioned<Franchise> versioned) {
+        Franchise franchise = versioned.getValue();
+        return new Versioned<>(Franchise.builder()
+                .id(franchise.getId())
+                .name(franchise.getName())
+                .description(franchise.getDescription())
+                .build(), versioned.getVersion());
+    }
+}
@@ -0,0 +1,92 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.FranchiseSize;
+import co.com.pragma.model.HierarchyPath;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.Versioned;
+import co.com.pragma.model.gateways.HierarchyGateway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorador de {@link HierarchyRepository} que arma la ruta con la franquicia y la sucursal cacheadas en
+ * {@link CachedFranchiseGateway} y {@link CachedBranchGateway}. Si ambas están en caché no hay agregación:
+ * la ruta de sucursal no consulta la base de datos y la de producto hace solo la lectura puntual del
+ * producto. Si falta alguna, la ruta completa se resuelve con la agregación.
+ */
+@Primary
+@Component
+@Profile("!" + EmbeddedDocuments.PROFILE)
+@ConditionalOnProperty(prefix = "adapters.mongo.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachedHierarchyGateway implements HierarchyGateway {
+
+    private final HierarchyRepository delegate;
+    private final CachedFranchiseGateway franchises;
+    private final CachedBranchGateway branches;
+    private final ProductRepository products;
+
+    public CachedHierarchyGateway(HierarchyRepository hierarchyRepository, CachedFranchiseGateway cachedFranchiseGateway,
+                                  CachedBranchGateway cachedBranchGateway, ProductRepository productRepository) {
+        this.delegate = hierarchyRepository;
+        this.franchises = cachedFranchiseGateway;
+        this.branches = cachedBranchGateway;
+        this.products = productRepository;
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveBranch(String franchiseId, String branchId) {
+        return cachedPath(franchiseId, branchId)
+                .switchIfEmpty(Mono.defer(() -> delegate.resolveBranch(franchiseId, branchId)));
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveProduct(String franchiseId, String branchId, String productId) {
+        return cachedPath(franchiseId, branchId)
+                .flatMap(path -> withProduct(path, products.findVersionedById(franchiseId, branchId, productId)))
+                .switchIfEmpty(Mono.defer(() -> delegate.resolveProduct(franchiseId, branchId, productId)));
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveProductByName(String franchiseId, String branchId, String productName) {
+        return cachedPath(franchiseId, branchId)
+                .flatMap(path -> withProduct(path, products.findVersionedByName(franchiseId, branchId, productName)))
+                .switchIfEmpty(Mono.defer(() -> delegate.resolveProductByName(franchiseId, branchId, productName)));
+    }
+
+    @Override
+    public Mono<FranchiseSize> measureFranchise(String franchiseId) {
+        return delegate.measureFranchise(franchiseId);
+    }
+
+    @Override
+    public Flux<Branch> findBranches(String franchiseId, boolean withProducts, int maxBranches, int maxProductsPerBranch) {
+        return delegate.findBranches(franchiseId, withProducts, maxBranches, maxProductsPerBranch);
+    }
+
+    /**
+     * Ruta franquicia → sucursal de las entradas cacheadas; vacío si falta alguna.
+     */
+    private Mono<HierarchyPath> cachedPath(String franchiseId, String branchId) {
+        return Mono.zip(franchises.findCached(franchiseId), branches.findCached(franchiseId, branchId))
+                .map(ancestors -> HierarchyPath.builder()
+                        .franchise(ancestors.getT1().getValue())
+                        .branch(ancestors.getT2().getValue())
+                        .branchVersion(ancestors.getT2().getVersion())
+                        .build());
+    }
+
+    private static Mono<HierarchyPath> withProduct(HierarchyPath path, Mono<Versioned<Product>> product) {
+        return product
+                .map(versioned -> {
+                    path.setProduct(versioned.getValue());
+                    path.setProductVersion(versioned.getVersion());
+                    return path;
+                })
+                .defaultIfEmpty(path);
+    }
+}
@@ -0,0 +1,95 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+
+/**
+ * Convierte documentos crudos en objetos de dominio según las proyecciones {@code project*}
+ */
+final class DocumentMappers {
+
+    static final String FIELD_ID = "_id";
+    static final String FIELD_NAME = "name";
+    static final String FIELD_STOCK = "stock";
+    static final String FIELD_ADDRESS = "address";
+    static final String FIELD_CITY = "city";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_VERSION = "version";
+    static final String FIELD_PRODUCTS_VERSION = "productsVersion";
+
+    static final String PRODUCTS_COLLECTION = "products";
+    static final String BRANCHES_COLLECTION = "branches";
+    static final String FRANCHISES_COLLECTION = "franchises";
+
+    private DocumentMappers() {
+    }
+
+    static Query projectProduct(Query query) {
+        query.fields().include(FIELD_NAME, FIELD_STOCK);
+        return query;
+    }
+
+    static Query projectBranch(Query query) {
+        query.fields().include(FIELD_NAME, FIELD_ADDRESS, FIELD_CITY);
+        return query;
+    }
+
+    static Query projectFranchise(Query query) {
+        query.fields().include(FIELD_NAME, FIELD_DESCRIPTION);
+        return query;
+    }
+
+    static Query projectVersion(Query query, String field) {
+        query.fields().include(field).exclude(FIELD_ID);
+        return query;
+    }
+
+    /**
+     * Versión del documento; 0 si no tiene el campo
+     */
+    static long toVersion(Document document, String field) {
+        Number version = document.get(field, Number.class);
+        return version != null ? version.longValue() : 0L;
+    }
+
+    /**
+     * Restringe el filtro a documentos en {@code expectedVersion}; la versión 0 incluye los que no tienen el campo
+     */
+    static Criteria atVersion(Criteria criteria, long expectedVersion) {
+        return expectedVersion == 0
+                ? criteria.and(FIELD_VERSION).in(0L, null)
+                : criteria.and(FIELD_VERSION).is(expectedVersion);
+    }
+
+    static Product toProduct(Document document) {
+        Number stock = document.get(FIELD_STOCK, Number.class);
+        return new Product(
+                document.getString(FIELD_ID),
+                document.getString(FIELD_NAME),
+                stock != null ? stock.intValue() : null);
+    }
+
+    static Branch toBranch(Document document) {
+        return Branch.builder()
+                .id(document.getString(FIELD_ID))
+                .name(document.getString(FIELD_NAME))
+                .address(document.getString(FIELD_ADDRESS))
+                .city(document.getString(FIELD_CITY))
+                .products(new ArrayList<>())
+                .build();
+    }
+
+    static Franchise toFranchise(Document document) {
+        return Franchise.builder()
+                .id(document.getString(FIELD_ID))
+                .name(document.getString(FIELD_NAME))
+                .description(document.getString(FIELD_DESCRIPTION))
+                .build();
+    }
+}
@@ -0,0 +1,194 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+
+/**
+ * Codecs BSON de {@link Product}, {@link Branch} y {@link Franchise} para las lecturas proyectadas: el
+ * driver decodifica cada documento directamente en el objeto de dominio, sin el {@link org.bson.Document}
+ * intermedio ni el conversor de Spring Data. Los campos que no proyecta {@code project*} se saltan.
+ * <p>
+ * {@link #find(ReactiveMongoTemplate, Query, Class, String)} toma filtro, proyección, orden y límite de la
+ * {@link Query}, que por tanto debe usar los nombres de campo de la colección.
+ */
+final class DomainCodecs {
+
+    static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(new ProductCodec(), new BranchCodec(), new FranchiseCodec()),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    private DomainCodecs() {
+    }
+
+    static <T> Flux<T> find(ReactiveMongoTemplate mongoTemplate, Query query, Class<T> type, String collection) {
+        return mongoTemplate.execute(collection, documents -> {
+            FindPublisher<T> find = documents.withCodecRegistry(REGISTRY)
+                    .find(query.getQueryObject(), type)
+                    .projection(query.getFieldsObject())
+                    .sort(query.getSortObject());
+            return query.getLimit() > 0 ? find.limit(query.getLimit()) : find;
+        });
+    }
+
+    static <T> Mono<T> findOne(ReactiveMongoTemplate mongoTemplate, Query query, Class<T> type, String collection) {
+        return find(mongoTemplate, query.limit(1), type, collection).next();
+    }
+
+    static final class ProductCodec implements Codec<Product> {
+
+        @Override
+        public Product decode(BsonReader reader, DecoderContext decoderContext) {
+            String id = null;
+            String name = null;
+            Integer stock = null;
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case DocumentMappers.FIELD_ID -> id = readString(reader);
+                    case DocumentMappers.FIELD_NAME -> name = readString(reader);
+                    case DocumentMappers.FIELD_STOCK -> stock = readInteger(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            return new Product(id, name, stock);
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Product product, EncoderContext encoderContext) {
+            writer.writeStartDocument();
+            writeString(writer, DocumentMappers.FIELD_ID, product.getId());
+            writeString(writer, DocumentMappers.FIELD_NAME, product.getName());
+            writer.writeName(DocumentMappers.FIELD_STOCK);
+            if (product.getStock() != null) {
+                writer.writeInt32(product.getStock());
+            } else {
+                writer.writeNull();
+            }
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public Class<Product> getEncoderClass() {
+            return Product.class;
+        }
+    }
+
+    static final class BranchCodec implements Codec<Branch> {
+
+        @Override
+        public Branch decode(BsonReader reader, DecoderContext decoderContext) {
+            Branch.BranchBuilder branch = Branch.builder().products(new ArrayList<>());
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case DocumentMappers.FIELD_ID -> branch.id(readString(reader));
+                    case DocumentMappers.FIELD_NAME -> branch.name(readString(reader));
+                    case DocumentMappers.FIELD_ADDRESS -> branch.address(readString(reader));
+                    case DocumentMappers.FIELD_CITY -> branch.city(readString(reader));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            return branch.build();
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Branch branch, EncoderContext encoderContext) {
+            writer.writeStartDocument();
+            writeString(writer, DocumentMappers.FIELD_ID, branch.getId());
+            writeString(writer, DocumentMappers.FIELD_NAME, branch.getName());
+            writeString(writer, DocumentMappers.FIELD_ADDRESS, branch.getAddress());
+            writeString(writer, DocumentMappers.FIELD_CITY, branch.getCity());
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public Class<Branch> getEncoderClass() {
+            return Branch.class;
+        }
+    }
+
+    static final class FranchiseCodec implements Codec<Franchise> {
+
+        @Override
+        public Franchise decode(BsonReader reader, DecoderContext decoderContext) {
+            Franchise.FranchiseBuilder franchise = Franchise.builder();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case DocumentMappers.FIELD_ID -> franchise.id(readString(reader));
+                    case DocumentMappers.FIELD_NAME -> franchise.name(readString(reader));
+                    case DocumentMappers.FIELD_DESCRIPTION -> franchise.description(readString(reader));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            return franchise.build();
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Franchise franchise, EncoderContext encoderContext) {
+            writer.writeStartDocument();
+            writeString(writer, DocumentMappers.FIELD_ID, franchise.getId());
+            writeString(writer, DocumentMappers.FIELD_NAME, franchise.getName());
+            writeString(writer, DocumentMappers.FIELD_DESCRIPTION, franchise.getDescription());
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public Class<Franchise> getEncoderClass() {
+            return Franchise.class;
+        }
+    }
+
+    private static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+        return reader.readString();
+    }
+
+    /**
+     * Acepta cualquier tipo numérico, como {@code Document.get(field, Number.class)}.
+     */
+    private static Integer readInteger(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> (int) reader.readInt64();
+            case DOUBLE -> (int) reader.readDouble();
+            case DECIMAL128 -> reader.readDecimal128().bigDecimalValue().intValue();
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        writer.writeName(name);
+        if (value != null) {
+            writer.writeString(value);
+        } else {
+            writer.writeNull();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Versioned;
+import co.com.pragma.model.gateways.BranchGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link BranchGateway} sobre la disposición embebida de {@link EmbeddedDocuments}
+ */
+@Repository
+@Profile(EmbeddedDocuments.PROFILE)
+public class EmbeddedBranchRepository implements BranchGateway {
+
+    private static final String SEQUENCE_NAME = "branch_sequence";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final HiLoIdAllocator idAllocator;
+
+    public EmbeddedBranchRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                                    HiLoIdAllocator idAllocator) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+        this.idAllocator = idAllocator;
+    }
+
+    /**
+     * Agrega la sucursal a la franquicia o sobrescribe sus campos si ya existe
+     */
+    @Override
+    public Mono<Branch> save(String franchiseId, Branch branch) {
+        Document element = new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, branch.getId())
+                .append(DocumentMappers.FIELD_NAME, branch.getName())
+                .append(DocumentMappers.FIELD_ADDRESS, branch.getAddress())
+                .append(DocumentMappers.FIELD_CITY, branch.getCity())
+                .append(DocumentMappers.FIELD_VERSION, 0L)
+                .append(DocumentMappers.FIELD_PRODUCTS_VERSION, 0L)
+                .append(EmbeddedDocuments.FIELD_PRODUCTS, List.of());
+        Query absent = new Query(EmbeddedDocuments.byFranchise(franchiseId)
+                .and(EmbeddedDocuments.FIELD_BRANCHES + "." + EmbeddedDocuments.FIELD_ELEMENT_ID).ne(branch.getId()));
+        return mongoTemplate.updateFirst(absent, new Update().push(EmbeddedDocuments.FIELD_BRANCHES, element),
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .flatMap(result -> result.getMatchedCount() > 0
+                        ? Mono.just(EmbeddedDocuments.toBranch(element))
+                        : modify(byId(branch.getId()), franchiseId, fieldUpdate(branch))
+                        .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND))));
+    }
+
+    @Override
+    public Mono<Branch> findById(String franchiseId, String branchId) {
+        return aggregate(EmbeddedDocuments.branchOf(franchiseId, branchId))
+                .next();
+    }
+
+    /**
+     * Sucursal y su versión leídas en la misma consulta
+     */
+    @Override
+    public Mono<Versioned<Branch>> findVersionedById(String franchiseId, String branchId) {
+        List<AggregationOperation> stages = EmbeddedDocuments.branchOf(franchiseId, branchId);
+        stages.add(EmbeddedDocuments.projectElement(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_ADDRESS,
+                DocumentMappers.FIELD_CITY, DocumentMappers.FIELD_VERSION));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(document -> new Versioned<>(DocumentMappers.toBranch(document),
+                        DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION)));
+    }
+
+    /**
+     * Elimina la sucursal de la franquicia junto con sus productos
+     */
+    @Override
+    public Mono<Void> deleteById(String franchiseId, String branchId) {
+        Update update = new Update().pull(EmbeddedDocuments.FIELD_BRANCHES,
+                new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, branchId));
+        return mongoTemplate.updateFirst(new Query(EmbeddedDocuments.byFranchise(franchiseId)), update,
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .then();
+    }
+
+    @Override
+    public Mono<Branch> update(String franchiseId, Branch branch) {
+        Update update = new Update()
+                .set(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_NAME), branch.getName())
+                .set(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_ADDRESS), branch.getAddress())
+                .set(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_CITY), branch.getCity());
+        return modify(byId(branch.getId()), franchiseId, update)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
+    }
+
+    /**
+     * Actualiza solo los campos no nulos de {@code changes}
+     */
+    @Override
+    public Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes) {
+        Update update = fieldUpdate(changes);
+        if (update.getUpdateObject().isEmpty()) {
+            return findById(franchiseId, branchId);
+        }
+        return modify(byId(branchId), franchiseId, update);
+    }
+
+    /**
+     * Actualiza la sucursal solo si sigue en {@code expectedVersion}; vacío si no existe o cambió
+     */
+    @Override
+    public Mono<Branch> updateBranchFields(String franchiseId, String branchId, Branch changes, long expectedVersion) {
+        return modify(DocumentMappers.atVersion(byId(branchId), expectedVersion), franchiseId, fieldUpdate(changes));
+    }
+
+    @Override
+    public Flux<Branch> findAllByFranchiseId(String franchiseId) {
+        return aggregate(EmbeddedDocuments.branchesOf(franchiseId));
+    }
+
+    /**
+     * Versión de la sucursal; vacío si no existe
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId, String branchId) {
+        List<AggregationOperation> stages = EmbeddedDocuments.branchOf(franchiseId, branchId);
+        stages.add(EmbeddedDocuments.projectElement(DocumentMappers.FIELD_VERSION));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(document -> DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION));
+    }
+
+    @Override
+    public Mono<String> getNextId() {
+        return idAllocator.nextId(SEQUENCE_NAME)
+                .map(String::valueOf);
+    }
+
+    private Update fieldUpdate(Branch changes) {
+        Update update = new Update();
+        if (changes.getName() != null) {
+            update.set(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_NAME), changes.getName());
+        }
+        if (changes.getAddress() != null) {
+            update.set(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_ADDRESS), changes.getAddress());
+        }
+        if (changes.getCity() != null) {
+            update.set(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_CITY), changes.getCity());
+        }
+        return update;
+    }
+
+    private Flux<Branch> aggregate(List<AggregationOperation> stages) {
+        stages.add(EmbeddedDocuments.projectElement(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_ADDRESS,
+                DocumentMappers.FIELD_CITY));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(DocumentMappers::toBranch);
+    }
+
+    private static Criteria byId(String branchId) {
+        return Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(branchId);
+    }
+
+    /**
+     * Aplica la actualización a la sucursal de {@code branchCriteria} y la devuelve
+     */
+    private Mono<Branch> modify(Criteria branchCriteria, String franchiseId, Update update) {
+        Query query = new Query(EmbeddedDocuments.byFranchise(franchiseId)
+                .and(EmbeddedDocuments.FIELD_BRANCHES).elemMatch(branchCriteria));
+        query.fields().position(EmbeddedDocuments.FIELD_BRANCHES, 1);
+        update.inc(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_VERSION), 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Document.class,
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .mapNotNull(document -> {
+                    List<Document> branches = document.getList(EmbeddedDocuments.FIELD_BRANCHES, Document.class);
+                    return branches == null || branches.isEmpty() ? null : EmbeddedDocuments.toBranch(branches.get(0));
+                });
+    }
+}
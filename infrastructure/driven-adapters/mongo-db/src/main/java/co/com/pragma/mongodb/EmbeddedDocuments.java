@@ -0,0 +1,131 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Product;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Disposición de persistencia con el perfil {@value #PROFILE}: un documento de {@value #COLLECTION} por
+ * franquicia con sus sucursales y productos embebidos
+ */
+final class EmbeddedDocuments {
+
+    static final String PROFILE = "embedded-documents";
+    static final String COLLECTION = "franchise_documents";
+
+    static final String FIELD_BRANCHES = "branches";
+    static final String FIELD_PRODUCTS = "products";
+    static final String FIELD_ELEMENT_ID = "id";
+
+    private static final String BRANCH_FILTER = "branch";
+    private static final String PRODUCT_FILTER = "product";
+
+    private EmbeddedDocuments() {
+    }
+
+    static Criteria byFranchise(String franchiseId) {
+        return Criteria.where(DocumentMappers.FIELD_ID).is(franchiseId);
+    }
+
+    /**
+     * Ruta de un campo de la sucursal que seleccionó el {@code $elemMatch} del filtro.
+     */
+    static String matchedBranch(String field) {
+        return FIELD_BRANCHES + ".$." + field;
+    }
+
+    static String filteredBranch(String field) {
+        return FIELD_BRANCHES + ".$[" + BRANCH_FILTER + "]." + field;
+    }
+
+    static String filteredProduct(String field) {
+        return FIELD_BRANCHES + ".$[" + BRANCH_FILTER + "]." + FIELD_PRODUCTS + ".$[" + PRODUCT_FILTER + "]." + field;
+    }
+
+    /**
+     * Declara los filtros de arreglo que usan {@link #filteredBranch(String)} y {@link #filteredProduct(String)}.
+     */
+    static Update filterProduct(Update update, String branchId, String productId) {
+        return update
+                .filterArray(BRANCH_FILTER + "." + FIELD_ELEMENT_ID, branchId)
+                .filterArray(PRODUCT_FILTER + "." + FIELD_ELEMENT_ID, productId);
+    }
+
+    /**
+     * Etapas que emiten las sucursales de la franquicia como documentos raíz.
+     */
+    static List<AggregationOperation> branchesOf(String franchiseId) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(byFranchise(franchiseId)));
+        stages.addAll(unwindToRoot(FIELD_BRANCHES));
+        return stages;
+    }
+
+    static List<AggregationOperation> branchOf(String franchiseId, String branchId) {
+        List<AggregationOperation> stages = branchesOf(franchiseId);
+        stages.add(Aggregation.match(Criteria.where(FIELD_ELEMENT_ID).is(branchId)));
+        return stages;
+    }
+
+    /**
+     * Etapas que emiten los productos de la sucursal como documentos raíz.
+     */
+    static List<AggregationOperation> productsOf(String franchiseId, String branchId) {
+        List<AggregationOperation> stages = branchOf(franchiseId, branchId);
+        stages.addAll(unwindToRoot(FIELD_PRODUCTS));
+        return stages;
+    }
+
+    /**
+     * Etapa declarada como documento, sin validación de campos de Spring Data
+     */
+    static AggregationOperation stage(String operator, Object definition) {
+        return context -> new Document(operator, definition);
+    }
+
+    /**
+     * Proyecta un elemento embebido con su ID en {@code _id}, como lo espera {@link DocumentMappers}.
+     */
+    static AggregationOperation projectElement(String... fields) {
+        Document projection = new Document(DocumentMappers.FIELD_ID, "$" + FIELD_ELEMENT_ID);
+        for (String field : fields) {
+            projection.append(field, 1);
+        }
+        return stage("$project", projection);
+    }
+
+    private static List<AggregationOperation> unwindToRoot(String field) {
+        return List.of(
+                stage("$unwind", "$" + field),
+                stage("$replaceRoot", new Document("newRoot", "$" + field)));
+    }
+
+    static Document findElement(List<Document> elements, String id) {
+        if (elements == null) {
+            return null;
+        }
+        return elements.stream()
+                .filter(element -> id.equals(element.getString(FIELD_ELEMENT_ID)))
+                .findFirst()
+                .orElse(null);
+    }
+
+    static Product toProduct(Document element) {
+        return DocumentMappers.toProduct(withId(element));
+    }
+
+    static Branch toBranch(Document element) {
+        return DocumentMappers.toBranch(withId(element));
+    }
+
+    private static Document withId(Document element) {
+        return new Document(element).append(DocumentMappers.FIELD_ID, element.get(FIELD_ELEMENT_ID));
+    }
+}
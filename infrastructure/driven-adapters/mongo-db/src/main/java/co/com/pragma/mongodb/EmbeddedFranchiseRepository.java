@@ -0,0 +1,150 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
+import co.com.pragma.model.gateways.FranchiseGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link FranchiseGateway} sobre la disposición embebida de {@link EmbeddedDocuments}
+ */
+@Repository
+@Profile(EmbeddedDocuments.PROFILE)
+public class EmbeddedFranchiseRepository implements FranchiseGateway {
+
+    private static final String SEQUENCE_NAME = "franchise_sequence";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final HiLoIdAllocator idAllocator;
+
+    public EmbeddedFranchiseRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                                       HiLoIdAllocator idAllocator) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+        this.idAllocator = idAllocator;
+    }
+
+    /**
+     * Crea la franquicia sin sucursales o actualiza nombre y descripción conservando sus sucursales
+     */
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        Update update = new Update()
+                .set(DocumentMappers.FIELD_NAME, franchise.getName())
+                .set(DocumentMappers.FIELD_DESCRIPTION, franchise.getDescription())
+                .setOnInsert(EmbeddedDocuments.FIELD_BRANCHES, List.of());
+        return mongoTemplate.upsert(new Query(EmbeddedDocuments.byFranchise(franchise.getId())), update,
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .thenReturn(Franchise.builder()
+                        .id(franchise.getId())
+                        .name(franchise.getName())
+                        .description(franchise.getDescription())
+                        .build());
+    }
+
+    @Override
+    public Mono<Franchise> findById(String id) {
+        Query query = DocumentMappers.projectFranchise(new Query(EmbeddedDocuments.byFranchise(id)));
+        return mongoTemplate.findOne(query, Document.class, EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(DocumentMappers::toFranchise);
+    }
+
+    /**
+     * Elimina la franquicia con sus sucursales y productos
+     */
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return mongoTemplate.remove(new Query(EmbeddedDocuments.byFranchise(id)), EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .then();
+    }
+
+    @Override
+    public Mono<Franchise> update(Franchise franchise) {
+        Update update = new Update()
+                .set(DocumentMappers.FIELD_NAME, franchise.getName())
+                .set(DocumentMappers.FIELD_DESCRIPTION, franchise.getDescription());
+        return modify(franchise.getId(), update)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<Franchise> updateName(String franchiseId, String name) {
+        return modify(franchiseId, new Update().set(DocumentMappers.FIELD_NAME, name));
+    }
+
+    @Override
+    public Flux<Franchise> findAll() {
+        return mongoTemplate.find(DocumentMappers.projectFranchise(new Query()), Document.class, EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(DocumentMappers::toFranchise);
+    }
+
+    @Override
+    public Mono<ResultPage<Franchise>> findPage(PageQuery pageQuery) {
+        KeysetPagination.Keyset keyset = FranchiseRepository.keyset(pageQuery.getSort());
+        return Mono.fromCallable(() -> KeysetPagination.page(DocumentMappers.projectFranchise(new Query()), keyset, pageQuery))
+                .flatMap(query -> mongoTemplate.find(query, Document.class, EmbeddedDocuments.COLLECTION)
+                        .collectList()
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
+                .map(documents -> KeysetPagination.toPage(documents, keyset, pageQuery, DocumentMappers::toFranchise));
+    }
+
+    /**
+     * Franquicia y su versión leídas en la misma consulta
+     */
+    @Override
+    public Mono<Versioned<Franchise>> findVersionedById(String id) {
+        Query query = DocumentMappers.projectFranchise(new Query(EmbeddedDocuments.byFranchise(id)));
+        query.fields().include(DocumentMappers.FIELD_VERSION);
+        return mongoTemplate.findOne(query, Document.class, EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(document -> new Versioned<>(DocumentMappers.toFranchise(document),
+                        DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION)));
+    }
+
+    /**
+     * Versión de la franquicia; vacío si no existe
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId) {
+        Query query = new Query(EmbeddedDocuments.byFranchise(franchiseId));
+        return mongoTemplate.findOne(DocumentMappers.projectVersion(query, DocumentMappers.FIELD_VERSION), Document.class,
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(document -> DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION));
+    }
+
+    @Override
+    public Mono<String> getNextId() {
+        return idAllocator.nextId(SEQUENCE_NAME)
+                .map(String::valueOf);
+    }
+
+    private Mono<Franchise> modify(String franchiseId, Update update) {
+        Query query = DocumentMappers.projectFranchise(new Query(EmbeddedDocuments.byFranchise(franchiseId)));
+        update.inc(DocumentMappers.FIELD_VERSION, 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Document.class,
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(DocumentMappers::toFranchise);
+    }
+}
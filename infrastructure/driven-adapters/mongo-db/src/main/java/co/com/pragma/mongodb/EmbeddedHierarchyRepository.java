@@ -0,0 +1,173 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.FranchiseSize;
+import co.com.pragma.model.HierarchyPath;
+import co.com.pragma.model.gateways.HierarchyGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Resuelve la ruta franquicia → sucursal → producto sobre la disposición de {@link EmbeddedDocuments}
+ */
+@Slf4j
+@Repository
+@Profile(EmbeddedDocuments.PROFILE)
+public class EmbeddedHierarchyRepository implements HierarchyGateway {
+
+    private static final String FIELD_BRANCH = "branch";
+    private static final String FIELD_BRANCH_COUNT = "branchCount";
+    private static final String FIELD_PRODUCT_COUNT = "productCount";
+    private static final String BRANCH_VARIABLE = "branch";
+    private static final String PRODUCT_VARIABLE = "product";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+
+    public EmbeddedHierarchyRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveBranch(String franchiseId, String branchId) {
+        return resolve(franchiseId, branchId, null, null);
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveProduct(String franchiseId, String branchId, String productId) {
+        return resolve(franchiseId, branchId, EmbeddedDocuments.FIELD_ELEMENT_ID, productId);
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveProductByName(String franchiseId, String branchId, String productName) {
+        return resolve(franchiseId, branchId, DocumentMappers.FIELD_NAME, productName);
+    }
+
+    @Override
+    public Mono<FranchiseSize> measureFranchise(String franchiseId) {
+        Document productCounts = new Document("$map", new Document("input", orEmpty("$" + EmbeddedDocuments.FIELD_BRANCHES))
+                .append("as", BRANCH_VARIABLE)
+                .append("in", new Document("$size", orEmpty("$$" + BRANCH_VARIABLE + "." + EmbeddedDocuments.FIELD_PRODUCTS))));
+        Document projection = new Document(DocumentMappers.FIELD_NAME, 1)
+                .append(DocumentMappers.FIELD_DESCRIPTION, 1)
+                .append(FIELD_BRANCH_COUNT, new Document("$size", orEmpty("$" + EmbeddedDocuments.FIELD_BRANCHES)))
+                .append(FIELD_PRODUCT_COUNT, new Document("$sum", productCounts));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(EmbeddedDocuments.byFranchise(franchiseId)),
+                EmbeddedDocuments.stage("$project", projection));
+
+        return mongoTemplate.aggregate(aggregation, EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(document -> FranchiseSize.builder()
+                        .franchise(DocumentMappers.toFranchise(document))
+                        .branchCount(document.get(FIELD_BRANCH_COUNT, Number.class).longValue())
+                        .productCount(document.get(FIELD_PRODUCT_COUNT, Number.class).longValue())
+                        .build())
+                .doOnError(error -> log.error("Error measuring franchise with circuit breaker: {}", error.getMessage()));
+    }
+
+    @Override
+    public Flux<Branch> findBranches(String franchiseId, boolean withProducts, int maxBranches, int maxProductsPerBranch) {
+        Document projection = new Document(DocumentMappers.FIELD_ID, "$" + EmbeddedDocuments.FIELD_ELEMENT_ID)
+                .append(DocumentMappers.FIELD_NAME, 1)
+                .append(DocumentMappers.FIELD_ADDRESS, 1)
+                .append(DocumentMappers.FIELD_CITY, 1);
+        if (withProducts) {
+            Document sorted = new Document("$sortArray", new Document("input", orEmpty("$" + EmbeddedDocuments.FIELD_PRODUCTS))
+                    .append("sortBy", new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, 1)));
+            projection.append(EmbeddedDocuments.FIELD_PRODUCTS, new Document("$slice", List.of(sorted, maxProductsPerBranch)));
+        }
+        List<AggregationOperation> stages = EmbeddedDocuments.branchesOf(franchiseId);
+        stages.add(EmbeddedDocuments.stage("$sort", new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, 1)));
+        stages.add(Aggregation.limit(maxBranches));
+        stages.add(EmbeddedDocuments.stage("$project", projection));
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(this::mapToBranch)
+                .doOnError(error -> log.error("Error expanding franchise branches with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * Proyecta la franquicia con la sucursal pedida y, si aplica, los productos que cumplen {@code productField}
+     */
+    private Mono<HierarchyPath> resolve(String franchiseId, String branchId, String productField, String productValue) {
+        String branch = "$$" + BRANCH_VARIABLE + ".";
+        Document branchView = new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, branch + EmbeddedDocuments.FIELD_ELEMENT_ID)
+                .append(DocumentMappers.FIELD_NAME, branch + DocumentMappers.FIELD_NAME)
+                .append(DocumentMappers.FIELD_ADDRESS, branch + DocumentMappers.FIELD_ADDRESS)
+                .append(DocumentMappers.FIELD_CITY, branch + DocumentMappers.FIELD_CITY)
+                .append(DocumentMappers.FIELD_VERSION, branch + DocumentMappers.FIELD_VERSION);
+        if (productField != null) {
+            branchView.append(EmbeddedDocuments.FIELD_PRODUCTS, filter(orEmpty(branch + EmbeddedDocuments.FIELD_PRODUCTS),
+                    PRODUCT_VARIABLE, "$$" + PRODUCT_VARIABLE + "." + productField, productValue));
+        }
+        Document matchedBranch = new Document("$map", new Document("input",
+                filter(orEmpty("$" + EmbeddedDocuments.FIELD_BRANCHES), BRANCH_VARIABLE, branch + EmbeddedDocuments.FIELD_ELEMENT_ID, branchId))
+                .append("as", BRANCH_VARIABLE)
+                .append("in", branchView));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(DocumentMappers.FIELD_ID).is(franchiseId)),
+                EmbeddedDocuments.stage("$project", new Document(DocumentMappers.FIELD_NAME, 1)
+                        .append(DocumentMappers.FIELD_DESCRIPTION, 1)
+                        .append(FIELD_BRANCH, matchedBranch)));
+
+        return mongoTemplate.aggregate(aggregation, EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(this::mapToPath)
+                .defaultIfEmpty(new HierarchyPath())
+                .doOnError(error -> log.error("Error resolving hierarchy path with circuit breaker: {}", error.getMessage()));
+    }
+
+    private static Document filter(Object input, String variable, String field, String value) {
+        return new Document("$filter", new Document("input", input)
+                .append("as", variable)
+                .append("cond", new Document("$eq", List.of(field, new Document("$literal", value)))));
+    }
+
+    private static Document orEmpty(String expression) {
+        return new Document("$ifNull", List.of(expression, List.of()));
+    }
+
+    private Branch mapToBranch(Document document) {
+        Branch branch = DocumentMappers.toBranch(document);
+        List<Document> products = document.getList(EmbeddedDocuments.FIELD_PRODUCTS, Document.class);
+        if (products != null) {
+            branch.setProducts(products.stream().map(EmbeddedDocuments::toProduct).collect(Collectors.toCollection(ArrayList::new)));
+        }
+        return branch;
+    }
+
+    private HierarchyPath mapToPath(Document document) {
+        Document branch = first(document.getList(FIELD_BRANCH, Document.class));
+        Document product = branch != null ? first(branch.getList(EmbeddedDocuments.FIELD_PRODUCTS, Document.class)) : null;
+        return HierarchyPath.builder()
+                .franchise(DocumentMappers.toFranchise(document))
+                .branch(branch != null ? EmbeddedDocuments.toBranch(branch) : null)
+                .product(product != null ? EmbeddedDocuments.toProduct(product) : null)
+                .branchVersion(branch != null ? DocumentMappers.toVersion(branch, DocumentMappers.FIELD_VERSION) : 0)
+                .productVersion(product != null ? DocumentMappers.toVersion(product, DocumentMappers.FIELD_VERSION) : 0)
+                .build();
+    }
+
+    private static Document first(List<Document> matches) {
+        return matches == null || matches.isEmpty() ? null : matches.get(0);
+    }
+}
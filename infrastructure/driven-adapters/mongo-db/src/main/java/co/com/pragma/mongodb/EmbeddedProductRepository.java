@@ -0,0 +1,410 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.ImportRecordError;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.ProductWithBranch;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.gateways.ProductGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * {@link ProductGateway} sobre la disposición embebida de {@link EmbeddedDocuments}
+ */
+@Slf4j
+@Repository
+@Profile(EmbeddedDocuments.PROFILE)
+public class EmbeddedProductRepository implements ProductGateway {
+
+    private static final String FIELD_BRANCH = "branch";
+    private static final String SEQUENCE_NAME = "product_sequence";
+    private static final String ERROR_DUPLICATE_PRODUCT = "A product with the same id or name already exists in the branch";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final HiLoIdAllocator idAllocator;
+
+    public EmbeddedProductRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                                     HiLoIdAllocator idAllocator) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+        this.idAllocator = idAllocator;
+    }
+
+    /**
+     * Agrega el producto si la sucursal no tiene otro con su ID o nombre; si no, {@link DuplicateKeyException}
+     */
+    @Override
+    public Mono<Product> save(String franchiseId, String branchId, Product product) {
+        Document element = new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, product.getId())
+                .append(DocumentMappers.FIELD_NAME, product.getName())
+                .append(DocumentMappers.FIELD_STOCK, product.getStock())
+                .append(DocumentMappers.FIELD_VERSION, 0L);
+        Criteria branch = Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(branchId)
+                .and(productsField(EmbeddedDocuments.FIELD_ELEMENT_ID)).ne(product.getId())
+                .and(productsField(DocumentMappers.FIELD_NAME)).ne(product.getName());
+        Query query = new Query(EmbeddedDocuments.byFranchise(franchiseId)
+                .and(EmbeddedDocuments.FIELD_BRANCHES).elemMatch(branch));
+        Update update = new Update()
+                .push(EmbeddedDocuments.matchedBranch(EmbeddedDocuments.FIELD_PRODUCTS), element)
+                .inc(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_PRODUCTS_VERSION), 1);
+        return mongoTemplate.updateFirst(query, update, EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .flatMap(result -> result.getMatchedCount() > 0
+                        ? Mono.just(EmbeddedDocuments.toProduct(element))
+                        : rejected(franchiseId, branchId));
+    }
+
+    @Override
+    public Mono<Product> findById(String franchiseId, String branchId, String productId) {
+        return findProducts(franchiseId, branchId, Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(productId))
+                .next();
+    }
+
+    @Override
+    public Mono<Product> findByName(String franchiseId, String branchId, String productName) {
+        return findProducts(franchiseId, branchId, Criteria.where(DocumentMappers.FIELD_NAME).is(productName))
+                .next();
+    }
+
+    @Override
+    public Mono<Void> deleteById(String franchiseId, String branchId, String productId) {
+        Query query = new Query(EmbeddedDocuments.byFranchise(franchiseId)
+                .and(EmbeddedDocuments.FIELD_BRANCHES).elemMatch(Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(branchId)));
+        Update update = new Update()
+                .pull(EmbeddedDocuments.matchedBranch(EmbeddedDocuments.FIELD_PRODUCTS),
+                        new Document(EmbeddedDocuments.FIELD_ELEMENT_ID, productId))
+                .inc(EmbeddedDocuments.matchedBranch(DocumentMappers.FIELD_PRODUCTS_VERSION), 1);
+        return mongoTemplate.updateFirst(query, update, EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .then();
+    }
+
+    @Override
+    public Mono<Product> update(String franchiseId, String branchId, Product product) {
+        Update update = new Update()
+                .set(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_NAME), product.getName())
+                .set(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_STOCK), product.getStock());
+        return modify(franchiseId, branchId, product.getId(), nameAvailable(product.getId(), product.getName()), null, update)
+                .switchIfEmpty(Mono.defer(() -> nameTaken(franchiseId, branchId, product.getId(), product.getName())))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<Product> updateStock(String franchiseId, String branchId, String productId, Integer stock) {
+        return modify(franchiseId, branchId, productId, null, null,
+                new Update().set(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_STOCK), stock));
+    }
+
+    /**
+     * Renombra el producto; {@link DuplicateKeyException} si el nombre ya está en la sucursal
+     */
+    @Override
+    public Mono<Product> updateName(String franchiseId, String branchId, String productId, String name) {
+        return modify(franchiseId, branchId, productId, nameAvailable(productId, name), null,
+                new Update().set(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_NAME), name))
+                .switchIfEmpty(Mono.defer(() -> nameTaken(franchiseId, branchId, productId, name)));
+    }
+
+    /**
+     * Actualiza el stock solo si el producto sigue en {@code expectedVersion}
+     */
+    @Override
+    public Mono<Product> updateStock(String franchiseId, String branchId, String productId, Integer stock,
+                                     long expectedVersion) {
+        return modify(franchiseId, branchId, productId, null, expectedVersion,
+                new Update().set(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_STOCK), stock));
+    }
+
+    /**
+     * Actualiza el nombre solo si el producto sigue en {@code expectedVersion}
+     */
+    @Override
+    public Mono<Product> updateName(String franchiseId, String branchId, String productId, String name,
+                                    long expectedVersion) {
+        return modify(franchiseId, branchId, productId, nameAvailable(productId, name), expectedVersion,
+                new Update().set(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_NAME), name))
+                .switchIfEmpty(Mono.defer(() -> nameTaken(franchiseId, branchId, productId, name)));
+    }
+
+    /**
+     * Suma {@code delta} al stock en una actualización condicionada; vacío si no existe o no alcanza el stock
+     */
+    @Override
+    public Mono<Product> adjustStock(String franchiseId, String branchId, String productId, int delta) {
+        Criteria product = Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(productId);
+        if (delta < 0) {
+            product = product.and(DocumentMappers.FIELD_STOCK).gte(-delta);
+        } else if (delta > 0) {
+            product = product.and(DocumentMappers.FIELD_STOCK).lte(Constants.MAX_STOCK - delta);
+        }
+        Update update = new Update().inc(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_STOCK), delta);
+        return write(franchiseId, branchId, productId, product, null, update);
+    }
+
+    /**
+     * Producto de máximo stock de cada sucursal, calculado sobre el documento de la franquicia
+     */
+    @Override
+    public Flux<ProductWithBranch> findMaxStockProductsByFranchise(String franchiseId) {
+        List<AggregationOperation> stages = productRows(franchiseId);
+        stages.add(EmbeddedDocuments.stage("$sort", new Document(DocumentMappers.FIELD_STOCK, -1).append(DocumentMappers.FIELD_ID, 1)));
+        stages.add(EmbeddedDocuments.stage("$group", new Document(DocumentMappers.FIELD_ID, "$" + FIELD_BRANCH + "." + DocumentMappers.FIELD_ID)
+                .append(FIELD_BRANCH, new Document("$first", "$" + FIELD_BRANCH))
+                .append(EmbeddedDocuments.FIELD_PRODUCTS, new Document("$first", "$$ROOT"))));
+        stages.add(EmbeddedDocuments.stage("$sort", new Document(DocumentMappers.FIELD_ID, 1)));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(leader -> new ProductWithBranch(
+                        DocumentMappers.toProduct(leader.get(EmbeddedDocuments.FIELD_PRODUCTS, Document.class)),
+                        DocumentMappers.toBranch(leader.get(FIELD_BRANCH, Document.class))))
+                .doOnError(error -> log.error("Error finding max stock products with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * Productos ordenados por stock, como máximo {@code size} por grupo
+     */
+    @Override
+    public Flux<RankedProduct> findStockRanking(String franchiseId, RankingScope scope, RankingOrder order, int size) {
+        int stockDirection = order == RankingOrder.ASC ? 1 : -1;
+        Document sortBy = new Document(DocumentMappers.FIELD_STOCK, stockDirection).append(DocumentMappers.FIELD_ID, -stockDirection);
+        Flux<RankedProduct> ranking = scope == RankingScope.FRANCHISE
+                ? rankFranchise(franchiseId, sortBy, size)
+                : rankBranches(franchiseId, sortBy, size);
+        return ranking
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnError(error -> log.error("Error finding stock ranking with circuit breaker: {}", error.getMessage()));
+    }
+
+    @Override
+    public Flux<Product> findAllByBranch(String franchiseId, String branchId) {
+        return findProducts(franchiseId, branchId, null)
+                .doOnError(error -> log.error("Error finding products by branch with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * Página de productos de la sucursal según {@link KeysetPagination}
+     */
+    @Override
+    public Mono<ResultPage<Product>> findPageByBranch(String franchiseId, String branchId, PageQuery pageQuery) {
+        KeysetPagination.Keyset keyset = ProductRepository.keyset(pageQuery.getSort());
+        return Mono.fromCallable(() -> KeysetPagination.page(new Query(), keyset, pageQuery))
+                .flatMap(page -> {
+                    List<AggregationOperation> stages = EmbeddedDocuments.productsOf(franchiseId, branchId);
+                    stages.add(EmbeddedDocuments.projectElement(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_STOCK));
+                    stages.add(EmbeddedDocuments.stage("$match", page.getQueryObject()));
+                    stages.add(EmbeddedDocuments.stage("$sort", page.getSortObject()));
+                    stages.add(Aggregation.limit(page.getLimit()));
+                    return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                            .collectList()
+                            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+                })
+                .map(documents -> KeysetPagination.toPage(documents, keyset, pageQuery, DocumentMappers::toProduct))
+                .doOnError(error -> log.error("Error finding product page by branch with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * Versión del producto; vacío si no existe
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId, String branchId, String productId) {
+        List<AggregationOperation> stages = EmbeddedDocuments.productsOf(franchiseId, branchId);
+        stages.add(Aggregation.match(Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(productId)));
+        return version(stages, DocumentMappers.FIELD_VERSION);
+    }
+
+    /**
+     * Versión del listado de productos de la sucursal; vacío si la sucursal no existe
+     */
+    @Override
+    public Mono<Long> findListVersion(String franchiseId, String branchId) {
+        return version(EmbeddedDocuments.branchOf(franchiseId, branchId), DocumentMappers.FIELD_PRODUCTS_VERSION);
+    }
+
+    @Override
+    public Mono<String> getNextId() {
+        return idAllocator.nextId(SEQUENCE_NAME)
+                .map(String::valueOf);
+    }
+
+    @Override
+    public Flux<String> getNextIds(int count) {
+        return idAllocator.reserve(SEQUENCE_NAME, count)
+                .flatMapMany(last -> Flux.range(0, count)
+                        .map(offset -> String.valueOf(last - count + 1 + offset)));
+    }
+
+    /**
+     * Inserta los registros uno a uno y devuelve los rechazados
+     */
+    @Override
+    public Flux<ImportRecordError> insertAll(String franchiseId, List<ProductImportRecord> records) {
+        return Flux.fromIterable(records)
+                .concatMap(importRecord -> save(franchiseId, importRecord.getBranchId(), importRecord.getProduct())
+                        .then(Mono.<ImportRecordError>empty())
+                        .onErrorResume(error -> error instanceof DuplicateKeyException || error instanceof IllegalArgumentException,
+                                error -> Mono.just(new ImportRecordError(importRecord.getLine(), error.getMessage()))))
+                .doOnError(error -> log.error("Error inserting products with circuit breaker: {}", error.getMessage()));
+    }
+
+    private Flux<RankedProduct> rankFranchise(String franchiseId, Document sortBy, int size) {
+        List<AggregationOperation> stages = productRows(franchiseId);
+        stages.add(EmbeddedDocuments.stage("$sort", sortBy));
+        stages.add(Aggregation.limit(size));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .index()
+                .map(ranked -> new RankedProduct(ranked.getT1().intValue() + 1,
+                        DocumentMappers.toProduct(ranked.getT2()),
+                        DocumentMappers.toBranch(ranked.getT2().get(FIELD_BRANCH, Document.class))));
+    }
+
+    private Flux<RankedProduct> rankBranches(String franchiseId, Document sortBy, int size) {
+        Document topN = new Document("n", size)
+                .append("sortBy", sortBy)
+                .append("output", new Document(DocumentMappers.FIELD_ID, "$" + DocumentMappers.FIELD_ID)
+                        .append(DocumentMappers.FIELD_NAME, "$" + DocumentMappers.FIELD_NAME)
+                        .append(DocumentMappers.FIELD_STOCK, "$" + DocumentMappers.FIELD_STOCK));
+        List<AggregationOperation> stages = productRows(franchiseId);
+        stages.add(EmbeddedDocuments.stage("$group", new Document(DocumentMappers.FIELD_ID, "$" + FIELD_BRANCH + "." + DocumentMappers.FIELD_ID)
+                .append(FIELD_BRANCH, new Document("$first", "$" + FIELD_BRANCH))
+                .append(EmbeddedDocuments.FIELD_PRODUCTS, new Document("$topN", topN))));
+        stages.add(EmbeddedDocuments.stage("$sort", new Document(DocumentMappers.FIELD_ID, 1)));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .flatMapIterable(group -> {
+                    List<Document> products = group.getList(EmbeddedDocuments.FIELD_PRODUCTS, Document.class);
+                    Document branch = group.get(FIELD_BRANCH, Document.class);
+                    return IntStream.range(0, products.size())
+                            .mapToObj(index -> new RankedProduct(index + 1,
+                                    DocumentMappers.toProduct(products.get(index)),
+                                    DocumentMappers.toBranch(branch)))
+                            .toList();
+                });
+    }
+
+    /**
+     * Una fila por producto de la franquicia con su sucursal en {@code branch}
+     */
+    private static List<AggregationOperation> productRows(String franchiseId) {
+        String branch = "$" + EmbeddedDocuments.FIELD_BRANCHES + ".";
+        String product = branch + EmbeddedDocuments.FIELD_PRODUCTS + ".";
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(EmbeddedDocuments.byFranchise(franchiseId)));
+        stages.add(EmbeddedDocuments.stage("$unwind", "$" + EmbeddedDocuments.FIELD_BRANCHES));
+        stages.add(EmbeddedDocuments.stage("$unwind", branch + EmbeddedDocuments.FIELD_PRODUCTS));
+        stages.add(EmbeddedDocuments.stage("$project", new Document(DocumentMappers.FIELD_ID, product + EmbeddedDocuments.FIELD_ELEMENT_ID)
+                .append(DocumentMappers.FIELD_NAME, product + DocumentMappers.FIELD_NAME)
+                .append(DocumentMappers.FIELD_STOCK, product + DocumentMappers.FIELD_STOCK)
+                .append(FIELD_BRANCH, new Document(DocumentMappers.FIELD_ID, branch + EmbeddedDocuments.FIELD_ELEMENT_ID)
+                        .append(DocumentMappers.FIELD_NAME, branch + DocumentMappers.FIELD_NAME)
+                        .append(DocumentMappers.FIELD_ADDRESS, branch + DocumentMappers.FIELD_ADDRESS)
+                        .append(DocumentMappers.FIELD_CITY, branch + DocumentMappers.FIELD_CITY))));
+        return stages;
+    }
+
+    private Flux<Product> findProducts(String franchiseId, String branchId, Criteria filter) {
+        List<AggregationOperation> stages = EmbeddedDocuments.productsOf(franchiseId, branchId);
+        if (filter != null) {
+            stages.add(Aggregation.match(filter));
+        }
+        stages.add(EmbeddedDocuments.projectElement(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_STOCK));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(DocumentMappers::toProduct);
+    }
+
+    private Mono<Long> version(List<AggregationOperation> stages, String field) {
+        stages.add(EmbeddedDocuments.projectElement(field));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), EmbeddedDocuments.COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(document -> DocumentMappers.toVersion(document, field));
+    }
+
+    private Mono<Product> modify(String franchiseId, String branchId, String productId, Criteria branchCondition,
+                                 Long expectedVersion, Update update) {
+        Criteria product = Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(productId);
+        if (expectedVersion != null) {
+            product = DocumentMappers.atVersion(product, expectedVersion);
+        }
+        return write(franchiseId, branchId, productId, product, branchCondition, update);
+    }
+
+    /**
+     * Aplica la actualización al producto de {@code productCriteria}; vacío si no existe
+     */
+    private Mono<Product> write(String franchiseId, String branchId, String productId, Criteria productCriteria,
+                                Criteria branchCondition, Update update) {
+        Criteria branch = Criteria.where(EmbeddedDocuments.FIELD_ELEMENT_ID).is(branchId);
+        branch = branchCondition == null
+                ? branch.and(EmbeddedDocuments.FIELD_PRODUCTS).elemMatch(productCriteria)
+                : branch.andOperator(Criteria.where(EmbeddedDocuments.FIELD_PRODUCTS).elemMatch(productCriteria), branchCondition);
+        Query query = new Query(EmbeddedDocuments.byFranchise(franchiseId)
+                .and(EmbeddedDocuments.FIELD_BRANCHES).elemMatch(branch));
+        query.fields().position(EmbeddedDocuments.FIELD_BRANCHES, 1);
+        update.inc(EmbeddedDocuments.filteredProduct(DocumentMappers.FIELD_VERSION), 1)
+                .inc(EmbeddedDocuments.filteredBranch(DocumentMappers.FIELD_PRODUCTS_VERSION), 1);
+        EmbeddedDocuments.filterProduct(update, branchId, productId);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Document.class,
+                        EmbeddedDocuments.COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .mapNotNull(document -> {
+                    List<Document> branches = document.getList(EmbeddedDocuments.FIELD_BRANCHES, Document.class);
+                    Document written = branches == null || branches.isEmpty() ? null : EmbeddedDocuments.findElement(
+                            branches.get(0).getList(EmbeddedDocuments.FIELD_PRODUCTS, Document.class), productId);
+                    return written != null ? EmbeddedDocuments.toProduct(written) : null;
+                });
+    }
+
+    /**
+     * Sucursal sin otro producto llamado {@code name}
+     */
+    private static Criteria nameAvailable(String productId, String name) {
+        return new Criteria().norOperator(Criteria.where(EmbeddedDocuments.FIELD_PRODUCTS).elemMatch(
+                Criteria.where(DocumentMappers.FIELD_NAME).is(name).and(EmbeddedDocuments.FIELD_ELEMENT_ID).ne(productId)));
+    }
+
+    /**
+     * Distingue un renombrado rechazado por nombre de un producto inexistente o desactualizado
+     */
+    private Mono<Product> nameTaken(String franchiseId, String branchId, String productId, String name) {
+        return findByName(franchiseId, branchId, name)
+                .filter(other -> !other.getId().equals(productId))
+                .flatMap(other -> Mono.error(new DuplicateKeyException(ERROR_DUPLICATE_PRODUCT)));
+    }
+
+    private Mono<Product> rejected(String franchiseId, String branchId) {
+        return findListVersion(franchiseId, branchId)
+                .hasElement()
+                .flatMap(branchExists -> Mono.error(branchExists
+                        ? new DuplicateKeyException(ERROR_DUPLICATE_PRODUCT)
+                        : new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
+    }
+
+    private static String productsField(String field) {
+        return EmbeddedDocuments.FIELD_PRODUCTS + "." + field;
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "franchises")
@@ -17,9 +18,17 @@ public class FranchiseEntity {
     private String id;
     private String name;
     private String description;
+    @Version
+    private Long version;
 
     public FranchiseEntity(String id, String name) {
         this.id = id;
         this.name = name;
     }
+
+    public FranchiseEntity(String id, String name, String description) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+    }
 }
@@ -2,9 +2,17 @@ package co.com.pragma.mongodb;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.FranchiseGateway;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -13,16 +21,31 @@ import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
 
 @Repository
+@Profile("!" + EmbeddedDocuments.PROFILE)
 public class FranchiseRepository implements FranchiseGateway {
 
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_DESCRIPTION = "description";
+    private static final String SEQUENCE_NAME = "franchise_sequence";
+
     private final ReactiveMongoTemplate mongoTemplate;
     private final CircuitBreaker circuitBreaker;
+    private final HiLoIdAllocator idAllocator;
+    private final PointLookupBatcher<String, Document> lookups;
 
-    public FranchiseRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker) {
+    public FranchiseRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                               HiLoIdAllocator idAllocator, BatchingProperties batchingProperties,
+                               MeterRegistry meterRegistry) {
         this.mongoTemplate = mongoTemplate;
         this.circuitBreaker = mongoCircuitBreaker;
+        this.idAllocator = idAllocator;
+        this.lookups = new PointLookupBatcher<>(DocumentMappers.FRANCHISES_COLLECTION, batchingProperties, meterRegistry,
+                Schedulers.parallel(), this::findDocuments, document -> document.getString(DocumentMappers.FIELD_ID));
     }
 
     @Override
@@ -30,22 +53,16 @@ public class FranchiseRepository implements FranchiseGateway {
         FranchiseEntity entity = new FranchiseEntity(franchise.getId(), franchise.getName(), franchise.getDescription());
         return mongoTemplate.save(entity)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(e -> Franchise.builder()
-                        .id(e.getId())
-                        .name(e.getName())
-                        .description(e.getDescription())
-                        .build());
+                .map(this::mapToFranchise);
     }
 
+    /**
+     * Búsqueda agrupada con otras del mismo instante en una consulta {@code $in}
+     */
     @Override
     public Mono<Franchise> findById(String id) {
-        return mongoTemplate.findById(id, FranchiseEntity.class)
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(entity -> Franchise.builder()
-                        .id(entity.getId())
-                        .name(entity.getName())
-                        .description(entity.getDescription())
-                        .build());
+        return lookups.load(id)
+                .map(DocumentMappers::toFranchise);
     }
 
     @Override
@@ -58,40 +75,92 @@ public class FranchiseRepository implements FranchiseGateway {
 
     @Override
     public Mono<Franchise> update(Franchise franchise) {
-        return findById(franchise.getId())
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)))
-                .flatMap(existing -> save(franchise));
+        Update update = new Update()
+                .set(FIELD_NAME, franchise.getName())
+                .set(FIELD_DESCRIPTION, franchise.getDescription());
+        return modify(franchise.getId(), update)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<Franchise> updateName(String franchiseId, String name) {
+        return modify(franchiseId, new Update().set(FIELD_NAME, name));
     }
 
     @Override
     public Flux<Franchise> findAll() {
-        return mongoTemplate.findAll(FranchiseEntity.class)
+        return DomainCodecs.find(mongoTemplate, DocumentMappers.projectFranchise(new Query()), Franchise.class,
+                        DocumentMappers.FRANCHISES_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    @Override
+    public Mono<ResultPage<Franchise>> findPage(PageQuery pageQuery) {
+        KeysetPagination.Keyset keyset = keyset(pageQuery.getSort());
+        return Mono.fromCallable(() -> KeysetPagination.page(DocumentMappers.projectFranchise(new Query()), keyset, pageQuery))
+                .flatMap(query -> mongoTemplate.find(query, Document.class, DocumentMappers.FRANCHISES_COLLECTION)
+                        .collectList()
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
+                .map(documents -> KeysetPagination.toPage(documents, keyset, pageQuery, DocumentMappers::toFranchise));
+    }
+
+    /**
+     * Franquicia y su versión leídas en la misma consulta
+     */
+    @Override
+    public Mono<Versioned<Franchise>> findVersionedById(String id) {
+        return lookups.load(id)
+                .map(document -> new Versioned<>(DocumentMappers.toFranchise(document),
+                        DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION)));
+    }
+
+    /**
+     * Versión de la franquicia; vacío si no existe
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId) {
+        Query query = new Query(Criteria.where(DocumentMappers.FIELD_ID).is(franchiseId));
+        return mongoTemplate.findOne(DocumentMappers.projectVersion(query, DocumentMappers.FIELD_VERSION), Document.class,
+                        DocumentMappers.FRANCHISES_COLLECTION)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(entity -> Franchise.builder()
-                        .id(entity.getId())
-                        .name(entity.getName())
-                        .description(entity.getDescription())
-                        .build());
+                .map(document -> DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION));
     }
 
     @Override
     public Mono<String> getNextId() {
-        String sequenceName = "franchise_sequence";
-        Query query = new Query(Criteria.where("id").is(sequenceName));
-        Update update = new Update().inc("sequence", 1);
-        FindAndModifyOptions options = new FindAndModifyOptions().returnNew(true).upsert(true);
-        
-        return mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
+        return idAllocator.nextId(SEQUENCE_NAME)
+                .map(String::valueOf);
+    }
+
+    private Flux<Document> findDocuments(List<String> ids) {
+        Query query = DocumentMappers.projectFranchise(new Query(Criteria.where(DocumentMappers.FIELD_ID).in(ids)));
+        query.fields().include(DocumentMappers.FIELD_VERSION);
+        return mongoTemplate.find(query, Document.class, DocumentMappers.FRANCHISES_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private Mono<Franchise> modify(String franchiseId, Update update) {
+        Query query = new Query(Criteria.where("id").is(franchiseId));
+        update.inc(DocumentMappers.FIELD_VERSION, 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), FranchiseEntity.class)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .switchIfEmpty(
-                    Mono.defer(() -> {
-                        SequenceEntity initial = new SequenceEntity(sequenceName, 0L);
-                        return mongoTemplate.save(initial)
-                                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                                .then(mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
-                                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)));
-                    })
-                )
-                .map(sequence -> String.valueOf(sequence.getSequence()));
+                .map(this::mapToFranchise);
+    }
+
+    private Franchise mapToFranchise(FranchiseEntity entity) {
+        return Franchise.builder()
+                .id(entity.getId())
+                .name(entity.getName())
+                .description(entity.getDescription())
+                .build();
+    }
+
+    /**
+     * Orden de la página: por nombre y luego por ID
+     */
+    static KeysetPagination.Keyset keyset(ListingSort sort) {
+        return sort == ListingSort.NAME
+                ? new KeysetPagination.Keyset(FIELD_NAME, Sort.Direction.ASC, false)
+                : KeysetPagination.Keyset.BY_ID;
     }
 }
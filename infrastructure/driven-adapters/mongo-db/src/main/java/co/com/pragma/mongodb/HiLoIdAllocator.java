@@ -0,0 +1,65 @@
+package co.com.pragma.mongodb;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asignador de IDs hi/lo sobre la colección {@code sequences}.
+ * <p>
+ * Cada documento de secuencia guarda el mayor ID ya reservado. Un único {@code $inc} atómico
+ * reserva un bloque completo para esta instancia, por lo que varias instancias nunca comparten IDs.
+ * Tras un reinicio los IDs no usados del último bloque se descartan, nunca se reutilizan.
+ */
+@Slf4j
+@Component
+public class HiLoIdAllocator {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_SEQUENCE = "sequence";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final SequenceProperties properties;
+    private final Map<String, IdBlockSequence> sequences = new ConcurrentHashMap<>();
+
+    public HiLoIdAllocator(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                           SequenceProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+        this.properties = properties;
+    }
+
+    public Mono<Long> nextId(String sequenceName) {
+        return sequences.computeIfAbsent(sequenceName, name -> new IdBlockSequence(
+                        count -> reserve(name, count), properties.blockSize(), properties.refillThreshold()))
+                .next();
+    }
+
+    /**
+     * Reserva {@code count} IDs consecutivos directamente en la base de datos.
+     *
+     * @return el mayor ID del rango reservado; el rango es {@code (resultado - count, resultado]}
+     */
+    public Mono<Long> reserve(String sequenceName, long count) {
+        Query query = new Query(Criteria.where(FIELD_ID).is(sequenceName));
+        Update update = new Update().inc(FIELD_SEQUENCE, count);
+        FindAndModifyOptions options = new FindAndModifyOptions().returnNew(true).upsert(true);
+
+        return mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(SequenceEntity::getSequence)
+                .doOnNext(last -> log.debug("Reserved IDs {}-{} for {}", last - count + 1, last, sequenceName))
+                .doOnError(error -> log.error("Error reserving IDs for {}: {}", sequenceName, error.getMessage()));
+    }
+}
@@ -0,0 +1,204 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.FranchiseSize;
+import co.com.pragma.model.HierarchyPath;
+import co.com.pragma.model.gateways.HierarchyGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Resuelve la ruta franquicia → sucursal → producto con una sola agregación sobre {@code franchises}.
+ * <p>
+ * La sucursal y el producto se traen con {@code $lookup} no correlacionados cuyos filtros son constantes,
+ * por lo que cada uno es una búsqueda puntual por índice. Si la franquicia no existe la agregación no
+ * devuelve documentos y se emite una ruta vacía.
+ * <p>
+ * La vista expandida de una franquicia usa dos agregaciones: una mide la franquicia con {@code $count}
+ * sobre los índices por {@code franchiseId}, y otra recorre sus sucursales con un cursor, trayendo los
+ * productos de cada una en un {@code $lookup}, de modo que solo se materializa una sucursal a la vez.
+ */
+@Slf4j
+@Repository
+@Profile("!" + EmbeddedDocuments.PROFILE)
+public class HierarchyRepository implements HierarchyGateway {
+
+    private static final String FIELD_FRANCHISE_ID = "franchiseId";
+    private static final String FIELD_BRANCH_ID = "branchId";
+    private static final String FIELD_BRANCH = "branch";
+    private static final String FIELD_PRODUCT = "product";
+    private static final String FIELD_PRODUCTS = "products";
+    private static final String FIELD_BRANCH_COUNT = "branchCount";
+    private static final String FIELD_PRODUCT_COUNT = "productCount";
+    private static final String FIELD_COUNT = "count";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+
+    public HierarchyRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveBranch(String franchiseId, String branchId) {
+        return resolve(franchiseId, branchId, null);
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveProduct(String franchiseId, String branchId, String productId) {
+        return resolve(franchiseId, branchId, new Document(DocumentMappers.FIELD_ID, productId));
+    }
+
+    @Override
+    public Mono<HierarchyPath> resolveProductByName(String franchiseId, String branchId, String productName) {
+        return resolve(franchiseId, branchId, new Document(DocumentMappers.FIELD_NAME, productName));
+    }
+
+    @Override
+    public Mono<FranchiseSize> measureFranchise(String franchiseId) {
+        Document byFranchise = new Document(FIELD_FRANCHISE_ID, franchiseId);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(DocumentMappers.FIELD_ID).is(franchiseId)),
+                Aggregation.project(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_DESCRIPTION),
+                count(DocumentMappers.BRANCHES_COLLECTION, byFranchise, FIELD_BRANCH_COUNT),
+                count(DocumentMappers.PRODUCTS_COLLECTION, byFranchise, FIELD_PRODUCT_COUNT));
+
+        return mongoTemplate.aggregate(aggregation, DocumentMappers.FRANCHISES_COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(document -> FranchiseSize.builder()
+                        .franchise(DocumentMappers.toFranchise(document))
+                        .branchCount(countOf(document, FIELD_BRANCH_COUNT))
+                        .productCount(countOf(document, FIELD_PRODUCT_COUNT))
+                        .build())
+                .doOnError(error -> log.error("Error measuring franchise with circuit breaker: {}", error.getMessage()));
+    }
+
+    @Override
+    public Flux<Branch> findBranches(String franchiseId, boolean withProducts, int maxBranches, int maxProductsPerBranch) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)));
+        stages.add(Aggregation.sort(Sort.Direction.ASC, DocumentMappers.FIELD_ID));
+        stages.add(Aggregation.limit(maxBranches));
+        stages.add(Aggregation.project(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_ADDRESS, DocumentMappers.FIELD_CITY));
+        if (withProducts) {
+            stages.add(productsOfBranch(franchiseId, maxProductsPerBranch));
+        }
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), DocumentMappers.BRANCHES_COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(this::mapToBranch)
+                .doOnError(error -> log.error("Error expanding franchise branches with circuit breaker: {}", error.getMessage()));
+    }
+
+    private Mono<HierarchyPath> resolve(String franchiseId, String branchId, Document productFilter) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(Criteria.where(DocumentMappers.FIELD_ID).is(franchiseId)));
+        stages.add(Aggregation.project(DocumentMappers.FIELD_NAME, DocumentMappers.FIELD_DESCRIPTION));
+        stages.add(lookup(DocumentMappers.BRANCHES_COLLECTION,
+                new Document(DocumentMappers.FIELD_ID, branchId).append(FIELD_FRANCHISE_ID, franchiseId),
+                new Document(DocumentMappers.FIELD_NAME, 1).append(DocumentMappers.FIELD_ADDRESS, 1).append(DocumentMappers.FIELD_CITY, 1)
+                        .append(DocumentMappers.FIELD_VERSION, 1),
+                FIELD_BRANCH));
+        if (productFilter != null) {
+            stages.add(lookup(DocumentMappers.PRODUCTS_COLLECTION,
+                    new Document(FIELD_FRANCHISE_ID, franchiseId).append(FIELD_BRANCH_ID, branchId).append(productFilter),
+                    new Document(DocumentMappers.FIELD_NAME, 1).append(DocumentMappers.FIELD_STOCK, 1)
+                            .append(DocumentMappers.FIELD_VERSION, 1),
+                    FIELD_PRODUCT));
+        }
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), DocumentMappers.FRANCHISES_COLLECTION, Document.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .next()
+                .map(this::mapToPath)
+                .defaultIfEmpty(new HierarchyPath())
+                .doOnError(error -> log.error("Error resolving hierarchy path with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * {@code $lookup} con sub-pipeline de filtros constantes, que Spring Data no expresa directamente.
+     */
+    private static AggregationOperation lookup(String from, Document match, Document projection, String as) {
+        Document lookup = new Document("from", from)
+                .append("pipeline", List.of(
+                        new Document("$match", match),
+                        new Document("$limit", 1),
+                        new Document("$project", projection)))
+                .append("as", as);
+        return context -> new Document("$lookup", lookup);
+    }
+
+    private static AggregationOperation count(String from, Document match, String as) {
+        Document lookup = new Document("from", from)
+                .append("pipeline", List.of(
+                        new Document("$match", match),
+                        new Document("$count", FIELD_COUNT)))
+                .append("as", as);
+        return context -> new Document("$lookup", lookup);
+    }
+
+    /**
+     * Productos de cada sucursal por {@code branchId} y franquicia, en orden de ID como el índice
+     * {@code franchise_branch_id}.
+     */
+    private static AggregationOperation productsOfBranch(String franchiseId, int maxProducts) {
+        Document lookup = new Document("from", DocumentMappers.PRODUCTS_COLLECTION)
+                .append("localField", DocumentMappers.FIELD_ID)
+                .append("foreignField", FIELD_BRANCH_ID)
+                .append("pipeline", List.of(
+                        new Document("$match", new Document(FIELD_FRANCHISE_ID, franchiseId)),
+                        new Document("$sort", new Document(DocumentMappers.FIELD_ID, 1)),
+                        new Document("$limit", maxProducts),
+                        new Document("$project", new Document(DocumentMappers.FIELD_NAME, 1).append(DocumentMappers.FIELD_STOCK, 1))))
+                .append("as", FIELD_PRODUCTS);
+        return context -> new Document("$lookup", lookup);
+    }
+
+    private Branch mapToBranch(Document document) {
+        Branch branch = DocumentMappers.toBranch(document);
+        List<Document> products = document.getList(FIELD_PRODUCTS, Document.class);
+        if (products != null) {
+            branch.setProducts(products.stream().map(DocumentMappers::toProduct).collect(Collectors.toCollection(ArrayList::new)));
+        }
+        return branch;
+    }
+
+    private static long countOf(Document document, String field) {
+        Document count = first(document, field);
+        return count != null ? count.get(FIELD_COUNT, Number.class).longValue() : 0;
+    }
+
+    private HierarchyPath mapToPath(Document document) {
+        Document branch = first(document, FIELD_BRANCH);
+        Document product = first(document, FIELD_PRODUCT);
+        return HierarchyPath.builder()
+                .franchise(DocumentMappers.toFranchise(document))
+                .branch(branch != null ? DocumentMappers.toBranch(branch) : null)
+                .product(product != null ? DocumentMappers.toProduct(product) : null)
+                .branchVersion(branch != null ? DocumentMappers.toVersion(branch, DocumentMappers.FIELD_VERSION) : 0)
+                .productVersion(product != null ? DocumentMappers.toVersion(product, DocumentMappers.FIELD_VERSION) : 0)
+                .build();
+    }
+
+    private static Document first(Document document, String field) {
+        List<Document> matches = document.getList(field, Document.class);
+        return matches == null || matches.isEmpty() ? null : matches.get(0);
+    }
+}
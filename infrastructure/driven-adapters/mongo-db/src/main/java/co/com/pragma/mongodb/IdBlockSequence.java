@@ -0,0 +1,108 @@
+package co.com.pragma.mongodb;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+
+/**
+ * Secuencia local respaldada por bloques de IDs reservados en la base de datos.
+ * <p>
+ * Los IDs del bloque actual se entregan con un contador atómico, sin bloqueos. Cuando quedan
+ * {@code refillThreshold} IDs o menos se reserva el siguiente bloque en segundo plano, de modo que
+ * al agotarse el actual normalmente ya está disponible. Solo hay una reserva en curso a la vez.
+ */
+final class IdBlockSequence {
+
+    private final LongFunction<Mono<Long>> reserver;
+    private final long blockSize;
+    private final long refillThreshold;
+    private final AtomicReference<IdBlock> current = new AtomicReference<>(IdBlock.EXHAUSTED);
+    private final AtomicReference<Mono<IdBlock>> upcoming = new AtomicReference<>();
+
+    /**
+     * @param reserver        reserva {@code count} IDs de forma atómica y devuelve el mayor de ellos
+     * @param blockSize       tamaño de cada bloque
+     * @param refillThreshold IDs restantes que disparan la reserva anticipada del siguiente bloque
+     */
+    IdBlockSequence(LongFunction<Mono<Long>> reserver, long blockSize, long refillThreshold) {
+        this.reserver = reserver;
+        this.blockSize = blockSize;
+        this.refillThreshold = refillThreshold;
+    }
+
+    Mono<Long> next() {
+        return Mono.defer(() -> {
+            IdBlock block = current.get();
+            long id = block.take();
+            if (id == IdBlock.NONE) {
+                return advance(block);
+            }
+            if (block.remaining() <= refillThreshold) {
+                upcomingBlock();
+            }
+            return Mono.just(id);
+        });
+    }
+
+    private Mono<Long> advance(IdBlock exhausted) {
+        Mono<IdBlock> pending = upcomingBlock();
+        return pending.flatMap(block -> {
+            if (current.compareAndSet(exhausted, block)) {
+                upcoming.compareAndSet(pending, null);
+            }
+            return next();
+        });
+    }
+
+    private Mono<IdBlock> upcomingBlock() {
+        while (true) {
+            Mono<IdBlock> pending = upcoming.get();
+            if (pending != null) {
+                return pending;
+            }
+            Sinks.One<IdBlock> sink = Sinks.one();
+            Mono<IdBlock> candidate = sink.asMono();
+            if (upcoming.compareAndSet(null, candidate)) {
+                reserve(sink, candidate);
+                return candidate;
+            }
+        }
+    }
+
+    private void reserve(Sinks.One<IdBlock> sink, Mono<IdBlock> candidate) {
+        reserver.apply(blockSize)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Sequence reservation returned no value")))
+                .subscribe(
+                        last -> sink.tryEmitValue(new IdBlock(last - blockSize + 1, last)),
+                        error -> {
+                            upcoming.compareAndSet(candidate, null);
+                            sink.tryEmitError(error);
+                        });
+    }
+
+    static final class IdBlock {
+
+        static final long NONE = Long.MIN_VALUE;
+        static final IdBlock EXHAUSTED = new IdBlock(1, 0);
+
+        private final AtomicLong next;
+        private final long last;
+
+        IdBlock(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        long take() {
+            long id = next.getAndIncrement();
+            return id <= last ? id : NONE;
+        }
+
+        long remaining() {
+            return Math.max(0, last - next.get() + 1);
+        }
+    }
+}
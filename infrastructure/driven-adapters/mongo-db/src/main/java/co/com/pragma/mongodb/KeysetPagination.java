@@ -0,0 +1,101 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Paginación por cursor (keyset) para los listados: cada página continúa tras la clave de orden del
+ * último elemento de la anterior, así que el coste no crece con la profundidad como con {@code skip}.
+ * <p>
+ * El cursor es el campo de orden, su valor y el {@code _id} del último elemento, en JSON codificado en
+ * Base64 URL-safe. Si el campo de orden no es único en el ámbito consultado se desempata por
+ * {@code _id}, y el índice que respalda el listado debe incluir ambos campos en ese orden.
+ */
+final class KeysetPagination {
+
+    private static final String CURSOR_FIELD = "f";
+    private static final String CURSOR_VALUE = "v";
+    private static final String CURSOR_ID = "i";
+
+    /**
+     * Clave de orden de un listado. {@code unique} indica que el campo ya identifica al documento dentro
+     * del filtro, por lo que no hace falta desempatar por {@code _id}.
+     */
+    record Keyset(String field, Sort.Direction direction, boolean unique) {
+
+        static final Keyset BY_ID = new Keyset(DocumentMappers.FIELD_ID, Sort.Direction.ASC, true);
+    }
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * Añade a la consulta el filtro de continuación, el orden de la clave y un límite de un elemento más
+     * que la página para saber si hay otra detrás.
+     */
+    static Query page(Query query, Keyset keyset, PageQuery pageQuery) {
+        if (pageQuery.getCursor() != null) {
+            query.addCriteria(after(keyset, decode(keyset, pageQuery.getCursor())));
+        }
+        Sort sort = keyset.unique()
+                ? Sort.by(keyset.direction(), keyset.field())
+                : Sort.by(new Sort.Order(keyset.direction(), keyset.field()), Sort.Order.asc(DocumentMappers.FIELD_ID));
+        return query.with(sort).limit(pageQuery.getLimit() + 1);
+    }
+
+    static <T> ResultPage<T> toPage(List<Document> documents, Keyset keyset, PageQuery pageQuery,
+                                    Function<Document, T> mapper) {
+        boolean hasNext = documents.size() > pageQuery.getLimit();
+        List<Document> page = hasNext ? documents.subList(0, pageQuery.getLimit()) : documents;
+        String next = hasNext ? encode(keyset, page.get(page.size() - 1)) : null;
+        return new ResultPage<>(page.stream().map(mapper).toList(), next);
+    }
+
+    static String encode(Keyset keyset, Document last) {
+        Document cursor = new Document(CURSOR_FIELD, keyset.field())
+                .append(CURSOR_VALUE, last.get(keyset.field()))
+                .append(CURSOR_ID, last.get(DocumentMappers.FIELD_ID));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Document decode(Keyset keyset, String cursor) {
+        Document decoded;
+        try {
+            decoded = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(Constants.ERROR_INVALID_CURSOR);
+        }
+        // un cursor de otro orden saltaría o repetiría elementos
+        if (!keyset.field().equals(decoded.get(CURSOR_FIELD))
+                || !(decoded.get(CURSOR_ID) instanceof String)
+                || decoded.get(CURSOR_VALUE) == null) {
+            throw new IllegalArgumentException(Constants.ERROR_INVALID_CURSOR);
+        }
+        return decoded;
+    }
+
+    private static Criteria after(Keyset keyset, Document cursor) {
+        Object value = cursor.get(CURSOR_VALUE);
+        if (keyset.unique()) {
+            return beyond(Criteria.where(keyset.field()), keyset.direction(), value);
+        }
+        return new Criteria().orOperator(
+                beyond(Criteria.where(keyset.field()), keyset.direction(), value),
+                Criteria.where(keyset.field()).is(value).and(DocumentMappers.FIELD_ID).gt(cursor.get(CURSOR_ID)));
+    }
+
+    private static Criteria beyond(Criteria field, Sort.Direction direction, Object value) {
+        return direction.isAscending() ? field.gt(value) : field.lt(value);
+    }
+}
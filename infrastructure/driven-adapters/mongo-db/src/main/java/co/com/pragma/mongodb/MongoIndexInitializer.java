@@ -0,0 +1,142 @@
+package co.com.pragma.mongodb;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Declara al iniciar la aplicación los índices compuestos que necesitan las consultas de los repositorios.
+ * <p>
+ * {@code ensureIndex} es idempotente, por lo que se ejecuta en cada arranque, antes de que la aplicación
+ * se marque como lista. Si no se puede crear un índice único (por ejemplo, por nombres de producto duplicados)
+ * el arranque falla; un índice no único que falle se registra y no impide crear los demás.
+ * Con el perfil {@value EmbeddedDocuments#PROFILE} solo se declaran los índices de la disposición embebida.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "adapters.mongo.indexes", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MongoIndexInitializer {
+
+    static final String PRODUCTS_COLLECTION = "products";
+    static final String BRANCHES_COLLECTION = "branches";
+    static final String FRANCHISES_COLLECTION = "franchises";
+
+    private static final String FIELD_FRANCHISE_ID = "franchiseId";
+    private static final String FIELD_BRANCH_ID = "branchId";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_STOCK = "stock";
+    private static final String FIELD_MONGO_ID = "_id";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Environment environment;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate mongoTemplate, Environment environment) {
+        this.mongoTemplate = mongoTemplate;
+        this.environment = environment;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        ensureIndexes().block();
+    }
+
+    public Mono<Void> ensureIndexes() {
+        List<IndexDefinition> definitions = environment.acceptsProfiles(Profiles.of(EmbeddedDocuments.PROFILE))
+                ? embeddedIndexDefinitions()
+                : indexDefinitions();
+        return Flux.fromIterable(definitions)
+                .concatMap(definition -> mongoTemplate.indexOps(definition.collection())
+                        .ensureIndex(definition.index())
+                        .doOnNext(name -> log.info("Index {} ensured on {}", name, definition.collection()))
+                        .onErrorResume(error -> {
+                            if (definition.unique()) {
+                                return Mono.error(new IllegalStateException("Could not build unique index "
+                                        + definition.index().getIndexOptions().get("name") + " on "
+                                        + definition.collection(), error));
+                            }
+                            log.error("Error ensuring index on {}: {}", definition.collection(), error.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    static List<IndexDefinition> indexDefinitions() {
+        return List.of(
+                // findById, findByName, findAllByBranch, su listado paginado por nombre y la unicidad del
+                // nombre dentro de la sucursal
+                new IndexDefinition(PRODUCTS_COLLECTION, new Index()
+                        .on(FIELD_FRANCHISE_ID, Sort.Direction.ASC)
+                        .on(FIELD_BRANCH_ID, Sort.Direction.ASC)
+                        .on(FIELD_NAME, Sort.Direction.ASC)
+                        .unique()
+                        .named("franchise_branch_name_unique")),
+                // Agregación de máximo stock: $match por franquicia seguido de $sort por stock descendente
+                new IndexDefinition(PRODUCTS_COLLECTION, new Index()
+                        .on(FIELD_FRANCHISE_ID, Sort.Direction.ASC)
+                        .on(FIELD_STOCK, Sort.Direction.DESC)
+                        .on(FIELD_MONGO_ID, Sort.Direction.ASC)
+                        .named("franchise_stock_desc")),
+                // Refresco del líder de stock de una sucursal (top-1 por stock dentro de la sucursal) y su
+                // listado paginado por stock
+                new IndexDefinition(PRODUCTS_COLLECTION, new Index()
+                        .on(FIELD_FRANCHISE_ID, Sort.Direction.ASC)
+                        .on(FIELD_BRANCH_ID, Sort.Direction.ASC)
+                        .on(FIELD_STOCK, Sort.Direction.DESC)
+                        .on(FIELD_MONGO_ID, Sort.Direction.ASC)
+                        .named("franchise_branch_stock_desc")),
+                // Listado paginado de productos de una sucursal ordenado por id
+                new IndexDefinition(PRODUCTS_COLLECTION, new Index()
+                        .on(FIELD_FRANCHISE_ID, Sort.Direction.ASC)
+                        .on(FIELD_BRANCH_ID, Sort.Direction.ASC)
+                        .on(FIELD_MONGO_ID, Sort.Direction.ASC)
+                        .named("franchise_branch_id")),
+                new IndexDefinition(BRANCHES_COLLECTION, new Index()
+                        .on(FIELD_FRANCHISE_ID, Sort.Direction.ASC)
+                        .on(FIELD_MONGO_ID, Sort.Direction.ASC)
+                        .named("franchise_id")),
+                // Listado paginado de franquicias ordenado por nombre, desempatado por id
+                new IndexDefinition(FRANCHISES_COLLECTION, new Index()
+                        .on(FIELD_NAME, Sort.Direction.ASC)
+                        .on(FIELD_MONGO_ID, Sort.Direction.ASC)
+                        .named("name_id")),
+                // Consulta de máximo stock sobre el modelo de lectura y upsert por sucursal
+                new IndexDefinition(StockLeaderRepository.STOCK_LEADERS_COLLECTION, new Index()
+                        .on(FIELD_FRANCHISE_ID, Sort.Direction.ASC)
+                        .on(FIELD_BRANCH_ID, Sort.Direction.ASC)
+                        .unique()
+                        .named("franchise_branch_unique")),
+                // Marcas pendientes del refresco de líderes; disperso porque solo las sucursales escritas desde
+                // el último ciclo tienen el campo
+                new IndexDefinition(StockLeaderRepository.STOCK_LEADERS_COLLECTION, new Index()
+                        .on("stale", Sort.Direction.ASC)
+                        .sparse()
+                        .named("stale_sparse")));
+    }
+
+    static List<IndexDefinition> embeddedIndexDefinitions() {
+        return List.of(
+                // Listado paginado de franquicias ordenado por nombre; el resto de consultas van por _id
+                new IndexDefinition(EmbeddedDocuments.COLLECTION, new Index()
+                        .on(FIELD_NAME, Sort.Direction.ASC)
+                        .on(FIELD_MONGO_ID, Sort.Direction.ASC)
+                        .named("name_id")));
+    }
+
+    record IndexDefinition(String collection, Index index) {
+
+        boolean unique() {
+            return index.getIndexOptions().getBoolean("unique", false);
+        }
+    }
+}
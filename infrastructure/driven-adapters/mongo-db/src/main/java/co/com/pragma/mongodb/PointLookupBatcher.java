@@ -0,0 +1,110 @@
+package co.com.pragma.mongodb;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Agrupa en una sola consulta las búsquedas por clave que llegan dentro de la misma ventana
+ */
+final class PointLookupBatcher<K, V> {
+
+    static final String BATCH_SIZE_METRIC = "mongo.lookup.batch.size";
+
+    private final Function<List<K>, Flux<V>> loader;
+    private final Function<V, K> keyOf;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private Map<K, List<MonoSink<V>>> pending = new LinkedHashMap<>();
+    private Disposable scheduledFlush;
+
+    PointLookupBatcher(String name, BatchingProperties properties, MeterRegistry meterRegistry, Scheduler scheduler,
+                       Function<List<K>, Flux<V>> loader, Function<V, K> keyOf) {
+        this.loader = loader;
+        this.keyOf = keyOf;
+        this.windowNanos = properties.window().toNanos();
+        this.maxBatchSize = properties.maxBatchSize();
+        this.scheduler = scheduler;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("Claves consultadas en cada búsqueda agrupada por ID")
+                .tag("collection", name)
+                .publishPercentileHistogram()
+                .maximumExpectedValue((double) maxBatchSize)
+                .register(meterRegistry);
+    }
+
+    Mono<V> load(K key) {
+        return Mono.create(sink -> enqueue(key, sink));
+    }
+
+    private void enqueue(K key, MonoSink<V> sink) {
+        Map<K, List<MonoSink<V>>> full = null;
+        synchronized (lock) {
+            pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(sink);
+            if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+    }
+
+    private void flush() {
+        Map<K, List<MonoSink<V>>> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Debe llamarse con {@code lock} tomado.
+     */
+    private Map<K, List<MonoSink<V>>> drain() {
+        Map<K, List<MonoSink<V>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<K, List<MonoSink<V>>> batch) {
+        batchSizes.record(batch.size());
+        Flux.defer(() -> loader.apply(List.copyOf(batch.keySet())))
+                .collectMap(keyOf)
+                .subscribe(found -> batch.forEach((key, sinks) -> complete(sinks, found.get(key))),
+                        error -> batch.values().forEach(sinks -> sinks.forEach(sink -> sink.error(error))));
+    }
+
+    private static <V> void complete(List<MonoSink<V>> sinks, V value) {
+        for (MonoSink<V> sink : sinks) {
+            if (value != null) {
+                sink.success(value);
+            } else {
+                sink.success();
+            }
+        }
+    }
+}
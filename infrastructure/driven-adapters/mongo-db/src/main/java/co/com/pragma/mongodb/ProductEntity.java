@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "products")
@@ -19,4 +20,14 @@ public class ProductEntity {
     private String branchId;
     private String name;
     private Integer stock;
+    @Version
+    private Long version;
+
+    public ProductEntity(String id, String franchiseId, String branchId, String name, Integer stock) {
+        this.id = id;
+        this.franchiseId = franchiseId;
+        this.branchId = branchId;
+        this.name = name;
+        this.stock = stock;
+    }
 }
@@ -1,15 +1,32 @@
 package co.com.pragma.mongodb;
 
 import co.com.pragma.model.Constants;
+import co.com.pragma.model.ImportRecordError;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
 import co.com.pragma.model.ProductWithBranch;
-import co.com.pragma.model.gateways.BranchGateway;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.model.gateways.ProductGateway;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
@@ -17,25 +34,35 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Comparator;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.List;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Repository
+@Profile("!" + EmbeddedDocuments.PROFILE)
 public class ProductRepository implements ProductGateway {
 
     private static final String FIELD_FRANCHISE_ID = "franchiseId";
     private static final String FIELD_BRANCH_ID = "branchId";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_STOCK = "stock";
+    private static final String FIELD_MONGO_ID = "_id";
+    private static final String PRODUCTS_COLLECTION = "products";
+    private static final String FIELD_PRODUCTS = "products";
+    private static final String FIELD_BRANCH = "branch";
+    private static final String SEQUENCE_NAME = "product_sequence";
 
     private final ReactiveMongoTemplate mongoTemplate;
-    private final BranchGateway branchGateway;
     private final CircuitBreaker circuitBreaker;
+    private final HiLoIdAllocator idAllocator;
+    private final StockLeaderRepository stockLeaders;
 
-    public ProductRepository(ReactiveMongoTemplate mongoTemplate, BranchGateway branchGateway, CircuitBreaker mongoCircuitBreaker) {
+    public ProductRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                             HiLoIdAllocator idAllocator, StockLeaderRepository stockLeaderRepository) {
         this.mongoTemplate = mongoTemplate;
-        this.branchGateway = branchGateway;
         this.circuitBreaker = mongoCircuitBreaker;
+        this.idAllocator = idAllocator;
+        this.stockLeaders = stockLeaderRepository;
     }
 
     @Override
@@ -43,45 +70,24 @@ public class ProductRepository implements ProductGateway {
         ProductEntity entity = new ProductEntity(product.getId(), franchiseId, branchId, product.getName(), product.getStock());
         return mongoTemplate.save(entity)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(e -> {
-                    Product p = new Product();
-                    p.setId(e.getId());
-                    p.setName(e.getName());
-                    p.setStock(e.getStock());
-                    return p;
-                });
+                .map(this::mapToProduct)
+                .flatMap(saved -> afterWrite(franchiseId, branchId).thenReturn(saved));
     }
 
     @Override
     public Mono<Product> findById(String franchiseId, String branchId, String productId) {
         Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
                 .and(FIELD_BRANCH_ID).is(branchId)
-                .and("id").is(productId));
-        return mongoTemplate.findOne(query, ProductEntity.class)
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(entity -> {
-                    Product product = new Product();
-                    product.setId(entity.getId());
-                    product.setName(entity.getName());
-                    product.setStock(entity.getStock());
-                    return product;
-                });
+                .and(FIELD_MONGO_ID).is(productId));
+        return findOneProduct(query);
     }
 
     @Override
     public Mono<Product> findByName(String franchiseId, String branchId, String productName) {
         Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
                 .and(FIELD_BRANCH_ID).is(branchId)
-                .and("name").is(productName));
-        return mongoTemplate.findOne(query, ProductEntity.class)
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(entity -> {
-                    Product product = new Product();
-                    product.setId(entity.getId());
-                    product.setName(entity.getName());
-                    product.setStock(entity.getStock());
-                    return product;
-                });
+                .and(FIELD_NAME).is(productName));
+        return findOneProduct(query);
     }
 
     @Override
@@ -91,88 +97,329 @@ public class ProductRepository implements ProductGateway {
                 .and("id").is(productId));
         return mongoTemplate.remove(query, ProductEntity.class)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .then();
+                .then(afterWrite(franchiseId, branchId));
     }
 
     @Override
     public Mono<Product> update(String franchiseId, String branchId, Product product) {
-        return findById(franchiseId, branchId, product.getId())
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)))
-                .flatMap(existing -> save(franchiseId, branchId, product));
+        Update update = new Update()
+                .set(FIELD_NAME, product.getName())
+                .set(FIELD_STOCK, product.getStock());
+        return modify(franchiseId, branchId, product.getId(), update)
+                .flatMap(updated -> afterWrite(franchiseId, branchId).thenReturn(updated))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(Constants.ERROR_PRODUCT_NOT_FOUND)));
     }
 
+    @Override
+    public Mono<Product> updateStock(String franchiseId, String branchId, String productId, Integer stock) {
+        return modify(franchiseId, branchId, productId, new Update().set(FIELD_STOCK, stock))
+                .flatMap(updated -> afterWrite(franchiseId, branchId).thenReturn(updated));
+    }
+
+    @Override
+    public Mono<Product> updateName(String franchiseId, String branchId, String productId, String name) {
+        return modify(franchiseId, branchId, productId, new Update().set(FIELD_NAME, name))
+                .flatMap(updated -> afterWrite(franchiseId, branchId).thenReturn(updated));
+    }
+
+    /**
+     * Actualiza el stock solo si el producto sigue en {@code expectedVersion}
+     */
+    @Override
+    public Mono<Product> updateStock(String franchiseId, String branchId, String productId, Integer stock,
+                                     long expectedVersion) {
+        Criteria criteria = DocumentMappers.atVersion(byKeyPath(franchiseId, branchId, productId), expectedVersion);
+        return modify(criteria, new Update().set(FIELD_STOCK, stock))
+                .flatMap(updated -> afterWrite(franchiseId, branchId).thenReturn(updated));
+    }
+
+    /**
+     * Actualiza el nombre solo si el producto sigue en {@code expectedVersion}
+     */
+    @Override
+    public Mono<Product> updateName(String franchiseId, String branchId, String productId, String name,
+                                    long expectedVersion) {
+        Criteria criteria = DocumentMappers.atVersion(byKeyPath(franchiseId, branchId, productId), expectedVersion);
+        return modify(criteria, new Update().set(FIELD_NAME, name))
+                .flatMap(updated -> afterWrite(franchiseId, branchId).thenReturn(updated));
+    }
+
+    /**
+     * Suma {@code delta} al stock en una actualización condicionada; vacío si no existe o no alcanza el stock
+     */
+    @Override
+    public Mono<Product> adjustStock(String franchiseId, String branchId, String productId, int delta) {
+        Criteria criteria = byKeyPath(franchiseId, branchId, productId);
+        if (delta < 0) {
+            criteria = criteria.and(FIELD_STOCK).gte(-delta);
+        } else if (delta > 0) {
+            criteria = criteria.and(FIELD_STOCK).lte(Constants.MAX_STOCK - delta);
+        }
+        return modify(criteria, new Update().inc(FIELD_STOCK, delta))
+                .flatMap(updated -> afterWrite(franchiseId, branchId).thenReturn(updated));
+    }
+
+    /**
+     * Producto de máximo stock de cada sucursal, leído de {@link StockLeaderRepository}
+     */
     @Override
     public Flux<ProductWithBranch> findMaxStockProductsByFranchise(String franchiseId) {
-        return branchGateway.findAllByFranchiseId(franchiseId)
-                .flatMap(branch -> {
-                    Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
-                            .and(FIELD_BRANCH_ID).is(branch.getId()));
-                    return mongoTemplate.find(query, ProductEntity.class)
-                            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                            .map(entity -> {
-                                Product product = new Product();
-                                product.setId(entity.getId());
-                                product.setName(entity.getName());
-                                product.setStock(entity.getStock());
-                                return product;
-                            })
-                            .collectList()
-                            .flatMap(products -> {
-                                Optional<Product> maxProduct = products.stream()
-                                        .max(Comparator.comparing(Product::getStock));
-                                if (maxProduct.isPresent()) {
-                                    return Mono.just(new ProductWithBranch(maxProduct.get(), branch));
-                                } else {
-                                    return Mono.empty();
-                                }
-                            });
-                })
-                .doOnError(error -> log.error("Error finding max stock products with circuit breaker: {}", error.getMessage()));
+        return stockLeaders.findByFranchise(franchiseId);
+    }
+
+    /**
+     * Productos ordenados por stock, como máximo {@code size} por grupo
+     */
+    @Override
+    public Flux<RankedProduct> findStockRanking(String franchiseId, RankingScope scope, RankingOrder order, int size) {
+        Sort.Direction stockDirection = order == RankingOrder.ASC ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort.Direction idDirection = order == RankingOrder.ASC ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(new Sort.Order(stockDirection, FIELD_STOCK), new Sort.Order(idDirection, FIELD_MONGO_ID));
+        Flux<RankedProduct> ranking = scope == RankingScope.FRANCHISE
+                ? rankFranchise(franchiseId, sort, size)
+                : rankBranches(franchiseId, sort, size);
+        return ranking
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnError(error -> log.error("Error finding stock ranking with circuit breaker: {}", error.getMessage()));
     }
 
     @Override
     public Flux<Product> findAllByBranch(String franchiseId, String branchId) {
         Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
                 .and(FIELD_BRANCH_ID).is(branchId));
-        return mongoTemplate.find(query, ProductEntity.class)
+        return DomainCodecs.find(mongoTemplate, DocumentMappers.projectProduct(query), Product.class, PRODUCTS_COLLECTION)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .map(entity -> {
-                    Product product = new Product();
-                    product.setId(entity.getId());
-                    product.setName(entity.getName());
-                    product.setStock(entity.getStock());
-                    return product;
-                })
                 .doOnError(error -> log.error("Error finding products by branch with circuit breaker: {}", error.getMessage()));
     }
 
+    @Override
+    public Mono<ResultPage<Product>> findPageByBranch(String franchiseId, String branchId, PageQuery pageQuery) {
+        KeysetPagination.Keyset keyset = keyset(pageQuery.getSort());
+        return Mono.fromCallable(() -> KeysetPagination.page(DocumentMappers.projectProduct(new Query(
+                        Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(FIELD_BRANCH_ID).is(branchId))), keyset, pageQuery))
+                .flatMap(query -> mongoTemplate.find(query, Document.class, PRODUCTS_COLLECTION)
+                        .collectList()
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
+                .map(documents -> KeysetPagination.toPage(documents, keyset, pageQuery, DocumentMappers::toProduct))
+                .doOnError(error -> log.error("Error finding product page by branch with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * Versión del producto; vacío si no existe
+     */
+    @Override
+    public Mono<Long> findVersion(String franchiseId, String branchId, String productId) {
+        Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
+                .and(FIELD_BRANCH_ID).is(branchId)
+                .and(FIELD_MONGO_ID).is(productId));
+        return mongoTemplate.findOne(DocumentMappers.projectVersion(query, DocumentMappers.FIELD_VERSION),
+                        Document.class, DocumentMappers.PRODUCTS_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(document -> DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION));
+    }
+
+    /**
+     * Versión del listado de productos de la sucursal; vacío si la sucursal no existe
+     */
+    @Override
+    public Mono<Long> findListVersion(String franchiseId, String branchId) {
+        Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(FIELD_MONGO_ID).is(branchId));
+        return mongoTemplate.findOne(DocumentMappers.projectVersion(query, DocumentMappers.FIELD_PRODUCTS_VERSION),
+                        Document.class, DocumentMappers.BRANCHES_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(document -> DocumentMappers.toVersion(document, DocumentMappers.FIELD_PRODUCTS_VERSION));
+    }
+
     @Override
     public Mono<String> getNextId() {
-        log.info("Getting next product ID - Thread: {}", Thread.currentThread().getName());
-        String sequenceName = "product_sequence";
-        Query query = new Query(Criteria.where("id").is(sequenceName));
-        Update update = new Update().inc("sequence", 1);
-        FindAndModifyOptions options = new FindAndModifyOptions().returnNew(true).upsert(true);
-        
-        return mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
+        return idAllocator.nextId(SEQUENCE_NAME)
+                .map(String::valueOf);
+    }
+
+    @Override
+    public Flux<String> getNextIds(int count) {
+        return idAllocator.reserve(SEQUENCE_NAME, count)
+                .flatMapMany(last -> Flux.range(0, count)
+                        .map(offset -> String.valueOf(last - count + 1 + offset)));
+    }
+
+    /**
+     * Inserta los registros en una escritura masiva y devuelve los rechazados
+     */
+    @Override
+    public Flux<ImportRecordError> insertAll(String franchiseId, List<ProductImportRecord> records) {
+        List<ProductEntity> entities = records.stream()
+                .map(importRecord -> new ProductEntity(importRecord.getProduct().getId(), franchiseId,
+                        importRecord.getBranchId(), importRecord.getProduct().getName(), importRecord.getProduct().getStock()))
+                .toList();
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductEntity.class)
+                .insert(entities)
+                .execute()
+                .map(result -> List.<ImportRecordError>of())
+                .onErrorResume(error -> !bulkWriteErrors(error).isEmpty(), error -> Mono.just(
+                        bulkWriteErrors(error).stream()
+                                .map(writeError -> new ImportRecordError(records.get(writeError.getIndex()).getLine(), writeError.getMessage()))
+                                .toList()))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .flatMap(errors -> afterWriteAll(franchiseId,
+                                records.stream().map(ProductImportRecord::getBranchId).toList())
+                        .thenReturn(errors))
+                .flatMapIterable(errors -> errors)
+                .doOnError(error -> log.error("Error inserting products with circuit breaker: {}", error.getMessage()));
+    }
+
+    private Flux<RankedProduct> rankFranchise(String franchiseId, Sort sort, int size) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)),
+                Aggregation.sort(sort),
+                Aggregation.limit(size),
+                Aggregation.lookup(DocumentMappers.BRANCHES_COLLECTION, FIELD_BRANCH_ID, FIELD_MONGO_ID, FIELD_BRANCH),
+                Aggregation.unwind(FIELD_BRANCH));
+        return mongoTemplate.aggregate(aggregation, PRODUCTS_COLLECTION, Document.class)
+                .index()
+                .map(ranked -> new RankedProduct(ranked.getT1().intValue() + 1,
+                        DocumentMappers.toProduct(ranked.getT2()),
+                        DocumentMappers.toBranch(ranked.getT2().get(FIELD_BRANCH, Document.class))));
+    }
+
+    private Flux<RankedProduct> rankBranches(String franchiseId, Sort sort, int size) {
+        Document sortBy = new Document();
+        sort.forEach(order -> sortBy.append(order.getProperty(), order.isAscending() ? 1 : -1));
+        Document topN = new Document("n", size)
+                .append("sortBy", sortBy)
+                .append("output", new Document(FIELD_MONGO_ID, "$" + FIELD_MONGO_ID)
+                        .append(FIELD_NAME, "$" + FIELD_NAME)
+                        .append(FIELD_STOCK, "$" + FIELD_STOCK));
+        // $group con acumulador $topN, declarado como etapa cruda
+        AggregationOperation group = context -> new Document("$group", new Document(FIELD_MONGO_ID, "$" + FIELD_BRANCH_ID)
+                .append(FIELD_PRODUCTS, new Document("$topN", topN)));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)),
+                group,
+                Aggregation.lookup(DocumentMappers.BRANCHES_COLLECTION, FIELD_MONGO_ID, FIELD_MONGO_ID, FIELD_BRANCH),
+                Aggregation.unwind(FIELD_BRANCH),
+                Aggregation.sort(Sort.Direction.ASC, FIELD_MONGO_ID));
+        return mongoTemplate.aggregate(aggregation, PRODUCTS_COLLECTION, Document.class)
+                .flatMapIterable(this::rankBranchProducts);
+    }
+
+    private List<RankedProduct> rankBranchProducts(Document group) {
+        List<Document> products = group.getList(FIELD_PRODUCTS, Document.class);
+        Document branch = group.get(FIELD_BRANCH, Document.class);
+        return IntStream.range(0, products.size())
+                .mapToObj(index -> new RankedProduct(index + 1,
+                        DocumentMappers.toProduct(products.get(index)),
+                        DocumentMappers.toBranch(branch)))
+                .toList();
+    }
+
+    /**
+     * Aplica la actualización al producto por su ruta completa; vacío si no existe
+     */
+    private Mono<Product> modify(String franchiseId, String branchId, String productId, Update update) {
+        return modify(byKeyPath(franchiseId, branchId, productId), update);
+    }
+
+    private Mono<Product> modify(Criteria criteria, Update update) {
+        update.inc(DocumentMappers.FIELD_VERSION, 1);
+        return mongoTemplate.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(true), ProductEntity.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(this::mapToProduct);
+    }
+
+    /**
+     * Marca el líder de stock de la sucursal e incrementa la versión de su listado tras cada escritura
+     */
+    private Mono<Void> afterWrite(String franchiseId, String branchId) {
+        return afterWriteAll(franchiseId, List.of(branchId));
+    }
+
+    private Mono<Void> afterWriteAll(String franchiseId, List<String> branchIds) {
+        List<String> distinct = branchIds.stream().distinct().toList();
+        return stockLeaders.markStale(franchiseId, distinct)
+                .then(Mono.defer(() -> touchProductLists(franchiseId, distinct)));
+    }
+
+    private Mono<Void> touchProductLists(String franchiseId, List<String> branchIds) {
+        Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(FIELD_MONGO_ID).in(branchIds));
+        return mongoTemplate.updateMulti(query, new Update().inc(DocumentMappers.FIELD_PRODUCTS_VERSION, 1),
+                        DocumentMappers.BRANCHES_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnError(error -> log.error("Error bumping product list version of branches {} in franchise {}: {}",
+                        branchIds, franchiseId, error.getMessage()))
+                .then();
+    }
+
+    /**
+     * Producto y versión de una lectura puntual por ID, para completar una ruta cuyos ancestros están en caché
+     */
+    Mono<Versioned<Product>> findVersionedById(String franchiseId, String branchId, String productId) {
+        return findOneVersioned(new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
+                .and(FIELD_BRANCH_ID).is(branchId)
+                .and(FIELD_MONGO_ID).is(productId)));
+    }
+
+    /**
+     * Producto y versión de una lectura puntual por nombre, para completar una ruta cuyos ancestros están en caché
+     */
+    Mono<Versioned<Product>> findVersionedByName(String franchiseId, String branchId, String productName) {
+        return findOneVersioned(new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
+                .and(FIELD_BRANCH_ID).is(branchId)
+                .and(FIELD_NAME).is(productName)));
+    }
+
+    private Mono<Versioned<Product>> findOneVersioned(Query query) {
+        DocumentMappers.projectProduct(query).fields().include(DocumentMappers.FIELD_VERSION);
+        return mongoTemplate.findOne(query, Document.class, PRODUCTS_COLLECTION)
                 .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                .doOnNext(seq -> log.info("Sequence found, current value: {}", seq.getSequence()))
-                .switchIfEmpty(
-                    Mono.defer(() -> {
-                        log.info("Sequence not found, creating initial sequence");
-                        SequenceEntity initial = new SequenceEntity(sequenceName, 0L);
-                        return mongoTemplate.save(initial)
-                                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
-                                .doOnNext(saved -> log.info("Initial sequence created with ID: {}", saved.getId()))
-                                .then(mongoTemplate.findAndModify(query, update, options, SequenceEntity.class)
-                                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)));
-                    })
-                )
-                .map(sequence -> {
-                    String nextId = String.valueOf(sequence.getSequence());
-                    log.info("✓ Generated next product ID: {} - Thread: {}", nextId, Thread.currentThread().getName());
-                    return nextId;
-                })
-                .doOnError(error -> log.error("✗ Error generating next product ID: {} - Thread: {}", error.getMessage(), Thread.currentThread().getName(), error));
+                .map(document -> new Versioned<>(DocumentMappers.toProduct(document),
+                        DocumentMappers.toVersion(document, DocumentMappers.FIELD_VERSION)));
+    }
+
+    /**
+     * Lee un producto proyectado, decodificado directamente con {@link DomainCodecs}
+     */
+    private Mono<Product> findOneProduct(Query query) {
+        return DomainCodecs.findOne(mongoTemplate, DocumentMappers.projectProduct(query), Product.class, PRODUCTS_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private static List<BulkWriteError> bulkWriteErrors(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulkOperationException) {
+                return bulkOperationException.getErrors();
+            }
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException.getWriteErrors();
+            }
+        }
+        return List.of();
+    }
+
+    private Criteria byKeyPath(String franchiseId, String branchId, String productId) {
+        return Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
+                .and(FIELD_BRANCH_ID).is(branchId)
+                .and("id").is(productId);
+    }
+
+    private Product mapToProduct(ProductEntity entity) {
+        Product product = new Product();
+        product.setId(entity.getId());
+        product.setName(entity.getName());
+        product.setStock(entity.getStock());
+        return product;
+    }
+
+    /**
+     * Orden de la página: por nombre con el índice único o por stock descendente
+     */
+    static KeysetPagination.Keyset keyset(ListingSort sort) {
+        if (sort == ListingSort.NAME) {
+            return new KeysetPagination.Keyset(FIELD_NAME, Sort.Direction.ASC, true);
+        }
+        if (sort == ListingSort.STOCK) {
+            return new KeysetPagination.Keyset(FIELD_STOCK, Sort.Direction.DESC, false);
+        }
+        return KeysetPagination.Keyset.BY_ID;
     }
 }
@@ -0,0 +1,80 @@
+package co.com.pragma.mongodb;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché acotada por tamaño y TTL delante de una lectura reactiva.
+ * <p>
+ * Las cargas concurrentes de una misma clave comparten un único future, por lo que solo se lanza una
+ * consulta. Los resultados vacíos y los errores no se guardan. Como los modelos de dominio son mutables,
+ * cada lectura entrega una copia del valor cacheado.
+ * <p>
+ * Cada invalidación avanza una generación: una carga que se solapa con una invalidación entrega su valor
+ * pero no lo deja en caché, porque pudo leer el documento antes de la escritura.
+ */
+final class ReadThroughCache<K, V> {
+
+    private final AsyncCache<K, V> cache;
+    private final UnaryOperator<V> copier;
+    private final AtomicLong generation = new AtomicLong();
+
+    ReadThroughCache(String name, CacheProperties properties, MeterRegistry meterRegistry, UnaryOperator<V> copier) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .buildAsync();
+        this.copier = copier;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name, Tags.empty());
+    }
+
+    Mono<V> get(K key, Function<K, Mono<V>> loader) {
+        return Mono.defer(() -> {
+                    long started = generation.get();
+                    CompletableFuture<V> future = cache.get(key, (k, executor) -> loader.apply(k).toFuture());
+                    return Mono.fromFuture(future.whenComplete((value, error) -> {
+                        if (generation.get() != started) {
+                            cache.asMap().remove(key, future);
+                        }
+                    }), true);
+                })
+                .map(copier);
+    }
+
+    /**
+     * Valor cacheado sin lanzar la carga; vacío si no está.
+     */
+    Mono<V> getIfPresent(K key) {
+        return Mono.defer(() -> {
+                    CompletableFuture<V> future = cache.getIfPresent(key);
+                    return future == null ? Mono.<V>empty() : Mono.fromFuture(future, true);
+                })
+                .map(copier);
+    }
+
+    void invalidate(K key) {
+        generation.incrementAndGet();
+        cache.synchronous().invalidate(key);
+    }
+
+    void invalidateIf(Predicate<K> predicate) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(predicate);
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.synchronous().invalidateAll();
+    }
+}
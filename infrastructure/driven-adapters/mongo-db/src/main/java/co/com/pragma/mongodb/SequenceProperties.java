@@ -0,0 +1,25 @@
+package co.com.pragma.mongodb;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuración del asignador de IDs por bloques (hi/lo).
+ *
+ * @param blockSize        cantidad de IDs reservados en cada {@code $inc} sobre la colección de secuencias
+ * @param refillThreshold  IDs restantes en el bloque actual a partir de los cuales se reserva el siguiente en segundo plano
+ */
+@ConfigurationProperties(prefix = "adapters.mongo.sequence")
+public record SequenceProperties(
+        @DefaultValue("1000") int blockSize,
+        @DefaultValue("100") int refillThreshold) {
+
+    public SequenceProperties {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("adapters.mongo.sequence.block-size must be greater than zero");
+        }
+        if (refillThreshold < 0) {
+            throw new IllegalArgumentException("adapters.mongo.sequence.refill-threshold must not be negative");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package co.com.pragma.mongodb;
+
+import java.util.List;
+
+/**
+ * Resultado de comparar los líderes de stock guardados de una franquicia con su recálculo completo.
+ *
+ * @param franchiseId         franquicia revisada
+ * @param expected            sucursales con productos según el recálculo
+ * @param stored              documentos guardados en {@code branch_stock_leaders}
+ * @param mismatchedBranchIds sucursales cuyo líder falta, sobra o difiere del recálculo
+ */
+public record StockLeaderCheck(String franchiseId, int expected, int stored, List<String> mismatchedBranchIds) {
+
+    public boolean consistent() {
+        return mismatchedBranchIds.isEmpty();
+    }
+}
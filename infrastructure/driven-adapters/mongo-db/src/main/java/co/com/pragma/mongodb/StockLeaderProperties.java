@@ -0,0 +1,32 @@
+package co.com.pragma.mongodb;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuración del mantenimiento del modelo de lectura de líderes de stock.
+ *
+ * @param refreshInterval cada cuánto se recalculan los líderes de las sucursales escritas desde el último ciclo
+ * @param checkInterval   cada cuánto se compara una muestra de franquicias con el recálculo completo y se reparan
+ * @param checkSampleSize cuántas franquicias elegidas al azar se comparan en cada comprobación
+ */
+@ConfigurationProperties(prefix = "adapters.mongo.stock-leaders")
+public record StockLeaderProperties(
+        @DefaultValue("500ms") Duration refreshInterval,
+        @DefaultValue("10m") Duration checkInterval,
+        @DefaultValue("20") int checkSampleSize) {
+
+    public StockLeaderProperties {
+        if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("adapters.mongo.stock-leaders.refresh-interval must be positive");
+        }
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("adapters.mongo.stock-leaders.check-interval must be positive");
+        }
+        if (checkSampleSize <= 0) {
+            throw new IllegalArgumentException("adapters.mongo.stock-leaders.check-sample-size must be positive");
+        }
+    }
+}
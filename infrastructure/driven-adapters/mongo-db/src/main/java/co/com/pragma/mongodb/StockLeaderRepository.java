@@ -0,0 +1,319 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.ProductWithBranch;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Modelo de lectura {@code branch_stock_leaders}: un documento por sucursal con su producto de mayor
+ * stock y los datos de la sucursal, de modo que la consulta de máximo stock es un único {@code find}
+ * indexado por franquicia.
+ * <p>
+ * Los repositorios de productos y sucursales marcan la sucursal con {@link #markStale(String, Collection)}
+ * tras cada escritura, incrementando el contador {@code stale} de su documento, de modo que la marca
+ * sobrevive a reinicios y la ve cualquier instancia. Un ciclo en segundo plano recalcula los líderes
+ * marcados y borra cada marca solo si el contador no cambió desde que se leyó; una escritura concurrente
+ * deja la marca para el siguiente ciclo. Cada {@code check-interval} se compara una muestra de
+ * {@code check-sample-size} franquicias con el recálculo completo y se reconstruyen las desfasadas.
+ * Si la colección está vacía al arrancar se reconstruye entera.
+ */
+@Slf4j
+@Repository
+@Profile("!" + EmbeddedDocuments.PROFILE)
+public class StockLeaderRepository {
+
+    static final String STOCK_LEADERS_COLLECTION = "branch_stock_leaders";
+
+    private static final String FIELD_FRANCHISE_ID = "franchiseId";
+    private static final String FIELD_BRANCH_ID = "branchId";
+    private static final String FIELD_PRODUCT = "product";
+    private static final String FIELD_BRANCH = "branch";
+    private static final String FIELD_STALE = "stale";
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final StockLeaderProperties properties;
+    private Disposable refresher;
+    private Disposable checker;
+
+    public StockLeaderRepository(ReactiveMongoTemplate mongoTemplate, CircuitBreaker mongoCircuitBreaker,
+                                 StockLeaderProperties stockLeaderProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.circuitBreaker = mongoCircuitBreaker;
+        this.properties = stockLeaderProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        mongoTemplate.estimatedCount(STOCK_LEADERS_COLLECTION)
+                .filter(count -> count == 0)
+                .flatMap(empty -> rebuildAll())
+                .subscribe(
+                        leaders -> log.info("Stock leaders rebuilt on startup: {} branches", leaders),
+                        error -> log.error("Error rebuilding stock leaders on startup: {}", error.getMessage()));
+        refresher = Flux.interval(properties.refreshInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refreshStale(), 1)
+                .subscribe();
+        checker = Flux.interval(properties.checkInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> repairSample()
+                        .onErrorResume(error -> {
+                            log.error("Error checking stock leaders: {}", error.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+        if (checker != null) {
+            checker.dispose();
+        }
+    }
+
+    public Flux<ProductWithBranch> findByFranchise(String franchiseId) {
+        Query query = new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(FIELD_PRODUCT).exists(true))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_BRANCH_ID));
+        query.fields().include(FIELD_PRODUCT, FIELD_BRANCH);
+        return mongoTemplate.find(query, Document.class, STOCK_LEADERS_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(document -> new ProductWithBranch(
+                        DocumentMappers.toProduct(document.get(FIELD_PRODUCT, Document.class)),
+                        DocumentMappers.toBranch(document.get(FIELD_BRANCH, Document.class))))
+                .doOnError(error -> log.error("Error finding stock leaders with circuit breaker: {}", error.getMessage()));
+    }
+
+    /**
+     * Marca las sucursales para que el próximo ciclo recalcule su líder. Si la sucursal aún no tiene líder
+     * se crea un documento solo con la marca. Un fallo se registra y no se propaga: la escritura ya se
+     * aplicó y la comprobación periódica repara el líder.
+     */
+    public Mono<Void> markStale(String franchiseId, Collection<String> branchIds) {
+        if (branchIds.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations marks = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, STOCK_LEADERS_COLLECTION);
+        branchIds.forEach(branchId -> marks.upsert(new Query(byBranch(franchiseId, branchId)), new Update().inc(FIELD_STALE, 1)));
+        return marks.execute()
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Error marking stock leaders of branches {} in franchise {} as stale: {}",
+                            branchIds, franchiseId, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Recalcula los líderes marcados, una franquicia tras otra. Si el recálculo de una franquicia falla,
+     * sus marcas siguen en la base de datos para el siguiente ciclo.
+     */
+    Mono<Void> refreshStale() {
+        Query query = new Query(Criteria.where(FIELD_STALE).exists(true)).limit(REFRESH_BATCH_SIZE);
+        query.fields().include(FIELD_FRANCHISE_ID, FIELD_BRANCH_ID, FIELD_STALE);
+        return mongoTemplate.find(query, Document.class, STOCK_LEADERS_COLLECTION)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .collect(Collectors.groupingBy(mark -> mark.getString(FIELD_FRANCHISE_ID),
+                        Collectors.toMap(mark -> mark.getString(FIELD_BRANCH_ID), mark -> mark.get(FIELD_STALE, Number.class).longValue())))
+                .flatMapMany(byFranchise -> Flux.fromIterable(byFranchise.entrySet()))
+                .concatMap(stale -> refresh(stale.getKey(), stale.getValue())
+                        .onErrorResume(error -> {
+                            log.error("Error refreshing stock leaders of branches {} in franchise {}: {}",
+                                    stale.getValue().keySet(), stale.getKey(), error.getMessage());
+                            return Mono.empty();
+                        }))
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Error reading stale stock leaders: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Recalcula en una sola agregación los líderes de las sucursales marcadas. Después, en un único lote,
+     * borra la marca de las que tienen líder y elimina el documento de las que ya no existen o no tienen
+     * productos, en ambos casos solo si la marca sigue siendo la leída.
+     */
+    private Mono<Void> refresh(String franchiseId, Map<String, Long> marks) {
+        return recompute(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(FIELD_BRANCH_ID).in(marks.keySet()))
+                .concatMap(leader -> upsert(franchiseId, leader.getString(DocumentMappers.FIELD_ID),
+                        leader.get(FIELD_PRODUCT, Document.class), leader.get(FIELD_BRANCH, Document.class))
+                        .thenReturn(leader.getString(DocumentMappers.FIELD_ID)))
+                .collect(Collectors.toSet())
+                .flatMap(refreshed -> {
+                    ReactiveBulkOperations done = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, STOCK_LEADERS_COLLECTION);
+                    marks.forEach((branchId, mark) -> {
+                        Query unchanged = new Query(byBranch(franchiseId, branchId).and(FIELD_STALE).is(mark));
+                        if (refreshed.contains(branchId)) {
+                            done.updateOne(unchanged, new Update().unset(FIELD_STALE));
+                        } else {
+                            done.remove(unchanged);
+                        }
+                    });
+                    return done.execute();
+                })
+                .then()
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Sustituye los líderes de la franquicia por el recálculo completo y devuelve cuántos quedaron.
+     */
+    public Mono<Long> rebuild(String franchiseId) {
+        return recompute(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId))
+                .concatMap(leader -> upsert(franchiseId, leader.getString(DocumentMappers.FIELD_ID),
+                        leader.get(FIELD_PRODUCT, Document.class), leader.get(FIELD_BRANCH, Document.class))
+                        .thenReturn(leader.getString(DocumentMappers.FIELD_ID)))
+                .collectList()
+                .flatMap(branchIds -> mongoTemplate.remove(new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)
+                                .and(FIELD_BRANCH_ID).nin(branchIds).and(FIELD_STALE).exists(false)), STOCK_LEADERS_COLLECTION)
+                        .thenReturn((long) branchIds.size()))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnError(error -> log.error("Error rebuilding stock leaders of franchise {}: {}", franchiseId, error.getMessage()));
+    }
+
+    public Mono<Long> rebuildAll() {
+        return franchiseIds()
+                .concatMap(this::rebuild)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Compara los líderes guardados de la franquicia con el recálculo completo.
+     */
+    public Mono<StockLeaderCheck> check(String franchiseId) {
+        Mono<Map<String, Document>> expected = recompute(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId))
+                .collectMap(leader -> leader.getString(DocumentMappers.FIELD_ID));
+        Mono<Map<String, Document>> stored = mongoTemplate.find(new Query(Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId)),
+                        Document.class, STOCK_LEADERS_COLLECTION)
+                .collectMap(leader -> leader.getString(FIELD_BRANCH_ID));
+        return Mono.zip(expected, stored)
+                .map(leaders -> compare(franchiseId, leaders.getT1(), leaders.getT2()))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public Flux<StockLeaderCheck> checkAll() {
+        return franchiseIds().concatMap(this::check);
+    }
+
+    /**
+     * Reconstruye las franquicias de una muestra aleatoria cuyos líderes no coinciden con el recálculo y
+     * devuelve cuántas reparó.
+     */
+    Mono<Long> repairSample() {
+        return sampledFranchiseIds()
+                .concatMap(this::check)
+                .filter(check -> !check.consistent())
+                .doOnNext(check -> log.warn("Stock leaders of franchise {} drifted on branches {}, rebuilding",
+                        check.franchiseId(), check.mismatchedBranchIds()))
+                .concatMap(check -> rebuild(check.franchiseId()))
+                .count();
+    }
+
+    /**
+     * Recalcula el producto de mayor stock de cada sucursal de los productos que cumplen {@code products},
+     * uniendo la sucursal en el servidor. Cada resultado tiene el id de la sucursal en {@code _id}.
+     */
+    private Flux<Document> recompute(Criteria products) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(products),
+                Aggregation.sort(Sort.by(Sort.Order.desc(DocumentMappers.FIELD_STOCK), Sort.Order.asc(DocumentMappers.FIELD_ID))),
+                Aggregation.group(FIELD_BRANCH_ID).first(Aggregation.ROOT).as(FIELD_PRODUCT),
+                Aggregation.lookup(DocumentMappers.BRANCHES_COLLECTION, DocumentMappers.FIELD_ID, DocumentMappers.FIELD_ID, FIELD_BRANCH),
+                Aggregation.unwind(FIELD_BRANCH));
+        return mongoTemplate.aggregate(aggregation, DocumentMappers.PRODUCTS_COLLECTION, Document.class);
+    }
+
+    private Flux<String> sampledFranchiseIds() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.sample(properties.checkSampleSize()),
+                Aggregation.project(DocumentMappers.FIELD_ID));
+        return mongoTemplate.aggregate(aggregation, DocumentMappers.FRANCHISES_COLLECTION, Document.class)
+                .map(franchise -> franchise.getString(DocumentMappers.FIELD_ID));
+    }
+
+    private Flux<String> franchiseIds() {
+        Query query = new Query();
+        query.fields().include(DocumentMappers.FIELD_ID);
+        return mongoTemplate.find(query, Document.class, DocumentMappers.FRANCHISES_COLLECTION)
+                .map(franchise -> franchise.getString(DocumentMappers.FIELD_ID));
+    }
+
+    private Mono<Void> upsert(String franchiseId, String branchId, Document product, Document branch) {
+        Update update = new Update()
+                .set(FIELD_PRODUCT, productSummary(product))
+                .set(FIELD_BRANCH, branchSummary(branch));
+        return mongoTemplate.upsert(new Query(byBranch(franchiseId, branchId)), update, STOCK_LEADERS_COLLECTION).then();
+    }
+
+    /**
+     * Las sucursales marcadas están pendientes del siguiente ciclo y no cuentan como desfasadas.
+     */
+    private static StockLeaderCheck compare(String franchiseId, Map<String, Document> expected, Map<String, Document> stored) {
+        Set<String> branchIds = new HashSet<>(expected.keySet());
+        branchIds.addAll(stored.keySet());
+        List<String> mismatched = branchIds.stream()
+                .filter(branchId -> stored.get(branchId) == null || !stored.get(branchId).containsKey(FIELD_STALE))
+                .filter(branchId -> !sameLeader(expected.get(branchId), stored.get(branchId)))
+                .sorted()
+                .toList();
+        long leaders = stored.values().stream().filter(leader -> leader.containsKey(FIELD_PRODUCT)).count();
+        return new StockLeaderCheck(franchiseId, expected.size(), (int) leaders, mismatched);
+    }
+
+    private static boolean sameLeader(Document expected, Document stored) {
+        if (expected == null || stored == null) {
+            return false;
+        }
+        return Objects.equals(productSummary(expected.get(FIELD_PRODUCT, Document.class)), stored.get(FIELD_PRODUCT, Document.class))
+                && Objects.equals(branchSummary(expected.get(FIELD_BRANCH, Document.class)), stored.get(FIELD_BRANCH, Document.class));
+    }
+
+    private static Document productSummary(Document product) {
+        return new Document(DocumentMappers.FIELD_ID, product.get(DocumentMappers.FIELD_ID))
+                .append(DocumentMappers.FIELD_NAME, product.get(DocumentMappers.FIELD_NAME))
+                .append(DocumentMappers.FIELD_STOCK, product.get(DocumentMappers.FIELD_STOCK));
+    }
+
+    private static Document branchSummary(Document branch) {
+        return new Document(DocumentMappers.FIELD_ID, branch.get(DocumentMappers.FIELD_ID))
+                .append(DocumentMappers.FIELD_NAME, branch.get(DocumentMappers.FIELD_NAME))
+                .append(DocumentMappers.FIELD_ADDRESS, branch.get(DocumentMappers.FIELD_ADDRESS))
+                .append(DocumentMappers.FIELD_CITY, branch.get(DocumentMappers.FIELD_CITY));
+    }
+
+    private static Criteria byBranch(String franchiseId, String branchId) {
+        return Criteria.where(FIELD_FRANCHISE_ID).is(franchiseId).and(FIELD_BRANCH_ID).is(branchId);
+    }
+}
@@ -0,0 +1,54 @@
+package co.com.pragma.mongodb;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint de operación {@code /actuator/stockleaders}: {@code GET} compara el modelo de lectura de
+ * máximo stock con el recálculo completo y {@code POST} lo reconstruye, para todas las franquicias o
+ * para la indicada en la ruta.
+ * <p>
+ * No se incluye en {@code management.endpoints.web.exposure.include} porque sus operaciones de escritura
+ * no tienen autenticación; se expone solo en un puerto de gestión protegido o por JMX.
+ */
+@Component
+@Profile("!" + EmbeddedDocuments.PROFILE)
+@Endpoint(id = "stockleaders")
+public class StockLeadersEndpoint {
+
+    private static final String LEADERS = "leaders";
+
+    private final StockLeaderRepository stockLeaderRepository;
+
+    public StockLeadersEndpoint(StockLeaderRepository stockLeaderRepository) {
+        this.stockLeaderRepository = stockLeaderRepository;
+    }
+
+    @ReadOperation
+    public Mono<List<StockLeaderCheck>> check() {
+        return stockLeaderRepository.checkAll().collectList();
+    }
+
+    @ReadOperation
+    public Mono<StockLeaderCheck> check(@Selector String franchiseId) {
+        return stockLeaderRepository.check(franchiseId);
+    }
+
+    @WriteOperation
+    public Mono<Map<String, Long>> rebuild() {
+        return stockLeaderRepository.rebuildAll().map(leaders -> Map.of(LEADERS, leaders));
+    }
+
+    @WriteOperation
+    public Mono<Map<String, Long>> rebuild(@Selector String franchiseId) {
+        return stockLeaderRepository.rebuild(franchiseId).map(leaders -> Map.of(LEADERS, leaders));
+    }
+}
@@ -5,9 +5,12 @@ import co.com.pragma.model.Constants;
 import com.mongodb.client.result.DeleteResult;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
@@ -18,7 +21,12 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -28,6 +36,12 @@ class BranchRepositoryTest {
     @Mock
     private ReactiveMongoTemplate mongoTemplate;
 
+    @Mock
+    private HiLoIdAllocator idAllocator;
+
+    @Mock
+    private StockLeaderRepository stockLeaderRepository;
+
     private CircuitBreaker circuitBreaker;
     private BranchRepository branchRepository;
 
@@ -35,7 +49,9 @@ class BranchRepositoryTest {
     void setUp() {
         CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
         circuitBreaker = registry.circuitBreaker("mongoCircuitBreaker");
-        branchRepository = new BranchRepository(mongoTemplate, circuitBreaker);
+        branchRepository = new BranchRepository(mongoTemplate, circuitBreaker, idAllocator, stockLeaderRepository,
+                new BatchingProperties(Duration.ofMillis(50), 100), new SimpleMeterRegistry());
+        lenient().when(stockLeaderRepository.markStale(anyString(), anyList())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -58,9 +74,11 @@ class BranchRepositoryTest {
 
     @Test
     void testFindById() {
-        BranchEntity entity = new BranchEntity("1", "franchise1", "Branch 1", "Address", "City");
-        
-        when(mongoTemplate.findOne(any(Query.class), eq(BranchEntity.class))).thenReturn(Mono.just(entity));
+        Document document = new Document("_id", "1").append("franchiseId", "franchise1").append("name", "Branch 1")
+                .append("address", "Address").append("city", "City");
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Document.class), eq("branches"))).thenReturn(Flux.just(document));
 
         StepVerifier.create(branchRepository.findById("franchise1", "1"))
                 .expectNextMatches(b -> b.getId().equals("1") 
@@ -70,17 +88,59 @@ class BranchRepositoryTest {
                         && b.getProducts() != null)
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(BranchEntity.class));
+        assertEquals(new Document("_id", new Document("$in", List.of("1"))), queryCaptor.getValue().getQueryObject());
+        assertEquals(1, queryCaptor.getValue().getFieldsObject().getInteger("franchiseId"));
+    }
+
+    @Test
+    void testFindVersionedByIdReadsTheVersionWithTheBranch() {
+        Document document = new Document("_id", "1").append("franchiseId", "franchise1").append("name", "Branch 1")
+                .append("version", 6L);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Document.class), eq("branches"))).thenReturn(Flux.just(document));
+
+        StepVerifier.create(branchRepository.findVersionedById("franchise1", "1"))
+                .expectNextMatches(versioned -> versioned.getVersion() == 6L
+                        && versioned.getValue().getName().equals("Branch 1"))
+                .verifyComplete();
+
+        assertEquals(1, queryCaptor.getValue().getFieldsObject().getInteger("version"));
     }
 
     @Test
     void testFindByIdNotFound() {
-        when(mongoTemplate.findOne(any(Query.class), eq(BranchEntity.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("branches"))).thenReturn(Flux.empty());
 
         StepVerifier.create(branchRepository.findById("franchise1", "999"))
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(BranchEntity.class));
+        verify(mongoTemplate).find(any(Query.class), eq(Document.class), eq("branches"));
+    }
+
+    @Test
+    void testFindByIdOfAnotherFranchise() {
+        Document document = new Document("_id", "1").append("franchiseId", "franchise2").append("name", "Branch 1");
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("branches"))).thenReturn(Flux.just(document));
+
+        StepVerifier.create(branchRepository.findById("franchise1", "1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testConcurrentFindByIdShareOneQuery() {
+        Document document1 = new Document("_id", "1").append("franchiseId", "franchise1").append("name", "Branch 1");
+        Document document2 = new Document("_id", "2").append("franchiseId", "franchise1").append("name", "Branch 2");
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("branches"))).thenReturn(Flux.just(document1, document2));
+
+        StepVerifier.create(Mono.zip(branchRepository.findById("franchise1", "1"), branchRepository.findById("franchise1", "2")))
+                .expectNextMatches(branches -> branches.getT1().getName().equals("Branch 1")
+                        && branches.getT2().getName().equals("Branch 2"))
+                .verifyComplete();
+
+        verify(mongoTemplate).find(any(Query.class), eq(Document.class), eq("branches"));
     }
 
     @Test
@@ -91,16 +151,16 @@ class BranchRepositoryTest {
                 .verifyComplete();
 
         verify(mongoTemplate).remove(any(Query.class), eq(BranchEntity.class));
+        verify(stockLeaderRepository).markStale("franchise1", List.of("1"));
     }
 
     @Test
     void testUpdate() {
         Branch branch = Branch.builder().id("1").name("Updated Branch").address("New Address").city("New City").build();
-        BranchEntity existingEntity = new BranchEntity("1", "franchise1", "Branch 1", "Address", "City");
         BranchEntity updatedEntity = new BranchEntity("1", "franchise1", "Updated Branch", "New Address", "New City");
         
-        when(mongoTemplate.findOne(any(Query.class), eq(BranchEntity.class))).thenReturn(Mono.just(existingEntity));
-        when(mongoTemplate.save(any(BranchEntity.class))).thenReturn(Mono.just(updatedEntity));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(BranchEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
 
         StepVerifier.create(branchRepository.update("franchise1", branch))
                 .expectNextMatches(b -> b.getName().equals("Updated Branch")
@@ -108,32 +168,104 @@ class BranchRepositoryTest {
                         && b.getCity().equals("New City"))
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(BranchEntity.class));
-        verify(mongoTemplate).save(any(BranchEntity.class));
+        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(BranchEntity.class));
+        verify(mongoTemplate, never()).save(any(BranchEntity.class));
     }
 
     @Test
     void testUpdateNotFound() {
         Branch branch = Branch.builder().id("999").name("Updated Branch").address("Address").city("City").build();
         
-        when(mongoTemplate.findOne(any(Query.class), eq(BranchEntity.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(BranchEntity.class)))
+                .thenReturn(Mono.empty());
 
         StepVerifier.create(branchRepository.update("franchise1", branch))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException && 
                         e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
                 .verify();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(BranchEntity.class));
         verify(mongoTemplate, never()).save(any(BranchEntity.class));
     }
 
+    @Test
+    void testUpdateBranchFields() {
+        Branch changes = Branch.builder().city("New City").build();
+        BranchEntity updatedEntity = new BranchEntity("1", "franchise1", "Branch 1", "Address", "New City");
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+
+        when(mongoTemplate.findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(BranchEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(branchRepository.updateBranchFields("franchise1", "1", changes))
+                .expectNextMatches(b -> b.getName().equals("Branch 1") && b.getCity().equals("New City"))
+                .verifyComplete();
+
+        assertEquals(new Document("$set", new Document("city", "New City")).append("$inc", new Document("version", 1)),
+                updateCaptor.getValue().getUpdateObject());
+        verify(stockLeaderRepository).markStale("franchise1", List.of("1"));
+    }
+
+    @Test
+    void testUpdateBranchFieldsAtVersionFiltersOnVersion() {
+        BranchEntity updatedEntity = new BranchEntity("1", "franchise1", "Branch 1", "Address", "New City");
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(BranchEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(branchRepository.updateBranchFields("franchise1", "1", Branch.builder().city("New City").build(), 2L))
+                .expectNextMatches(b -> b.getCity().equals("New City"))
+                .verifyComplete();
+
+        assertEquals(2L, queryCaptor.getValue().getQueryObject().get("version"));
+    }
+
+    @Test
+    void testUpdateBranchFieldsAtStaleVersionIsEmpty() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(BranchEntity.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(branchRepository.updateBranchFields("franchise1", "1", Branch.builder().city("New City").build(), 2L))
+                .verifyComplete();
+
+        verify(stockLeaderRepository, never()).markStale(anyString(), anyList());
+    }
+
+    @Test
+    void testUpdateBranchFieldsWithoutChanges() {
+        Document document = new Document("_id", "1").append("franchiseId", "franchise1").append("name", "Branch 1")
+                .append("address", "Address").append("city", "City");
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("branches"))).thenReturn(Flux.just(document));
+
+        StepVerifier.create(branchRepository.updateBranchFields("franchise1", "1", new Branch()))
+                .expectNextMatches(b -> b.getName().equals("Branch 1"))
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(BranchEntity.class));
+        verify(stockLeaderRepository, never()).markStale(anyString(), anyList());
+    }
+
+    @Test
+    void testFindVersionProjectsOnlyVersion() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(queryCaptor.capture(), eq(Document.class), eq("branches")))
+                .thenReturn(Mono.just(new Document("version", 4L)));
+
+        StepVerifier.create(branchRepository.findVersion("franchise1", "1"))
+                .expectNext(4L)
+                .verifyComplete();
+
+        assertEquals(new Document("version", 1).append("_id", 0), queryCaptor.getValue().getFieldsObject());
+    }
+
     @Test
     void testFindAllByFranchiseId() {
-        BranchEntity entity1 = new BranchEntity("1", "franchise1", "Branch 1", "Address 1", "City 1");
-        BranchEntity entity2 = new BranchEntity("2", "franchise1", "Branch 2", "Address 2", "City 2");
-        
-        when(mongoTemplate.find(any(Query.class), eq(BranchEntity.class)))
-                .thenReturn(Flux.just(entity1, entity2));
+        Branch branch1 = Branch.builder().id("1").name("Branch 1").address("Address 1").city("City 1").build();
+        Branch branch2 = Branch.builder().id("2").name("Branch 2").address("Address 2").city("City 2").build();
+
+        when(mongoTemplate.execute(eq("branches"), any()))
+                .thenReturn(Flux.just(branch1, branch2));
 
         StepVerifier.create(branchRepository.findAllByFranchiseId("franchise1"))
                 .expectNextMatches(b -> b.getId().equals("1") 
@@ -148,48 +280,28 @@ class BranchRepositoryTest {
                         && b.getProducts() != null)
                 .verifyComplete();
 
-        verify(mongoTemplate).find(any(Query.class), eq(BranchEntity.class));
+        verify(mongoTemplate).execute(eq("branches"), any());
     }
 
     @Test
     void testFindAllByFranchiseIdEmpty() {
-        when(mongoTemplate.find(any(Query.class), eq(BranchEntity.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.execute(eq("branches"), any())).thenReturn(Flux.empty());
 
         StepVerifier.create(branchRepository.findAllByFranchiseId("franchise999"))
                 .verifyComplete();
 
-        verify(mongoTemplate).find(any(Query.class), eq(BranchEntity.class));
+        verify(mongoTemplate).execute(eq("branches"), any());
     }
 
     @Test
     void testGetNextId() {
-        SequenceEntity sequence = new SequenceEntity("branch_sequence", 5L);
-        
-        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
-                .thenReturn(Mono.just(sequence));
+        when(idAllocator.nextId("branch_sequence")).thenReturn(Mono.just(5L));
 
         StepVerifier.create(branchRepository.getNextId())
                 .expectNext("5")
                 .verifyComplete();
 
-        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
-    }
-
-    @Test
-    void testGetNextIdInitialSequence() {
-        SequenceEntity initialSequence = new SequenceEntity("branch_sequence", 0L);
-        SequenceEntity incrementedSequence = new SequenceEntity("branch_sequence", 1L);
-        
-        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
-                .thenReturn(Mono.empty())
-                .thenReturn(Mono.just(incrementedSequence));
-        when(mongoTemplate.save(any(SequenceEntity.class))).thenReturn(Mono.just(initialSequence));
-
-        StepVerifier.create(branchRepository.getNextId())
-                .expectNext("1")
-                .verifyComplete();
-
-        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
-        verify(mongoTemplate).save(any(SequenceEntity.class));
+        verify(idAllocator).nextId("branch_sequence");
+        verifyNoInteractions(mongoTemplate);
     }
 }
@@ -0,0 +1,179 @@
+package co.com.pragma.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationListenerTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private CachedFranchiseGateway franchiseGateway;
+
+    @Mock
+    private CachedBranchGateway branchGateway;
+
+    private CacheInvalidationListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new CacheInvalidationListener(mongoTemplate, franchiseGateway, branchGateway);
+    }
+
+    @Test
+    void testApplyEvictsChangedDocument() {
+        listener.apply(event(DocumentMappers.FRANCHISES_COLLECTION, "1", "token-1"));
+        listener.apply(event(DocumentMappers.BRANCHES_COLLECTION, "10", "token-2"));
+
+        verify(franchiseGateway).evict("1");
+        verify(branchGateway).evict("10");
+        verify(franchiseGateway, never()).evictAll();
+    }
+
+    @Test
+    void testApplyFlushesOnCollectionLevelEvent() {
+        listener.apply(event(DocumentMappers.BRANCHES_COLLECTION, null, "token-1"));
+
+        verify(franchiseGateway).evictAll();
+        verify(branchGateway).evictAll();
+    }
+
+    @Test
+    void testStartOnReplicaSetOpensChangeStream() {
+        ChangeStreamEvent<Document> event = event(DocumentMappers.FRANCHISES_COLLECTION, "1", "token-1");
+        when(mongoTemplate.executeCommand(new Document("hello", 1)))
+                .thenReturn(Mono.just(new Document("setName", "rs0").append("isWritablePrimary", true)));
+        when(mongoTemplate.changeStream(isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.just(event));
+
+        StepVerifier.create(listener.start())
+                .expectNext(event)
+                .verifyComplete();
+
+        verify(franchiseGateway).evict("1");
+    }
+
+    @Test
+    void testStartOnShardedClusterOpensChangeStream() {
+        when(mongoTemplate.executeCommand(new Document("hello", 1)))
+                .thenReturn(Mono.just(new Document("msg", "isdbgrid")));
+
+        StepVerifier.create(listener.supportsChangeStreams())
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void testStartOnStandaloneDoesNotOpenChangeStream() {
+        when(mongoTemplate.executeCommand(new Document("hello", 1)))
+                .thenReturn(Mono.just(new Document("isWritablePrimary", true)));
+
+        StepVerifier.create(listener.start())
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).changeStream(any(), any(ChangeStreamOptions.class), eq(Document.class));
+        verifyNoInteractions(franchiseGateway, branchGateway);
+    }
+
+    @Test
+    void testTopologyDetectionRetriesWhileUnreachable() {
+        when(mongoTemplate.executeCommand(new Document("hello", 1)))
+                .thenReturn(Mono.error(new MongoException("connection refused")))
+                .thenReturn(Mono.just(new Document("isWritablePrimary", true)));
+
+        StepVerifier.withVirtualTime(() -> listener.supportsChangeStreams())
+                .thenAwait(Duration.ofSeconds(5))
+                .expectNext(false)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).executeCommand(new Document("hello", 1));
+    }
+
+    @Test
+    void testReconnectResumesFromLastTokenAndFlushes() {
+        ChangeStreamEvent<Document> event = event(DocumentMappers.FRANCHISES_COLLECTION, "1", "token-1");
+        when(mongoTemplate.changeStream(isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.just(event).concatWith(Flux.error(new MongoException("connection reset"))))
+                .thenReturn(Flux.never());
+
+        StepVerifier.withVirtualTime(() -> listener.listen())
+                .expectNext(event)
+                .thenAwait(Duration.ofSeconds(5))
+                .thenCancel()
+                .verify();
+
+        List<ChangeStreamOptions> options = capturedOptions(2);
+        assertEquals(Optional.empty(), options.get(0).getResumeToken());
+        assertEquals(Optional.of(new BsonString("token-1")), options.get(1).getResumeToken());
+        // al abrir por primera vez y al perder el stream; al reanudar con token no se vacía de nuevo
+        verify(franchiseGateway, times(2)).evictAll();
+        verify(branchGateway, times(2)).evictAll();
+    }
+
+    @Test
+    void testHistoryLostDropsResumeToken() {
+        ChangeStreamEvent<Document> event = event(DocumentMappers.BRANCHES_COLLECTION, "10", "token-1");
+        when(mongoTemplate.changeStream(isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.just(event).concatWith(Flux.error(
+                        new MongoException(CacheInvalidationListener.CHANGE_STREAM_HISTORY_LOST, "history lost"))))
+                .thenReturn(Flux.never());
+
+        StepVerifier.withVirtualTime(() -> listener.listen())
+                .expectNext(event)
+                .thenAwait(Duration.ofSeconds(5))
+                .thenCancel()
+                .verify();
+
+        List<ChangeStreamOptions> options = capturedOptions(2);
+        assertEquals(Optional.empty(), options.get(1).getResumeToken());
+        verify(branchGateway, times(3)).evictAll();
+    }
+
+    private List<ChangeStreamOptions> capturedOptions(int opens) {
+        ArgumentCaptor<ChangeStreamOptions> captor = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(mongoTemplate, times(opens)).changeStream(isNull(), captor.capture(), eq(Document.class));
+        return captor.getAllValues();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChangeStreamEvent<Document> event(String collection, String id, String token) {
+        ChangeStreamEvent<Document> event = mock(ChangeStreamEvent.class);
+        ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+        BsonValue resumeToken = new BsonString(token);
+        when(event.getRaw()).thenReturn(raw);
+        when(raw.getDocumentKey()).thenReturn(id != null ? new BsonDocument(DocumentMappers.FIELD_ID, new BsonString(id)) : null);
+        if (id != null) {
+            when(event.getCollectionName()).thenReturn(collection);
+        }
+        when(event.getResumeToken()).thenReturn(resumeToken);
+        return event;
+    }
+}
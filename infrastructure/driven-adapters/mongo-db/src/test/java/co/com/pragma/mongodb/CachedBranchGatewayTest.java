@@ -0,0 +1,125 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Versioned;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedBranchGatewayTest {
+
+    @Mock
+    private BranchRepository branchRepository;
+
+    private CachedBranchGateway cachedBranchGateway;
+
+    @BeforeEach
+    void setUp() {
+        cachedBranchGateway = new CachedBranchGateway(branchRepository,
+                new CacheProperties(100, Duration.ofMinutes(5)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testFindByIdIsCachedPerFranchise() {
+        when(branchRepository.findVersionedById("franchise1", "1")).thenReturn(Mono.just(versioned("Branch 1")));
+        when(branchRepository.findVersionedById("franchise2", "1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(cachedBranchGateway.findById("franchise1", "1")
+                        .then(cachedBranchGateway.findById("franchise1", "1")))
+                .expectNextMatches(b -> b.getName().equals("Branch 1") && b.getProducts() != null)
+                .verifyComplete();
+        StepVerifier.create(cachedBranchGateway.findById("franchise2", "1"))
+                .verifyComplete();
+
+        verify(branchRepository, times(1)).findVersionedById("franchise1", "1");
+        verify(branchRepository, times(1)).findVersionedById("franchise2", "1");
+    }
+
+    @Test
+    void testUpdateBranchFieldsInvalidatesEntry() {
+        when(branchRepository.findVersionedById("franchise1", "1"))
+                .thenReturn(Mono.just(versioned("Branch 1")), Mono.just(versioned("Updated")));
+        when(branchRepository.updateBranchFields(eq("franchise1"), eq("1"), any(Branch.class)))
+                .thenReturn(Mono.just(branch("Updated")));
+
+        StepVerifier.create(cachedBranchGateway.findById("franchise1", "1")
+                        .then(cachedBranchGateway.updateBranchFields("franchise1", "1", Branch.builder().name("Updated").build()))
+                        .then(cachedBranchGateway.findById("franchise1", "1")))
+                .expectNextMatches(b -> b.getName().equals("Updated"))
+                .verifyComplete();
+
+        verify(branchRepository, times(2)).findVersionedById("franchise1", "1");
+    }
+
+    @Test
+    void testSaveInvalidatesEntry() {
+        Branch branch = branch("Branch 1");
+        when(branchRepository.findVersionedById("franchise1", "1")).thenReturn(Mono.just(versioned("Old")), Mono.just(new Versioned<>(branch, 1L)));
+        when(branchRepository.save("franchise1", branch)).thenReturn(Mono.just(branch));
+
+        StepVerifier.create(cachedBranchGateway.findById("franchise1", "1")
+                        .then(cachedBranchGateway.save("franchise1", branch))
+                        .then(cachedBranchGateway.findById("franchise1", "1")))
+                .expectNextMatches(b -> b.getName().equals("Branch 1"))
+                .verifyComplete();
+
+        verify(branchRepository, times(2)).findVersionedById("franchise1", "1");
+    }
+
+    @Test
+    void testEvictDropsBranchInEveryFranchise() {
+        when(branchRepository.findVersionedById("franchise1", "1")).thenReturn(Mono.just(versioned("Branch 1")));
+        when(branchRepository.findVersionedById("franchise1", "2")).thenReturn(Mono.just(versioned("Branch 2")));
+
+        cachedBranchGateway.findById("franchise1", "1").block();
+        cachedBranchGateway.findById("franchise1", "2").block();
+        cachedBranchGateway.evict("1");
+        cachedBranchGateway.findById("franchise1", "1").block();
+        cachedBranchGateway.findById("franchise1", "2").block();
+
+        verify(branchRepository, times(2)).findVersionedById("franchise1", "1");
+        verify(branchRepository, times(1)).findVersionedById("franchise1", "2");
+    }
+
+    @Test
+    void testFindVersionReadsTheCachedEntry() {
+        when(branchRepository.findVersionedById("franchise1", "1")).thenReturn(Mono.just(new Versioned<>(branch("Branch 1"), 5L)));
+
+        StepVerifier.create(cachedBranchGateway.findById("franchise1", "1")
+                        .then(cachedBranchGateway.findVersion("franchise1", "1")))
+                .expectNext(5L)
+                .verifyComplete();
+
+        verify(branchRepository, never()).findVersion(anyString(), anyString());
+    }
+
+    @Test
+    void testFindVersionOnMissReadsOnlyTheVersion() {
+        when(branchRepository.findVersion("franchise1", "1")).thenReturn(Mono.just(5L));
+
+        StepVerifier.create(cachedBranchGateway.findVersion("franchise1", "1"))
+                .expectNext(5L)
+                .verifyComplete();
+
+        verify(branchRepository, never()).findVersionedById(anyString(), anyString());
+    }
+
+    private Versioned<Branch> versioned(String name) {
+        return new Versioned<>(branch(name), 0L);
+    }
+
+    private Branch branch(String name) {
+        return Branch.builder().id("1").name(name).address("Address").city("City").build();
+    }
+}
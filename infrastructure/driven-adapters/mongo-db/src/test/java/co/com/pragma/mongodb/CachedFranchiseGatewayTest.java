@@ -0,0 +1,124 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Versioned;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedFranchiseGatewayTest {
+
+    @Mock
+    private FranchiseRepository franchiseRepository;
+
+    private CachedFranchiseGateway cachedFranchiseGateway;
+
+    @BeforeEach
+    void setUp() {
+        cachedFranchiseGateway = new CachedFranchiseGateway(franchiseRepository,
+                new CacheProperties(100, Duration.ofMinutes(5)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testFindByIdIsCached() {
+        when(franchiseRepository.findVersionedById("1")).thenReturn(Mono.just(versioned("Franchise 1", 1L)));
+
+        StepVerifier.create(cachedFranchiseGateway.findById("1").then(cachedFranchiseGateway.findById("1")))
+                .expectNextMatches(f -> f.getName().equals("Franchise 1"))
+                .verifyComplete();
+
+        verify(franchiseRepository, times(1)).findVersionedById("1");
+    }
+
+    @Test
+    void testUpdateNameInvalidatesEntry() {
+        when(franchiseRepository.findVersionedById("1"))
+                .thenReturn(Mono.just(versioned("Franchise 1", 1L)), Mono.just(versioned("Renamed", 2L)));
+        when(franchiseRepository.updateName("1", "Renamed")).thenReturn(Mono.just(franchise("Renamed")));
+
+        StepVerifier.create(cachedFranchiseGateway.findById("1")
+                        .then(cachedFranchiseGateway.updateName("1", "Renamed"))
+                        .then(cachedFranchiseGateway.findById("1")))
+                .expectNextMatches(f -> f.getName().equals("Renamed"))
+                .verifyComplete();
+
+        verify(franchiseRepository, times(2)).findVersionedById("1");
+    }
+
+    @Test
+    void testDeleteByIdInvalidatesEntry() {
+        when(franchiseRepository.findVersionedById("1")).thenReturn(Mono.just(versioned("Franchise 1", 1L)), Mono.empty());
+        when(franchiseRepository.deleteById("1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(cachedFranchiseGateway.findById("1")
+                        .then(cachedFranchiseGateway.deleteById("1"))
+                        .then(cachedFranchiseGateway.findById("1")))
+                .verifyComplete();
+
+        verify(franchiseRepository, times(2)).findVersionedById("1");
+    }
+
+    @Test
+    void testFindAllIsNotCached() {
+        when(franchiseRepository.findAll()).thenReturn(Flux.just(franchise("Franchise 1")));
+
+        StepVerifier.create(cachedFranchiseGateway.findAll().thenMany(cachedFranchiseGateway.findAll()))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(franchiseRepository, times(2)).findAll();
+    }
+
+    @Test
+    void testFindVersionedByIdServesBodyAndVersionFromTheSameEntry() {
+        when(franchiseRepository.findVersionedById("1")).thenReturn(Mono.just(versioned("Franchise 1", 3L)));
+
+        StepVerifier.create(cachedFranchiseGateway.findById("1").then(cachedFranchiseGateway.findVersionedById("1")))
+                .expectNextMatches(versioned -> versioned.getVersion() == 3L
+                        && versioned.getValue().getName().equals("Franchise 1"))
+                .verifyComplete();
+
+        verify(franchiseRepository, times(1)).findVersionedById("1");
+    }
+
+    @Test
+    void testFindVersionReadsTheCachedEntry() {
+        when(franchiseRepository.findVersionedById("1")).thenReturn(Mono.just(versioned("Franchise 1", 3L)));
+
+        StepVerifier.create(cachedFranchiseGateway.findById("1").then(cachedFranchiseGateway.findVersion("1")))
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(franchiseRepository, never()).findVersion(anyString());
+    }
+
+    @Test
+    void testFindVersionOnMissReadsOnlyTheVersion() {
+        when(franchiseRepository.findVersion("1")).thenReturn(Mono.just(3L));
+
+        StepVerifier.create(cachedFranchiseGateway.findVersion("1"))
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(franchiseRepository, never()).findVersionedById(anyString());
+    }
+
+    private Versioned<Franchise> versioned(String name, long version) {
+        return new Versioned<>(franchise(name), version);
+    }
+
+    private Franchise franchise(String name) {
+        return Franchise.builder().id("1").name(name).description("Description").build();
+    }
+}
@@ -0,0 +1,124 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.HierarchyPath;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.Versioned;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedHierarchyGatewayTest {
+
+    @Mock
+    private HierarchyRepository hierarchyRepository;
+
+    @Mock
+    private FranchiseRepository franchiseRepository;
+
+    @Mock
+    private BranchRepository branchRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private CachedFranchiseGateway cachedFranchiseGateway;
+    private CachedBranchGateway cachedBranchGateway;
+    private CachedHierarchyGateway cachedHierarchyGateway;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties properties = new CacheProperties(100, Duration.ofMinutes(5));
+        cachedFranchiseGateway = new CachedFranchiseGateway(franchiseRepository, properties, new SimpleMeterRegistry());
+        cachedBranchGateway = new CachedBranchGateway(branchRepository, properties, new SimpleMeterRegistry());
+        cachedHierarchyGateway = new CachedHierarchyGateway(hierarchyRepository, cachedFranchiseGateway,
+                cachedBranchGateway, productRepository);
+    }
+
+    @Test
+    void testResolveBranchOnMissUsesAggregation() {
+        HierarchyPath path = HierarchyPath.builder().franchise(franchise()).build();
+        when(hierarchyRepository.resolveBranch("1", "10")).thenReturn(Mono.just(path));
+
+        StepVerifier.create(cachedHierarchyGateway.resolveBranch("1", "10"))
+                .expectNext(path)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveBranchFromCachedAncestors() {
+        warm();
+
+        StepVerifier.create(cachedHierarchyGateway.resolveBranch("1", "10"))
+                .expectNextMatches(path -> path.missingAncestorError() == null
+                        && path.getBranch().getName().equals("Branch 1")
+                        && path.getBranchVersion() == 2L)
+                .verifyComplete();
+
+        verifyNoInteractions(hierarchyRepository, productRepository);
+    }
+
+    @Test
+    void testResolveProductByNameReadsOnlyTheProductWhenAncestorsAreCached() {
+        warm();
+        when(productRepository.findVersionedByName("1", "10", "Product 1"))
+                .thenReturn(Mono.just(new Versioned<>(Product.builder().id("100").name("Product 1").stock(5).build(), 7L)));
+
+        StepVerifier.create(cachedHierarchyGateway.resolveProductByName("1", "10", "Product 1"))
+                .expectNextMatches(path -> path.missingAncestorError() == null
+                        && path.getProduct().getId().equals("100")
+                        && path.getProductVersion() == 7L)
+                .verifyComplete();
+
+        verifyNoInteractions(hierarchyRepository);
+    }
+
+    @Test
+    void testResolveProductMissingProductKeepsCachedAncestors() {
+        warm();
+        when(productRepository.findVersionedById("1", "10", "100")).thenReturn(Mono.empty());
+
+        StepVerifier.create(cachedHierarchyGateway.resolveProduct("1", "10", "100"))
+                .expectNextMatches(path -> path.missingAncestorError() == null && path.getProduct() == null)
+                .verifyComplete();
+
+        verifyNoInteractions(hierarchyRepository);
+    }
+
+    @Test
+    void testResolveProductWithOnlyFranchiseCachedUsesAggregation() {
+        when(franchiseRepository.findVersionedById("1")).thenReturn(Mono.just(new Versioned<>(franchise(), 1L)));
+        cachedFranchiseGateway.findById("1").block();
+        HierarchyPath path = HierarchyPath.builder().franchise(franchise()).build();
+        when(hierarchyRepository.resolveProduct("1", "10", "100")).thenReturn(Mono.just(path));
+
+        StepVerifier.create(cachedHierarchyGateway.resolveProduct("1", "10", "100"))
+                .expectNext(path)
+                .verifyComplete();
+
+        verifyNoInteractions(productRepository);
+    }
+
+    private void warm() {
+        when(franchiseRepository.findVersionedById("1")).thenReturn(Mono.just(new Versioned<>(franchise(), 1L)));
+        when(branchRepository.findVersionedById("1", "10")).thenReturn(Mono.just(new Versioned<>(
+                Branch.builder().id("10").name("Branch 1").build(), 2L)));
+        cachedFranchiseGateway.findById("1").block();
+        cachedBranchGateway.findById("1", "10").block();
+    }
+
+    private static Franchise franchise() {
+        return Franchise.builder().id("1").name("Franchise 1").build();
+    }
+}
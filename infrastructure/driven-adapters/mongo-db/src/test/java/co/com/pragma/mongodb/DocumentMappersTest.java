@@ -0,0 +1,93 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DocumentMappersTest {
+
+    @Test
+    void testProjectProduct() {
+        Query query = DocumentMappers.projectProduct(new Query());
+
+        assertEquals(new Document("name", 1).append("stock", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void testProjectBranch() {
+        Query query = DocumentMappers.projectBranch(new Query());
+
+        assertEquals(new Document("name", 1).append("address", 1).append("city", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void testProjectFranchise() {
+        Query query = DocumentMappers.projectFranchise(new Query());
+
+        assertEquals(new Document("name", 1).append("description", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void testToProduct() {
+        Product product = DocumentMappers.toProduct(new Document("_id", "1").append("name", "Product 1").append("stock", 10L));
+
+        assertEquals("1", product.getId());
+        assertEquals("Product 1", product.getName());
+        assertEquals(10, product.getStock());
+    }
+
+    @Test
+    void testToProductWithoutStock() {
+        Product product = DocumentMappers.toProduct(new Document("_id", "1").append("name", "Product 1"));
+
+        assertNull(product.getStock());
+    }
+
+    @Test
+    void testToBranch() {
+        Branch branch = DocumentMappers.toBranch(new Document("_id", "1").append("name", "Branch 1")
+                .append("address", "Address").append("city", "City"));
+
+        assertEquals("1", branch.getId());
+        assertEquals("Branch 1", branch.getName());
+        assertEquals("Address", branch.getAddress());
+        assertEquals("City", branch.getCity());
+        assertNotNull(branch.getProducts());
+    }
+
+    @Test
+    void testToFranchise() {
+        Franchise franchise = DocumentMappers.toFranchise(new Document("_id", "1").append("name", "Franchise 1")
+                .append("description", "Description"));
+
+        assertEquals("1", franchise.getId());
+        assertEquals("Franchise 1", franchise.getName());
+        assertEquals("Description", franchise.getDescription());
+        assertNotNull(franchise.getBranches());
+    }
+
+    @Test
+    void testAtVersion() {
+        Criteria criteria = DocumentMappers.atVersion(Criteria.where("_id").is("1"), 3L);
+
+        assertEquals(new Document("_id", "1").append("version", 3L), criteria.getCriteriaObject());
+    }
+
+    @Test
+    void testAtVersionZeroMatchesUnversionedDocuments() {
+        Criteria criteria = DocumentMappers.atVersion(Criteria.where("_id").is("1"), 0L);
+
+        assertEquals(new Document("_id", "1").append("version", new Document("$in", Arrays.asList(0L, null))),
+                criteria.getCriteriaObject());
+    }
+}
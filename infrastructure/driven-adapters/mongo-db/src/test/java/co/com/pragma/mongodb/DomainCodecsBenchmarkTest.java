@@ -0,0 +1,80 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Product;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Decoder;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Compara la decodificación de productos proyectados vía {@link Document} y
+ * {@link DocumentMappers#toProduct(Document)} con la de {@link DomainCodecs}, sobre los mismos bytes BSON
+ * que devuelve el servidor. Imprime la mediana y el p99 por lote y los bytes asignados por documento.
+ * <p>
+ * Es opcional porque solo mide: se ejecuta con {@code -Dbenchmark.codecs=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.codecs", matches = "true")
+class DomainCodecsBenchmarkTest {
+
+    private static final int DOCUMENTS = 10_000;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 500;
+    private static final DecoderContext CONTEXT = DecoderContext.builder().build();
+
+    @Test
+    void benchmarkProductDecoding() {
+        byte[][] documents = new byte[DOCUMENTS][];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Document document = new Document("_id", String.valueOf(i)).append("name", "Producto " + i).append("stock", i);
+            ByteBuffer buffer = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().asNIO();
+            documents[i] = new byte[buffer.remaining()];
+            buffer.get(documents[i]);
+        }
+
+        Decoder<Document> documentCodec = new DocumentCodec();
+        Decoder<Product> productCodec = DomainCodecs.REGISTRY.get(Product.class);
+        measure("document", documents, bytes -> DocumentMappers.toProduct(documentCodec.decode(reader(bytes), CONTEXT)));
+        measure("codec", documents, bytes -> productCodec.decode(reader(bytes), CONTEXT));
+    }
+
+    private static void measure(String decoder, byte[][] documents, Function<byte[], Product> decode) {
+        for (int i = 0; i < WARMUP; i++) {
+            decodeAll(documents, decode);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] samples = new long[ITERATIONS];
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            decodeAll(documents, decode);
+            samples[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        Arrays.sort(samples);
+        System.out.printf(Locale.ROOT, "%-9s p50=%8.1fus p99=%8.1fus docs/s=%12.0f bytes/doc=%6.1f%n", decoder,
+                samples[ITERATIONS / 2] / 1_000.0, samples[ITERATIONS * 99 / 100] / 1_000.0,
+                DOCUMENTS * 1e9 / samples[ITERATIONS / 2], allocated / (double) (ITERATIONS * DOCUMENTS));
+    }
+
+    private static long decodeAll(byte[][] documents, Function<byte[], Product> decode) {
+        long stock = 0;
+        for (byte[] bytes : documents) {
+            stock += decode.apply(bytes).getStock();
+        }
+        return stock;
+    }
+
+    private static BsonBinaryReader reader(byte[] bytes) {
+        return new BsonBinaryReader(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,100 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DomainCodecsTest {
+
+    @Test
+    void testDecodeProduct() {
+        Product product = decode(new Document("_id", "1").append("name", "Product 1").append("stock", 10), Product.class);
+
+        assertEquals("1", product.getId());
+        assertEquals("Product 1", product.getName());
+        assertEquals(10, product.getStock());
+    }
+
+    @Test
+    void testDecodeProductSkipsUnknownFields() {
+        Product product = decode(new Document("_id", "1").append("franchiseId", "franchise1")
+                .append("tags", List.of("a", "b")).append("name", "Product 1")
+                .append("meta", new Document("version", 3L)).append("stock", 10), Product.class);
+
+        assertEquals("1", product.getId());
+        assertEquals("Product 1", product.getName());
+        assertEquals(10, product.getStock());
+    }
+
+    @Test
+    void testDecodeProductNumericStock() {
+        assertEquals(10, decode(new Document("_id", "1").append("stock", 10L), Product.class).getStock());
+        assertEquals(10, decode(new Document("_id", "1").append("stock", 10.0), Product.class).getStock());
+        assertEquals(10, decode(new Document("_id", "1").append("stock", new Decimal128(10)), Product.class).getStock());
+    }
+
+    @Test
+    void testDecodeProductNullValues() {
+        Product product = decode(new Document("_id", "1").append("name", null).append("stock", null), Product.class);
+
+        assertEquals("1", product.getId());
+        assertNull(product.getName());
+        assertNull(product.getStock());
+    }
+
+    @Test
+    void testDecodeBranch() {
+        Branch branch = decode(new Document("_id", "1").append("name", "Branch 1").append("address", "Address")
+                .append("city", "City").append("franchiseId", "franchise1"), Branch.class);
+
+        assertEquals("1", branch.getId());
+        assertEquals("Branch 1", branch.getName());
+        assertEquals("Address", branch.getAddress());
+        assertEquals("City", branch.getCity());
+        assertNotNull(branch.getProducts());
+    }
+
+    @Test
+    void testDecodeFranchise() {
+        Franchise franchise = decode(new Document("_id", "1").append("name", "Franchise 1")
+                .append("description", "Description"), Franchise.class);
+
+        assertEquals("1", franchise.getId());
+        assertEquals("Franchise 1", franchise.getName());
+        assertEquals("Description", franchise.getDescription());
+        assertNotNull(franchise.getBranches());
+    }
+
+    @Test
+    void testEncodeProductRoundTrip() {
+        BsonDocument document = new BsonDocument();
+        DomainCodecs.REGISTRY.get(Product.class).encode(new BsonDocumentWriter(document),
+                new Product("1", "Product 1", 10), EncoderContext.builder().build());
+
+        Product product = DomainCodecs.REGISTRY.get(Product.class)
+                .decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+
+        assertEquals("1", product.getId());
+        assertEquals("Product 1", product.getName());
+        assertEquals(10, product.getStock());
+    }
+
+    private static <T> T decode(Document document, Class<T> type) {
+        BsonDocument bson = document.toBsonDocument(BsonDocument.class, DomainCodecs.REGISTRY);
+        return DomainCodecs.REGISTRY.get(type).decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+    }
+}
@@ -0,0 +1,154 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import com.mongodb.client.result.UpdateResult;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddedBranchRepositoryTest {
+
+    private static final String COLLECTION = "franchise_documents";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private HiLoIdAllocator idAllocator;
+
+    private EmbeddedBranchRepository branchRepository;
+
+    @BeforeEach
+    void setUp() {
+        branchRepository = new EmbeddedBranchRepository(mongoTemplate,
+                CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker"), idAllocator);
+    }
+
+    @Test
+    void testSaveAppendsANewBranch() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.updateFirst(queryCaptor.capture(), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(branchRepository.save("1", Branch.builder().id("10").name("Branch 1").city("City").build()))
+                .expectNextMatches(branch -> branch.getId().equals("10") && branch.getProducts().isEmpty())
+                .verifyComplete();
+
+        assertEquals(new Document("_id", "1").append("branches.id", new Document("$ne", "10")),
+                queryCaptor.getValue().getQueryObject());
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION));
+    }
+
+    @Test
+    void testSaveMissingFranchise() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+
+        StepVerifier.create(branchRepository.save("999", Branch.builder().id("10").name("Branch 1").build()))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void testUpdateBranchFieldsWithExpectedVersionUsesThePositionalOperator() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        Document written = new Document("_id", "1").append("branches", List.of(
+                new Document("id", "10").append("name", "Renamed").append("version", 3L).append("products", List.of())));
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.just(written));
+
+        StepVerifier.create(branchRepository.updateBranchFields("1", "10", Branch.builder().name("Renamed").build(), 2L))
+                .expectNextMatches(branch -> branch.getName().equals("Renamed"))
+                .verifyComplete();
+
+        assertEquals(new Document("id", "10").append("version", 2L), queryCaptor.getValue().getQueryObject()
+                .get("branches", Document.class).get("$elemMatch", Document.class));
+        assertEquals(new Document("branches.$.name", "Renamed"), updateCaptor.getValue().getUpdateObject().get("$set"));
+        assertEquals(new Document("branches.$.version", 1), updateCaptor.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    void testUpdateMissingBranch() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+
+        StepVerifier.create(branchRepository.update("1", Branch.builder().id("10").name("Branch 1").build()))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void testFindVersionedByIdReadsTheVersionWithTheBranch() {
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "10").append("name", "Branch 1").append("version", 2L)));
+
+        StepVerifier.create(branchRepository.findVersionedById("1", "10"))
+                .expectNextMatches(versioned -> versioned.getVersion() == 2L
+                        && versioned.getValue().getName().equals("Branch 1"))
+                .verifyComplete();
+
+        List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(new Document("_id", "$id").append("name", 1).append("address", 1).append("city", 1)
+                .append("version", 1), pipeline.get(pipeline.size() - 1).get("$project"));
+    }
+
+    @Test
+    void testFindAllByFranchiseIdUnwindsTheBranches() {
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "10").append("name", "Branch 1"),
+                        new Document("_id", "11").append("name", "Branch 2")));
+
+        StepVerifier.create(branchRepository.findAllByFranchiseId("1"))
+                .expectNextMatches(branch -> branch.getId().equals("10"))
+                .expectNextMatches(branch -> branch.getId().equals("11"))
+                .verifyComplete();
+
+        List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(new Document("$unwind", "$branches"), pipeline.get(1));
+        assertEquals(new Document("$replaceRoot", new Document("newRoot", "$branches")), pipeline.get(2));
+        assertEquals(new Document("_id", "$id").append("name", 1).append("address", 1).append("city", 1),
+                pipeline.get(3).get("$project"));
+    }
+
+    @Test
+    void testDeleteByIdPullsTheBranch() {
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.updateFirst(any(Query.class), updateCaptor.capture(), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(branchRepository.deleteById("1", "10"))
+                .verifyComplete();
+
+        assertEquals(new Document("branches", new Document("id", "10")), updateCaptor.getValue().getUpdateObject().get("$pull"));
+    }
+}
@@ -0,0 +1,127 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Franchise;
+import com.mongodb.client.result.UpdateResult;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddedFranchiseRepositoryTest {
+
+    private static final String COLLECTION = "franchise_documents";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private HiLoIdAllocator idAllocator;
+
+    private EmbeddedFranchiseRepository franchiseRepository;
+
+    @BeforeEach
+    void setUp() {
+        franchiseRepository = new EmbeddedFranchiseRepository(mongoTemplate,
+                CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker"), idAllocator);
+    }
+
+    @Test
+    void testSaveKeepsTheBranchesOfAnExistingFranchise() {
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.upsert(any(Query.class), updateCaptor.capture(), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(franchiseRepository.save(Franchise.builder().id("1").name("Franchise 1").build()))
+                .expectNextMatches(franchise -> franchise.getId().equals("1") && franchise.getName().equals("Franchise 1"))
+                .verifyComplete();
+
+        Document update = updateCaptor.getValue().getUpdateObject();
+        assertEquals(new Document("branches", List.of()), update.get("$setOnInsert"));
+        assertEquals("Franchise 1", update.get("$set", Document.class).get("name"));
+    }
+
+    @Test
+    void testFindByIdProjectsAwayTheBranches() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(queryCaptor.capture(), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(new Document("_id", "1").append("name", "Franchise 1")));
+
+        StepVerifier.create(franchiseRepository.findById("1"))
+                .expectNextMatches(franchise -> franchise.getName().equals("Franchise 1"))
+                .verifyComplete();
+
+        assertEquals(new Document("name", 1).append("description", 1), queryCaptor.getValue().getFieldsObject());
+    }
+
+    @Test
+    void testFindVersionedByIdReadsTheVersionWithTheFranchise() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(queryCaptor.capture(), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(new Document("_id", "1").append("name", "Franchise 1").append("version", 3L)));
+
+        StepVerifier.create(franchiseRepository.findVersionedById("1"))
+                .expectNextMatches(versioned -> versioned.getVersion() == 3L
+                        && versioned.getValue().getName().equals("Franchise 1"))
+                .verifyComplete();
+
+        assertEquals(new Document("name", 1).append("description", 1).append("version", 1),
+                queryCaptor.getValue().getFieldsObject());
+        verify(mongoTemplate).findOne(any(Query.class), eq(Document.class), eq(COLLECTION));
+    }
+
+    @Test
+    void testFindVersionProjectsOnlyVersion() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(queryCaptor.capture(), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(new Document("version", 3L)));
+
+        StepVerifier.create(franchiseRepository.findVersion("1"))
+                .expectNext(3L)
+                .verifyComplete();
+
+        assertEquals(new Document("version", 1).append("_id", 0), queryCaptor.getValue().getFieldsObject());
+    }
+
+    @Test
+    void testUpdateNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+
+        StepVerifier.create(franchiseRepository.update(Franchise.builder().id("999").name("Franchise").build()))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void testUpdateNameIncrementsTheVersion() {
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.just(new Document("_id", "1").append("name", "Renamed")));
+
+        StepVerifier.create(franchiseRepository.updateName("1", "Renamed"))
+                .expectNextMatches(franchise -> franchise.getName().equals("Renamed"))
+                .verifyComplete();
+
+        assertEquals(new Document("version", 1), updateCaptor.getValue().getUpdateObject().get("$inc"));
+    }
+}
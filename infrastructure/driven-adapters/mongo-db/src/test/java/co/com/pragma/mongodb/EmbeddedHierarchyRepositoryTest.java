@@ -0,0 +1,125 @@
+package co.com.pragma.mongodb;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddedHierarchyRepositoryTest {
+
+    private static final String COLLECTION = "franchise_documents";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private EmbeddedHierarchyRepository hierarchyRepository;
+
+    @BeforeEach
+    void setUp() {
+        hierarchyRepository = new EmbeddedHierarchyRepository(mongoTemplate,
+                CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker"));
+    }
+
+    @Test
+    void testResolveProductFromOneDocument() {
+        Document result = new Document("_id", "1").append("name", "Franchise 1")
+                .append("branch", List.of(new Document("id", "10").append("name", "Branch 1").append("version", 2L)
+                        .append("products", List.of(new Document("id", "100").append("name", "Product 1").append("stock", 5)
+                                .append("version", 7L)))));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(result));
+
+        StepVerifier.create(hierarchyRepository.resolveProduct("1", "10", "100"))
+                .expectNextMatches(path -> path.missingAncestorError() == null
+                        && path.getBranch().getId().equals("10")
+                        && path.getBranchVersion() == 2L
+                        && path.getProduct().getId().equals("100")
+                        && path.getProduct().getStock().equals(5)
+                        && path.getProductVersion() == 7L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveBranchMissingBranch() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "1").append("name", "Franchise 1").append("branch", List.of())));
+
+        StepVerifier.create(hierarchyRepository.resolveBranch("1", "10"))
+                .expectNextMatches(path -> path.getFranchise() != null && path.getBranch() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveMissingFranchise() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(hierarchyRepository.resolveBranch("999", "10"))
+                .expectNextMatches(path -> path.getFranchise() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveProductByNameComparesALiteral() {
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(hierarchyRepository.resolveProductByName("1", "10", "$stock"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Document branch = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(1)
+                .get("$project", Document.class).get("branch", Document.class).get("$map", Document.class)
+                .get("in", Document.class);
+        Document condition = branch.get("products", Document.class).get("$filter", Document.class).get("cond", Document.class);
+        assertEquals(new Document("$eq", List.of("$$product.name", new Document("$literal", "$stock"))), condition);
+    }
+
+    @Test
+    void testMeasureFranchise() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "1").append("name", "Franchise 1")
+                        .append("branchCount", 2).append("productCount", 7)));
+
+        StepVerifier.create(hierarchyRepository.measureFranchise("1"))
+                .expectNextMatches(size -> size.getFranchise().getId().equals("1")
+                        && size.getBranchCount() == 2
+                        && size.getProductCount() == 7)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindBranchesWithProducts() {
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        Document branch = new Document("_id", "10").append("name", "Branch 1")
+                .append("products", List.of(new Document("id", "100").append("name", "Product 1").append("stock", 5)));
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(branch));
+
+        StepVerifier.create(hierarchyRepository.findBranches("1", true, 500, 100))
+                .expectNextMatches(result -> result.getId().equals("10")
+                        && result.getProducts().size() == 1
+                        && result.getProducts().get(0).getId().equals("100"))
+                .verifyComplete();
+
+        List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(new Document("$limit", 500L), pipeline.get(4));
+    }
+}
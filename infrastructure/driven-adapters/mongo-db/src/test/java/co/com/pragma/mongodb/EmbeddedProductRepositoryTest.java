@@ -0,0 +1,245 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import com.mongodb.client.result.UpdateResult;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddedProductRepositoryTest {
+
+    private static final String COLLECTION = "franchise_documents";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private HiLoIdAllocator idAllocator;
+
+    private EmbeddedProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = new EmbeddedProductRepository(mongoTemplate,
+                CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker"), idAllocator);
+    }
+
+    @Test
+    void testSavePushesIntoTheBranchWhileTheNameIsFree() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.updateFirst(queryCaptor.capture(), updateCaptor.capture(), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(productRepository.save("1", "10", new Product("100", "Product 1", 5)))
+                .expectNextMatches(product -> product.getId().equals("100") && product.getStock().equals(5))
+                .verifyComplete();
+
+        Document branch = queryCaptor.getValue().getQueryObject().get("branches", Document.class).get("$elemMatch", Document.class);
+        assertEquals("10", branch.get("id"));
+        assertEquals(new Document("$ne", "Product 1"), branch.get("products.name"));
+        Document update = updateCaptor.getValue().getUpdateObject();
+        assertEquals(new Document("branches.$.products", new Document("id", "100").append("name", "Product 1")
+                .append("stock", 5).append("version", 0L)), update.get("$push"));
+        assertEquals(new Document("branches.$.productsVersion", 1), update.get("$inc"));
+    }
+
+    @Test
+    void testSaveDuplicateName() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "10").append("productsVersion", 3L)));
+
+        StepVerifier.create(productRepository.save("1", "10", new Product("100", "Product 1", 5)))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void testSaveMissingBranch() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(productRepository.save("1", "10", new Product("100", "Product 1", 5)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_BRANCH_NOT_FOUND))
+                .verify();
+    }
+
+    @Test
+    void testAdjustStockUsesArrayFiltersAndGuardsTheStock() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        Document written = new Document("_id", "1").append("branches", List.of(new Document("id", "10")
+                .append("products", List.of(
+                        new Document("id", "99").append("name", "Product 0").append("stock", 1),
+                        new Document("id", "100").append("name", "Product 1").append("stock", 2))))));
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.just(written));
+
+        StepVerifier.create(productRepository.adjustStock("1", "10", "100", -3))
+                .expectNextMatches(product -> product.getId().equals("100") && product.getStock().equals(2))
+                .verifyComplete();
+
+        Document branch = queryCaptor.getValue().getQueryObject().get("branches", Document.class).get("$elemMatch", Document.class);
+        Document product = branch.get("products", Document.class).get("$elemMatch", Document.class);
+        assertEquals(new Document("id", "100").append("stock", new Document("$gte", 3)), product);
+        assertEquals(new Document("branches.$", 1), queryCaptor.getValue().getFieldsObject());
+        Update update = updateCaptor.getValue();
+        assertEquals(new Document("branches.$[branch].products.$[product].stock", -3)
+                        .append("branches.$[branch].products.$[product].version", 1)
+                        .append("branches.$[branch].productsVersion", 1),
+                update.getUpdateObject().get("$inc"));
+        assertEquals(List.of(new Document("branch.id", "10"), new Document("product.id", "100")),
+                update.getArrayFilters().stream().map(filter -> filter.asDocument()).toList());
+    }
+
+    @Test
+    void testAdjustStockInsufficientCompletesEmpty() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+
+        StepVerifier.create(productRepository.adjustStock("1", "10", "100", -3))
+                .verifyComplete();
+    }
+
+    @Test
+    void testUpdateStockWithExpectedVersion() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+
+        StepVerifier.create(productRepository.updateStock("1", "10", "100", 7, 4L))
+                .verifyComplete();
+
+        Document branch = queryCaptor.getValue().getQueryObject().get("branches", Document.class).get("$elemMatch", Document.class);
+        assertEquals(new Document("id", "100").append("version", 4L),
+                branch.get("products", Document.class).get("$elemMatch", Document.class));
+    }
+
+    @Test
+    void testUpdateNameTakenByAnotherProduct() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "101").append("name", "Product 2").append("stock", 1)));
+
+        StepVerifier.create(productRepository.updateName("1", "10", "100", "Product 2"))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void testUpdateNameMissingProductCompletesEmpty() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(COLLECTION))).thenReturn(Mono.empty());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(productRepository.updateName("1", "10", "100", "Product 2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindMaxStockProductsGroupsTheUnwoundProductsByBranch() {
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        Document leader = new Document("_id", "10")
+                .append("branch", new Document("_id", "10").append("name", "Branch 1"))
+                .append("products", new Document("_id", "100").append("name", "Product 1").append("stock", 50));
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(leader));
+
+        StepVerifier.create(productRepository.findMaxStockProductsByFranchise("1"))
+                .expectNextMatches(result -> result.getProduct().getStock().equals(50)
+                        && result.getBranch().getName().equals("Branch 1"))
+                .verifyComplete();
+
+        List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(new Document("$sort", new Document("stock", -1).append("_id", 1)), pipeline.get(4));
+        assertEquals("$branch._id", pipeline.get(5).get("$group", Document.class).get("_id"));
+    }
+
+    @Test
+    void testFindStockRankingPerBranch() {
+        Document group = new Document("_id", "10")
+                .append("branch", new Document("_id", "10").append("name", "Branch 1"))
+                .append("products", List.of(
+                        new Document("_id", "100").append("name", "Product 1").append("stock", 50),
+                        new Document("_id", "101").append("name", "Product 2").append("stock", 20)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(group));
+
+        StepVerifier.create(productRepository.findStockRanking("1", RankingScope.BRANCH, RankingOrder.DESC, 2))
+                .expectNextMatches(ranked -> ranked.getRank() == 1 && ranked.getProduct().getId().equals("100"))
+                .expectNextMatches(ranked -> ranked.getRank() == 2 && ranked.getBranch().getId().equals("10"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindPageByBranchAppliesTheKeysetAsStages() {
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregationCaptor.capture(), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(
+                        new Document("_id", "100").append("name", "A").append("stock", 1),
+                        new Document("_id", "101").append("name", "B").append("stock", 2)));
+
+        StepVerifier.create(productRepository.findPageByBranch("1", "10", new PageQuery(1, null, ListingSort.NAME)))
+                .assertNext(page -> {
+                    assertEquals(1, page.getItems().size());
+                    assertNotNull(page.getNext());
+                })
+                .verifyComplete();
+
+        List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(new Document("$sort", new Document("name", 1)), pipeline.get(pipeline.size() - 2));
+        assertEquals(new Document("$limit", 2L), pipeline.get(pipeline.size() - 1));
+    }
+
+    @Test
+    void testInsertAllReportsRejectedRecords() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(COLLECTION), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "10").append("productsVersion", 1L)));
+        List<ProductImportRecord> records = List.of(
+                ProductImportRecord.builder().line(1).branchId("10").product(new Product("100", "Product 1", 5)).build(),
+                ProductImportRecord.builder().line(2).branchId("10").product(new Product("101", "Product 1", 6)).build());
+
+        StepVerifier.create(productRepository.insertAll("1", records))
+                .expectNextMatches(error -> error.getLine() == 2)
+                .verifyComplete();
+    }
+}
@@ -2,12 +2,18 @@ package co.com.pragma.mongodb;
 
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
+import co.com.pragma.model.ResultPage;
 import com.mongodb.client.result.DeleteResult;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
@@ -18,6 +24,11 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -28,6 +39,9 @@ class FranchiseRepositoryTest {
     @Mock
     private ReactiveMongoTemplate mongoTemplate;
 
+    @Mock
+    private HiLoIdAllocator idAllocator;
+
     private CircuitBreaker circuitBreaker;
     private FranchiseRepository franchiseRepository;
 
@@ -35,7 +49,8 @@ class FranchiseRepositoryTest {
     void setUp() {
         CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
         circuitBreaker = registry.circuitBreaker("mongoCircuitBreaker");
-        franchiseRepository = new FranchiseRepository(mongoTemplate, circuitBreaker);
+        franchiseRepository = new FranchiseRepository(mongoTemplate, circuitBreaker, idAllocator,
+                new BatchingProperties(Duration.ofMillis(50), 100), new SimpleMeterRegistry());
     }
 
     @Test
@@ -57,9 +72,10 @@ class FranchiseRepositoryTest {
 
     @Test
     void testFindById() {
-        FranchiseEntity entity = new FranchiseEntity("1", "Franchise 1", "Description");
+        Document document = new Document("_id", "1").append("name", "Franchise 1").append("description", "Description");
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
         
-        when(mongoTemplate.findById("1", FranchiseEntity.class)).thenReturn(Mono.just(entity));
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Document.class), eq("franchises"))).thenReturn(Flux.just(document));
 
         StepVerifier.create(franchiseRepository.findById("1"))
                 .expectNextMatches(f -> f.getId().equals("1") 
@@ -68,17 +84,61 @@ class FranchiseRepositoryTest {
                         && f.getBranches() != null)
                 .verifyComplete();
 
-        verify(mongoTemplate).findById("1", FranchiseEntity.class);
+        assertEquals(new Document("_id", new Document("$in", List.of("1"))), queryCaptor.getValue().getQueryObject());
+    }
+
+    @Test
+    void testFindVersionedByIdReadsTheVersionWithTheFranchise() {
+        Document document = new Document("_id", "1").append("name", "Franchise 1").append("version", 4L);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.find(queryCaptor.capture(), eq(Document.class), eq("franchises"))).thenReturn(Flux.just(document));
+
+        StepVerifier.create(franchiseRepository.findVersionedById("1"))
+                .expectNextMatches(versioned -> versioned.getVersion() == 4L
+                        && versioned.getValue().getName().equals("Franchise 1"))
+                .verifyComplete();
+
+        assertEquals(new Document("name", 1).append("description", 1).append("version", 1),
+                queryCaptor.getValue().getFieldsObject());
+    }
+
+    @Test
+    void testFindVersionProjectsOnlyVersion() {
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findOne(queryCaptor.capture(), eq(Document.class), eq("franchises")))
+                .thenReturn(Mono.just(new Document("version", 4L)));
+
+        StepVerifier.create(franchiseRepository.findVersion("1"))
+                .expectNext(4L)
+                .verifyComplete();
+
+        assertEquals(new Document("version", 1).append("_id", 0), queryCaptor.getValue().getFieldsObject());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq("franchises"));
     }
 
     @Test
     void testFindByIdNotFound() {
-        when(mongoTemplate.findById("999", FranchiseEntity.class)).thenReturn(Mono.empty());
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("franchises"))).thenReturn(Flux.empty());
 
         StepVerifier.create(franchiseRepository.findById("999"))
                 .verifyComplete();
 
-        verify(mongoTemplate).findById("999", FranchiseEntity.class);
+        verify(mongoTemplate).find(any(Query.class), eq(Document.class), eq("franchises"));
+    }
+
+    @Test
+    void testConcurrentFindByIdShareOneQuery() {
+        Document document = new Document("_id", "1").append("name", "Franchise 1");
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("franchises"))).thenReturn(Flux.just(document));
+
+        StepVerifier.create(Mono.zip(franchiseRepository.findById("1"), franchiseRepository.findById("1")))
+                .expectNextMatches(franchises -> franchises.getT1().getName().equals("Franchise 1")
+                        && franchises.getT1() != franchises.getT2())
+                .verifyComplete();
+
+        verify(mongoTemplate).find(any(Query.class), eq(Document.class), eq("franchises"));
     }
 
     @Test
@@ -94,11 +154,10 @@ class FranchiseRepositoryTest {
     @Test
     void testUpdate() {
         Franchise franchise = Franchise.builder().id("1").name("Updated Franchise").description("Updated Description").build();
-        FranchiseEntity existingEntity = new FranchiseEntity("1", "Franchise 1", "Description");
         FranchiseEntity updatedEntity = new FranchiseEntity("1", "Updated Franchise", "Updated Description");
         
-        when(mongoTemplate.findById("1", FranchiseEntity.class)).thenReturn(Mono.just(existingEntity));
-        when(mongoTemplate.save(any(FranchiseEntity.class))).thenReturn(Mono.just(updatedEntity));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FranchiseEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
 
         StepVerifier.create(franchiseRepository.update(franchise))
                 .expectNextMatches(f -> f.getName().equals("Updated Franchise")
@@ -106,31 +165,52 @@ class FranchiseRepositoryTest {
                         && f.getBranches() != null)
                 .verifyComplete();
 
-        verify(mongoTemplate).findById("1", FranchiseEntity.class);
-        verify(mongoTemplate).save(any(FranchiseEntity.class));
+        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FranchiseEntity.class));
+        verify(mongoTemplate, never()).save(any(FranchiseEntity.class));
     }
 
     @Test
     void testUpdateNotFound() {
         Franchise franchise = Franchise.builder().id("999").name("Updated Franchise").description("Description").build();
         
-        when(mongoTemplate.findById("999", FranchiseEntity.class)).thenReturn(Mono.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FranchiseEntity.class)))
+                .thenReturn(Mono.empty());
 
         StepVerifier.create(franchiseRepository.update(franchise))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException && 
                         e.getMessage().equals(Constants.ERROR_FRANCHISE_NOT_FOUND))
                 .verify();
 
-        verify(mongoTemplate).findById("999", FranchiseEntity.class);
         verify(mongoTemplate, never()).save(any(FranchiseEntity.class));
     }
 
+    @Test
+    void testUpdateName() {
+        FranchiseEntity updatedEntity = new FranchiseEntity("1", "New Name", "Description");
+
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FranchiseEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(franchiseRepository.updateName("1", "New Name"))
+                .expectNextMatches(f -> f.getName().equals("New Name") && "Description".equals(f.getDescription()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testUpdateNameNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FranchiseEntity.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(franchiseRepository.updateName("999", "New Name"))
+                .verifyComplete();
+    }
+
     @Test
     void testFindAll() {
-        FranchiseEntity entity1 = new FranchiseEntity("1", "Franchise 1", "Description 1");
-        FranchiseEntity entity2 = new FranchiseEntity("2", "Franchise 2", "Description 2");
-        
-        when(mongoTemplate.findAll(FranchiseEntity.class)).thenReturn(Flux.just(entity1, entity2));
+        Franchise franchise1 = Franchise.builder().id("1").name("Franchise 1").description("Description 1").build();
+        Franchise franchise2 = Franchise.builder().id("2").name("Franchise 2").description("Description 2").build();
+
+        when(mongoTemplate.execute(eq("franchises"), any())).thenReturn(Flux.just(franchise1, franchise2));
 
         StepVerifier.create(franchiseRepository.findAll())
                 .expectNextMatches(f -> f.getId().equals("1") 
@@ -143,48 +223,79 @@ class FranchiseRepositoryTest {
                         && f.getBranches() != null)
                 .verifyComplete();
 
-        verify(mongoTemplate).findAll(FranchiseEntity.class);
+        verify(mongoTemplate).execute(eq("franchises"), any());
     }
 
     @Test
     void testFindAllEmpty() {
-        when(mongoTemplate.findAll(FranchiseEntity.class)).thenReturn(Flux.empty());
+        when(mongoTemplate.execute(eq("franchises"), any())).thenReturn(Flux.empty());
 
         StepVerifier.create(franchiseRepository.findAll())
                 .verifyComplete();
 
-        verify(mongoTemplate).findAll(FranchiseEntity.class);
+        verify(mongoTemplate).execute(eq("franchises"), any());
     }
 
     @Test
-    void testGetNextId() {
-        SequenceEntity sequence = new SequenceEntity("franchise_sequence", 5L);
-        
-        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
-                .thenReturn(Mono.just(sequence));
+    void testFindPageByNameContinuesAfterCursor() {
+        Document document1 = new Document("_id", "1").append("name", "Alpha");
+        Document document2 = new Document("_id", "7").append("name", "Beta");
+        Document document3 = new Document("_id", "3").append("name", "Beta");
 
-        StepVerifier.create(franchiseRepository.getNextId())
-                .expectNext("5")
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("franchises")))
+                .thenReturn(Flux.just(document1, document2, document3), Flux.just(document3));
+
+        ResultPage<Franchise> first = franchiseRepository.findPage(new PageQuery(2, null, ListingSort.NAME)).block();
+        assertEquals(List.of("1", "7"), first.getItems().stream().map(Franchise::getId).toList());
+
+        StepVerifier.create(franchiseRepository.findPage(new PageQuery(2, first.getNext(), ListingSort.NAME)))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getNext() == null)
                 .verifyComplete();
 
-        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(captor.capture(), eq(Document.class), eq("franchises"));
+        Query firstQuery = captor.getAllValues().get(0);
+        assertEquals(new Document(), firstQuery.getQueryObject());
+        assertEquals(new Document("name", 1).append("_id", 1), firstQuery.getSortObject());
+        assertEquals(3, firstQuery.getLimit());
+        assertEquals(new Document("$or", List.of(
+                        new Document("name", new Document("$gt", "Beta")),
+                        new Document("name", "Beta").append("_id", new Document("$gt", "7")))),
+                captor.getAllValues().get(1).getQueryObject());
     }
 
     @Test
-    void testGetNextIdInitialSequence() {
-        SequenceEntity initialSequence = new SequenceEntity("franchise_sequence", 0L);
-        SequenceEntity incrementedSequence = new SequenceEntity("franchise_sequence", 1L);
-        
-        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
-                .thenReturn(Mono.empty())
-                .thenReturn(Mono.just(incrementedSequence));
-        when(mongoTemplate.save(any(SequenceEntity.class))).thenReturn(Mono.just(initialSequence));
+    void testFindPageRejectsCursorOfAnotherSort() {
+        String idCursor = KeysetPagination.encode(KeysetPagination.Keyset.BY_ID, new Document("_id", "1"));
+
+        StepVerifier.create(franchiseRepository.findPage(new PageQuery(2, idCursor, ListingSort.NAME)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_INVALID_CURSOR))
+                .verify();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testFindPageLastPageHasNoCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("franchises")))
+                .thenReturn(Flux.just(new Document("_id", "1").append("name", "Alpha")));
+
+        ResultPage<Franchise> page = franchiseRepository.findPage(new PageQuery(5, null, ListingSort.ID)).block();
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void testGetNextId() {
+        when(idAllocator.nextId("franchise_sequence")).thenReturn(Mono.just(5L));
 
         StepVerifier.create(franchiseRepository.getNextId())
-                .expectNext("1")
+                .expectNext("5")
                 .verifyComplete();
 
-        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
-        verify(mongoTemplate).save(any(SequenceEntity.class));
+        verify(idAllocator).nextId("franchise_sequence");
+        verifyNoInteractions(mongoTemplate);
     }
 }
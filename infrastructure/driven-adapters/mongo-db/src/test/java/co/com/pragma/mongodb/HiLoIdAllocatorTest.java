@@ -0,0 +1,115 @@
+package co.com.pragma.mongodb;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HiLoIdAllocatorTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private HiLoIdAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        CircuitBreaker circuitBreaker = registry.circuitBreaker("mongoCircuitBreaker");
+        allocator = new HiLoIdAllocator(mongoTemplate, circuitBreaker, new SequenceProperties(10, 2));
+    }
+
+    @Test
+    void testNextIdServesBlockLocally() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
+                .thenReturn(Mono.just(new SequenceEntity("product_sequence", 10L)));
+
+        StepVerifier.create(Flux.range(0, 7).concatMap(i -> allocator.nextId("product_sequence")))
+                .expectNext(1L, 2L, 3L, 4L, 5L, 6L, 7L)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
+    }
+
+    @Test
+    void testNextIdPrefetchesNextBlock() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
+                .thenReturn(Mono.just(new SequenceEntity("product_sequence", 10L)))
+                .thenReturn(Mono.just(new SequenceEntity("product_sequence", 30L)));
+
+        StepVerifier.create(Flux.range(0, 8).concatMap(i -> allocator.nextId("product_sequence")))
+                .expectNextCount(8)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
+
+        StepVerifier.create(Flux.range(0, 3).concatMap(i -> allocator.nextId("product_sequence")))
+                .expectNext(9L, 10L, 21L)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
+    }
+
+    @Test
+    void testNextIdRetriesAfterReservationError() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
+                .thenReturn(Mono.error(new RuntimeException("Database error")))
+                .thenReturn(Mono.just(new SequenceEntity("branch_sequence", 10L)));
+
+        StepVerifier.create(allocator.nextId("branch_sequence"))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        StepVerifier.create(allocator.nextId("branch_sequence"))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testReserveIncrementsByCount() {
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
+                .thenReturn(Mono.just(new SequenceEntity("product_sequence", 50L)));
+
+        StepVerifier.create(allocator.reserve("product_sequence", 50))
+                .expectNext(50L)
+                .verifyComplete();
+
+        assertEquals(new Document("$inc", new Document("sequence", 50L)), updateCaptor.getValue().getUpdateObject());
+    }
+
+    @Test
+    void testIdBlockSequenceIsUniqueUnderConcurrency() {
+        AtomicLong sequence = new AtomicLong();
+        IdBlockSequence blockSequence = new IdBlockSequence(
+                count -> Mono.fromSupplier(() -> sequence.addAndGet(count)).subscribeOn(Schedulers.parallel()), 50, 10);
+
+        StepVerifier.create(Flux.range(0, 5000)
+                        .flatMap(i -> blockSequence.next().subscribeOn(Schedulers.parallel()))
+                        .collect(HashSet<Long>::new, HashSet::add))
+                .expectNextMatches(ids -> ids.size() == 5000 && ids.stream().allMatch(id -> id >= 1 && id <= sequence.get()))
+                .verifyComplete();
+    }
+}
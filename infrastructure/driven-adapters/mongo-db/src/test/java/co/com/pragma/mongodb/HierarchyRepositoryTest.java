@@ -0,0 +1,197 @@
+package co.com.pragma.mongodb;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HierarchyRepositoryTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private HierarchyRepository hierarchyRepository;
+
+    @BeforeEach
+    void setUp() {
+        hierarchyRepository = new HierarchyRepository(mongoTemplate,
+                CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker"));
+    }
+
+    @Test
+    void testResolveProductFullPath() {
+        Document result = new Document("_id", "1").append("name", "Franchise 1").append("description", "Description")
+                .append("branch", List.of(new Document("_id", "10").append("name", "Branch 1").append("version", 2L)))
+                .append("product", List.of(new Document("_id", "100").append("name", "Product 1").append("stock", 5)
+                        .append("version", 7L)));
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.just(result));
+
+        StepVerifier.create(hierarchyRepository.resolveProduct("1", "10", "100"))
+                .expectNextMatches(path -> path.missingAncestorError() == null
+                        && path.getFranchise().getName().equals("Franchise 1")
+                        && path.getBranch().getId().equals("10")
+                        && path.getBranchVersion() == 2L
+                        && path.getProduct().getStock().equals(5)
+                        && path.getProductVersion() == 7L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveBranchMissingBranch() {
+        Document result = new Document("_id", "1").append("name", "Franchise 1").append("branch", List.of());
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.just(result));
+
+        StepVerifier.create(hierarchyRepository.resolveBranch("1", "999"))
+                .expectNextMatches(path -> path.getFranchise() != null
+                        && path.getBranch() == null
+                        && path.getProduct() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveMissingFranchiseEmitsEmptyPath() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(hierarchyRepository.resolveProductByName("999", "1", "Product 1"))
+                .expectNextMatches(path -> path.getFranchise() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void testResolveBranchPipeline() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(hierarchyRepository.resolveBranch("1", "10"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        List<Document> pipeline = capturePipeline();
+        assertEquals(List.of("$match", "$project", "$lookup"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        Document lookup = pipeline.get(2).get("$lookup", Document.class);
+        assertEquals("branches", lookup.getString("from"));
+        assertEquals(new Document("_id", "10").append("franchiseId", "1"),
+                lookup.getList("pipeline", Document.class).get(0).get("$match"));
+        assertEquals(1, lookup.getList("pipeline", Document.class).get(2).get("$project", Document.class).get("version"));
+    }
+
+    @Test
+    void testResolveProductByNamePipeline() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(hierarchyRepository.resolveProductByName("1", "10", "Product 1"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        List<Document> pipeline = capturePipeline();
+        assertEquals(4, pipeline.size());
+        Document lookup = pipeline.get(3).get("$lookup", Document.class);
+        assertEquals("products", lookup.getString("from"));
+        assertEquals(new Document("franchiseId", "1").append("branchId", "10").append("name", "Product 1"),
+                lookup.getList("pipeline", Document.class).get(0).get("$match"));
+        assertEquals(1, lookup.getList("pipeline", Document.class).get(2).get("$project", Document.class).get("version"));
+    }
+
+    @Test
+    void testMeasureFranchise() {
+        Document result = new Document("_id", "1").append("name", "Franchise 1")
+                .append("branchCount", List.of(new Document("count", 3)))
+                .append("productCount", List.of());
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.just(result));
+
+        StepVerifier.create(hierarchyRepository.measureFranchise("1"))
+                .expectNextMatches(size -> size.getFranchise().getName().equals("Franchise 1")
+                        && size.getBranchCount() == 3
+                        && size.getProductCount() == 0)
+                .verifyComplete();
+
+        List<Document> pipeline = capturePipeline();
+        assertEquals(List.of("$match", "$project", "$lookup", "$lookup"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        Document productCount = pipeline.get(3).get("$lookup", Document.class);
+        assertEquals("products", productCount.getString("from"));
+        assertEquals(List.of(new Document("$match", new Document("franchiseId", "1")), new Document("$count", "count")),
+                productCount.getList("pipeline", Document.class));
+    }
+
+    @Test
+    void testMeasureMissingFranchiseIsEmpty() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(hierarchyRepository.measureFranchise("999"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindBranchesWithProducts() {
+        Document branch = new Document("_id", "10").append("name", "Branch 1")
+                .append("products", List.of(new Document("_id", "100").append("name", "Product 1").append("stock", 5)));
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("branches"), eq(Document.class)))
+                .thenReturn(Flux.just(branch));
+
+        StepVerifier.create(hierarchyRepository.findBranches("1", true, 50, 200))
+                .expectNextMatches(result -> result.getId().equals("10")
+                        && result.getProducts().size() == 1
+                        && result.getProducts().get(0).getStock().equals(5))
+                .verifyComplete();
+
+        List<Document> pipeline = captureBranchPipeline();
+        assertEquals(List.of("$match", "$sort", "$limit", "$project", "$lookup"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        assertEquals(50L, pipeline.get(2).get("$limit", Number.class).longValue());
+        Document lookup = pipeline.get(4).get("$lookup", Document.class);
+        assertEquals("branchId", lookup.getString("foreignField"));
+        assertEquals(new Document("$limit", 200), lookup.getList("pipeline", Document.class).get(2));
+    }
+
+    @Test
+    void testFindBranchesWithoutProducts() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("branches"), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "10").append("name", "Branch 1")));
+
+        StepVerifier.create(hierarchyRepository.findBranches("1", false, 50, 200))
+                .expectNextMatches(result -> result.getId().equals("10") && result.getProducts().isEmpty())
+                .verifyComplete();
+
+        assertEquals(4, captureBranchPipeline().size());
+    }
+
+    private List<Document> capturePipeline() {
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq("franchises"), eq(Document.class));
+        return captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
+
+    private List<Document> captureBranchPipeline() {
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq("branches"), eq(Document.class));
+        return captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
+}
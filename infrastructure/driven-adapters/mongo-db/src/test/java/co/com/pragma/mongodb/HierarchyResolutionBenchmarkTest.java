@@ -0,0 +1,158 @@
+package co.com.pragma.mongodb;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara sobre un mongod embebido la resolución de rutas con la agregación de {@link HierarchyRepository}
+ * y con {@link CachedHierarchyGateway} con la franquicia y las sucursales ya en caché, para la ruta de
+ * sucursal (alta de producto) y la de producto por nombre. Imprime la mediana y el p99 de cada camino y
+ * comprueba que ambos resuelven la misma ruta.
+ * <p>
+ * Es opcional porque descarga y arranca un mongod: se ejecuta con {@code -Dbenchmark.hierarchy=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.hierarchy", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HierarchyResolutionBenchmarkTest {
+
+    private static final String FRANCHISE_ID = "franchise-1";
+    private static final int BRANCHES = 100;
+    private static final int PRODUCTS_PER_BRANCH = 20;
+    private static final int WARMUP = 100;
+    private static final int ITERATIONS = 1000;
+
+    private TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private MongoClient client;
+    private ReactiveMongoTemplate template;
+    private HierarchyRepository aggregation;
+    private CachedHierarchyGateway cached;
+
+    @BeforeAll
+    void startMongo() {
+        mongod = Mongod.instance().start(Version.Main.V6_0);
+        client = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+        template = new ReactiveMongoTemplate(client, "benchmark_hierarchy");
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker");
+        HiLoIdAllocator idAllocator = new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100));
+        BatchingProperties batching = new BatchingProperties(Duration.ofMillis(1), 100);
+        StockLeaderRepository stockLeaders = new StockLeaderRepository(template, circuitBreaker,
+                new StockLeaderProperties(Duration.ofMillis(500), Duration.ofMinutes(10), 20));
+        CacheProperties cacheProperties = new CacheProperties(10_000, Duration.ofMinutes(5));
+        CachedFranchiseGateway franchises = new CachedFranchiseGateway(new FranchiseRepository(template, circuitBreaker,
+                idAllocator, batching, new SimpleMeterRegistry()), cacheProperties, new SimpleMeterRegistry());
+        CachedBranchGateway branches = new CachedBranchGateway(new BranchRepository(template, circuitBreaker,
+                idAllocator, stockLeaders, batching, new SimpleMeterRegistry()), cacheProperties, new SimpleMeterRegistry());
+        aggregation = new HierarchyRepository(template, circuitBreaker);
+        cached = new CachedHierarchyGateway(aggregation, franchises, branches,
+                new ProductRepository(template, circuitBreaker, idAllocator, stockLeaders));
+        new MongoIndexInitializer(template, new MockEnvironment()).ensureIndexes().block();
+        seed();
+        franchises.findById(FRANCHISE_ID).block();
+        for (int branch = 0; branch < BRANCHES; branch++) {
+            branches.findById(FRANCHISE_ID, branchId(branch)).block();
+        }
+    }
+
+    @AfterAll
+    void stopMongo() {
+        client.close();
+        mongod.close();
+    }
+
+    @Test
+    void benchmarkResolveBranch() {
+        assertEquals(aggregation.resolveBranch(FRANCHISE_ID, branchId(0)).block().getBranchVersion(),
+                cached.resolveBranch(FRANCHISE_ID, branchId(0)).block().getBranchVersion());
+
+        report("branch", "aggregation", measure(i -> aggregation.resolveBranch(FRANCHISE_ID, branchId(i)).then()));
+        report("branch", "cached", measure(i -> cached.resolveBranch(FRANCHISE_ID, branchId(i)).then()));
+    }
+
+    @Test
+    void benchmarkResolveProductByName() {
+        assertEquals(aggregation.resolveProductByName(FRANCHISE_ID, branchId(0), productName(0)).block().getProduct().getId(),
+                cached.resolveProductByName(FRANCHISE_ID, branchId(0), productName(0)).block().getProduct().getId());
+
+        report("product", "aggregation", measure(i ->
+                aggregation.resolveProductByName(FRANCHISE_ID, branchId(i), productName(i)).then()));
+        report("product", "cached", measure(i ->
+                cached.resolveProductByName(FRANCHISE_ID, branchId(i), productName(i)).then()));
+    }
+
+    private static long[] measure(IntFunction<Mono<Void>> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.apply(i).block();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.apply(i).block();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void report(String route, String path, long[] samples) {
+        System.out.printf(Locale.ROOT, "hierarchy %-8s %-12s p50=%9.1fus p99=%9.1fus%n", route, path,
+                samples[samples.length / 2] / 1_000.0, samples[samples.length * 99 / 100] / 1_000.0);
+    }
+
+    private static String branchId(int i) {
+        return FRANCHISE_ID + "-" + (i % BRANCHES);
+    }
+
+    private static String productName(int i) {
+        return "Product " + (i % PRODUCTS_PER_BRANCH);
+    }
+
+    private void seed() {
+        List<Document> branchDocuments = new ArrayList<>();
+        List<Document> productDocuments = new ArrayList<>();
+        for (int branch = 0; branch < BRANCHES; branch++) {
+            branchDocuments.add(new Document(DocumentMappers.FIELD_ID, branchId(branch))
+                    .append("franchiseId", FRANCHISE_ID)
+                    .append(DocumentMappers.FIELD_NAME, "Branch " + branch)
+                    .append(DocumentMappers.FIELD_VERSION, 1L));
+            for (int product = 0; product < PRODUCTS_PER_BRANCH; product++) {
+                productDocuments.add(new Document(DocumentMappers.FIELD_ID, branchId(branch) + "-" + product)
+                        .append("franchiseId", FRANCHISE_ID)
+                        .append("branchId", branchId(branch))
+                        .append(DocumentMappers.FIELD_NAME, productName(product))
+                        .append(DocumentMappers.FIELD_STOCK, product)
+                        .append(DocumentMappers.FIELD_VERSION, 1L));
+            }
+        }
+        template.insert(new Document(DocumentMappers.FIELD_ID, FRANCHISE_ID).append(DocumentMappers.FIELD_NAME, FRANCHISE_ID)
+                                .append(DocumentMappers.FIELD_VERSION, 1L),
+                        DocumentMappers.FRANCHISES_COLLECTION)
+                .thenMany(template.insert(branchDocuments, DocumentMappers.BRANCHES_COLLECTION))
+                .thenMany(template.insert(productDocuments, DocumentMappers.PRODUCTS_COLLECTION))
+                .blockLast();
+    }
+}
@@ -0,0 +1,261 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba sobre un mongod embebido que las consultas de los repositorios usan los índices que declara
+ * {@link MongoIndexInitializer}. Cada consulta se captura con un {@link CommandListener} tal como la envía
+ * el repositorio y se repite con {@code explain}: el plan ganador no debe tener {@code COLLSCAN}.
+ * <p>
+ * Es opcional porque descarga y arranca un mongod: se ejecuta con {@code -Dbenchmark.indexes=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.indexes", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IndexUsageTest {
+
+    private static final String DATABASE = "index_usage";
+    private static final String FRANCHISE_ID = "1";
+    private static final int BRANCHES = 5;
+    private static final int PRODUCTS_PER_BRANCH = 200;
+
+    private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+    private TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private MongoClient client;
+    private FranchiseRepository franchises;
+    private BranchRepository branches;
+    private ProductRepository products;
+    private StockLeaderRepository stockLeaders;
+
+    @BeforeAll
+    void startMongo() {
+        mongod = Mongod.instance().start(Version.Main.V6_0);
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString("mongodb://" + mongod.current().getServerAddress()))
+                .addCommandListener(new CommandListener() {
+                    @Override
+                    public void commandStarted(CommandStartedEvent event) {
+                        // el documento del evento solo es válido durante la llamada
+                        commands.add(BsonDocument.parse(event.getCommand()
+                                .toJson(JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build())));
+                    }
+                })
+                .build());
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(client, DATABASE);
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker");
+        HiLoIdAllocator idAllocator = new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100));
+        BatchingProperties batching = new BatchingProperties(Duration.ofMillis(1), 100);
+        stockLeaders = new StockLeaderRepository(template, circuitBreaker,
+                new StockLeaderProperties(Duration.ofMillis(500), Duration.ofMinutes(10), 20));
+        franchises = new FranchiseRepository(template, circuitBreaker, idAllocator, batching, new SimpleMeterRegistry());
+        branches = new BranchRepository(template, circuitBreaker, idAllocator, stockLeaders, batching, new SimpleMeterRegistry());
+        products = new ProductRepository(template, circuitBreaker, idAllocator, stockLeaders);
+
+        new MongoIndexInitializer(template, new MockEnvironment()).ensureIndexes().block();
+        seed(template);
+        stockLeaders.rebuild(FRANCHISE_ID).block();
+    }
+
+    @AfterAll
+    void stopMongo() {
+        client.close();
+        mongod.close();
+    }
+
+    @Test
+    void productByIdUsesAnIndex() {
+        assertIndexScan(explain("find", DocumentMappers.PRODUCTS_COLLECTION,
+                () -> products.findById(FRANCHISE_ID, "2", productId(2, 17))), null);
+    }
+
+    @Test
+    void productByNameUsesTheUniqueNameIndex() {
+        assertIndexScan(explain("find", DocumentMappers.PRODUCTS_COLLECTION,
+                () -> products.findByName(FRANCHISE_ID, "2", "Product 17")), "franchise_branch_name_unique");
+    }
+
+    @Test
+    void productsOfBranchUseAnIndex() {
+        assertIndexScan(explain("find", DocumentMappers.PRODUCTS_COLLECTION,
+                () -> products.findAllByBranch(FRANCHISE_ID, "3").then()), null);
+    }
+
+    @Test
+    void productPageByIdUsesTheBranchIdIndex() {
+        assertIndexScan(explain("find", DocumentMappers.PRODUCTS_COLLECTION,
+                        () -> products.findPageByBranch(FRANCHISE_ID, "3", new PageQuery(20, null, ListingSort.ID))),
+                "franchise_branch_id");
+    }
+
+    @Test
+    void stockAdjustmentUsesAnIndex() {
+        assertIndexScan(explain("findAndModify", DocumentMappers.PRODUCTS_COLLECTION,
+                () -> products.adjustStock(FRANCHISE_ID, "1", productId(1, 5), -1)), null);
+    }
+
+    @Test
+    void maxStockRecomputeFollowsTheStockIndex() {
+        Document explain = explain("aggregate", DocumentMappers.PRODUCTS_COLLECTION,
+                () -> stockLeaders.rebuild(FRANCHISE_ID));
+        assertIndexScan(explain, "franchise_stock_desc");
+        // el índice ya entrega el orden por stock: no hay un SORT bloqueante
+        assertFalse(winningPlanStages(explain).stages().contains("SORT"), explain.toJson());
+    }
+
+    @Test
+    void stockLeadersOfFranchiseUseTheLeaderIndex() {
+        assertIndexScan(explain("find", StockLeaderRepository.STOCK_LEADERS_COLLECTION,
+                () -> stockLeaders.findByFranchise(FRANCHISE_ID).then()), "franchise_branch_unique");
+    }
+
+    @Test
+    void branchLookupUsesAnIndex() {
+        assertIndexScan(explain("find", DocumentMappers.BRANCHES_COLLECTION,
+                () -> branches.findById(FRANCHISE_ID, "2")), null);
+    }
+
+    @Test
+    void franchisePageByNameUsesTheNameIndex() {
+        assertIndexScan(explain("find", DocumentMappers.FRANCHISES_COLLECTION,
+                () -> franchises.findPage(new PageQuery(20, null, ListingSort.NAME))), "name_id");
+    }
+
+    /**
+     * Ejecuta la operación, toma el primer comando {@code command} que envió sobre {@code collection} y lo
+     * repite con {@code explain}.
+     */
+    private Document explain(String command, String collection, Supplier<Mono<?>> operation) {
+        commands.clear();
+        operation.get().block();
+        BsonDocument sent = commands.stream()
+                .filter(candidate -> candidate.getFirstKey().equals(command)
+                        && new BsonString(collection).equals(candidate.get(command)))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + command + " was sent to " + collection));
+        BsonDocument explained = new BsonDocument();
+        sent.forEach((key, value) -> {
+            // metadatos de sesión y de conexión que explain no acepta
+            if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+                explained.append(key, value);
+            }
+        });
+        return Mono.from(client.getDatabase(DATABASE).runCommand(new BsonDocument("explain", explained)
+                        .append("verbosity", new BsonString("queryPlanner"))))
+                .block();
+    }
+
+    private static void assertIndexScan(Document explain, String expectedIndex) {
+        PlanStages plan = winningPlanStages(explain);
+        assertFalse(plan.stages().contains("COLLSCAN"), explain.toJson());
+        assertTrue(plan.stages().contains("IXSCAN") || plan.stages().contains("IDHACK"), explain.toJson());
+        if (expectedIndex != null) {
+            assertTrue(plan.indexes().contains(expectedIndex), explain.toJson());
+        }
+    }
+
+    /**
+     * Etapas e índices de los planes ganadores; en una agregación el plan está dentro de su primera etapa.
+     */
+    private static PlanStages winningPlanStages(Document explain) {
+        List<Object> plans = new ArrayList<>();
+        collect(explain, "winningPlan", plans);
+        List<Object> stages = new ArrayList<>();
+        List<Object> indexes = new ArrayList<>();
+        plans.forEach(plan -> {
+            collect(plan, "stage", stages);
+            collect(plan, "indexName", indexes);
+        });
+        return new PlanStages(toStrings(stages), toStrings(indexes));
+    }
+
+    private static void collect(Object node, String field, List<Object> found) {
+        if (node instanceof Map<?, ?> map) {
+            map.forEach((key, value) -> {
+                if (field.equals(key)) {
+                    found.add(value);
+                }
+                collect(value, field, found);
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(element -> collect(element, field, found));
+        }
+    }
+
+    private static Set<String> toStrings(List<Object> values) {
+        Set<String> strings = new HashSet<>();
+        values.stream().filter(String.class::isInstance).map(String.class::cast).forEach(strings::add);
+        return strings;
+    }
+
+    private static String productId(int branch, int product) {
+        return String.valueOf(branch * PRODUCTS_PER_BRANCH + product);
+    }
+
+    private static void seed(ReactiveMongoTemplate template) {
+        List<Document> branchDocuments = new ArrayList<>();
+        List<Document> productDocuments = new ArrayList<>();
+        for (int branch = 0; branch < BRANCHES; branch++) {
+            branchDocuments.add(new Document(DocumentMappers.FIELD_ID, String.valueOf(branch))
+                    .append("franchiseId", FRANCHISE_ID)
+                    .append(DocumentMappers.FIELD_NAME, "Branch " + branch));
+            for (int product = 0; product < PRODUCTS_PER_BRANCH; product++) {
+                productDocuments.add(new Document(DocumentMappers.FIELD_ID, productId(branch, product))
+                        .append("franchiseId", FRANCHISE_ID)
+                        .append("branchId", String.valueOf(branch))
+                        .append(DocumentMappers.FIELD_NAME, "Product " + product)
+                        .append(DocumentMappers.FIELD_STOCK, product));
+            }
+        }
+        Flux.range(0, 50)
+                .map(franchise -> new Document(DocumentMappers.FIELD_ID, String.valueOf(franchise + 1))
+                        .append(DocumentMappers.FIELD_NAME, "Franchise " + franchise))
+                .collectList()
+                .flatMapMany(franchiseDocuments -> template.insert(franchiseDocuments, DocumentMappers.FRANCHISES_COLLECTION))
+                .thenMany(template.insert(branchDocuments, DocumentMappers.BRANCHES_COLLECTION))
+                .thenMany(template.insert(productDocuments, DocumentMappers.PRODUCTS_COLLECTION))
+                .blockLast();
+    }
+
+    private record PlanStages(Set<String> stages, Set<String> indexes) {
+    }
+}
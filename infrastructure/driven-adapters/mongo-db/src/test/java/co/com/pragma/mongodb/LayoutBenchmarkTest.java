@@ -0,0 +1,186 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.gateways.BranchGateway;
+import co.com.pragma.model.gateways.FranchiseGateway;
+import co.com.pragma.model.gateways.HierarchyGateway;
+import co.com.pragma.model.gateways.ProductGateway;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara la disposición por colecciones con la embebida de {@link EmbeddedDocuments} sobre un mongod
+ * embebido, con la misma franquicia sembrada en cada una. Mide lectura de la jerarquía, ajuste de stock y
+ * consulta de máximo stock, e imprime la mediana y el p99 de cada carga.
+ * <p>
+ * Es opcional porque descarga y arranca un mongod: se ejecuta con {@code -Dbenchmark.layouts=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.layouts", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LayoutBenchmarkTest {
+
+    private static final String FRANCHISE_ID = "1";
+    private static final int BRANCHES = 20;
+    private static final int PRODUCTS_PER_BRANCH = 50;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2000;
+
+    private TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private MongoClient client;
+    private Layout collections;
+    private Layout embedded;
+    private StockLeaderRepository stockLeaders;
+
+    @BeforeAll
+    void startMongo() {
+        mongod = Mongod.instance().start(Version.Main.V6_0);
+        client = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+        collections = collectionLayout(new ReactiveMongoTemplate(client, "benchmark_collections"));
+        embedded = embeddedLayout(new ReactiveMongoTemplate(client, "benchmark_embedded"));
+        collections.seed();
+        embedded.seed();
+        // el modelo de lectura de líderes se refresca fuera de las escrituras
+        stockLeaders.refreshStale().block();
+    }
+
+    @AfterAll
+    void stopMongo() {
+        client.close();
+        mongod.close();
+    }
+
+    @Test
+    void benchmarkHierarchyReads() {
+        compare("read", layout -> () -> {
+            int branch = randomBranch();
+            return layout.hierarchy().resolveProduct(FRANCHISE_ID, String.valueOf(branch), randomProduct(branch)).then();
+        });
+    }
+
+    @Test
+    void benchmarkStockWrites() {
+        compare("write", layout -> () -> {
+            int branch = randomBranch();
+            return layout.products().adjustStock(FRANCHISE_ID, String.valueOf(branch), randomProduct(branch), 1).then();
+        });
+    }
+
+    @Test
+    void benchmarkMaxStock() {
+        compare("max-stock", layout -> () -> layout.products()
+                .findMaxStockProductsByFranchise(FRANCHISE_ID).then());
+        assertEquals(collections.products().findMaxStockProductsByFranchise(FRANCHISE_ID).count().block(),
+                embedded.products().findMaxStockProductsByFranchise(FRANCHISE_ID).count().block());
+    }
+
+    private void compare(String workload, Function<Layout, Supplier<Mono<Void>>> operation) {
+        for (Layout layout : List.of(collections, embedded)) {
+            long[] samples = measure(operation.apply(layout));
+            System.out.printf(Locale.ROOT, "%-10s %-12s p50=%8.1fus p99=%8.1fus%n", workload, layout.name(),
+                    samples[samples.length / 2] / 1_000.0, samples[samples.length * 99 / 100] / 1_000.0);
+        }
+    }
+
+    private static long[] measure(Supplier<Mono<Void>> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.get().block();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.get().block();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static int randomBranch() {
+        return ThreadLocalRandom.current().nextInt(BRANCHES);
+    }
+
+    /**
+     * Los IDs de producto son únicos en toda la franquicia, como los asigna la secuencia.
+     */
+    private static String productId(int branch, int product) {
+        return String.valueOf(branch * PRODUCTS_PER_BRANCH + product);
+    }
+
+    private static String randomProduct(int branch) {
+        return productId(branch, ThreadLocalRandom.current().nextInt(PRODUCTS_PER_BRANCH));
+    }
+
+    private Layout collectionLayout(ReactiveMongoTemplate template) {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        HiLoIdAllocator idAllocator = new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100));
+        BatchingProperties batching = new BatchingProperties(Duration.ofMillis(1), 100);
+        stockLeaders = new StockLeaderRepository(template, circuitBreaker,
+                new StockLeaderProperties(Duration.ofMillis(500), Duration.ofMinutes(10), 20));
+        new MongoIndexInitializer(template, new MockEnvironment()).ensureIndexes().block();
+        return new Layout("collections",
+                new FranchiseRepository(template, circuitBreaker, idAllocator, batching, new SimpleMeterRegistry()),
+                new BranchRepository(template, circuitBreaker, idAllocator, stockLeaders, batching, new SimpleMeterRegistry()),
+                new ProductRepository(template, circuitBreaker, idAllocator, stockLeaders),
+                new HierarchyRepository(template, circuitBreaker));
+    }
+
+    private static Layout embeddedLayout(ReactiveMongoTemplate template) {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        HiLoIdAllocator idAllocator = new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100));
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles(EmbeddedDocuments.PROFILE);
+        new MongoIndexInitializer(template, environment).ensureIndexes().block();
+        return new Layout("embedded",
+                new EmbeddedFranchiseRepository(template, circuitBreaker, idAllocator),
+                new EmbeddedBranchRepository(template, circuitBreaker, idAllocator),
+                new EmbeddedProductRepository(template, circuitBreaker, idAllocator),
+                new EmbeddedHierarchyRepository(template, circuitBreaker));
+    }
+
+    private static CircuitBreaker circuitBreaker() {
+        return CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker");
+    }
+
+    private record Layout(String name, FranchiseGateway franchises, BranchGateway branches,
+                          ProductGateway products, HierarchyGateway hierarchy) {
+
+        void seed() {
+            franchises.save(Franchise.builder().id(FRANCHISE_ID).name("Benchmark").build())
+                    .thenMany(Flux.range(0, BRANCHES))
+                    .concatMap(branch -> branches.save(FRANCHISE_ID, Branch.builder()
+                                    .id(String.valueOf(branch)).name("Branch " + branch).build())
+                            .thenMany(Flux.range(0, PRODUCTS_PER_BRANCH))
+                            .concatMap(product -> products.save(FRANCHISE_ID, String.valueOf(branch),
+                                    new Product(productId(branch, product), "Product " + product, product))))
+                    .blockLast();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductWithBranch;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara sobre un mongod embebido la consulta de máximo stock por sucursal original, una búsqueda de
+ * sucursales seguida de una consulta de productos por sucursal con el máximo elegido en memoria, con la
+ * lectura actual de {@link ProductRepository#findMaxStockProductsByFranchise(String)}, para franquicias de
+ * 10, 100 y 1000 sucursales. Imprime la mediana y el p99 de cada camino y comprueba que ambos devuelven los
+ * mismos productos.
+ * <p>
+ * Es opcional porque descarga y arranca un mongod: se ejecuta con {@code -Dbenchmark.max-stock=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.max-stock", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MaxStockBenchmarkTest {
+
+    private static final int[] BRANCH_COUNTS = {10, 100, 1000};
+    private static final int PRODUCTS_PER_BRANCH = 20;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 100;
+
+    private TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private MongoClient client;
+    private ReactiveMongoTemplate template;
+    private ProductRepository products;
+
+    @BeforeAll
+    void startMongo() {
+        mongod = Mongod.instance().start(Version.Main.V6_0);
+        client = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+        template = new ReactiveMongoTemplate(client, "benchmark_max_stock");
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker");
+        StockLeaderRepository stockLeaders = new StockLeaderRepository(template, circuitBreaker,
+                new StockLeaderProperties(Duration.ofMillis(500), Duration.ofMinutes(10), 20));
+        products = new ProductRepository(template, circuitBreaker,
+                new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100)), stockLeaders);
+        new MongoIndexInitializer(template, new MockEnvironment()).ensureIndexes().block();
+        for (int branches : BRANCH_COUNTS) {
+            seed(franchiseId(branches), branches);
+            stockLeaders.rebuild(franchiseId(branches)).block();
+        }
+    }
+
+    @AfterAll
+    void stopMongo() {
+        client.close();
+        mongod.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1000})
+    void benchmarkMaxStock(int branches) {
+        String franchiseId = franchiseId(branches);
+        Map<String, String> expected = leaders(perBranchQueries(franchiseId));
+        assertEquals(branches, expected.size());
+        assertEquals(expected, leaders(products.findMaxStockProductsByFranchise(franchiseId)));
+
+        report(branches, "per-branch", measure(() -> perBranchQueries(franchiseId).then()));
+        report(branches, "current", measure(() -> products.findMaxStockProductsByFranchise(franchiseId).then()));
+    }
+
+    /**
+     * Camino original: una consulta de sucursales y otra por sucursal que trae todos sus productos.
+     */
+    private Flux<ProductWithBranch> perBranchQueries(String franchiseId) {
+        Query branchQuery = DocumentMappers.projectBranch(new Query(Criteria.where("franchiseId").is(franchiseId)));
+        return template.find(branchQuery, Document.class, DocumentMappers.BRANCHES_COLLECTION)
+                .map(DocumentMappers::toBranch)
+                .flatMap(branch -> template.find(DocumentMappers.projectProduct(new Query(Criteria.where("franchiseId").is(franchiseId)
+                                        .and("branchId").is(branch.getId()))), Document.class, DocumentMappers.PRODUCTS_COLLECTION)
+                        .map(DocumentMappers::toProduct)
+                        .collectList()
+                        .flatMap(branchProducts -> Mono.justOrEmpty(branchProducts.stream()
+                                .max(Comparator.comparing(Product::getStock))))
+                        .map(product -> new ProductWithBranch(product, branch)));
+    }
+
+    private static Map<String, String> leaders(Flux<ProductWithBranch> leaders) {
+        return leaders.collect(Collectors.toMap(leader -> leader.getBranch().getId(), leader -> leader.getProduct().getId()))
+                .block();
+    }
+
+    private static long[] measure(Supplier<Mono<Void>> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.get().block();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.get().block();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void report(int branches, String path, long[] samples) {
+        System.out.printf(Locale.ROOT, "max-stock %5d branches %-10s p50=%9.1fus p99=%9.1fus%n", branches, path,
+                samples[samples.length / 2] / 1_000.0, samples[samples.length * 99 / 100] / 1_000.0);
+    }
+
+    private static String franchiseId(int branches) {
+        return "franchise-" + branches;
+    }
+
+    /**
+     * Cada sucursal tiene un único producto de máximo stock, así que ambos caminos deben coincidir.
+     */
+    private void seed(String franchiseId, int branches) {
+        List<Document> branchDocuments = new ArrayList<>();
+        List<Document> productDocuments = new ArrayList<>();
+        for (int branch = 0; branch < branches; branch++) {
+            String branchId = franchiseId + "-" + branch;
+            branchDocuments.add(new Document(DocumentMappers.FIELD_ID, branchId)
+                    .append("franchiseId", franchiseId)
+                    .append(DocumentMappers.FIELD_NAME, "Branch " + branch));
+            for (int product = 0; product < PRODUCTS_PER_BRANCH; product++) {
+                productDocuments.add(new Document(DocumentMappers.FIELD_ID, branchId + "-" + product)
+                        .append("franchiseId", franchiseId)
+                        .append("branchId", branchId)
+                        .append(DocumentMappers.FIELD_NAME, "Product " + product)
+                        .append(DocumentMappers.FIELD_STOCK, (product * 7 + branch) % PRODUCTS_PER_BRANCH));
+            }
+        }
+        template.insert(new Document(DocumentMappers.FIELD_ID, franchiseId).append(DocumentMappers.FIELD_NAME, franchiseId),
+                        DocumentMappers.FRANCHISES_COLLECTION)
+                .thenMany(template.insert(branchDocuments, DocumentMappers.BRANCHES_COLLECTION))
+                .thenMany(template.insert(productDocuments, DocumentMappers.PRODUCTS_COLLECTION))
+                .blockLast();
+    }
+}
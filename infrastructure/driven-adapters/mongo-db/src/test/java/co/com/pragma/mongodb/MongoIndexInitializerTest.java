@@ -0,0 +1,138 @@
+package co.com.pragma.mongodb;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoIndexInitializerTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveIndexOperations productIndexOps;
+
+    @Mock
+    private ReactiveIndexOperations branchIndexOps;
+
+    @Mock
+    private ReactiveIndexOperations franchiseIndexOps;
+
+    @Mock
+    private ReactiveIndexOperations stockLeaderIndexOps;
+
+    private MongoIndexInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new MongoIndexInitializer(mongoTemplate, new MockEnvironment());
+        when(mongoTemplate.indexOps("products")).thenReturn(productIndexOps);
+        when(mongoTemplate.indexOps("branches")).thenReturn(branchIndexOps);
+        when(mongoTemplate.indexOps("franchises")).thenReturn(franchiseIndexOps);
+        when(mongoTemplate.indexOps("branch_stock_leaders")).thenReturn(stockLeaderIndexOps);
+    }
+
+    @Test
+    void testEnsureIndexes() {
+        ArgumentCaptor<IndexDefinition> productIndexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        ArgumentCaptor<IndexDefinition> branchIndexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        when(productIndexOps.ensureIndex(productIndexes.capture())).thenReturn(Mono.just("index"));
+        when(branchIndexOps.ensureIndex(branchIndexes.capture())).thenReturn(Mono.just("index"));
+        ArgumentCaptor<IndexDefinition> franchiseIndexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        when(franchiseIndexOps.ensureIndex(franchiseIndexes.capture())).thenReturn(Mono.just("index"));
+        ArgumentCaptor<IndexDefinition> stockLeaderIndexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        when(stockLeaderIndexOps.ensureIndex(stockLeaderIndexes.capture())).thenReturn(Mono.just("index"));
+
+        StepVerifier.create(initializer.ensureIndexes())
+                .verifyComplete();
+
+        List<IndexDefinition> products = productIndexes.getAllValues();
+        assertEquals(4, products.size());
+        assertEquals(new Document("franchiseId", 1).append("branchId", 1).append("name", 1), products.get(0).getIndexKeys());
+        assertTrue(products.get(0).getIndexOptions().getBoolean("unique"));
+        assertEquals(new Document("franchiseId", 1).append("stock", -1).append("_id", 1), products.get(1).getIndexKeys());
+        assertEquals(new Document("franchiseId", 1).append("branchId", 1).append("stock", -1).append("_id", 1),
+                products.get(2).getIndexKeys());
+        assertEquals(new Document("franchiseId", 1).append("branchId", 1).append("_id", 1), products.get(3).getIndexKeys());
+        assertEquals(new Document("franchiseId", 1).append("_id", 1), branchIndexes.getValue().getIndexKeys());
+        assertEquals(new Document("name", 1).append("_id", 1), franchiseIndexes.getValue().getIndexKeys());
+        List<IndexDefinition> stockLeaders = stockLeaderIndexes.getAllValues();
+        assertEquals(2, stockLeaders.size());
+        assertEquals(new Document("franchiseId", 1).append("branchId", 1), stockLeaders.get(0).getIndexKeys());
+        assertTrue(stockLeaders.get(0).getIndexOptions().getBoolean("unique"));
+        assertEquals(new Document("stale", 1), stockLeaders.get(1).getIndexKeys());
+        assertTrue(stockLeaders.get(1).getIndexOptions().getBoolean("sparse"));
+    }
+
+    @Test
+    void testEnsureIndexesContinuesAfterFailure() {
+        when(productIndexOps.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.just("franchise_branch_name_unique"))
+                .thenReturn(Mono.error(new RuntimeException("Index build aborted")))
+                .thenReturn(Mono.just("franchise_branch_stock_desc"));
+        when(branchIndexOps.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("franchise_id"));
+        when(franchiseIndexOps.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("name_id"));
+        when(stockLeaderIndexOps.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("franchise_branch_unique"));
+
+        StepVerifier.create(initializer.ensureIndexes())
+                .verifyComplete();
+
+        verify(productIndexOps, times(4)).ensureIndex(any(IndexDefinition.class));
+        verify(branchIndexOps).ensureIndex(any(IndexDefinition.class));
+        verify(franchiseIndexOps).ensureIndex(any(IndexDefinition.class));
+        verify(stockLeaderIndexOps, times(2)).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    void testEnsureIndexesFailsWhenUniqueIndexCannotBeBuilt() {
+        reset(mongoTemplate);
+        when(mongoTemplate.indexOps("products")).thenReturn(productIndexOps);
+        when(productIndexOps.ensureIndex(any(IndexDefinition.class)))
+                .thenReturn(Mono.error(new RuntimeException("Duplicate key")));
+
+        StepVerifier.create(initializer.ensureIndexes())
+                .expectErrorSatisfies(error -> {
+                    assertTrue(error instanceof IllegalStateException);
+                    assertTrue(error.getMessage().contains("franchise_branch_name_unique"));
+                })
+                .verify();
+
+        // el arranque se detiene en el primer índice único fallido
+        verify(productIndexOps).ensureIndex(any(IndexDefinition.class));
+        verifyNoInteractions(branchIndexOps, franchiseIndexOps, stockLeaderIndexOps);
+    }
+
+    @Test
+    void testEnsureIndexesForEmbeddedDocuments() {
+        reset(mongoTemplate);
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles(EmbeddedDocuments.PROFILE);
+        ArgumentCaptor<IndexDefinition> indexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        when(mongoTemplate.indexOps("franchise_documents")).thenReturn(franchiseIndexOps);
+        when(franchiseIndexOps.ensureIndex(indexes.capture())).thenReturn(Mono.just("name_id"));
+
+        StepVerifier.create(new MongoIndexInitializer(mongoTemplate, environment).ensureIndexes())
+                .verifyComplete();
+
+        assertEquals(new Document("name", 1).append("_id", 1), indexes.getValue().getIndexKeys());
+        verifyNoInteractions(productIndexOps, branchIndexOps, stockLeaderIndexOps);
+    }
+}
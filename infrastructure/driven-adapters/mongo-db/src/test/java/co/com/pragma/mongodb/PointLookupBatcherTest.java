@@ -0,0 +1,116 @@
+package co.com.pragma.mongodb;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PointLookupBatcherTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(1);
+
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualTimeScheduler scheduler;
+    private List<List<String>> batches;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = VirtualTimeScheduler.create();
+        batches = new CopyOnWriteArrayList<>();
+    }
+
+    @Test
+    void testLookupsWithinTheWindowShareOneQuery() {
+        PointLookupBatcher<String, String> batcher = batcher(100, keys -> Flux.fromIterable(keys).filter(key -> !key.equals("3")));
+
+        List<String> results = new ArrayList<>();
+        for (String key : List.of("1", "2", "3", "1")) {
+            batcher.load(key).defaultIfEmpty("not found").subscribe(results::add);
+        }
+        assertEquals(0, batches.size());
+
+        scheduler.advanceTimeBy(WINDOW);
+
+        assertEquals(List.of(List.of("1", "2", "3")), batches);
+        assertEquals(List.of("1", "1", "2", "not found"), results);
+    }
+
+    @Test
+    void testFullBatchIsSentWithoutWaitingForTheWindow() {
+        PointLookupBatcher<String, String> batcher = batcher(2, Flux::fromIterable);
+
+        StepVerifier.create(Mono.zip(batcher.load("1"), batcher.load("2")))
+                .expectNextMatches(results -> results.getT1().equals("1") && results.getT2().equals("2"))
+                .verifyComplete();
+
+        scheduler.advanceTimeBy(WINDOW);
+        assertEquals(List.of(List.of("1", "2")), batches);
+    }
+
+    @Test
+    void testQueryErrorReachesEveryLookupOfTheBatch() {
+        PointLookupBatcher<String, String> batcher = batcher(100, keys -> Flux.error(new IllegalStateException("Mongo unavailable")));
+        AtomicInteger errors = new AtomicInteger();
+
+        batcher.load("1").subscribe(value -> { }, error -> errors.incrementAndGet());
+        batcher.load("2").subscribe(value -> { }, error -> errors.incrementAndGet());
+        scheduler.advanceTimeBy(WINDOW);
+
+        assertEquals(2, errors.get());
+    }
+
+    @Test
+    void testNextLookupOpensANewWindow() {
+        PointLookupBatcher<String, String> batcher = batcher(100, Flux::fromIterable);
+
+        batcher.load("1").subscribe();
+        scheduler.advanceTimeBy(WINDOW);
+        batcher.load("2").subscribe();
+        scheduler.advanceTimeBy(WINDOW);
+
+        assertEquals(List.of(List.of("1"), List.of("2")), batches);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 5_000, 10_000})
+    void testConcurrentLookupsAreFoldedIntoFullBatches(int lookups) {
+        PointLookupBatcher<String, String> batcher = batcher(100, Flux::fromIterable);
+        AtomicInteger resolved = new AtomicInteger();
+
+        Flux.range(0, lookups)
+                .flatMap(i -> batcher.load(String.valueOf(i)), lookups)
+                .subscribe(value -> resolved.incrementAndGet());
+        scheduler.advanceTimeBy(WINDOW);
+
+        assertEquals(lookups, resolved.get());
+        assertEquals(lookups / 100, batches.size());
+        DistributionSummary batchSizes = meterRegistry.get(PointLookupBatcher.BATCH_SIZE_METRIC)
+                .tag("collection", "test").summary();
+        assertEquals(lookups / 100, batchSizes.count());
+        assertEquals(100.0, batchSizes.max());
+    }
+
+    private PointLookupBatcher<String, String> batcher(int maxBatchSize, Function<List<String>, Flux<String>> loader) {
+        return new PointLookupBatcher<>("test", new BatchingProperties(WINDOW, maxBatchSize), meterRegistry, scheduler,
+                keys -> {
+                    batches.add(keys);
+                    return loader.apply(keys);
+                }, Function.identity());
+    }
+}
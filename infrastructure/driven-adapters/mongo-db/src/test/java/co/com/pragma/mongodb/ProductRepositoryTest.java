@@ -2,25 +2,50 @@ package co.com.pragma.mongodb;
 
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
-import co.com.pragma.model.gateways.BranchGateway;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.ProductWithBranch;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveCollectionCallback;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -31,7 +56,10 @@ class ProductRepositoryTest {
     private ReactiveMongoTemplate mongoTemplate;
 
     @Mock
-    private BranchGateway branchGateway;
+    private HiLoIdAllocator idAllocator;
+
+    @Mock
+    private StockLeaderRepository stockLeaderRepository;
 
     private CircuitBreaker circuitBreaker;
     private ProductRepository productRepository;
@@ -40,7 +68,10 @@ class ProductRepositoryTest {
     void setUp() {
         CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
         circuitBreaker = registry.circuitBreaker("mongoCircuitBreaker");
-        productRepository = new ProductRepository(mongoTemplate, branchGateway, circuitBreaker);
+        productRepository = new ProductRepository(mongoTemplate, circuitBreaker, idAllocator, stockLeaderRepository);
+        lenient().when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq("branches")))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        lenient().when(stockLeaderRepository.markStale(anyString(), anyList())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -61,9 +92,7 @@ class ProductRepositoryTest {
 
     @Test
     void testFindById() {
-        ProductEntity entity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 10);
-
-        when(mongoTemplate.findOne(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.just(entity));
+        when(mongoTemplate.execute(eq("products"), any())).thenReturn(Flux.just(new Product("1", "Product 1", 10)));
 
         StepVerifier.create(productRepository.findById("franchise1", "branch1", "1"))
                 .expectNextMatches(p -> p.getId().equals("1") 
@@ -71,24 +100,44 @@ class ProductRepositoryTest {
                         && p.getStock().equals(10))
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate).execute(eq("products"), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindByIdProjectsDecodedFields() {
+        ArgumentCaptor<ReactiveCollectionCallback<Product>> callbackCaptor = ArgumentCaptor.forClass(ReactiveCollectionCallback.class);
+        when(mongoTemplate.execute(eq("products"), callbackCaptor.capture())).thenReturn(Flux.empty());
+
+        StepVerifier.create(productRepository.findById("franchise1", "branch1", "1"))
+                .verifyComplete();
+
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindPublisher<Product> find = mock(FindPublisher.class, RETURNS_SELF);
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        when(collection.withCodecRegistry(DomainCodecs.REGISTRY)).thenReturn(collection);
+        when(collection.find(filterCaptor.capture(), eq(Product.class))).thenReturn(find);
+
+        callbackCaptor.getValue().doInCollection(collection);
+
+        assertEquals("1", ((Document) filterCaptor.getValue()).get("_id"));
+        verify(find).projection(new Document("name", 1).append("stock", 1));
+        verify(find).limit(1);
     }
 
     @Test
     void testFindByIdNotFound() {
-        when(mongoTemplate.findOne(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.execute(eq("products"), any())).thenReturn(Flux.empty());
 
         StepVerifier.create(productRepository.findById("franchise1", "branch1", "999"))
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate).execute(eq("products"), any());
     }
 
     @Test
     void testFindByName() {
-        ProductEntity entity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 10);
-
-        when(mongoTemplate.findOne(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.just(entity));
+        when(mongoTemplate.execute(eq("products"), any())).thenReturn(Flux.just(new Product("1", "Product 1", 10)));
 
         StepVerifier.create(productRepository.findByName("franchise1", "branch1", "Product 1"))
                 .expectNextMatches(p -> p.getId().equals("1") 
@@ -96,17 +145,17 @@ class ProductRepositoryTest {
                         && p.getStock().equals(10))
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate).execute(eq("products"), any());
     }
 
     @Test
     void testFindByNameNotFound() {
-        when(mongoTemplate.findOne(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.execute(eq("products"), any())).thenReturn(Flux.empty());
 
         StepVerifier.create(productRepository.findByName("franchise1", "branch1", "NonExistent"))
                 .verifyComplete();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate).execute(eq("products"), any());
     }
 
     @Test
@@ -117,77 +166,270 @@ class ProductRepositoryTest {
                 .verifyComplete();
 
         verify(mongoTemplate).remove(any(Query.class), eq(ProductEntity.class));
+        verify(stockLeaderRepository).markStale("franchise1", List.of("branch1"));
+    }
+
+    @Test
+    void testWriteBumpsProductListVersion() {
+        when(mongoTemplate.remove(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(productRepository.deleteById("franchise1", "branch1", "1"))
+                .verifyComplete();
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(queryCaptor.capture(), updateCaptor.capture(), eq("branches"));
+        assertEquals(new Document("franchiseId", "franchise1").append("_id", new Document("$in", List.of("branch1"))),
+                queryCaptor.getValue().getQueryObject());
+        assertEquals(new Document("$inc", new Document("productsVersion", 1)), updateCaptor.getValue().getUpdateObject());
+    }
+
+    @Test
+    void testFailedListVersionBumpFailsTheWrite() {
+        when(mongoTemplate.remove(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq("branches")))
+                .thenReturn(Mono.error(new RuntimeException("Database error")));
+
+        StepVerifier.create(productRepository.deleteById("franchise1", "branch1", "1"))
+                .expectErrorMessage("Database error")
+                .verify();
+    }
+
+    @Test
+    void testFindListVersionWithoutProductWritesIsZero() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("branches")))
+                .thenReturn(Mono.just(new Document()));
+
+        StepVerifier.create(productRepository.findListVersion("franchise1", "branch1"))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testUpdateStockAtVersionIsSingleConditionalWrite() {
+        ProductEntity updatedEntity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 25);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(productRepository.updateStock("franchise1", "branch1", "1", 25, 6L))
+                .expectNextMatches(p -> p.getStock().equals(25))
+                .verifyComplete();
+
+        assertEquals(6L, queryCaptor.getValue().getQueryObject().get("version"));
+        verify(mongoTemplate, never()).execute(eq("products"), any());
+    }
+
+    @Test
+    void testFindVersion() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("products")))
+                .thenReturn(Mono.just(new Document("version", 6L)));
+
+        StepVerifier.create(productRepository.findVersion("franchise1", "branch1", "1"))
+                .expectNext(6L)
+                .verifyComplete();
     }
 
     @Test
     void testUpdate() {
         Product product = new Product("1", "Updated Product", 20);
-        ProductEntity existingEntity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 10);
         ProductEntity updatedEntity = new ProductEntity("1", "franchise1", "branch1", "Updated Product", 20);
 
-        when(mongoTemplate.findOne(any(Query.class), eq(ProductEntity.class)))
-                .thenReturn(Mono.just(existingEntity));
-        when(mongoTemplate.save(any(ProductEntity.class))).thenReturn(Mono.just(updatedEntity));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
 
         StepVerifier.create(productRepository.update("franchise1", "branch1", product))
                 .expectNextMatches(p -> p.getName().equals("Updated Product") && p.getStock().equals(20))
                 .verifyComplete();
 
-        verify(mongoTemplate, atLeastOnce()).findOne(any(Query.class), eq(ProductEntity.class));
-        verify(mongoTemplate).save(any(ProductEntity.class));
+        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class));
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate, never()).save(any(ProductEntity.class));
     }
 
     @Test
     void testUpdateNotFound() {
         Product product = new Product("999", "Updated Product", 20);
 
-        when(mongoTemplate.findOne(any(Query.class), eq(ProductEntity.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.empty());
 
         StepVerifier.create(productRepository.update("franchise1", "branch1", product))
                 .expectErrorMatches(e -> e instanceof IllegalArgumentException 
                         && e.getMessage().equals(Constants.ERROR_PRODUCT_NOT_FOUND))
                 .verify();
 
-        verify(mongoTemplate).findOne(any(Query.class), eq(ProductEntity.class));
         verify(mongoTemplate, never()).save(any(ProductEntity.class));
     }
 
     @Test
-    void testFindMaxStockProductsByFranchise() {
-        ProductEntity product1 = new ProductEntity("1", "franchise1", "branch1", "Product 1", 50);
-        ProductEntity product2 = new ProductEntity("2", "franchise1", "branch1", "Product 2", 30);
-        ProductEntity product3 = new ProductEntity("3", "franchise1", "branch2", "Product 3", 100);
-        ProductEntity product4 = new ProductEntity("4", "franchise1", "branch2", "Product 4", 80);
+    void testUpdateStock() {
+        ProductEntity updatedEntity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 25);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(productRepository.updateStock("franchise1", "branch1", "1", 25))
+                .expectNextMatches(p -> p.getId().equals("1") && p.getStock().equals(25))
+                .verifyComplete();
+
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch1").append("id", "1"),
+                queryCaptor.getValue().getQueryObject());
+        assertEquals(new Document("$set", new Document("stock", 25)).append("$inc", new Document("version", 1)),
+                updateCaptor.getValue().getUpdateObject());
+        verify(stockLeaderRepository).markStale("franchise1", List.of("branch1"));
+    }
+
+    @Test
+    void testUpdateStockNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(productRepository.updateStock("franchise1", "branch1", "999", 25))
+                .verifyComplete();
+
+        verify(stockLeaderRepository, never()).markStale(anyString(), anyList());
+    }
+
+    @Test
+    void testUpdateName() {
+        ProductEntity updatedEntity = new ProductEntity("1", "franchise1", "branch1", "New Name", 10);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+
+        when(mongoTemplate.findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(productRepository.updateName("franchise1", "branch1", "1", "New Name"))
+                .expectNextMatches(p -> p.getName().equals("New Name") && p.getStock().equals(10))
+                .verifyComplete();
+
+        assertEquals(new Document("$set", new Document("name", "New Name")).append("$inc", new Document("version", 1)),
+                updateCaptor.getValue().getUpdateObject());
+    }
+
+    @Test
+    void testAdjustStockDecrementIsGuarded() {
+        ProductEntity updatedEntity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 7);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
 
-        Branch branch1 = Branch.builder().id("branch1").name("Branch 1").address("Address 1").city("City 1").build();
-        Branch branch2 = Branch.builder().id("branch2").name("Branch 2").address("Address 2").city("City 2").build();
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
 
-        when(branchGateway.findAllByFranchiseId("franchise1"))
-                .thenReturn(Flux.just(branch1, branch2));
-        when(mongoTemplate.find(any(Query.class), eq(ProductEntity.class)))
-                .thenReturn(Flux.just(product1, product2))
-                .thenReturn(Flux.just(product3, product4));
+        StepVerifier.create(productRepository.adjustStock("franchise1", "branch1", "1", -3))
+                .expectNextMatches(p -> p.getStock().equals(7))
+                .verifyComplete();
+
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch1").append("id", "1")
+                        .append("stock", new Document("$gte", 3)),
+                queryCaptor.getValue().getQueryObject());
+        assertEquals(new Document("$inc", new Document("stock", -3).append("version", 1)), updateCaptor.getValue().getUpdateObject());
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(ProductEntity.class));
+    }
+
+    @Test
+    void testAdjustStockIncrementIsCapped() {
+        ProductEntity updatedEntity = new ProductEntity("1", "franchise1", "branch1", "Product 1", 30);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+
+        when(mongoTemplate.findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.just(updatedEntity));
+
+        StepVerifier.create(productRepository.adjustStock("franchise1", "branch1", "1", 20))
+                .expectNextMatches(p -> p.getStock().equals(30))
+                .verifyComplete();
+
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch1").append("id", "1")
+                        .append("stock", new Document("$lte", 999_979)),
+                queryCaptor.getValue().getQueryObject());
+    }
+
+    @Test
+    void testAdjustStockRejected() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ProductEntity.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(productRepository.adjustStock("franchise1", "branch1", "1", -100))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindMaxStockProductsByFranchiseReadsStockLeaders() {
+        ProductWithBranch leader = new ProductWithBranch(new Product("1", "Product 1", 50),
+                Branch.builder().id("branch1").name("Branch 1").build());
+
+        when(stockLeaderRepository.findByFranchise("franchise1")).thenReturn(Flux.just(leader));
 
         StepVerifier.create(productRepository.findMaxStockProductsByFranchise("franchise1"))
-                .expectNextMatches(pwb -> pwb.getProduct().getId().equals("1") 
-                        && pwb.getProduct().getStock().equals(50)
-                        && pwb.getBranch().getId().equals("branch1"))
-                .expectNextMatches(pwb -> pwb.getProduct().getId().equals("3") 
-                        && pwb.getProduct().getStock().equals(100)
-                        && pwb.getBranch().getId().equals("branch2"))
+                .expectNext(leader)
                 .verifyComplete();
 
-        verify(branchGateway).findAllByFranchiseId("franchise1");
-        verify(mongoTemplate, atLeastOnce()).find(any(Query.class), eq(ProductEntity.class));
+        verifyNoInteractions(mongoTemplate);
     }
 
     @Test
-    void testFindAllByBranch() {
-        ProductEntity product1 = new ProductEntity("1", "franchise1", "branch1", "Product 1", 10);
-        ProductEntity product2 = new ProductEntity("2", "franchise1", "branch1", "Product 2", 20);
+    void testFindStockRankingFranchiseWide() {
+        Document first = new Document("_id", "7").append("name", "Product 7").append("stock", 1).append("branchId", "branch2")
+                .append("branch", new Document("_id", "branch2").append("name", "Branch 2"));
+        Document second = new Document("_id", "3").append("name", "Product 3").append("stock", 4).append("branchId", "branch1")
+                .append("branch", new Document("_id", "branch1").append("name", "Branch 1"));
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(first, second));
+
+        StepVerifier.create(productRepository.findStockRanking("franchise1", RankingScope.FRANCHISE, RankingOrder.ASC, 2))
+                .expectNextMatches(ranked -> ranked.getRank() == 1
+                        && ranked.getProduct().getId().equals("7")
+                        && ranked.getBranch().getId().equals("branch2"))
+                .expectNextMatches(ranked -> ranked.getRank() == 2 && ranked.getProduct().getStock().equals(4))
+                .verifyComplete();
+
+        List<Document> pipeline = capturedPipeline();
+        assertEquals(List.of("$match", "$sort", "$limit", "$lookup", "$unwind"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        assertEquals(new Document("stock", 1).append("_id", -1), pipeline.get(1).get("$sort"));
+        assertEquals(2L, ((Number) pipeline.get(2).get("$limit")).longValue());
+    }
+
+    @Test
+    void testFindStockRankingPerBranch() {
+        Document group = new Document("_id", "branch1")
+                .append("products", List.of(
+                        new Document("_id", "1").append("name", "Product 1").append("stock", 50),
+                        new Document("_id", "2").append("name", "Product 2").append("stock", 20)))
+                .append("branch", new Document("_id", "branch1").append("name", "Branch 1"));
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(group));
+
+        StepVerifier.create(productRepository.findStockRanking("franchise1", RankingScope.BRANCH, RankingOrder.DESC, 2))
+                .expectNextMatches(ranked -> ranked.getRank() == 1 && ranked.getProduct().getId().equals("1"))
+                .expectNextMatches(ranked -> ranked.getRank() == 2
+                        && ranked.getProduct().getId().equals("2")
+                        && ranked.getBranch().getName().equals("Branch 1"))
+                .verifyComplete();
+
+        List<Document> pipeline = capturedPipeline();
+        assertEquals(List.of("$match", "$group", "$lookup", "$unwind", "$sort"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        Document topN = pipeline.get(1).get("$group", Document.class).get("products", Document.class).get("$topN", Document.class);
+        assertEquals(2, topN.get("n"));
+        assertEquals(new Document("stock", -1).append("_id", 1), topN.get("sortBy"));
+    }
+
+    private List<Document> capturedPipeline() {
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq("products"), eq(Document.class));
+        return captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
 
-        when(mongoTemplate.find(any(Query.class), eq(ProductEntity.class)))
-                .thenReturn(Flux.just(product1, product2));
+    @Test
+    void testFindAllByBranch() {
+        when(mongoTemplate.execute(eq("products"), any()))
+                .thenReturn(Flux.just(new Product("1", "Product 1", 10), new Product("2", "Product 2", 20)));
 
         StepVerifier.create(productRepository.findAllByBranch("franchise1", "branch1"))
                 .expectNextMatches(p -> p.getId().equals("1") 
@@ -198,49 +440,140 @@ class ProductRepositoryTest {
                         && p.getStock().equals(20))
                 .verifyComplete();
 
-        verify(mongoTemplate).find(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate).execute(eq("products"), any());
     }
 
     @Test
     void testFindAllByBranchEmpty() {
-        when(mongoTemplate.find(any(Query.class), eq(ProductEntity.class)))
+        when(mongoTemplate.execute(eq("products"), any()))
                 .thenReturn(Flux.empty());
 
         StepVerifier.create(productRepository.findAllByBranch("franchise1", "branch1"))
                 .verifyComplete();
 
-        verify(mongoTemplate).find(any(Query.class), eq(ProductEntity.class));
+        verify(mongoTemplate).execute(eq("products"), any());
     }
 
     @Test
-    void testGetNextId() {
-        SequenceEntity sequence = new SequenceEntity("product_sequence", 5L);
+    void testFindPageByBranchSortedByStock() {
+        String cursor = KeysetPagination.encode(new KeysetPagination.Keyset("stock", Sort.Direction.DESC, false),
+                new Document("_id", "4").append("stock", 30));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("products")))
+                .thenReturn(Flux.just(new Document("_id", "5").append("name", "Product 5").append("stock", 30),
+                        new Document("_id", "2").append("name", "Product 2").append("stock", 20)));
+
+        StepVerifier.create(productRepository.findPageByBranch("franchise1", "branch1", new PageQuery(1, cursor, ListingSort.STOCK)))
+                .expectNextMatches(page -> page.getItems().size() == 1
+                        && page.getItems().get(0).getId().equals("5")
+                        && page.getNext() != null)
+                .verifyComplete();
 
-        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
-                .thenReturn(Mono.just(sequence));
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Document.class), eq("products"));
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch1")
+                        .append("$or", List.of(
+                                new Document("stock", new Document("$lt", 30)),
+                                new Document("stock", 30).append("_id", new Document("$gt", "4")))),
+                captor.getValue().getQueryObject());
+        assertEquals(new Document("stock", -1).append("_id", 1), captor.getValue().getSortObject());
+        assertEquals(2, captor.getValue().getLimit());
+    }
+
+    @Test
+    void testFindPageByBranchSortedByNameSkipsIdTieBreak() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("products"))).thenReturn(Flux.empty());
+
+        StepVerifier.create(productRepository.findPageByBranch("franchise1", "branch1", new PageQuery(10, null, ListingSort.NAME)))
+                .expectNextMatches(page -> page.getItems().isEmpty() && page.getNext() == null)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Document.class), eq("products"));
+        assertEquals(new Document("name", 1), captor.getValue().getSortObject());
+    }
+
+    @Test
+    void testFindPageByBranchInvalidCursor() {
+        StepVerifier.create(productRepository.findPageByBranch("franchise1", "branch1", new PageQuery(10, "not-a-cursor", ListingSort.ID)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals(Constants.ERROR_INVALID_CURSOR))
+                .verify();
+
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq("products"));
+    }
+
+    @Test
+    void testGetNextId() {
+        when(idAllocator.nextId("product_sequence")).thenReturn(Mono.just(5L));
 
         StepVerifier.create(productRepository.getNextId())
                 .expectNext("5")
                 .verifyComplete();
 
-        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
+        verify(idAllocator).nextId("product_sequence");
+        verifyNoInteractions(mongoTemplate);
     }
 
     @Test
-    void testGetNextIdInitialSequence() {
-        SequenceEntity initialSequence = new SequenceEntity("product_sequence", 0L);
-        SequenceEntity incrementedSequence = new SequenceEntity("product_sequence", 1L);
+    void testGetNextIds() {
+        when(idAllocator.reserve("product_sequence", 3)).thenReturn(Mono.just(12L));
+
+        StepVerifier.create(productRepository.getNextIds(3))
+                .expectNext("10", "11", "12")
+                .verifyComplete();
+    }
 
-        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class)))
-                .thenReturn(Mono.empty())
-                .thenReturn(Mono.just(incrementedSequence));
-        when(mongoTemplate.save(any(SequenceEntity.class))).thenReturn(Mono.just(initialSequence));
+    @Test
+    void testInsertAll() {
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductEntity.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+
+        StepVerifier.create(productRepository.insertAll("franchise1", List.of(
+                        importRecord(1, "1", "Product 1"),
+                        importRecord(2, "2", "Product 2"))))
+                .verifyComplete();
 
-        StepVerifier.create(productRepository.getNextId())
-                .expectNext("1")
+        verify(bulkOperations).insert(argThat((List<?> entities) -> entities.size() == 2));
+        verify(stockLeaderRepository).markStale("franchise1", List.of("branch1"));
+    }
+
+    @Test
+    void testInsertAllReportsRejectedRecords() {
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        MongoBulkWriteException bulkWriteException = mock(MongoBulkWriteException.class);
+        when(bulkWriteException.getWriteErrors())
+                .thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductEntity.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute())
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key", bulkWriteException)));
+
+        StepVerifier.create(productRepository.insertAll("franchise1", List.of(
+                        importRecord(7, "1", "Product 1"),
+                        importRecord(8, "2", "Product 1"))))
+                .expectNextMatches(error -> error.getLine() == 8 && error.getMessage().contains("duplicate key"))
                 .verifyComplete();
+    }
+
+    @Test
+    void testInsertAllPropagatesOtherErrors() {
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductEntity.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(new RuntimeException("Database error")));
+
+        StepVerifier.create(productRepository.insertAll("franchise1", List.of(importRecord(1, "1", "Product 1"))))
+                .expectError(RuntimeException.class)
+                .verify();
+    }
 
-        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SequenceEntity.class));
-        verify(mongoTemplate).save(any(SequenceEntity.class));
+    private ProductImportRecord importRecord(long line, String id, String name) {
+        return ProductImportRecord.builder()
+                .line(line)
+                .branchId("branch1")
+                .product(new Product(id, name, 10))
+                .build();
     }
 }
@@ -0,0 +1,138 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class ReadThroughCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadThroughCache<String, Product> cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ReadThroughCache<>("test", new CacheProperties(100, Duration.ofMinutes(5)), meterRegistry,
+                product -> new Product(product.getId(), product.getName(), product.getStock()));
+    }
+
+    @Test
+    void testGetLoadsOnceAndReturnsCopies() {
+        AtomicInteger loads = new AtomicInteger();
+        Product[] results = new Product[2];
+
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            StepVerifier.create(cache.get("1", key -> {
+                        loads.incrementAndGet();
+                        return Mono.just(new Product(key, "Product 1", 10));
+                    }))
+                    .consumeNextWith(product -> results[index] = product)
+                    .verifyComplete();
+        }
+
+        assertEquals(1, loads.get());
+        assertNotSame(results[0], results[1]);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testConcurrentColdLookupsShareOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<Product> pending = Sinks.one();
+
+        Mono<Product> first = cache.get("1", key -> {
+            loads.incrementAndGet();
+            return pending.asMono();
+        });
+        Mono<Product> second = cache.get("1", key -> {
+            loads.incrementAndGet();
+            return Mono.just(new Product(key, "Other", 0));
+        });
+
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> pending.tryEmitValue(new Product("1", "Product 1", 10)))
+                .assertNext(pair -> {
+                    assertEquals("Product 1", pair.getT1().getName());
+                    assertEquals("Product 1", pair.getT2().getName());
+                })
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testEmptyAndFailedLoadsAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        StepVerifier.create(cache.get("1", key -> {
+                    loads.incrementAndGet();
+                    return Mono.empty();
+                }))
+                .verifyComplete();
+        StepVerifier.create(cache.get("1", key -> {
+                    loads.incrementAndGet();
+                    return Mono.error(new IllegalStateException("down"));
+                }))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(cache.get("1", key -> {
+                    loads.incrementAndGet();
+                    return Mono.just(new Product(key, "Product 1", 10));
+                }))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("1", key -> Mono.just(new Product(key, "Old", loads.incrementAndGet()))).block();
+        cache.invalidate("1");
+
+        StepVerifier.create(cache.get("1", key -> Mono.just(new Product(key, "New", loads.incrementAndGet()))))
+                .expectNextMatches(product -> product.getName().equals("New"))
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadOverlappingAnInvalidationIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<Product> pending = Sinks.one();
+
+        StepVerifier.create(cache.get("1", key -> {
+                    loads.incrementAndGet();
+                    return pending.asMono();
+                }))
+                // la invalidación no encuentra la entrada de la carga en curso, pero avanza la generación
+                .then(() -> cache.invalidate("2"))
+                .then(() -> pending.tryEmitValue(new Product("1", "Old", 10)))
+                .expectNextMatches(product -> product.getName().equals("Old"))
+                .verifyComplete();
+
+        StepVerifier.create(cache.get("1", key -> {
+                    loads.incrementAndGet();
+                    return Mono.just(new Product(key, "New", 20));
+                }))
+                .expectNextMatches(product -> product.getName().equals("New"))
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+}
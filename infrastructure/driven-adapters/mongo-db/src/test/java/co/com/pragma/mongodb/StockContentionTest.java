@@ -0,0 +1,183 @@
+package co.com.pragma.mongodb;
+
+import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.gateways.BranchGateway;
+import co.com.pragma.model.gateways.FranchiseGateway;
+import co.com.pragma.model.gateways.ProductGateway;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lanza cientos de ajustes de stock concurrentes sobre un mismo producto en un mongod embebido, en ambas
+ * disposiciones, y comprueba que el {@code $inc} condicionado no vende de más, no supera el máximo y no
+ * pierde actualizaciones.
+ * <p>
+ * Es opcional porque descarga y arranca un mongod: se ejecuta con {@code -Dbenchmark.contention=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.contention", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StockContentionTest {
+
+    private static final String FRANCHISE_ID = "1";
+    private static final String BRANCH_ID = "1";
+    private static final int REQUESTS = 500;
+
+    private final AtomicInteger productIds = new AtomicInteger();
+
+    private TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private MongoClient client;
+    private Layout collections;
+    private Layout embedded;
+
+    @BeforeAll
+    void startMongo() {
+        mongod = Mongod.instance().start(Version.Main.V6_0);
+        client = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+        collections = collectionLayout(new ReactiveMongoTemplate(client, "contention_collections"));
+        embedded = embeddedLayout(new ReactiveMongoTemplate(client, "contention_embedded"));
+        collections.seed();
+        embedded.seed();
+    }
+
+    @AfterAll
+    void stopMongo() {
+        client.close();
+        mongod.close();
+    }
+
+    List<Layout> layouts() {
+        return List.of(collections, embedded);
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void concurrentDecrementsNeverOversell(Layout layout) {
+        String productId = newProduct(layout, 300);
+
+        long accepted = race(layout, productId, -1).block();
+
+        assertEquals(300, accepted);
+        assertEquals(0, stockOf(layout, productId));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void concurrentIncrementsStopAtTheMaximumStock(Layout layout) {
+        String productId = newProduct(layout, Constants.MAX_STOCK - 100);
+
+        long accepted = race(layout, productId, 1).block();
+
+        assertEquals(100, accepted);
+        assertEquals(Constants.MAX_STOCK, stockOf(layout, productId));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void concurrentMixedDeltasLoseNoUpdate(Layout layout) {
+        String productId = newProduct(layout, 50);
+
+        // ventas y recepciones intercaladas: el stock final cuadra exactamente con los ajustes aceptados
+        Tuple2<Long, Long> accepted = Mono.zip(race(layout, productId, -3), race(layout, productId, 2)).block();
+        long decrements = accepted.getT1();
+        long increments = accepted.getT2();
+
+        int stock = stockOf(layout, productId);
+        assertTrue(stock >= 0);
+        assertEquals(REQUESTS, increments);
+        assertEquals(50 + 2 * increments - 3 * decrements, stock);
+    }
+
+    /**
+     * Lanza {@value #REQUESTS} ajustes de {@code delta} a la vez y emite cuántos aceptó el servidor.
+     */
+    private static Mono<Long> race(Layout layout, String productId, int delta) {
+        return Flux.range(0, REQUESTS)
+                .flatMap(request -> Mono.defer(() -> layout.products().adjustStock(FRANCHISE_ID, BRANCH_ID, productId, delta))
+                        .subscribeOn(Schedulers.parallel())
+                        .hasElement(), REQUESTS)
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    private String newProduct(Layout layout, int stock) {
+        String productId = String.valueOf(productIds.incrementAndGet());
+        layout.products().save(FRANCHISE_ID, BRANCH_ID, new Product(productId, "Product " + productId, stock)).block();
+        return productId;
+    }
+
+    private static int stockOf(Layout layout, String productId) {
+        return layout.products().findById(FRANCHISE_ID, BRANCH_ID, productId).block().getStock();
+    }
+
+    private static Layout collectionLayout(ReactiveMongoTemplate template) {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        HiLoIdAllocator idAllocator = new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100));
+        BatchingProperties batching = new BatchingProperties(Duration.ofMillis(1), 100);
+        StockLeaderRepository stockLeaders = new StockLeaderRepository(template, circuitBreaker,
+                new StockLeaderProperties(Duration.ofMillis(500), Duration.ofMinutes(10), 20));
+        new MongoIndexInitializer(template, new MockEnvironment()).ensureIndexes().block();
+        return new Layout("collections",
+                new FranchiseRepository(template, circuitBreaker, idAllocator, batching, new SimpleMeterRegistry()),
+                new BranchRepository(template, circuitBreaker, idAllocator, stockLeaders, batching, new SimpleMeterRegistry()),
+                new ProductRepository(template, circuitBreaker, idAllocator, stockLeaders));
+    }
+
+    private static Layout embeddedLayout(ReactiveMongoTemplate template) {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        HiLoIdAllocator idAllocator = new HiLoIdAllocator(template, circuitBreaker, new SequenceProperties(1000, 100));
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles(EmbeddedDocuments.PROFILE);
+        new MongoIndexInitializer(template, environment).ensureIndexes().block();
+        return new Layout("embedded",
+                new EmbeddedFranchiseRepository(template, circuitBreaker, idAllocator),
+                new EmbeddedBranchRepository(template, circuitBreaker, idAllocator),
+                new EmbeddedProductRepository(template, circuitBreaker, idAllocator));
+    }
+
+    private static CircuitBreaker circuitBreaker() {
+        return CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker");
+    }
+
+    record Layout(String name, FranchiseGateway franchises, BranchGateway branches, ProductGateway products) {
+
+        void seed() {
+            franchises.save(Franchise.builder().id(FRANCHISE_ID).name("Contention").build())
+                    .then(branches.save(FRANCHISE_ID, Branch.builder().id(BRANCH_ID).name("Branch").build()))
+                    .block();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
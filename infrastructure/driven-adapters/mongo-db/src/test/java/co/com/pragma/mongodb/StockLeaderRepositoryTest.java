@@ -0,0 +1,269 @@
+package co.com.pragma.mongodb;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockLeaderRepositoryTest {
+
+    private static final String COLLECTION = StockLeaderRepository.STOCK_LEADERS_COLLECTION;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private StockLeaderRepository stockLeaderRepository;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("mongoCircuitBreaker");
+        stockLeaderRepository = new StockLeaderRepository(mongoTemplate, circuitBreaker,
+                new StockLeaderProperties(Duration.ofMillis(500), Duration.ofMinutes(10), 20));
+    }
+
+    @Test
+    void testFindByFranchiseIsSingleFind() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(leader("branch1", "1", 50), leader("branch2", "3", 100)));
+
+        StepVerifier.create(stockLeaderRepository.findByFranchise("franchise1"))
+                .expectNextMatches(pwb -> pwb.getProduct().getId().equals("1")
+                        && pwb.getProduct().getStock().equals(50)
+                        && pwb.getBranch().getId().equals("branch1")
+                        && pwb.getBranch().getCity().equals("City branch1"))
+                .expectNextMatches(pwb -> pwb.getProduct().getId().equals("3")
+                        && pwb.getBranch().getId().equals("branch2"))
+                .verifyComplete();
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Document.class), eq(COLLECTION));
+        assertEquals(new Document("franchiseId", "franchise1").append("product", new Document("$exists", true)),
+                captor.getValue().getQueryObject());
+        assertEquals(new Document("branchId", 1), captor.getValue().getSortObject());
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), any(String.class), eq(Document.class));
+    }
+
+    @Test
+    void testMarkStaleIncrementsPersistedMarkOfEachBranch() {
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+
+        StepVerifier.create(stockLeaderRepository.markStale("franchise1", List.of("branch1", "branch2")))
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(query.capture(), update.capture());
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch2"),
+                query.getAllValues().get(1).getQueryObject());
+        assertEquals(new Document("$inc", new Document("stale", 1)), update.getValue().getUpdateObject());
+    }
+
+    @Test
+    void testMarkStaleFailureIsNotPropagated() {
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(new RuntimeException("Database error")));
+
+        StepVerifier.create(stockLeaderRepository.markStale("franchise1", List.of("branch1")))
+                .verifyComplete();
+    }
+
+    @Test
+    void testRefreshStaleRecomputesMarkedBranchesAndClearsUnchangedMarks() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(mark("branch1", 2L), mark("branch2", 1L)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(recomputed("branch1", "1", 50)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 1L, null)));
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+
+        StepVerifier.create(stockLeaderRepository.refreshStale())
+                .verifyComplete();
+
+        ArgumentCaptor<Query> marks = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(marks.capture(), eq(Document.class), eq(COLLECTION));
+        assertEquals(new Document("stale", new Document("$exists", true)), marks.getValue().getQueryObject());
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq("products"), eq(Document.class));
+        Document match = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        assertEquals("franchise1", match.get("franchiseId"));
+        assertEquals(Set.of("branch1", "branch2"), Set.copyOf((Collection<?>) match.get("branchId", Document.class).get("$in")));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(COLLECTION));
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch1"), query.getValue().getQueryObject());
+        assertEquals(new Document("$set", new Document("product", product("1", 50)).append("branch", branch("branch1"))),
+                update.getValue().getUpdateObject());
+
+        // la marca se borra solo si no cambió desde que se leyó
+        ArgumentCaptor<Query> cleared = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations).updateOne(cleared.capture(), any(Update.class));
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch1").append("stale", 2L),
+                cleared.getValue().getQueryObject());
+
+        // branch2 ya no tiene productos: se elimina su documento
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations).remove(removed.capture());
+        assertEquals(new Document("franchiseId", "franchise1").append("branchId", "branch2").append("stale", 1L),
+                removed.getValue().getQueryObject());
+    }
+
+    @Test
+    void testRefreshStaleKeepsMarksWhenRecomputeFails() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(mark("branch1", 1L)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.error(new RuntimeException("Database error")));
+
+        StepVerifier.create(stockLeaderRepository.refreshStale())
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), anyString());
+    }
+
+    @Test
+    void testRepairSampleRebuildsDriftedFranchises() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("franchises"), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", "franchise1"), new Document("_id", "franchise2")));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(recomputed("branch1", "1", 50)));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(leader("branch1", "1", 40)))
+                .thenReturn(Flux.just(leader("branch1", "1", 50)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(mongoTemplate.remove(any(Query.class), eq(COLLECTION))).thenReturn(Mono.just(DeleteResult.acknowledged(0)));
+
+        StepVerifier.create(stockLeaderRepository.repairSample())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(COLLECTION));
+        ArgumentCaptor<Aggregation> sample = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(sample.capture(), eq("franchises"), eq(Document.class));
+        assertEquals(new Document("size", 20L), sample.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$sample"));
+    }
+
+    @Test
+    void testRebuildUpsertsRecomputedLeadersAndDropsStaleOnes() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(recomputed("branch1", "1", 50), recomputed("branch2", "3", 100)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 1L, null)));
+        when(mongoTemplate.remove(any(Query.class), eq(COLLECTION))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(stockLeaderRepository.rebuild("franchise1"))
+                .expectNext(2L)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), any(Update.class), eq(COLLECTION));
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(COLLECTION));
+        assertEquals(new Document("franchiseId", "franchise1")
+                        .append("branchId", new Document("$nin", List.of("branch1", "branch2")))
+                        .append("stale", new Document("$exists", false)),
+                removed.getValue().getQueryObject());
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq("products"), eq(Document.class));
+        assertEquals(List.of("$match", "$sort", "$group", "$lookup", "$unwind"),
+                aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).stream()
+                        .map(stage -> stage.keySet().iterator().next())
+                        .toList());
+    }
+
+    @Test
+    void testCheckReportsMismatchedBranches() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(recomputed("branch1", "1", 50), recomputed("branch2", "3", 100)));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(leader("branch1", "1", 50), leader("branch2", "3", 90), leader("branch3", "7", 1)));
+
+        StepVerifier.create(stockLeaderRepository.check("franchise1"))
+                .assertNext(check -> {
+                    assertEquals(2, check.expected());
+                    assertEquals(3, check.stored());
+                    assertEquals(List.of("branch2", "branch3"), check.mismatchedBranchIds());
+                    assertFalse(check.consistent());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testCheckIgnoresBranchesPendingRefresh() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("products"), eq(Document.class)))
+                .thenReturn(Flux.just(recomputed("branch1", "1", 50), recomputed("branch2", "3", 100)));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(leader("branch1", "1", 50), mark("branch2", 1L)));
+
+        StepVerifier.create(stockLeaderRepository.check("franchise1"))
+                .assertNext(check -> {
+                    assertEquals(1, check.stored());
+                    assertTrue(check.consistent());
+                })
+                .verifyComplete();
+    }
+
+    private static Document product(String id, int stock) {
+        return new Document("_id", id).append("name", "Product " + id).append("stock", stock);
+    }
+
+    private static Document branch(String id) {
+        return new Document("_id", id).append("name", "Branch " + id).append("address", "Address " + id)
+                .append("city", "City " + id);
+    }
+
+    private static Document leader(String branchId, String productId, int stock) {
+        return new Document("franchiseId", "franchise1").append("branchId", branchId)
+                .append("product", product(productId, stock))
+                .append("branch", branch(branchId));
+    }
+
+    private static Document mark(String branchId, long stale) {
+        return new Document("franchiseId", "franchise1").append("branchId", branchId).append("stale", stale);
+    }
+
+    private static Document recomputed(String branchId, String productId, int stock) {
+        return new Document("_id", branchId)
+                .append("product", product(productId, stock).append("franchiseId", "franchise1").append("branchId", branchId))
+                .append("branch", branch(branchId).append("franchiseId", "franchise1"));
+    }
+}
@@ -0,0 +1,57 @@
+package co.com.pragma.api;
+
+import co.com.pragma.api.helper.ErrorResponseWriter;
+import co.com.pragma.model.Constants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Responde con el sobre de error de {@link ErrorResponseWriter} los fallos que escapan de los handlers de
+ * la API, como un ID de ruta inválido rechazado antes de construir el flujo reactivo.
+ * <p>
+ * Se ordena antes que el manejador de errores de Spring Boot, que sigue recibiendo las
+ * {@link ResponseStatusException} (ruta inexistente, método no permitido), los errores fuera de la API y
+ * los que llegan con la respuesta ya confirmada.
+ */
+@Component
+@Order(-2)
+@RequiredArgsConstructor
+public class ApiExceptionHandler implements WebExceptionHandler {
+
+    private final ErrorResponseWriter errorResponseWriter;
+    private final ServerCodecConfigurer codecConfigurer;
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        if (exchange.getResponse().isCommitted() || ex instanceof ResponseStatusException
+                || !exchange.getRequest().getPath().pathWithinApplication().value().startsWith(Constants.API_BASE_PATH)) {
+            return Mono.error(ex);
+        }
+        return errorResponseWriter.write(ex)
+                .flatMap(response -> response.writeTo(exchange, new ResponseContext()));
+    }
+
+    private class ResponseContext implements ServerResponse.Context {
+
+        @Override
+        public List<HttpMessageWriter<?>> messageWriters() {
+            return codecConfigurer.getWriters();
+        }
+
+        @Override
+        public List<ViewResolver> viewResolvers() {
+            return List.of();
+        }
+    }
+}
@@ -2,18 +2,32 @@ package co.com.pragma.api;
 
 import co.com.pragma.api.dto.*;
 import co.com.pragma.api.helper.BusinessCode;
+import co.com.pragma.api.helper.ConditionalRequests;
+import co.com.pragma.api.helper.ErrorResponseWriter;
 import co.com.pragma.api.helper.InputSanitizer;
+import co.com.pragma.api.helper.ProductImportParser;
+import co.com.pragma.api.helper.RequestCoalescer;
+import co.com.pragma.api.helper.ResponseFormats;
 import co.com.pragma.api.helper.ResponseUtil;
+import co.com.pragma.api.helper.StreamingResponseWriter;
 import co.com.pragma.api.helper.ValidationHelper;
+import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ImportChunkResult;
 import co.com.pragma.model.Branch;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.usecase.createfranchise.CreateFranchiseUseCase;
 import co.com.pragma.usecase.addbranch.AddBranchUseCase;
 import co.com.pragma.usecase.addproduct.AddProductUseCase;
 import co.com.pragma.usecase.deleteproduct.DeleteProductUseCase;
 import co.com.pragma.usecase.updateproductstock.UpdateProductStockUseCase;
 import co.com.pragma.usecase.getmaxstockproducts.GetMaxStockProductsUseCase;
+import co.com.pragma.usecase.getstockranking.GetStockRankingUseCase;
 import co.com.pragma.usecase.getallfranchises.GetAllFranchisesUseCase;
 import co.com.pragma.usecase.updatefranchisename.UpdateFranchiseNameUseCase;
 import co.com.pragma.usecase.updatebranchname.UpdateBranchNameUseCase;
@@ -23,16 +37,26 @@ import co.com.pragma.usecase.getfranchisebyid.GetFranchiseByIdUseCase;
 import co.com.pragma.usecase.getbranchbyid.GetBranchByIdUseCase;
 import co.com.pragma.usecase.getproductbyname.GetProductByNameUseCase;
 import co.com.pragma.usecase.getproductsbybranch.GetProductsByBranchUseCase;
-import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import co.com.pragma.usecase.getresourceversion.GetResourceVersionUseCase;
+import co.com.pragma.usecase.expandfranchise.ExpandFranchiseUseCase;
+import co.com.pragma.usecase.adjustproductstock.AdjustProductStockUseCase;
+import co.com.pragma.usecase.importproducts.ImportProductsUseCase;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -43,6 +67,17 @@ public class Handler {
     private static final String PATH_VAR_BRANCH_ID = "branchId";
     private static final String PATH_VAR_PRODUCT_ID = "productId";
     private static final String PATH_VAR_PRODUCT_NAME = "productName";
+    private static final String QUERY_PARAM_RANKING_SIZE = "k";
+    private static final String QUERY_PARAM_RANKING_ORDER = "order";
+    private static final String QUERY_PARAM_RANKING_SCOPE = "scope";
+    private static final int DEFAULT_RANKING_SIZE = 10;
+    private static final String QUERY_PARAM_PAGE_LIMIT = "limit";
+    private static final String QUERY_PARAM_PAGE_CURSOR = "cursor";
+    private static final String QUERY_PARAM_PAGE_SORT = "sort";
+    private static final int DEFAULT_PAGE_LIMIT = 20;
+    private static final String QUERY_PARAM_EXPAND = "expand";
+    private static final String EXPAND_BRANCHES = "branches";
+    private static final String EXPAND_PRODUCTS = "products";
     
     private final CreateFranchiseUseCase createFranchiseUseCase;
     private final AddBranchUseCase addBranchUseCase;
@@ -59,7 +94,16 @@ public class Handler {
     private final GetBranchByIdUseCase getBranchByIdUseCase;
     private final GetProductByNameUseCase getProductByNameUseCase;
     private final GetProductsByBranchUseCase getProductsByBranchUseCase;
+    private final AdjustProductStockUseCase adjustProductStockUseCase;
+    private final ImportProductsUseCase importProductsUseCase;
+    private final GetStockRankingUseCase getStockRankingUseCase;
+    private final GetResourceVersionUseCase getResourceVersionUseCase;
+    private final ExpandFranchiseUseCase expandFranchiseUseCase;
     private final ValidationHelper validationHelper;
+    private final ProductImportParser productImportParser;
+    private final StreamingResponseWriter streamingResponseWriter;
+    private final RequestCoalescer requestCoalescer;
+    private final ErrorResponseWriter errorResponseWriter;
 
     public Mono<ServerResponse> createFranchise(ServerRequest request) {
         log.info("Received POST request to create franchise");
@@ -84,24 +128,7 @@ public class Handler {
                         .status(HttpStatus.CREATED)
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> {
-                    log.error("Circuit breaker is OPEN - service unavailable: {}", e.getMessage());
-                    return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B503000, "El servicio de base de datos no está disponible temporalmente. Por favor, intente más tarde."));
-                })
-                .onErrorResume(IllegalArgumentException.class, e -> {
-                    log.error("Validation error creating franchise: {}", e.getMessage());
-                    return ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage()));
-                })
-                .onErrorResume(e -> {
-                    log.error("Internal error creating franchise", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
-                });
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> addBranch(ServerRequest request) {
@@ -125,14 +152,7 @@ public class Handler {
                         .status(HttpStatus.CREATED)
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> addProduct(ServerRequest request) {
@@ -156,14 +176,7 @@ public class Handler {
                         .status(HttpStatus.CREATED)
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> deleteProduct(ServerRequest request) {
@@ -176,14 +189,7 @@ public class Handler {
                         .ok()
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> updateProductStock(ServerRequest request) {
@@ -194,21 +200,54 @@ public class Handler {
                 .flatMap(validationHelper::validate)
                 .doOnNext(updateStockRequest -> 
                     updateStockRequest.setStock(InputSanitizer.validateNumber(updateStockRequest.getStock(), 0, 999999)))
-                .flatMap(updateStockRequest -> 
-                    updateProductStockUseCase.execute(franchiseId, branchId, productId, updateStockRequest.getStock()))
+                .flatMap(updateStockRequest -> conditionalWrite(request,
+                        () -> updateProductStockUseCase.execute(franchiseId, branchId, productId, updateStockRequest.getStock()),
+                        version -> updateProductStockUseCase.execute(franchiseId, branchId, productId,
+                                updateStockRequest.getStock(), version)))
+                .onErrorResume(errorResponseWriter::write);
+    }
+
+    public Mono<ServerResponse> adjustProductStock(ServerRequest request) {
+        String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
+        String branchId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_BRANCH_ID));
+        String productId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_PRODUCT_ID));
+        return request.bodyToMono(UpdateStockDeltaRequest.class)
+                .flatMap(validationHelper::validate)
+                .doOnNext(deltaRequest ->
+                    deltaRequest.setDelta(InputSanitizer.validateNumber(deltaRequest.getDelta(), -999999, 999999)))
+                .flatMap(deltaRequest ->
+                    adjustProductStockUseCase.execute(franchiseId, branchId, productId, deltaRequest.getDelta()))
                 .map(product -> ResponseUtil.responseSuccessful(product, BusinessCode.S200000))
                 .flatMap(response -> ServerResponse
                         .ok()
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .onErrorResume(errorResponseWriter::write);
+    }
+
+    public Mono<ServerResponse> importBranchProducts(ServerRequest request) {
+        String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
+        String branchId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_BRANCH_ID));
+        log.info("Received POST request to import products into branch: {} in franchise: {}", branchId, franchiseId);
+        return getBranchByIdUseCase.execute(franchiseId, branchId)
+                .then(Mono.defer(() -> importProducts(request, franchiseId, branchId)))
+                .onErrorResume(errorResponseWriter::writeNotFound);
+    }
+
+    public Mono<ServerResponse> importFranchiseProducts(ServerRequest request) {
+        String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
+        log.info("Received POST request to import products into franchise: {}", franchiseId);
+        return getFranchiseByIdUseCase.execute(franchiseId)
+                .then(Mono.defer(() -> importProducts(request, franchiseId, null)))
+                .onErrorResume(errorResponseWriter::writeNotFound);
+    }
+
+    private Mono<ServerResponse> importProducts(ServerRequest request, String franchiseId, String branchId) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(importProductsUseCase.execute(franchiseId,
+                                productImportParser.parse(request.bodyToFlux(String.class), branchId)),
+                        ImportChunkResult.class);
     }
 
     public Mono<ServerResponse> getMaxStockProducts(ServerRequest request) {
@@ -216,52 +255,54 @@ public class Handler {
         return getMaxStockProductsUseCase.execute(franchiseId)
                 .map(pwb -> ProductWithBranchDto.builder()
                         .product(pwb.getProduct())
-                        .branch(BranchSummaryDto.builder()
-                                .id(pwb.getBranch().getId())
-                                .name(pwb.getBranch().getName())
-                                .address(pwb.getBranch().getAddress())
-                                .city(pwb.getBranch().getCity())
-                                .build())
+                        .branch(toBranchSummary(pwb.getBranch()))
                         .build())
-                .collectList()
-                .map(products -> ResponseUtil.responseSuccessful(products, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .as(products -> streamingResponseWriter.write(request, products, ProductWithBranchDto.class, BusinessCode.S200000))
+                .onErrorResume(errorResponseWriter::write);
+    }
+
+    public Mono<ServerResponse> getStockRanking(ServerRequest request) {
+        String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
+        log.info("Received GET request to get stock ranking for franchise: {}", franchiseId);
+        return Flux.defer(() -> getStockRankingUseCase.execute(franchiseId,
+                        queryEnum(request, QUERY_PARAM_RANKING_SCOPE, RankingScope.class, RankingScope.BRANCH),
+                        queryEnum(request, QUERY_PARAM_RANKING_ORDER, RankingOrder.class, RankingOrder.DESC),
+                        queryInt(request, QUERY_PARAM_RANKING_SIZE, DEFAULT_RANKING_SIZE)))
+                .map(ranked -> RankedProductDto.builder()
+                        .rank(ranked.getRank())
+                        .product(ranked.getProduct())
+                        .branch(toBranchSummary(ranked.getBranch()))
+                        .build())
+                .as(ranking -> streamingResponseWriter.write(request, ranking, RankedProductDto.class, BusinessCode.S200000))
+                .onErrorResume(errorResponseWriter::write);
     }
 
-    @SuppressWarnings("java:S1172") // ServerRequest parameter required by RouterFunction signature
     public Mono<ServerResponse> getAllFranchises(ServerRequest request) {
+        if (isPageRequest(request)) {
+            return getFranchisePage(request);
+        }
         log.info("Received GET request to get all franchises");
         return getAllFranchisesUseCase.execute()
-                .map(franchise -> FranchiseSummaryDto.builder()
-                        .id(franchise.getId())
-                        .name(franchise.getName())
-                        .description(franchise.getDescription())
-                        .build())
-                .collectList()
-                .doOnNext(franchises -> log.info("Retrieved {} franchises", franchises.size()))
-                .map(franchises -> ResponseUtil.responseSuccessful(franchises, BusinessCode.S200000))
+                .map(Handler::toFranchiseSummary)
+                .as(franchises -> streamingResponseWriter.write(request, franchises, FranchiseSummaryDto.class, BusinessCode.S200000))
+                .onErrorResume(errorResponseWriter::write);
+    }
+
+    private Mono<ServerResponse> getFranchisePage(ServerRequest request) {
+        log.info("Received GET request to get a page of franchises");
+        return Mono.defer(() -> {
+                    PageQuery pageQuery = pageQuery(request);
+                    return requestCoalescer.mono("franchise-page", () -> getAllFranchisesUseCase.execute(pageQuery),
+                            pageQuery.getLimit(), pageQuery.getCursor(), pageQuery.getSort());
+                })
+                .map(page -> ResponseUtil.responseSuccessful(
+                        page.getItems().stream().map(Handler::toFranchiseSummary).toList(), page.getNext(), BusinessCode.S200000))
                 .flatMap(response -> ServerResponse
                         .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .contentType(ResponseFormats.contentType(request))
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(e -> {
-                    log.error("Error getting all franchises", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
-                });
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> updateFranchiseName(ServerRequest request) {
@@ -279,14 +320,7 @@ public class Handler {
                         .ok()
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> updateBranchName(ServerRequest request) {
@@ -305,14 +339,7 @@ public class Handler {
                         .ok()
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> updateBranch(ServerRequest request) {
@@ -325,26 +352,11 @@ public class Handler {
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("At least one field (name, address, or city) must be provided")))
                 .map(this::sanitizeBranchRequest)
                 .map(this::mapToBranch)
-                .flatMap(branchUpdate -> updateBranchUseCase.execute(franchiseId, branchId, branchUpdate))
-                .doOnNext(branch -> log.info("Branch updated successfully: {}", branch.getId()))
-                .map(branch -> ResponseUtil.responseSuccessful(branch, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> {
-                    log.error("Validation error updating branch: {}", e.getMessage());
-                    return ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage()));
-                })
-                .onErrorResume(e -> {
-                    log.error("Error updating branch", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
-                });
+                .flatMap(branchUpdate -> conditionalWrite(request,
+                        () -> updateBranchUseCase.execute(franchiseId, branchId, branchUpdate),
+                        version -> updateBranchUseCase.execute(franchiseId, branchId, branchUpdate, version)))
+                .doOnNext(response -> log.info("Branch updated successfully: {}", branchId))
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> updateProductName(ServerRequest request) {
@@ -357,110 +369,86 @@ public class Handler {
                     String sanitizedName = InputSanitizer.validateAndSanitizeName(updateNameRequest.getName());
                     updateNameRequest.setName(sanitizedName);
                 })
-                .flatMap(updateNameRequest -> 
-                    updateProductNameUseCase.execute(franchiseId, branchId, productId, updateNameRequest.getName()))
-                .map(product -> ResponseUtil.responseSuccessful(product, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> 
-                    ServerResponse.badRequest()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B400000, e.getMessage())))
-                .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000)));
+                .flatMap(updateNameRequest -> conditionalWrite(request,
+                        () -> updateProductNameUseCase.execute(franchiseId, branchId, productId, updateNameRequest.getName()),
+                        version -> updateProductNameUseCase.execute(franchiseId, branchId, productId,
+                                updateNameRequest.getName(), version)))
+                .onErrorResume(errorResponseWriter::write);
     }
 
     public Mono<ServerResponse> getFranchiseById(ServerRequest request) {
         String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
+        if (request.queryParam(QUERY_PARAM_EXPAND).isPresent()) {
+            return getExpandedFranchise(request, franchiseId);
+        }
         log.info("Received GET request to get franchise by ID: {}", franchiseId);
-        return getFranchiseByIdUseCase.execute(franchiseId)
-                .doOnNext(franchise -> log.info("Franchise found: {}", franchise.getId()))
-                .map(franchise -> FranchiseSummaryDto.builder()
-                        .id(franchise.getId())
-                        .name(franchise.getName())
-                        .description(franchise.getDescription())
-                        .build())
-                .map(franchiseDto -> ResponseUtil.responseSuccessful(franchiseDto, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> {
-                    log.error("Franchise not found: {}", franchiseId);
-                    return ServerResponse.status(HttpStatus.NOT_FOUND)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B404000, e.getMessage()));
+        return revalidatedGet(request, getFranchiseByIdUseCase.executeVersion(franchiseId),
+                        () -> requestCoalescer.mono("franchise", () -> getFranchiseByIdUseCase.executeVersioned(franchiseId), franchiseId)
+                                .doOnNext(franchise -> log.info("Franchise found: {}", franchise.getValue().getId())),
+                        Handler::toFranchiseSummary)
+                .onErrorResume(errorResponseWriter::writeNotFound);
+    }
+
+    /**
+     * Franquicia con sus sucursales y, si se pide, sus productos. Las sucursales se escriben a medida que
+     * llegan de la base de datos, así que la respuesta no lleva ETag ni se agrupa con otras lecturas.
+     */
+    private Mono<ServerResponse> getExpandedFranchise(ServerRequest request, String franchiseId) {
+        log.info("Received GET request to get expanded franchise: {}", franchiseId);
+        return Mono.defer(() -> {
+                    boolean withProducts = expandsProducts(request);
+                    return expandFranchiseUseCase.franchise(franchiseId, withProducts)
+                            .flatMap(franchise -> streamingResponseWriter.writeNested(toFranchiseSummary(franchise),
+                                    EXPAND_BRANCHES,
+                                    expandFranchiseUseCase.branches(franchiseId, withProducts)
+                                            .map(branch -> toExpandedBranch(branch, withProducts)),
+                                    BusinessCode.S200000));
                 })
-                .onErrorResume(e -> {
-                    log.error("Error getting franchise by ID", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
-                });
+                .onErrorResume(errorResponseWriter::writeMissingAsNotFound);
     }
 
     public Mono<ServerResponse> getBranchById(ServerRequest request) {
         String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
         String branchId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_BRANCH_ID));
         log.info("Received GET request to get branch by ID: {} for franchise: {}", branchId, franchiseId);
-        return getBranchByIdUseCase.execute(franchiseId, branchId)
-                .doOnNext(branch -> log.info("Branch found: {}", branch.getId()))
-                .map(branch -> BranchSummaryDto.builder()
-                        .id(branch.getId())
-                        .name(branch.getName())
-                        .address(branch.getAddress())
-                        .city(branch.getCity())
-                        .build())
-                .map(branchSummary -> ResponseUtil.responseSuccessful(branchSummary, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> {
-                    log.error("Branch not found: {} for franchise: {}", branchId, franchiseId);
-                    return ServerResponse.status(HttpStatus.NOT_FOUND)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B404000, e.getMessage()));
-                })
-                .onErrorResume(e -> {
-                    log.error("Error getting branch by ID", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
-                });
+        return revalidatedGet(request, getBranchByIdUseCase.executeVersion(franchiseId, branchId),
+                        () -> requestCoalescer.mono("branch", () -> getBranchByIdUseCase.executeVersioned(franchiseId, branchId),
+                                        franchiseId, branchId)
+                                .doOnNext(branch -> log.info("Branch found: {}", branch.getValue().getId())),
+                        Handler::toBranchSummary)
+                .onErrorResume(errorResponseWriter::writeNotFound);
     }
 
     public Mono<ServerResponse> getProductsByBranch(ServerRequest request) {
         String franchiseId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_FRANCHISE_ID));
         String branchId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_BRANCH_ID));
+        if (isPageRequest(request)) {
+            return getProductPage(request, franchiseId, branchId);
+        }
         log.info("Received GET request to get products for branch: {} in franchise: {}", branchId, franchiseId);
-        return getProductsByBranchUseCase.execute(franchiseId, branchId)
-                .collectList()
-                .doOnNext(products -> log.info("Found {} products for branch: {}", products.size(), branchId))
-                .map(products -> ResponseUtil.responseSuccessful(products, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> {
-                    log.error("Branch not found: {} for franchise: {}", branchId, franchiseId);
-                    return ServerResponse.status(HttpStatus.NOT_FOUND)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B404000, e.getMessage()));
-                })
-                .onErrorResume(e -> {
-                    log.error("Error getting products by branch", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
-                });
+        return conditionalGet(request, getResourceVersionUseCase.productListVersion(franchiseId, branchId),
+                version -> streamingResponseWriter.eTag(request, version),
+                eTag -> getProductsByBranchUseCase.execute(franchiseId, branchId)
+                        .as(products -> streamingResponseWriter.write(request, products, Product.class, BusinessCode.S200000, eTag)))
+                .onErrorResume(errorResponseWriter::writeNotFound);
+    }
+
+    private Mono<ServerResponse> getProductPage(ServerRequest request, String franchiseId, String branchId) {
+        log.info("Received GET request to get a page of products for branch: {} in franchise: {}", branchId, franchiseId);
+        return conditionalGet(request, getResourceVersionUseCase.productListVersion(franchiseId, branchId),
+                version -> ResponseFormats.eTag(request, version),
+                eTag -> Mono.defer(() -> {
+                            PageQuery pageQuery = pageQuery(request);
+                            return requestCoalescer.mono("branch-product-page",
+                                    () -> getProductsByBranchUseCase.execute(franchiseId, branchId, pageQuery),
+                                    franchiseId, branchId, pageQuery.getLimit(), pageQuery.getCursor(), pageQuery.getSort(), eTag);
+                        })
+                        .map(page -> ResponseUtil.responseSuccessful(page.getItems(), page.getNext(), BusinessCode.S200000))
+                        .flatMap(response -> ConditionalRequests.ok(eTag)
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .contentType(ResponseFormats.contentType(request))
+                                .bodyValue(response)))
+                .onErrorResume(errorResponseWriter::writeMissingAsNotFound);
     }
 
     public Mono<ServerResponse> getProductByName(ServerRequest request) {
@@ -468,34 +456,181 @@ public class Handler {
         String branchId = InputSanitizer.validateAndSanitizeId(request.pathVariable(PATH_VAR_BRANCH_ID));
         String productName = InputSanitizer.validateAndSanitizeName(request.pathVariable(PATH_VAR_PRODUCT_NAME));
         log.info("Received GET request to get product by name: {} for branch: {} in franchise: {}", productName, branchId, franchiseId);
-        return getProductByNameUseCase.execute(franchiseId, branchId, productName)
-                .doOnNext(product -> log.info("Product found: {}", product.getName()))
-                .map(product -> ResponseUtil.responseSuccessful(product, BusinessCode.S200000))
-                .flatMap(response -> ServerResponse
-                        .ok()
+        return versionedGet(request,
+                        requestCoalescer.mono("product-by-name",
+                                        () -> getProductByNameUseCase.executeVersioned(franchiseId, branchId, productName),
+                                        franchiseId, branchId, productName)
+                                .doOnNext(product -> log.info("Product found: {}", product.getValue().getName())),
+                        Function.identity())
+                .onErrorResume(errorResponseWriter::writeNotFound);
+    }
+
+    /**
+     * Sin {@code If-Match} la escritura es incondicional. Con él se hace compare-and-set contra la versión
+     * indicada y, como cada escritura suma uno a la versión, la respuesta lleva el ETag de la nueva versión
+     * sin volver a leerla.
+     */
+    private <T> Mono<ServerResponse> conditionalWrite(ServerRequest request, Supplier<Mono<T>> unconditional,
+                                                      LongFunction<Mono<T>> ifVersion) {
+        Optional<Long> expected = ConditionalRequests.ifMatchVersion(request);
+        Mono<T> write = expected.map(ifVersion::apply).orElseGet(unconditional);
+        String eTag = expected.map(version -> ConditionalRequests.eTag(version + 1)).orElse(null);
+        return write.map(result -> ResponseUtil.responseSuccessful(result, BusinessCode.S200000))
+                .flatMap(response -> ConditionalRequests.ok(eTag)
                         .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(response))
-                .onErrorResume(CallNotPermittedException.class, e -> handleCircuitBreakerOpen())
-                .onErrorResume(IllegalArgumentException.class, e -> {
-                    log.error("Product not found: {} for branch: {} in franchise: {}", productName, branchId, franchiseId);
-                    return ServerResponse.status(HttpStatus.NOT_FOUND)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.B404000, e.getMessage()));
-                })
+                        .bodyValue(response));
+    }
+
+    /**
+     * ETag de la versión leída, vacío si el recurso no la tiene o no se pudo leer: la versión solo
+     * habilita las peticiones condicionales y nunca hace fallar la respuesta.
+     */
+    private static Mono<Optional<String>> versionETag(Mono<Long> version, LongFunction<String> toETag) {
+        return Mono.defer(() -> version)
+                .map(current -> Optional.of(toETag.apply(current)))
+                .defaultIfEmpty(Optional.empty())
                 .onErrorResume(e -> {
-                    log.error("Error getting product by name", e);
-                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .bodyValue(ResponseUtil.responseError(BusinessCode.E500000));
+                    log.warn("Could not read resource version, serving full response: {}", e.getMessage());
+                    return Mono.just(Optional.empty());
                 });
     }
 
-    private Mono<ServerResponse> handleCircuitBreakerOpen() {
-        log.error("Circuit breaker is OPEN - service unavailable");
-        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(ResponseUtil.responseError(BusinessCode.B503000, 
-                        "El servicio de base de datos no está disponible temporalmente. Por favor, intente más tarde."));
+    /**
+     * Lee solo la versión del recurso y responde {@code 304} si coincide con {@code If-None-Match}; si no,
+     * genera la respuesta completa con ese ETag. La versión se lee antes que el recurso: si cambia entre
+     * ambas lecturas, el ETag queda por detrás del cuerpo y la siguiente petición recibe un {@code 200},
+     * nunca un {@code 304} con datos obsoletos. Por eso, si la lectura se agrupa, el ETag forma parte de la
+     * clave: solo se comparte una lectura que empezó después de leer esa versión. Si la versión no existe o
+     * no se puede leer, se responde sin ETag y la lectura completa decide el resultado.
+     */
+    private Mono<ServerResponse> conditionalGet(ServerRequest request, Mono<Long> version, LongFunction<String> toETag,
+                                                Function<String, Mono<ServerResponse>> render) {
+        return versionETag(version, toETag)
+                .flatMap(eTag -> eTag.isPresent() && ConditionalRequests.isNotModified(request, eTag.get())
+                        ? ConditionalRequests.notModified(eTag.get())
+                        : render.apply(eTag.orElse(null)));
+    }
+
+    /**
+     * Responde con el recurso y el ETag de la versión leída en la misma consulta, o con {@code 304} si esa
+     * versión coincide con {@code If-None-Match}. Como ETag y cuerpo salen de la misma lectura, esta puede
+     * agruparse con otras peticiones sin que un {@code 304} confirme datos obsoletos. El formato se negocia
+     * con {@link ResponseFormats} y cada uno lleva su propio ETag.
+     */
+    private static <T> Mono<ServerResponse> versionedGet(ServerRequest request, Mono<Versioned<T>> read,
+                                                         Function<T, ?> toDto) {
+        return read.flatMap(versioned -> {
+            String eTag = ResponseFormats.eTag(request, versioned.getVersion());
+            if (ConditionalRequests.isNotModified(request, eTag)) {
+                return ConditionalRequests.notModified(eTag);
+            }
+            return ConditionalRequests.ok(eTag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .contentType(ResponseFormats.contentType(request))
+                    .bodyValue(ResponseUtil.responseSuccessful(toDto.apply(versioned.getValue()), BusinessCode.S200000));
+        });
+    }
+
+    /**
+     * Con {@code If-None-Match} lee antes solo la versión, de la caché o de una proyección, y responde
+     * {@code 304} sin leer el recurso si coincide. En otro caso responde como {@link #versionedGet}.
+     */
+    private static <T> Mono<ServerResponse> revalidatedGet(ServerRequest request, Mono<Long> version,
+                                                           Supplier<Mono<Versioned<T>>> read, Function<T, ?> toDto) {
+        if (!ConditionalRequests.hasIfNoneMatch(request)) {
+            return versionedGet(request, read.get(), toDto);
+        }
+        return versionETag(version, current -> ResponseFormats.eTag(request, current))
+                .flatMap(eTag -> eTag.isPresent() && ConditionalRequests.isNotModified(request, eTag.get())
+                        ? ConditionalRequests.notModified(eTag.get())
+                        : versionedGet(request, read.get(), toDto));
+    }
+
+    private static BranchSummaryDto toBranchSummary(Branch branch) {
+        return BranchSummaryDto.builder()
+                .id(branch.getId())
+                .name(branch.getName())
+                .address(branch.getAddress())
+                .city(branch.getCity())
+                .build();
+    }
+
+    private static ExpandedBranchDto toExpandedBranch(Branch branch, boolean withProducts) {
+        return ExpandedBranchDto.builder()
+                .id(branch.getId())
+                .name(branch.getName())
+                .address(branch.getAddress())
+                .city(branch.getCity())
+                .products(withProducts ? branch.getProducts() : null)
+                .build();
+    }
+
+    private static FranchiseSummaryDto toFranchiseSummary(Franchise franchise) {
+        return FranchiseSummaryDto.builder()
+                .id(franchise.getId())
+                .name(franchise.getName())
+                .description(franchise.getDescription())
+                .build();
+    }
+
+    /**
+     * Los listados se paginan por cursor cuando la petición trae alguno de los parámetros de página; sin
+     * ellos se mantiene la respuesta completa en streaming.
+     */
+    private static boolean isPageRequest(ServerRequest request) {
+        return request.queryParam(QUERY_PARAM_PAGE_LIMIT).isPresent()
+                || request.queryParam(QUERY_PARAM_PAGE_CURSOR).isPresent()
+                || request.queryParam(QUERY_PARAM_PAGE_SORT).isPresent();
+    }
+
+    /**
+     * {@code expand} admite {@code branches} y {@code products} separados por comas; expandir productos
+     * implica expandir sucursales.
+     */
+    private static boolean expandsProducts(ServerRequest request) {
+        boolean withProducts = false;
+        for (String value : request.queryParams().getOrDefault(QUERY_PARAM_EXPAND, List.of())) {
+            for (String expansion : value.split(",")) {
+                String normalized = expansion.trim().toLowerCase(Locale.ROOT);
+                if (normalized.equals(EXPAND_PRODUCTS)) {
+                    withProducts = true;
+                } else if (!normalized.equals(EXPAND_BRANCHES) && !normalized.isEmpty()) {
+                    throw new IllegalArgumentException(Constants.ERROR_UNSUPPORTED_EXPAND);
+                }
+            }
+        }
+        return withProducts;
+    }
+
+    private static PageQuery pageQuery(ServerRequest request) {
+        return new PageQuery(
+                queryInt(request, QUERY_PARAM_PAGE_LIMIT, DEFAULT_PAGE_LIMIT),
+                request.queryParam(QUERY_PARAM_PAGE_CURSOR).filter(cursor -> !cursor.isBlank()).orElse(null),
+                queryEnum(request, QUERY_PARAM_PAGE_SORT, ListingSort.class, ListingSort.ID));
+    }
+
+    private static int queryInt(ServerRequest request, String name, int defaultValue) {
+        return request.queryParam(name)
+                .map(value -> {
+                    try {
+                        return Integer.parseInt(value.trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid value for query parameter " + name);
+                    }
+                })
+                .orElse(defaultValue);
+    }
+
+    private static <E extends Enum<E>> E queryEnum(ServerRequest request, String name, Class<E> type, E defaultValue) {
+        return request.queryParam(name)
+                .map(value -> {
+                    try {
+                        return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid value for query parameter " + name);
+                    }
+                })
+                .orElse(defaultValue);
     }
 
     private UpdateBranchRequest sanitizeBranchRequest(UpdateBranchRequest request) {
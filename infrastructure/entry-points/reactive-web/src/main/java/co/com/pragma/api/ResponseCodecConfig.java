@@ -0,0 +1,69 @@
+package co.com.pragma.api;
+
+import co.com.pragma.api.helper.ResponseDtoEncoder;
+import co.com.pragma.api.helper.ResponseFormats;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serialización de las respuestas de la API.
+ * <p>
+ * {@link BlackbirdModule} se registra en el {@code ObjectMapper} de Spring Boot para que Jackson acceda a
+ * las propiedades con código generado en lugar de reflexión. {@link ResponseDtoEncoder} se registra como
+ * codec propio, que WebFlux consulta antes que el {@code Jackson2JsonEncoder} por defecto.
+ * <p>
+ * Los codecs CBOR y Smile leen y escriben los formatos binarios de
+ * {@link ResponseFormats}. Sus {@code ObjectMapper} salen del mismo builder de
+ * Spring Boot que el de JSON, con los mismos módulos y opciones, y solo cambian la fábrica. Se declaran
+ * como beans calificados que no son candidatos por defecto, de modo que no reemplazan al
+ * {@code ObjectMapper} de JSON y {@code StreamingResponseWriter} los recibe por su calificador.
+ */
+@Configuration
+public class ResponseCodecConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public CodecCustomizer responseDtoCodecCustomizer(ResponseDtoEncoder responseDtoEncoder) {
+        return configurer -> configurer.customCodecs().register(responseDtoEncoder);
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(ResponseFormats.CBOR_MAPPER)
+    public ObjectMapper cborObjectMapper(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        return objectMapperBuilder.getObject().factory(new CBORFactory()).build();
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(ResponseFormats.SMILE_MAPPER)
+    public ObjectMapper smileObjectMapper(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        return objectMapperBuilder.getObject().factory(new SmileFactory()).build();
+    }
+
+    @Bean
+    public CodecCustomizer binaryCodecCustomizer(@Qualifier(ResponseFormats.CBOR_MAPPER) ObjectMapper cborMapper,
+                                                 @Qualifier(ResponseFormats.SMILE_MAPPER) ObjectMapper smileMapper) {
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper));
+            configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper));
+        };
+    }
+}
@@ -2,6 +2,7 @@ package co.com.pragma.api;
 
 import co.com.pragma.api.dto.*;
 import co.com.pragma.model.Constants;
+import co.com.pragma.model.ImportChunkResult;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -93,12 +94,22 @@ public class RouterRest {
                 operationId = "getAllFranchises",
                 summary = "Get all franchises",
                 tags = {"Franchises"},
+                parameters = {
+                    @Parameter(in = ParameterIn.QUERY, name = "limit", description = "Page size, 1 to 100 (default 20); any page parameter switches to a paginated response"),
+                    @Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Opaque cursor returned as next by the previous page"),
+                    @Parameter(in = ParameterIn.QUERY, name = "sort", description = "id or name (default id)")
+                },
                 responses = {
                     @ApiResponse(
                         responseCode = "200",
                         description = "List of franchises",
                         content = @Content(schema = @Schema(implementation = FranchiseListResponseDto.class))
                     ),
+                    @ApiResponse(
+                        responseCode = "400",
+                        description = "Invalid page parameters",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
                     @ApiResponse(
                         responseCode = "500",
                         description = "Internal server error",
@@ -149,7 +160,8 @@ public class RouterRest {
                 tags = {"Branches"},
                 parameters = {
                     @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
-                    @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID")
+                    @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID"),
+                    @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag of the version the change is based on; the update only applies while it is still current")
                 },
                 requestBody = @RequestBody(content = @Content(schema = @Schema(implementation = UpdateBranchRequest.class))),
                 responses = {
@@ -168,6 +180,11 @@ public class RouterRest {
                         description = "Branch or franchise not found",
                         content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
                     ),
+                    @ApiResponse(
+                        responseCode = "412",
+                        description = "The resource was modified after the If-Match version",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
                     @ApiResponse(
                         responseCode = "500",
                         description = "Internal server error",
@@ -220,7 +237,10 @@ public class RouterRest {
                 tags = {"Products"},
                 parameters = {
                     @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
-                    @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID")
+                    @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID"),
+                    @Parameter(in = ParameterIn.QUERY, name = "limit", description = "Page size, 1 to 100 (default 20); any page parameter switches to a paginated response"),
+                    @Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Opaque cursor returned as next by the previous page"),
+                    @Parameter(in = ParameterIn.QUERY, name = "sort", description = "id, name or stock, stock listing highest first (default id)")
                 },
                 responses = {
                     @ApiResponse(
@@ -228,6 +248,11 @@ public class RouterRest {
                         description = "List of products",
                         content = @Content(schema = @Schema(implementation = ProductListResponseDto.class))
                     ),
+                    @ApiResponse(
+                        responseCode = "400",
+                        description = "Invalid page parameters",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
                     @ApiResponse(
                         responseCode = "404",
                         description = "Branch not found",
@@ -286,7 +311,8 @@ public class RouterRest {
                 parameters = {
                     @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
                     @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID"),
-                    @Parameter(in = ParameterIn.PATH, name = "productId", description = "Product ID")
+                    @Parameter(in = ParameterIn.PATH, name = "productId", description = "Product ID"),
+                    @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag of the version the change is based on; the update only applies while it is still current")
                 },
                 requestBody = @RequestBody(content = @Content(schema = @Schema(implementation = UpdateNameRequest.class))),
                 responses = {
@@ -300,6 +326,11 @@ public class RouterRest {
                         description = "Invalid request",
                         content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
                     ),
+                    @ApiResponse(
+                        responseCode = "412",
+                        description = "The resource was modified after the If-Match version",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
                     @ApiResponse(
                         responseCode = "500",
                         description = "Internal server error",
@@ -320,7 +351,8 @@ public class RouterRest {
                 parameters = {
                     @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
                     @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID"),
-                    @Parameter(in = ParameterIn.PATH, name = "productId", description = "Product ID")
+                    @Parameter(in = ParameterIn.PATH, name = "productId", description = "Product ID"),
+                    @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag of the version the change is based on; the update only applies while it is still current")
                 },
                 requestBody = @RequestBody(content = @Content(schema = @Schema(implementation = UpdateStockRequest.class))),
                 responses = {
@@ -334,6 +366,116 @@ public class RouterRest {
                         description = "Invalid request",
                         content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
                     ),
+                    @ApiResponse(
+                        responseCode = "412",
+                        description = "The resource was modified after the If-Match version",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "500",
+                        description = "Internal server error",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    )
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/franchises/{franchiseId}/branches/{branchId}/products/{productId}/stock",
+            method = RequestMethod.PATCH,
+            beanClass = Handler.class,
+            beanMethod = "adjustProductStock",
+                operation = @Operation(
+                operationId = "adjustProductStock",
+                summary = "Adjust product stock by a delta",
+                description = "Atomically adds the delta to the current stock. Negative deltas are rejected when the stock is insufficient.",
+                tags = {"Products"},
+                parameters = {
+                    @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
+                    @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID"),
+                    @Parameter(in = ParameterIn.PATH, name = "productId", description = "Product ID")
+                },
+                requestBody = @RequestBody(content = @Content(schema = @Schema(implementation = UpdateStockDeltaRequest.class))),
+                responses = {
+                    @ApiResponse(
+                        responseCode = "200",
+                        description = "Stock adjusted successfully",
+                        content = @Content(schema = @Schema(implementation = ProductResponseDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "400",
+                        description = "Invalid request",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "409",
+                        description = "Insufficient stock",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "500",
+                        description = "Internal server error",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    )
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/franchises/{franchiseId}/branches/{branchId}/products/import",
+            method = RequestMethod.POST,
+            beanClass = Handler.class,
+            beanMethod = "importBranchProducts",
+                operation = @Operation(
+                operationId = "importBranchProducts",
+                summary = "Import products into a branch",
+                description = "Streams an NDJSON body (one product per line) into the branch and returns one NDJSON result per stored chunk.",
+                tags = {"Products"},
+                parameters = {
+                    @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
+                    @Parameter(in = ParameterIn.PATH, name = "branchId", description = "Branch ID")
+                },
+                requestBody = @RequestBody(content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ProductImportRequest.class))),
+                responses = {
+                    @ApiResponse(
+                        responseCode = "200",
+                        description = "Import results by chunk",
+                        content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ImportChunkResult.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "404",
+                        description = "Franchise or branch not found",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "500",
+                        description = "Internal server error",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    )
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/franchises/{franchiseId}/products/import",
+            method = RequestMethod.POST,
+            beanClass = Handler.class,
+            beanMethod = "importFranchiseProducts",
+                operation = @Operation(
+                operationId = "importFranchiseProducts",
+                summary = "Import products into a franchise",
+                description = "Streams an NDJSON body where every line names its target branch and returns one NDJSON result per stored chunk.",
+                tags = {"Products"},
+                parameters = {@Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID")},
+                requestBody = @RequestBody(content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ProductImportRequest.class))),
+                responses = {
+                    @ApiResponse(
+                        responseCode = "200",
+                        description = "Import results by chunk",
+                        content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ImportChunkResult.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "404",
+                        description = "Franchise not found",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
                     @ApiResponse(
                         responseCode = "500",
                         description = "Internal server error",
@@ -371,6 +513,40 @@ public class RouterRest {
                 }
             )
         ),
+        @RouterOperation(
+            path = "/api/franchises/{franchiseId}/stock-ranking",
+            method = RequestMethod.GET,
+            beanClass = Handler.class,
+            beanMethod = "getStockRanking",
+                operation = @Operation(
+                operationId = "getStockRanking",
+                summary = "Get the top or bottom K products by stock per branch or franchise-wide",
+                tags = {"Products"},
+                parameters = {
+                    @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
+                    @Parameter(in = ParameterIn.QUERY, name = "k", description = "Products per ranking, 1 to 100 (default 10)"),
+                    @Parameter(in = ParameterIn.QUERY, name = "order", description = "desc for highest stock, asc for lowest (default desc)"),
+                    @Parameter(in = ParameterIn.QUERY, name = "scope", description = "branch for one ranking per branch, franchise for a single ranking (default branch)")
+                },
+                responses = {
+                    @ApiResponse(
+                        responseCode = "200",
+                        description = "Ranked products",
+                        content = @Content(schema = @Schema(implementation = RankedProductListResponseDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "400",
+                        description = "Invalid ranking parameters",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
+                    @ApiResponse(
+                        responseCode = "500",
+                        description = "Internal server error",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    )
+                }
+            )
+        ),
         @RouterOperation(
             path = "/api/franchises/{franchiseId}",
             method = RequestMethod.GET,
@@ -379,14 +555,25 @@ public class RouterRest {
                 operation = @Operation(
                 operationId = "getFranchiseById",
                 summary = "Get franchise by ID",
+                description = "With expand=branches or expand=branches,products the franchise is returned with its "
+                        + "branches (and their products), streamed branch by branch. Franchises above 500 branches or "
+                        + "10000 products cannot be expanded and must be read through the paginated listings.",
                 tags = {"Franchises"},
-                parameters = {@Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID")},
+                parameters = {
+                    @Parameter(in = ParameterIn.PATH, name = "franchiseId", description = "Franchise ID"),
+                    @Parameter(in = ParameterIn.QUERY, name = "expand", description = "Comma-separated expansions: branches, products")
+                },
                 responses = {
                     @ApiResponse(
                         responseCode = "200",
                         description = "Franchise found",
                         content = @Content(schema = @Schema(implementation = FranchiseResponseDto.class))
                     ),
+                    @ApiResponse(
+                        responseCode = "400",
+                        description = "Unsupported expand value or franchise too large to expand",
+                        content = @Content(schema = @Schema(implementation = ResponseErrorDto.class))
+                    ),
                     @ApiResponse(
                         responseCode = "404",
                         description = "Franchise not found",
@@ -477,7 +664,11 @@ public class RouterRest {
                         .andRoute(POST(Constants.PATH_PRODUCTS), handler::addProduct)
                         .andRoute(DELETE(Constants.PATH_PRODUCT_ID), handler::deleteProduct)
                         .andRoute(PUT(Constants.PATH_STOCK), handler::updateProductStock)
+                        .andRoute(PATCH(Constants.PATH_STOCK), handler::adjustProductStock)
+                        .andRoute(POST(Constants.PATH_PRODUCTS_IMPORT), handler::importBranchProducts)
+                        .andRoute(POST(Constants.PATH_FRANCHISE_PRODUCTS_IMPORT), handler::importFranchiseProducts)
                         .andRoute(GET(Constants.PATH_MAX_STOCK), handler::getMaxStockProducts)
+                        .andRoute(GET(Constants.PATH_STOCK_RANKING), handler::getStockRanking)
                         .andRoute(PUT(Constants.PATH_FRANCHISE_ID), handler::updateFranchiseName)
                         .andRoute(PUT(Constants.PATH_BRANCH_ID), handler::updateBranch)
                         .andRoute(PUT(Constants.PATH_PRODUCT_ID), handler::updateProductName)
@@ -0,0 +1,27 @@
+package co.com.pragma.api.dto;
+
+import co.com.pragma.model.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO para una sucursal dentro de la vista expandida de una franquicia; sin {@code products} cuando
+ * solo se expanden las sucursales
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExpandedBranchDto {
+    private String id;
+    private String name;
+    private String address;
+    private String city;
+    private List<Product> products;
+}
@@ -0,0 +1,20 @@
+package co.com.pragma.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Una línea del archivo NDJSON de importación de productos. {@code branchId} solo se usa en la
+ * importación a nivel de franquicia.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRequest {
+    private String branchId;
+    private String name;
+    private Integer stock;
+}
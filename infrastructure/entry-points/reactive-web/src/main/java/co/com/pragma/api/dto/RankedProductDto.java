@@ -0,0 +1,22 @@
+package co.com.pragma.api.dto;
+
+import co.com.pragma.model.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para una posición del ranking de stock, con la sucursal sin productos
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RankedProductDto {
+    private int rank;
+    private Product product;
+    private BranchSummaryDto branch;
+}
@@ -0,0 +1,6 @@
+package co.com.pragma.api.dto;
+
+import java.util.List;
+
+public class RankedProductListResponseDto extends ResponseDto<List<RankedProductDto>> {
+}
@@ -18,5 +18,6 @@ public class ResponseDto<T> {
     private String title;
     private String message;
     private T data;
+    private String next;
     private List<String> errors;
 }
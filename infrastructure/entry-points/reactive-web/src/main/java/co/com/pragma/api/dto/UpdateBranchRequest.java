@@ -1,5 +1,8 @@
 package co.com.pragma.api.dto;
 
+import co.com.pragma.validator.GenerateValidator;
+
+@GenerateValidator
 public class UpdateBranchRequest extends BaseBranchFields {
     
     public boolean hasAtLeastOneField() {
@@ -0,0 +1,23 @@
+package co.com.pragma.api.dto;
+
+import co.com.pragma.validator.GenerateValidator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@GenerateValidator
+public class UpdateStockDeltaRequest {
+
+    @NotNull(message = "Delta is required")
+    @Min(value = -999999, message = "Delta must be greater than or equal to -999999")
+    @Max(value = 999999, message = "Delta must be less than or equal to 999999")
+    private Integer delta;
+}
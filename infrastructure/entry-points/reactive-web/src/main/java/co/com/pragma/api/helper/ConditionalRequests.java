@@ -0,0 +1,86 @@
+package co.com.pragma.api.helper;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ETags fuertes derivados de la versión de un documento y comprobación de {@code If-None-Match} e
+ * {@code If-Match}. Cuando un recurso tiene varias representaciones (JSON y NDJSON) cada una lleva su
+ * propia variante.
+ */
+@UtilityClass
+public class ConditionalRequests {
+
+    /**
+     * Versión que ningún documento alcanza: una escritura condicionada a ella siempre falla con 412.
+     */
+    public static final long UNMATCHABLE_VERSION = -1L;
+
+    public static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String eTag(long version, String variant) {
+        return "\"" + version + "-" + variant + "\"";
+    }
+
+    public static boolean hasIfNoneMatch(ServerRequest request) {
+        return !request.headers().header(HttpHeaders.IF_NONE_MATCH).isEmpty();
+    }
+
+    /**
+     * {@code If-None-Match} usa la comparación débil, así que también coincide con {@code W/"..."}.
+     */
+    public static boolean isNotModified(ServerRequest request, String eTag) {
+        ETag current = ETag.create(eTag);
+        return request.headers().header(HttpHeaders.IF_NONE_MATCH).stream()
+                .flatMap(value -> ETag.parse(value).stream())
+                .anyMatch(candidate -> candidate.isWildcard() || candidate.compare(current, false));
+    }
+
+    /**
+     * Versión exigida por {@code If-Match}, vacía si la cabecera no viene o es {@code *}. La comparación es
+     * fuerte: una etiqueta débil, de otra representación o una lista de varias no identifica una única
+     * versión y se traduce en {@link #UNMATCHABLE_VERSION}. Las variantes CBOR y Smile de
+     * {@link ResponseFormats} son el mismo recurso y se aceptan.
+     */
+    public static Optional<Long> ifMatchVersion(ServerRequest request) {
+        List<ETag> candidates = request.headers().header(HttpHeaders.IF_MATCH).stream()
+                .flatMap(value -> ETag.parse(value).stream())
+                .toList();
+        if (candidates.isEmpty() || candidates.stream().anyMatch(ETag::isWildcard)) {
+            return Optional.empty();
+        }
+        ETag candidate = candidates.get(0);
+        if (candidates.size() > 1 || candidate.weak()) {
+            return Optional.of(UNMATCHABLE_VERSION);
+        }
+        try {
+            return Optional.of(Long.parseLong(ResponseFormats.withoutBinaryVariant(candidate.tag())));
+        } catch (NumberFormatException e) {
+            return Optional.of(UNMATCHABLE_VERSION);
+        }
+    }
+
+    public static Mono<ServerResponse> notModified(String eTag) {
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .build();
+    }
+
+    /**
+     * {@code 200 OK} con la cabecera {@code ETag} si se conoce la versión del recurso.
+     */
+    public static ServerResponse.BodyBuilder ok(String eTag) {
+        ServerResponse.BodyBuilder builder = ServerResponse.ok();
+        return eTag != null ? builder.eTag(eTag) : builder;
+    }
+}
@@ -0,0 +1,133 @@
+package co.com.pragma.api.helper;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Detecta en una sola pasada, sin reservar memoria, las entradas que rechazaban las expresiones
+ * {@code .*X.*} de {@link InputSanitizer} evaluadas con {@code matches()} y {@code CASE_INSENSITIVE}.
+ * <p>
+ * Las palabras clave se buscan con un autómata Aho–Corasick sobre ASCII, con las mayúsculas plegadas a
+ * minúsculas como hace {@code CASE_INSENSITIVE} sin {@code UNICODE_CASE}; cualquier carácter no ASCII
+ * vuelve a la raíz porque ninguna palabra clave lo contiene.
+ * <p>
+ * Como el {@code .} de aquellas expresiones no cruza saltos de línea, una palabra clave solo cuenta si la
+ * entrada no tiene ninguno. La única excepción son <code>\{\s*\$</code> y <code>\[\s*\$</code>: {@code \s} sí acepta
+ * {@code \n} y {@code \r}, así que la entrada también se rechaza cuando todos sus saltos de línea están en
+ * el espacio entre la llave o el corchete y el {@code $}.
+ */
+final class DangerousInputMatcher {
+
+    /**
+     * Núcleos de las expresiones originales. <code>\{\s*\$</code> y <code>\[\s*\$</code> no aparecen: sin saltos de
+     * línea los cubre {@code $}, y con ellos los comprueba el recorrido de {@link #matches(CharSequence)}.
+     */
+    private static final String[] KEYWORDS = {
+            "$", "||", "&&", "javascript:", "<script", "onerror=", "onload=", "eval(", "exec("
+    };
+    private static final int ALPHABET = 128;
+    private static final int ROOT = 0;
+    private static final int[][] TRANSITIONS;
+    private static final boolean[] ACCEPTING;
+
+    static {
+        int capacity = 1;
+        for (String keyword : KEYWORDS) {
+            capacity += keyword.length();
+        }
+        int[][] transitions = new int[capacity][ALPHABET];
+        boolean[] accepting = new boolean[capacity];
+        for (int[] row : transitions) {
+            Arrays.fill(row, -1);
+        }
+        int states = 1;
+        for (String keyword : KEYWORDS) {
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (transitions[state][c] < 0) {
+                    transitions[state][c] = states++;
+                }
+                state = transitions[state][c];
+            }
+            accepting[state] = true;
+        }
+
+        int[] failure = new int[capacity];
+        Queue<Integer> pending = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            if (transitions[ROOT][c] < 0) {
+                transitions[ROOT][c] = ROOT;
+            } else {
+                failure[transitions[ROOT][c]] = ROOT;
+                pending.add(transitions[ROOT][c]);
+            }
+        }
+        while (!pending.isEmpty()) {
+            int state = pending.remove();
+            accepting[state] |= accepting[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+                if (next < 0) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[next] = transitions[failure[state]][c];
+                    pending.add(next);
+                }
+            }
+        }
+        TRANSITIONS = Arrays.copyOf(transitions, states);
+        ACCEPTING = Arrays.copyOf(accepting, states);
+    }
+
+    private DangerousInputMatcher() {
+    }
+
+    static boolean matches(CharSequence input) {
+        int state = ROOT;
+        boolean keywordFound = false;
+        boolean lineTerminatorSeen = false;
+        boolean inBracketSpace = false;
+        boolean bracketDollar = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (!keywordFound) {
+                state = c < ALPHABET ? TRANSITIONS[state][foldCase(c)] : ROOT;
+                keywordFound = ACCEPTING[state];
+            }
+            if (isLineTerminator(c)) {
+                lineTerminatorSeen = true;
+                bracketDollar = false;
+                inBracketSpace &= isSpace(c);
+                if (!inBracketSpace) {
+                    return false;
+                }
+            } else if (inBracketSpace && c == '$') {
+                bracketDollar = true;
+                inBracketSpace = false;
+            } else if (!inBracketSpace || !isSpace(c)) {
+                inBracketSpace = (c == '{' || c == '[') && !lineTerminatorSeen;
+            }
+        }
+        return lineTerminatorSeen ? bracketDollar : keywordFound;
+    }
+
+    private static char foldCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Caracteres que {@code .} no acepta sin {@code DOTALL}.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Caracteres de {@code \s} sin {@code UNICODE_CHARACTER_CLASS}.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
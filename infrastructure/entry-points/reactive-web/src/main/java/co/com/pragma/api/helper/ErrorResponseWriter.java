@@ -0,0 +1,144 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.ResponseDto;
+import co.com.pragma.model.Constants;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Traduce los errores de los handlers a respuestas con el sobre {@code ResponseDto}, en un único lugar:
+ * <ul>
+ *     <li>{@link CallNotPermittedException}: {@code 503}.</li>
+ *     <li>{@link IllegalStateException} por conflicto de versión: {@code 412}; por stock insuficiente:
+ *     {@code 409}.</li>
+ *     <li>{@link IllegalArgumentException}: {@code 400}, o {@code 404} en las lecturas de un recurso.</li>
+ *     <li>Cualquier otro error: {@code 500}.</li>
+ * </ul>
+ * Los cuerpos que no dependen de la petición (circuit breaker abierto, conflicto de versión, stock
+ * insuficiente, recurso inexistente y error interno) se serializan una sola vez al crear el componente, y
+ * cada respuesta envuelve esos mismos bytes en un {@link DataBuffer} sin copiarlos. Durante una caída de la
+ * base de datos, cuando casi todas las peticiones terminan en {@code 503}, no se serializa nada. El
+ * {@link DataBuffer} no se comparte entre respuestas porque su posición de lectura avanza al escribirlo.
+ */
+@Slf4j
+@Component
+public class ErrorResponseWriter {
+
+    static final String SERVICE_UNAVAILABLE_MESSAGE =
+            "El servicio de base de datos no está disponible temporalmente. Por favor, intente más tarde.";
+    private static final Set<String> NOT_FOUND_MESSAGES = Set.of(Constants.ERROR_FRANCHISE_NOT_FOUND,
+            Constants.ERROR_BRANCH_NOT_FOUND, Constants.ERROR_PRODUCT_NOT_FOUND);
+    private static final Set<String> STOCK_CONFLICT_MESSAGES = Set.of(Constants.ERROR_INSUFFICIENT_STOCK,
+            Constants.ERROR_STOCK_LIMIT_EXCEEDED);
+
+    private final ObjectMapper objectMapper;
+    private final byte[] internalError;
+    private final Map<BusinessCode, Map<String, byte[]>> staticBodies = new EnumMap<>(BusinessCode.class);
+
+    public ErrorResponseWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.internalError = encode(ResponseUtil.responseError(BusinessCode.E500000));
+        preEncode(BusinessCode.B503000, SERVICE_UNAVAILABLE_MESSAGE);
+        preEncode(BusinessCode.B412000, Constants.ERROR_VERSION_CONFLICT);
+        for (String message : STOCK_CONFLICT_MESSAGES) {
+            preEncode(BusinessCode.B409000, message);
+        }
+        for (String message : NOT_FOUND_MESSAGES) {
+            preEncode(BusinessCode.B404000, message);
+            preEncode(BusinessCode.B400000, message);
+        }
+    }
+
+    /**
+     * Responde un {@link IllegalArgumentException} como solicitud inválida.
+     */
+    public Mono<ServerResponse> write(Throwable error) {
+        return write(error, message -> false);
+    }
+
+    /**
+     * Responde un {@link IllegalArgumentException} como recurso inexistente, para las lecturas cuyo único
+     * error de argumento es que el recurso no exista.
+     */
+    public Mono<ServerResponse> writeNotFound(Throwable error) {
+        return write(error, message -> true);
+    }
+
+    /**
+     * Responde como recurso inexistente solo los {@link IllegalArgumentException} con mensaje de recurso
+     * inexistente; el resto, como parámetros inválidos, es una solicitud inválida.
+     */
+    public Mono<ServerResponse> writeMissingAsNotFound(Throwable error) {
+        return write(error, NOT_FOUND_MESSAGES::contains);
+    }
+
+    private Mono<ServerResponse> write(Throwable error, Predicate<String> notFound) {
+        if (error instanceof CallNotPermittedException) {
+            log.error("Circuit breaker is OPEN - service unavailable: {}", error.getMessage());
+            return respond(HttpStatus.SERVICE_UNAVAILABLE, BusinessCode.B503000, SERVICE_UNAVAILABLE_MESSAGE);
+        }
+        if (error instanceof IllegalStateException && Constants.ERROR_VERSION_CONFLICT.equals(error.getMessage())) {
+            log.warn("Conditional write rejected: resource was modified by another request");
+            return respond(HttpStatus.PRECONDITION_FAILED, BusinessCode.B412000, error.getMessage());
+        }
+        if (error instanceof IllegalStateException && STOCK_CONFLICT_MESSAGES.contains(error.getMessage())) {
+            log.warn("Business conflict: {}", error.getMessage());
+            return respond(HttpStatus.CONFLICT, BusinessCode.B409000, error.getMessage());
+        }
+        if (error instanceof IllegalArgumentException) {
+            boolean missing = notFound.test(error.getMessage());
+            log.warn("{}: {}", missing ? "Resource not found" : "Invalid request", error.getMessage());
+            return missing
+                    ? respond(HttpStatus.NOT_FOUND, BusinessCode.B404000, error.getMessage())
+                    : respond(HttpStatus.BAD_REQUEST, BusinessCode.B400000, error.getMessage());
+        }
+        log.error("Internal error processing request", error);
+        return preEncoded(HttpStatus.INTERNAL_SERVER_ERROR, internalError);
+    }
+
+    private Mono<ServerResponse> respond(HttpStatus status, BusinessCode businessCode, String message) {
+        Map<String, byte[]> bodies = staticBodies.get(businessCode);
+        byte[] body = bodies != null ? bodies.get(message) : null;
+        if (body != null) {
+            return preEncoded(status, body);
+        }
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ResponseUtil.responseError(businessCode, message));
+    }
+
+    private static Mono<ServerResponse> preEncoded(HttpStatus status, byte[] body) {
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(Mono.fromSupplier(() -> DefaultDataBufferFactory.sharedInstance.wrap(body)), DataBuffer.class);
+    }
+
+    private void preEncode(BusinessCode businessCode, String message) {
+        staticBodies.computeIfAbsent(businessCode, code -> new HashMap<>())
+                .put(message, encode(ResponseUtil.responseError(businessCode, message)));
+    }
+
+    private byte[] encode(ResponseDto<?> response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode error response", e);
+        }
+    }
+}
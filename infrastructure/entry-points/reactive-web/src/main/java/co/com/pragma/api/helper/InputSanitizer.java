@@ -10,20 +10,6 @@ public class InputSanitizer {
 
     private InputSanitizer() { throw new UnsupportedOperationException("This is a utility class and cannot be instantiated"); }
 
-    private static final Pattern[] DANGEROUS_PATTERNS = {
-        Pattern.compile(".*\\$.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*\\{\\s*\\$.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*\\[\\s*\\$.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*\\|\\|.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*&&.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*javascript:.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*<script.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*onerror=.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*onload=.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*eval\\(.*", Pattern.CASE_INSENSITIVE),
-        Pattern.compile(".*exec\\(.*", Pattern.CASE_INSENSITIVE),
-    };
-
     private static final Pattern VALID_ID_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]+$");
     private static final int MAX_NAME_LENGTH = 100;
     private static final int MAX_ID_LENGTH = 50;
@@ -36,11 +22,9 @@ public class InputSanitizer {
 
         String sanitized = input.trim();
 
-        for (Pattern pattern : DANGEROUS_PATTERNS) {
-            if (pattern.matcher(sanitized).matches()) {
-                log.warn("Potentially dangerous input detected and rejected: {}", sanitized);
-                throw new IllegalArgumentException("Input contains potentially dangerous characters");
-            }
+        if (DangerousInputMatcher.matches(sanitized)) {
+            log.warn("Potentially dangerous input detected and rejected: {}", sanitized);
+            throw new IllegalArgumentException("Input contains potentially dangerous characters");
         }
 
         return sanitized;
@@ -95,11 +79,6 @@ public class InputSanitizer {
             return false;
         }
 
-        for (Pattern pattern : DANGEROUS_PATTERNS) {
-            if (pattern.matcher(input).matches()) {
-                return true;
-            }
-        }
-        return false;
+        return DangerousInputMatcher.matches(input);
     }
 }
@@ -0,0 +1,54 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.ProductImportRequest;
+import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * Convierte las líneas NDJSON de una importación en registros de dominio, aplicando las mismas
+ * reglas de {@link InputSanitizer} que la creación individual de productos. Una línea inválida no
+ * interrumpe la importación: se marca con su error para que aparezca en el reporte.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductImportParser {
+
+    private static final String ERROR_INVALID_JSON = "Invalid JSON line";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param branchId sucursal destino fija, o {@code null} para tomarla de cada línea
+     */
+    public Flux<ProductImportRecord> parse(Flux<String> lines, String branchId) {
+        return lines.index()
+                .filter(line -> StringUtils.hasText(line.getT2()))
+                .map(line -> toRecord(line.getT1() + 1, line.getT2(), branchId));
+    }
+
+    private ProductImportRecord toRecord(long lineNumber, String line, String branchId) {
+        ProductImportRecord.ProductImportRecordBuilder builder = ProductImportRecord.builder().line(lineNumber);
+        try {
+            ProductImportRequest request = objectMapper.readValue(line, ProductImportRequest.class);
+            Product product = new Product();
+            product.setName(InputSanitizer.validateAndSanitizeName(request.getName()));
+            if (request.getStock() != null) {
+                product.setStock(InputSanitizer.validateNumber(request.getStock(), 0, 999999));
+            }
+            return builder
+                    .branchId(branchId != null ? branchId : InputSanitizer.validateAndSanitizeId(request.getBranchId()))
+                    .product(product)
+                    .build();
+        } catch (JsonProcessingException e) {
+            return builder.error(ERROR_INVALID_JSON).build();
+        } catch (IllegalArgumentException e) {
+            return builder.error(e.getMessage()).build();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package co.com.pragma.api.helper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa lecturas idénticas concurrentes (single-flight): mientras una lectura con la misma operación y
+ * clave está en curso, las siguientes se suscriben a ella en lugar de repetir la consulta.
+ * <p>
+ * Solo agrupa lecturas {@link Mono}: el resultado retenido para quien se une tarde es a lo sumo un
+ * elemento. Los listados que se transmiten no se agrupan, porque compartirlos obligaría a retener el
+ * listado completo en memoria mientras dure la lectura.
+ * <p>
+ * La entrada se retira en cuanto la lectura termina, falla o se cancela: no se guarda nada más allá de
+ * la lectura en curso. Si todos los suscriptores cancelan, se cancela también la consulta. Quien se une
+ * puede recibir el resultado de una lectura que empezó poco antes que su propia llamada.
+ * <p>
+ * Los suscriptores comparten la misma instancia del resultado, por lo que solo debe usarse con lecturas
+ * cuyo resultado no se modifica después. El contador {@code request.coalescing.collapsed} registra, por
+ * operación, las llamadas que se unieron a una lectura en curso.
+ */
+@Component
+public class RequestCoalescer {
+
+    static final String COLLAPSED_METRIC = "request.coalescing.collapsed";
+    static final String IN_FLIGHT_METRIC = "request.coalescing.in_flight";
+
+    private final Map<List<Object>, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> collapsed = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(IN_FLIGHT_METRIC, inFlight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Lectura compartida entre las llamadas concurrentes con la misma {@code operation} y {@code key}. La
+     * fuente se obtiene en la suscripción y solo cuando no hay otra lectura igual en curso.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> mono(String operation, Supplier<Mono<T>> source, Object... key) {
+        return Mono.defer(() -> {
+            List<Object> flightKey = flightKey(operation, key);
+            boolean[] started = {false};
+            Mono<?> shared = inFlight.computeIfAbsent(flightKey, k -> {
+                started[0] = true;
+                return share(k, source.get());
+            });
+            if (!started[0]) {
+                collapsedCounter(operation).increment();
+            }
+            return (Mono<T>) shared;
+        });
+    }
+
+    private <T> Mono<T> share(List<Object> flightKey, Mono<T> source) {
+        AtomicReference<Mono<T>> self = new AtomicReference<>();
+        Mono<T> shared = source
+                .doFinally(signal -> inFlight.remove(flightKey, self.get()))
+                .flux()
+                .replay(1)
+                .refCount()
+                .singleOrEmpty();
+        self.set(shared);
+        return shared;
+    }
+
+    private static List<Object> flightKey(String operation, Object... key) {
+        Object[] parts = new Object[key.length + 1];
+        parts[0] = operation;
+        System.arraycopy(key, 0, parts, 1, key.length);
+        return Arrays.asList(parts);
+    }
+
+    private Counter collapsedCounter(String operation) {
+        return collapsed.computeIfAbsent(operation, op -> Counter.builder(COLLAPSED_METRIC)
+                .description("Lecturas que se unieron a una lectura idéntica en curso")
+                .tag("operation", op)
+                .register(meterRegistry));
+    }
+}
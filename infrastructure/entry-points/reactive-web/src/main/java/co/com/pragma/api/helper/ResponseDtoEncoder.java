@@ -0,0 +1,144 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.BranchResponseDto;
+import co.com.pragma.api.dto.FranchiseListResponseDto;
+import co.com.pragma.api.dto.FranchiseResponseDto;
+import co.com.pragma.api.dto.ProductListResponseDto;
+import co.com.pragma.api.dto.ProductResponseDto;
+import co.com.pragma.api.dto.ProductWithBranchListResponseDto;
+import co.com.pragma.api.dto.RankedProductListResponseDto;
+import co.com.pragma.api.dto.ResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codifica en JSON las respuestas {@link ResponseDto} con un {@link ObjectWriter} ya resuelto para el tipo
+ * concreto de {@code data}, en lugar de dejar que {@code Jackson2JsonEncoder} resuelva el tipo genérico y
+ * sus serializadores en cada respuesta.
+ * <p>
+ * Hay un writer por clase de {@code data} y otro por clase de elemento cuando {@code data} es una lista,
+ * solo para los sobres documentados ({@code FranchiseResponseDto}, {@code ProductListResponseDto}, ...),
+ * construidos al arrancar. Cualquier otro {@code data} usa el sobre sin tipar, que Jackson resuelve por
+ * el tipo de cada valor, de modo que los writers no crecen con los tipos que lleguen. El JSON se escribe
+ * directamente en un buffer de la fábrica de la respuesta, que con Reactor Netty es un {@code ByteBuf} del
+ * pool, sin pasar por un arreglo intermedio.
+ */
+@Component
+public class ResponseDtoEncoder extends AbstractEncoder<ResponseDto<?>> {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final List<Class<? extends ResponseDto<?>>> DOCUMENTED_RESPONSES = List.of(
+            FranchiseResponseDto.class, FranchiseListResponseDto.class, BranchResponseDto.class,
+            ProductResponseDto.class, ProductListResponseDto.class, ProductWithBranchListResponseDto.class,
+            RankedProductListResponseDto.class);
+
+    private final ObjectWriter envelopeWriter;
+    private final Map<Class<?>, ObjectWriter> dataWriters;
+    private final Map<Class<?>, ObjectWriter> listWriters;
+
+    public ResponseDtoEncoder(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        TypeFactory typeFactory = objectMapper.getTypeFactory();
+        this.envelopeWriter = objectMapper.writerFor(ResponseDto.class);
+        Map<Class<?>, ObjectWriter> data = new HashMap<>();
+        Map<Class<?>, ObjectWriter> lists = new HashMap<>();
+        for (Class<? extends ResponseDto<?>> response : DOCUMENTED_RESPONSES) {
+            ResolvableType dataType = ResolvableType.forClass(response).as(ResponseDto.class).getGeneric(0);
+            if (List.class.isAssignableFrom(dataType.toClass())) {
+                Class<?> elementType = dataType.getGeneric(0).toClass();
+                lists.put(elementType, objectMapper.writerFor(typeFactory.constructParametricType(ResponseDto.class,
+                        typeFactory.constructCollectionType(List.class, elementType))));
+            } else {
+                data.put(dataType.toClass(),
+                        objectMapper.writerFor(typeFactory.constructParametricType(ResponseDto.class, dataType.toClass())));
+            }
+        }
+        this.dataWriters = Map.copyOf(data);
+        this.listWriters = Map.copyOf(lists);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return ResponseDto.class.isAssignableFrom(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends ResponseDto<?>> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        return Flux.from(inputStream).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(ResponseDto<?> value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(INITIAL_BUFFER_SIZE);
+        boolean release = true;
+        try (OutputStream out = buffer.asOutputStream()) {
+            writerFor(valueType, value.getData()).writeValue(out, value);
+            release = false;
+            return buffer;
+        } catch (IOException e) {
+            throw new EncodingException("Could not encode ResponseDto: " + e.getMessage(), e);
+        } finally {
+            if (release) {
+                DataBufferUtils.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writer del tipo concreto de {@code data}. Una lista se tipa por el elemento declarado en
+     * {@code valueType} y, si no lo declara, por la clase de sus elementos cuando todos comparten una. Las
+     * listas vacías o mixtas, {@code data} nulo y los tipos no documentados usan el sobre sin tipar.
+     */
+    ObjectWriter writerFor(ResolvableType valueType, @Nullable Object data) {
+        if (data == null) {
+            return envelopeWriter;
+        }
+        ResolvableType declared = valueType.as(ResponseDto.class).getGeneric(0);
+        if (data instanceof List<?> list) {
+            Class<?> declaredElement = declared.getGeneric(0).resolve();
+            if (declaredElement != null && List.class.isAssignableFrom(declared.toClass())) {
+                return listWriters.getOrDefault(declaredElement, envelopeWriter);
+            }
+            Class<?> elementType = commonClass(list);
+            return elementType != null ? listWriters.getOrDefault(elementType, envelopeWriter) : envelopeWriter;
+        }
+        return dataWriters.getOrDefault(data.getClass(), envelopeWriter);
+    }
+
+    /**
+     * Clase común a todos los elementos, nula si la lista está vacía, tiene nulos o mezcla clases.
+     */
+    @Nullable
+    private static Class<?> commonClass(List<?> list) {
+        Class<?> common = null;
+        for (Object element : list) {
+            if (element == null || common != null && element.getClass() != common) {
+                return null;
+            }
+            common = element.getClass();
+        }
+        return common;
+    }
+}
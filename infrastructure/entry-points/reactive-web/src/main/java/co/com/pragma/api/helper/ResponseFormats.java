@@ -0,0 +1,90 @@
+package co.com.pragma.api.helper;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Formatos binarios (CBOR y Smile) que los consumidores internos pueden pedir con {@code Accept}. El
+ * contenido es el mismo {@code ResponseDto} que en JSON, codificado por los codecs Jackson registrados en
+ * {@code ResponseCodecConfig}, que también leen los cuerpos de petición en esos formatos. Los listados que
+ * se transmiten admiten además NDJSON.
+ * <p>
+ * Se respeta el orden de preferencia de {@code Accept}: si JSON o un comodín tienen más calidad que el
+ * formato alternativo, o aparecen antes con la misma, se responde en JSON.
+ */
+@UtilityClass
+public class ResponseFormats {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * Calificadores de los {@code ObjectMapper} CBOR y Smile que declara {@code ResponseCodecConfig}.
+     */
+    public static final String CBOR_MAPPER = "cborObjectMapper";
+    public static final String SMILE_MAPPER = "smileObjectMapper";
+
+    private static final List<MediaType> BINARY_MEDIA_TYPES = List.of(MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    /**
+     * Formato binario preferido por el cliente, vacío si prefiere JSON o no pide ninguno.
+     */
+    public static Optional<MediaType> binaryFormat(ServerRequest request) {
+        return preferredFormat(request, false);
+    }
+
+    /**
+     * Formato preferido para un listado transmitido: NDJSON o uno binario, vacío si prefiere JSON.
+     */
+    public static Optional<MediaType> streamingFormat(ServerRequest request) {
+        return preferredFormat(request, true);
+    }
+
+    public static boolean isNdjson(MediaType mediaType) {
+        return MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType);
+    }
+
+    public static MediaType contentType(ServerRequest request) {
+        return binaryFormat(request).orElse(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * ETag de la representación negociada: cada formato binario lleva su variante y JSON ninguna.
+     */
+    public static String eTag(ServerRequest request, long version) {
+        return binaryFormat(request)
+                .map(format -> ConditionalRequests.eTag(version, format.getSubtype()))
+                .orElseGet(() -> ConditionalRequests.eTag(version));
+    }
+
+    /**
+     * Etiqueta sin la variante de un formato binario, que identifica la misma versión que la de JSON.
+     */
+    static String withoutBinaryVariant(String tag) {
+        return BINARY_MEDIA_TYPES.stream()
+                .map(mediaType -> "-" + mediaType.getSubtype())
+                .filter(tag::endsWith)
+                .findFirst()
+                .map(variant -> tag.substring(0, tag.length() - variant.length()))
+                .orElse(tag);
+    }
+
+    private static Optional<MediaType> preferredFormat(ServerRequest request, boolean streaming) {
+        return request.headers().accept().stream()
+                .filter(accepted -> accepted.getQualityValue() > 0)
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .filter(accepted -> accepted.isCompatibleWith(MediaType.APPLICATION_JSON) || isBinary(accepted)
+                        || streaming && isNdjson(accepted))
+                .findFirst()
+                .filter(accepted -> isBinary(accepted) || streaming && isNdjson(accepted))
+                .map(accepted -> new MediaType(accepted.getType(), accepted.getSubtype()));
+    }
+
+    private static boolean isBinary(MediaType mediaType) {
+        return BINARY_MEDIA_TYPES.stream().anyMatch(mediaType::equalsTypeAndSubtype);
+    }
+}
@@ -17,6 +17,12 @@ public class ResponseUtil {
                 .build();
     }
     
+    public static <T> ResponseDto<T> responseSuccessful(T data, String next, BusinessCode businessCode) {
+        return ResponseUtil.<T>responseSuccessful(data, businessCode).toBuilder()
+                .next(next)
+                .build();
+    }
+
     public static <T> ResponseDto<T> responseError(BusinessCode businessCode) {
         return ResponseDto.<T>builder()
                 .code(businessCode.getCode())
@@ -0,0 +1,259 @@
+package co.com.pragma.api.helper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Escribe listados a medida que llegan del {@link Flux}, sin acumularlos en memoria.
+ * <p>
+ * Si {@code Accept} prefiere {@code application/x-ndjson} según {@link ResponseFormats#streamingFormat},
+ * cada elemento se escribe como una línea JSON. En otro caso se escribe el mismo sobre {@code ResponseDto}
+ * que las respuestas con buffer: cabecera, elementos del arreglo {@code data} y cierre. La respuesta solo se confirma al llegar la primera señal, de modo que
+ * los errores previos al primer elemento (recurso inexistente, circuit breaker abierto) siguen
+ * llegando al manejo de errores del handler. Un error posterior corta la conexión.
+ * <p>
+ * Con un formato binario de {@link ResponseFormats} (CBOR o Smile) se escribe el mismo sobre con un
+ * único generador de ese formato por respuesta, que se vacía tras cada elemento. Sus {@code ObjectMapper}
+ * son los que declara {@code ResponseCodecConfig} para los codecs de esos formatos.
+ * <p>
+ * Como la representación depende de {@code Accept}, el ETag de un listado se obtiene con
+ * {@link #eTag(ServerRequest, long)} para que cada formato tenga su propia etiqueta.
+ * <p>
+ * {@link #writeNested(Object, String, Flux, BusinessCode)} escribe un objeto cuyo campo de listado se
+ * transmite de la misma forma, siempre dentro del sobre JSON.
+ */
+@Slf4j
+@Component
+public class StreamingResponseWriter {
+
+    private static final byte[] ELEMENT_SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+    private static final String NDJSON_VARIANT = "ndjson";
+    private static final byte[] ENVELOPE_FOOTER = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NESTED_ENVELOPE_FOOTER = "]}}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final Map<MediaType, ObjectMapper> binaryMappers;
+
+    public StreamingResponseWriter(ObjectMapper objectMapper,
+                                   @Qualifier(ResponseFormats.CBOR_MAPPER) ObjectMapper cborObjectMapper,
+                                   @Qualifier(ResponseFormats.SMILE_MAPPER) ObjectMapper smileObjectMapper) {
+        this.objectMapper = objectMapper;
+        this.binaryMappers = Map.of(
+                MediaType.APPLICATION_CBOR, cborObjectMapper,
+                ResponseFormats.APPLICATION_SMILE, smileObjectMapper);
+    }
+
+    public <T> Mono<ServerResponse> write(ServerRequest request, Flux<T> elements, Class<T> elementType,
+                                          BusinessCode businessCode) {
+        return write(request, elements, elementType, businessCode, null);
+    }
+
+    public <T> Mono<ServerResponse> write(ServerRequest request, Flux<T> elements, Class<T> elementType,
+                                          BusinessCode businessCode, String eTag) {
+        return elements
+                .switchOnFirst((first, flux) -> {
+                    if (first.isOnError()) {
+                        return Mono.<ServerResponse>error(first.getThrowable());
+                    }
+                    Optional<MediaType> format = ResponseFormats.streamingFormat(request);
+                    if (format.filter(ResponseFormats::isNdjson).isPresent()) {
+                        return ndjsonResponse(flux, elementType, eTag);
+                    }
+                    return format
+                            .map(binary -> binaryResponse(flux, binary, businessCode, eTag))
+                            .orElseGet(() -> envelopeResponse(flux, businessCode, eTag));
+                }, false)
+                .singleOrEmpty();
+    }
+
+    /**
+     * Escribe {@code parent} en {@code data} con su campo {@code field} reemplazado por los elementos a
+     * medida que llegan.
+     */
+    public <T> Mono<ServerResponse> writeNested(Object parent, String field, Flux<T> elements, BusinessCode businessCode) {
+        return elements
+                .switchOnFirst((first, flux) -> first.isOnError()
+                        ? Mono.<ServerResponse>error(first.getThrowable())
+                        : nestedResponse(parent, field, flux, businessCode), false)
+                .singleOrEmpty();
+    }
+
+    public String eTag(ServerRequest request, long version) {
+        return ResponseFormats.streamingFormat(request)
+                .map(format -> ConditionalRequests.eTag(version,
+                        ResponseFormats.isNdjson(format) ? NDJSON_VARIANT : format.getSubtype()))
+                .orElseGet(() -> ConditionalRequests.eTag(version));
+    }
+
+    private <T> Mono<ServerResponse> ndjsonResponse(Flux<T> elements, Class<T> elementType, String eTag) {
+        return ConditionalRequests.ok(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(elements, elementType);
+    }
+
+    private <T> Mono<ServerResponse> binaryResponse(Flux<T> elements, MediaType format, BusinessCode businessCode,
+                                                    String eTag) {
+        ObjectMapper mapper = binaryMappers.get(format);
+        Flux<DataBuffer> body = Flux.using(
+                        () -> new BinaryEnvelope(mapper),
+                        envelope -> Flux.concat(
+                                Mono.fromCallable(() -> envelope.header(envelopeFields(businessCode))),
+                                elements.map(envelope::element),
+                                Mono.fromCallable(envelope::footer)),
+                        BinaryEnvelope::close)
+                .<DataBuffer>map(DefaultDataBufferFactory.sharedInstance::wrap)
+                .doOnError(error -> log.error("Error while streaming response, closing connection", error));
+        return ConditionalRequests.ok(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(format)
+                .body(body, DataBuffer.class);
+    }
+
+    private <T> Mono<ServerResponse> envelopeResponse(Flux<T> elements, BusinessCode businessCode, String eTag) {
+        Flux<DataBuffer> body = streamedBody(
+                Mono.fromCallable(() -> (envelopePrefix(businessCode) + "[").getBytes(StandardCharsets.UTF_8)),
+                elements, ENVELOPE_FOOTER);
+        return ConditionalRequests.ok(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body, DataBuffer.class);
+    }
+
+    private <T> Mono<ServerResponse> nestedResponse(Object parent, String field, Flux<T> elements,
+                                                    BusinessCode businessCode) {
+        Flux<DataBuffer> body = streamedBody(
+                Mono.fromCallable(() -> nestedHeader(parent, field, businessCode)), elements, NESTED_ENVELOPE_FOOTER);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body, DataBuffer.class);
+    }
+
+    private <T> Flux<DataBuffer> streamedBody(Mono<byte[]> header, Flux<T> elements, byte[] footer) {
+        return Flux.concat(
+                        header,
+                        elements.index().map(element -> element.getT1() == 0
+                                ? toJson(element.getT2())
+                                : concat(ELEMENT_SEPARATOR, toJson(element.getT2()))),
+                        Mono.just(footer))
+                .<DataBuffer>map(DefaultDataBufferFactory.sharedInstance::wrap)
+                .doOnError(error -> log.error("Error while streaming response, closing connection", error));
+    }
+
+    /**
+     * Serializa el sobre sin {@code data} y sustituye la llave de cierre por la apertura de {@code data}.
+     */
+    private String envelopePrefix(BusinessCode businessCode) throws JsonProcessingException {
+        String envelope = objectMapper.writeValueAsString(ResponseUtil.responseSuccessful(null, businessCode));
+        return envelope.substring(0, envelope.length() - 1) + ",\"data\":";
+    }
+
+    private ObjectNode envelopeFields(BusinessCode businessCode) {
+        ObjectNode envelope = objectMapper.valueToTree(ResponseUtil.responseSuccessful(null, businessCode));
+        envelope.remove("data");
+        return envelope;
+    }
+
+    /**
+     * Serializa {@code parent} sin {@code field} y deja abierto el arreglo de ese campo al final del objeto.
+     */
+    private byte[] nestedHeader(Object parent, String field, BusinessCode businessCode) throws JsonProcessingException {
+        ObjectNode node = objectMapper.valueToTree(parent);
+        node.remove(field);
+        String json = objectMapper.writeValueAsString(node);
+        String open = node.isEmpty() ? "{" : json.substring(0, json.length() - 1) + ",";
+        return (envelopePrefix(businessCode) + open + objectMapper.writeValueAsString(field) + ":[")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] toJson(Object element) {
+        try {
+            return objectMapper.writeValueAsBytes(element);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response element", e);
+        }
+    }
+
+    private static byte[] concat(byte[] prefix, byte[] bytes) {
+        byte[] result = new byte[prefix.length + bytes.length];
+        System.arraycopy(prefix, 0, result, 0, prefix.length);
+        System.arraycopy(bytes, 0, result, prefix.length, bytes.length);
+        return result;
+    }
+
+    /**
+     * Generador binario de una respuesta; cada llamada devuelve los bytes escritos desde la anterior.
+     */
+    private static final class BinaryEnvelope {
+
+        private final ObjectMapper mapper;
+        private final ByteArrayBuilder buffer = new ByteArrayBuilder();
+        private final JsonGenerator generator;
+
+        BinaryEnvelope(ObjectMapper mapper) throws IOException {
+            this.mapper = mapper;
+            this.generator = mapper.createGenerator(buffer);
+        }
+
+        byte[] header(ObjectNode fields) throws IOException {
+            generator.writeStartObject();
+            for (Map.Entry<String, JsonNode> field : fields.properties()) {
+                generator.writeFieldName(field.getKey());
+                mapper.writeTree(generator, field.getValue());
+            }
+            generator.writeFieldName("data");
+            generator.writeStartArray();
+            return drain();
+        }
+
+        byte[] element(Object element) {
+            try {
+                mapper.writeValue(generator, element);
+                return drain();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize response element", e);
+            }
+        }
+
+        byte[] footer() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            return drain();
+        }
+
+        void close() {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                log.debug("Could not close binary response generator", e);
+            }
+        }
+
+        private byte[] drain() throws IOException {
+            generator.flush();
+            byte[] bytes = buffer.toByteArray();
+            buffer.reset();
+            return bytes;
+        }
+    }
+}
@@ -1,40 +1,64 @@
 package co.com.pragma.api.helper;
 
+import co.com.pragma.validator.RequestValidator;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Helper para validar objetos usando Jakarta Validation
+ * <p>
+ * Los DTOs anotados con {@code @GenerateValidator} se validan con el {@link RequestValidator} generado en
+ * compilación, que comprueba las restricciones con código Java plano: sin reflexión, sin metadatos y sin
+ * colecciones intermedias. El resto, y los DTOs con restricciones que el generador no soporta, siguen
+ * pasando por el {@link Validator} reflexivo.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ValidationHelper {
 
     private final Validator validator;
+    private final Map<Class<?>, RequestValidator<?>> generatedValidators = new HashMap<>();
+
+    public ValidationHelper(Validator validator) {
+        this.validator = validator;
+        for (RequestValidator<?> generated : ServiceLoader.load(RequestValidator.class, getClass().getClassLoader())) {
+            generatedValidators.put(generated.type(), generated);
+        }
+        log.info("Loaded {} generated request validators", generatedValidators.size());
+    }
 
     /**
      * Valida un objeto y retorna un Mono con error si la validación falla
      */
     public <T> Mono<T> validate(T object) {
-        Set<ConstraintViolation<T>> violations = validator.validate(object);
-        
-        if (!violations.isEmpty()) {
-            String errorMessage = violations.stream()
-                    .map(ConstraintViolation::getMessage)
-                    .collect(Collectors.joining(", "));
-            
+        @SuppressWarnings("unchecked")
+        RequestValidator<T> generated = (RequestValidator<T>) generatedValidators.get(object.getClass());
+        String errorMessage = generated != null ? generated.validate(object) : validateReflectively(object);
+
+        if (errorMessage != null) {
             log.warn("Validation failed: {}", errorMessage);
             return Mono.error(new IllegalArgumentException(errorMessage));
         }
-        
+
         return Mono.just(object);
     }
+
+    private <T> String validateReflectively(T object) {
+        Set<ConstraintViolation<T>> violations = validator.validate(object);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+    }
 }
@@ -1,37 +1,67 @@
 package co.com.pragma.api;
 
 import co.com.pragma.api.dto.*;
+import co.com.pragma.api.helper.ConditionalRequests;
+import co.com.pragma.api.helper.ErrorResponseWriter;
+import co.com.pragma.api.helper.ProductImportParser;
+import co.com.pragma.api.helper.RequestCoalescer;
+import co.com.pragma.api.helper.StreamingResponseWriter;
 import co.com.pragma.api.helper.ValidationHelper;
 import co.com.pragma.model.Branch;
+import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.usecase.addbranch.AddBranchUseCase;
+import co.com.pragma.usecase.adjustproductstock.AdjustProductStockUseCase;
 import co.com.pragma.usecase.addproduct.AddProductUseCase;
 import co.com.pragma.usecase.createfranchise.CreateFranchiseUseCase;
 import co.com.pragma.usecase.deleteproduct.DeleteProductUseCase;
+import co.com.pragma.usecase.expandfranchise.ExpandFranchiseUseCase;
 import co.com.pragma.usecase.getallfranchises.GetAllFranchisesUseCase;
 import co.com.pragma.usecase.getbranchbyid.GetBranchByIdUseCase;
 import co.com.pragma.usecase.getfranchisebyid.GetFranchiseByIdUseCase;
 import co.com.pragma.usecase.getmaxstockproducts.GetMaxStockProductsUseCase;
 import co.com.pragma.usecase.getproductbyname.GetProductByNameUseCase;
 import co.com.pragma.usecase.getproductsbybranch.GetProductsByBranchUseCase;
+import co.com.pragma.usecase.getresourceversion.GetResourceVersionUseCase;
+import co.com.pragma.usecase.getstockranking.GetStockRankingUseCase;
+import co.com.pragma.usecase.importproducts.ImportProductsUseCase;
 import co.com.pragma.usecase.updatebranch.UpdateBranchUseCase;
 import co.com.pragma.usecase.updatebranchname.UpdateBranchNameUseCase;
 import co.com.pragma.usecase.updatefranchisename.UpdateFranchiseNameUseCase;
 import co.com.pragma.usecase.updateproductname.UpdateProductNameUseCase;
 import co.com.pragma.usecase.updateproductstock.UpdateProductStockUseCase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -69,9 +99,23 @@ class HandlerTest {
     @Mock
     private GetProductsByBranchUseCase getProductsByBranchUseCase;
     @Mock
+    private AdjustProductStockUseCase adjustProductStockUseCase;
+    @Mock
+    private ImportProductsUseCase importProductsUseCase;
+    @Mock
+    private GetStockRankingUseCase getStockRankingUseCase;
+    @Mock
+    private GetResourceVersionUseCase getResourceVersionUseCase;
+    @Mock
+    private ExpandFranchiseUseCase expandFranchiseUseCase;
+    @Mock
     private ValidationHelper validationHelper;
     @Mock
+    private ProductImportParser productImportParser;
+    @Mock
     private ServerRequest serverRequest;
+    @Mock
+    private ServerRequest.Headers headers;
 
     private Handler handler;
 
@@ -81,7 +125,12 @@ class HandlerTest {
                 deleteProductUseCase, updateProductStockUseCase, getMaxStockProductsUseCase,
                 getAllFranchisesUseCase, updateFranchiseNameUseCase, updateBranchNameUseCase,
                 updateBranchUseCase, updateProductNameUseCase, getFranchiseByIdUseCase,
-                getBranchByIdUseCase, getProductByNameUseCase, getProductsByBranchUseCase, validationHelper);
+                getBranchByIdUseCase, getProductByNameUseCase, getProductsByBranchUseCase, adjustProductStockUseCase,
+                importProductsUseCase, getStockRankingUseCase, getResourceVersionUseCase, expandFranchiseUseCase,
+                validationHelper, productImportParser, new StreamingResponseWriter(new ObjectMapper(), new CBORMapper(), new SmileMapper()),
+                new RequestCoalescer(new SimpleMeterRegistry()), new ErrorResponseWriter(new ObjectMapper()));
+        lenient().when(getResourceVersionUseCase.productListVersion(anyString(), anyString())).thenReturn(Mono.empty());
+        lenient().when(serverRequest.headers()).thenReturn(headers);
     }
 
     @Test
@@ -250,10 +299,85 @@ class HandlerTest {
         verify(updateProductStockUseCase).execute("1", "1", "1", 200);
     }
 
+    @Test
+    void updateProductStock_IfMatchConflict() {
+        UpdateStockRequest request = new UpdateStockRequest();
+        request.setStock(200);
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productId")).thenReturn("1");
+        when(serverRequest.bodyToMono(UpdateStockRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(headers.header(HttpHeaders.IF_MATCH)).thenReturn(List.of("\"4\""));
+        when(updateProductStockUseCase.execute("1", "1", "1", 200, 4L))
+                .thenReturn(Mono.error(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)));
+
+        StepVerifier.create(handler.updateProductStock(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.PRECONDITION_FAILED)
+                .verifyComplete();
+
+        verify(updateProductStockUseCase, never()).execute(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void adjustProductStock_Success() {
+        UpdateStockDeltaRequest request = new UpdateStockDeltaRequest(-3);
+        Product product = new Product("1", "Product 1", 7);
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productId")).thenReturn("1");
+        when(serverRequest.bodyToMono(UpdateStockDeltaRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(adjustProductStockUseCase.execute(anyString(), anyString(), anyString(), anyInt())).thenReturn(Mono.just(product));
+
+        StepVerifier.create(handler.adjustProductStock(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .verifyComplete();
+
+        verify(adjustProductStockUseCase).execute("1", "1", "1", -3);
+    }
+
+    @Test
+    void adjustProductStock_InsufficientStock() {
+        UpdateStockDeltaRequest request = new UpdateStockDeltaRequest(-30);
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productId")).thenReturn("1");
+        when(serverRequest.bodyToMono(UpdateStockDeltaRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(adjustProductStockUseCase.execute(anyString(), anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.error(new IllegalStateException("Insufficient stock for the requested adjustment")));
+
+        StepVerifier.create(handler.adjustProductStock(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.CONFLICT)
+                .verifyComplete();
+    }
+
+    @Test
+    void adjustProductStock_ProductNotFound() {
+        UpdateStockDeltaRequest request = new UpdateStockDeltaRequest(5);
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productId")).thenReturn("999");
+        when(serverRequest.bodyToMono(UpdateStockDeltaRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(adjustProductStockUseCase.execute(anyString(), anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.error(new IllegalArgumentException("Product not found")));
+
+        StepVerifier.create(handler.adjustProductStock(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.BAD_REQUEST)
+                .verifyComplete();
+    }
+
     @Test
     void getMaxStockProducts_Success() {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(getMaxStockProductsUseCase.execute(anyString())).thenReturn(Flux.empty());
+        stubAccept(MediaType.APPLICATION_JSON);
 
         StepVerifier.create(handler.getMaxStockProducts(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
@@ -262,12 +386,56 @@ class HandlerTest {
         verify(getMaxStockProductsUseCase).execute("1");
     }
 
+    @Test
+    void getStockRanking_Success() {
+        RankedProduct ranked = new RankedProduct(1, new Product("1", "Product 1", 5),
+                Branch.builder().id("1").name("Branch 1").build());
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.queryParam("k")).thenReturn(Optional.of("3"));
+        when(serverRequest.queryParam("order")).thenReturn(Optional.of("asc"));
+        when(serverRequest.queryParam("scope")).thenReturn(Optional.of("Franchise"));
+        when(getStockRankingUseCase.execute("1", RankingScope.FRANCHISE, RankingOrder.ASC, 3))
+                .thenReturn(Flux.just(ranked));
+        stubAccept(MediaType.APPLICATION_JSON);
+
+        StepVerifier.create(handler.getStockRanking(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .verifyComplete();
+    }
+
+    @Test
+    void getStockRanking_Defaults() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.queryParam(anyString())).thenReturn(Optional.empty());
+        when(getStockRankingUseCase.execute("1", RankingScope.BRANCH, RankingOrder.DESC, 10))
+                .thenReturn(Flux.empty());
+        stubAccept(MediaType.APPLICATION_JSON);
+
+        StepVerifier.create(handler.getStockRanking(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .verifyComplete();
+    }
+
+    @Test
+    void getStockRanking_InvalidParameter() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.queryParam("scope")).thenReturn(Optional.of("region"));
+
+        StepVerifier.create(handler.getStockRanking(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.BAD_REQUEST)
+                .verifyComplete();
+
+        verifyNoInteractions(getStockRankingUseCase);
+    }
+
     @Test
     void getAllFranchises_Success() {
         Franchise franchise = new Franchise();
         franchise.setId("1");
 
         when(getAllFranchisesUseCase.execute()).thenReturn(Flux.just(franchise));
+        stubAccept(MediaType.APPLICATION_JSON);
 
         StepVerifier.create(handler.getAllFranchises(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
@@ -335,6 +503,46 @@ class HandlerTest {
         verify(updateBranchUseCase).execute(eq("1"), eq("1"), any());
     }
 
+    @Test
+    void updateBranch_IfMatchReturnsNextETag() {
+        UpdateBranchRequest request = new UpdateBranchRequest();
+        request.setCity("New City");
+        Branch branch = new Branch();
+        branch.setCity("New City");
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.bodyToMono(UpdateBranchRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(headers.header(HttpHeaders.IF_MATCH)).thenReturn(List.of("\"7\""));
+        when(updateBranchUseCase.execute(eq("1"), eq("1"), any(), eq(7L))).thenReturn(Mono.just(branch));
+
+        StepVerifier.create(handler.updateBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"8\"".equals(response.headers().getETag()))
+                .verifyComplete();
+    }
+
+    @Test
+    void updateBranch_IfMatchAcceptsBinaryVariant() {
+        UpdateBranchRequest request = new UpdateBranchRequest();
+        request.setCity("New City");
+        Branch branch = new Branch();
+        branch.setCity("New City");
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.bodyToMono(UpdateBranchRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(headers.header(HttpHeaders.IF_MATCH)).thenReturn(List.of("\"7-cbor\""));
+        when(updateBranchUseCase.execute(eq("1"), eq("1"), any(), eq(7L))).thenReturn(Mono.just(branch));
+
+        StepVerifier.create(handler.updateBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"8\"".equals(response.headers().getETag()))
+                .verifyComplete();
+    }
+
     @Test
     void updateBranch_SuccessWithAddress() {
         UpdateBranchRequest request = new UpdateBranchRequest();
@@ -451,25 +659,139 @@ class HandlerTest {
         verify(updateProductNameUseCase).execute("1", "1", "1", "Updated Product");
     }
 
+    @Test
+    void updateProductName_WeakIfMatchNeverMatches() {
+        UpdateNameRequest request = new UpdateNameRequest();
+        request.setName("Updated Product");
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productId")).thenReturn("1");
+        when(serverRequest.bodyToMono(UpdateNameRequest.class)).thenReturn(Mono.just(request));
+        when(validationHelper.validate(any())).thenReturn(Mono.just(request));
+        when(headers.header(HttpHeaders.IF_MATCH)).thenReturn(List.of("W/\"3\""));
+        when(updateProductNameUseCase.execute("1", "1", "1", "Updated Product", ConditionalRequests.UNMATCHABLE_VERSION))
+                .thenReturn(Mono.error(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)));
+
+        StepVerifier.create(handler.updateProductName(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.PRECONDITION_FAILED)
+                .verifyComplete();
+    }
+
     @Test
     void getFranchiseById_Success() {
         Franchise franchise = new Franchise();
         franchise.setId("1");
 
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
-        when(getFranchiseByIdUseCase.execute(anyString())).thenReturn(Mono.just(franchise));
+        when(getFranchiseByIdUseCase.executeVersioned(anyString())).thenReturn(Mono.just(new Versioned<>(franchise, 2L)));
 
         StepVerifier.create(handler.getFranchiseById(serverRequest))
-                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"2\"".equals(response.headers().getETag()))
+                .verifyComplete();
+
+        verify(getFranchiseByIdUseCase).executeVersioned("1");
+    }
+
+    @Test
+    void getFranchiseById_NotModified() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(getFranchiseByIdUseCase.executeVersion("1")).thenReturn(Mono.just(3L));
+        when(serverRequest.headers()).thenReturn(headers);
+        when(headers.header(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"3\""));
+
+        StepVerifier.create(handler.getFranchiseById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_MODIFIED
+                        && "\"3\"".equals(response.headers().getETag()))
                 .verifyComplete();
 
-        verify(getFranchiseByIdUseCase).execute("1");
+        // la revalidación solo lee la versión, sin la franquicia completa
+        verify(getFranchiseByIdUseCase, never()).executeVersioned(anyString());
+    }
+
+    @Test
+    void getFranchiseById_StaleETagServesBody() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.headers()).thenReturn(headers);
+        when(headers.header(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"3\""));
+        when(getFranchiseByIdUseCase.executeVersion("1")).thenReturn(Mono.just(4L));
+        when(getFranchiseByIdUseCase.executeVersioned("1")).thenReturn(Mono.just(new Versioned<>(franchise, 4L)));
+
+        StepVerifier.create(handler.getFranchiseById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"4\"".equals(response.headers().getETag()))
+                .verifyComplete();
     }
 
     @Test
     void getFranchiseById_NotFound() {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("999");
-        when(getFranchiseByIdUseCase.execute(anyString())).thenReturn(Mono.error(new IllegalArgumentException("Not found")));
+        when(getFranchiseByIdUseCase.executeVersioned(anyString())).thenReturn(Mono.error(new IllegalArgumentException("Not found")));
+
+        StepVerifier.create(handler.getFranchiseById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
+                .verifyComplete();
+    }
+
+    @Test
+    void getFranchiseById_Expanded() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+        Branch branch = Branch.builder().id("10").name("Branch 1").build();
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.queryParam("expand")).thenReturn(Optional.of("branches,products"));
+        when(serverRequest.queryParams()).thenReturn(new LinkedMultiValueMap<>(Map.of("expand", List.of("branches,products"))));
+        when(expandFranchiseUseCase.franchise("1", true)).thenReturn(Mono.just(franchise));
+        when(expandFranchiseUseCase.branches("1", true)).thenReturn(Flux.just(branch));
+
+        StepVerifier.create(handler.getFranchiseById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && response.headers().getETag() == null)
+                .verifyComplete();
+
+        verifyNoInteractions(getFranchiseByIdUseCase);
+    }
+
+    @Test
+    void getFranchiseById_ExpandUnsupported() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.queryParam("expand")).thenReturn(Optional.of("stock"));
+        when(serverRequest.queryParams()).thenReturn(new LinkedMultiValueMap<>(Map.of("expand", List.of("stock"))));
+
+        StepVerifier.create(handler.getFranchiseById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.BAD_REQUEST)
+                .verifyComplete();
+
+        verifyNoInteractions(expandFranchiseUseCase);
+    }
+
+    @Test
+    void getFranchiseById_ExpandTooLarge() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.queryParam("expand")).thenReturn(Optional.of("branches"));
+        when(serverRequest.queryParams()).thenReturn(new LinkedMultiValueMap<>(Map.of("expand", List.of("branches"))));
+        when(expandFranchiseUseCase.franchise("1", false))
+                .thenReturn(Mono.error(new IllegalArgumentException(Constants.ERROR_EXPANSION_TOO_LARGE)));
+
+        StepVerifier.create(handler.getFranchiseById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.BAD_REQUEST)
+                .verifyComplete();
+    }
+
+    @Test
+    void getFranchiseById_ExpandNotFound() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("999");
+        when(serverRequest.queryParam("expand")).thenReturn(Optional.of("branches"));
+        when(serverRequest.queryParams()).thenReturn(new LinkedMultiValueMap<>(Map.of("expand", List.of("branches"))));
+        when(expandFranchiseUseCase.franchise("999", false))
+                .thenReturn(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
 
         StepVerifier.create(handler.getFranchiseById(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
@@ -483,13 +805,33 @@ class HandlerTest {
 
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
-        when(getBranchByIdUseCase.execute(anyString(), anyString())).thenReturn(Mono.just(branch));
+        when(getBranchByIdUseCase.executeVersioned(anyString(), anyString())).thenReturn(Mono.just(new Versioned<>(branch, 5L)));
 
         StepVerifier.create(handler.getBranchById(serverRequest))
-                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"5\"".equals(response.headers().getETag()))
                 .verifyComplete();
 
-        verify(getBranchByIdUseCase).execute("1", "1");
+        verify(getBranchByIdUseCase).executeVersioned("1", "1");
+    }
+
+    @Test
+    void getBranchById_NotModified() {
+        Branch branch = new Branch();
+        branch.setId("1");
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(getBranchByIdUseCase.executeVersion("1", "1")).thenReturn(Mono.just(5L));
+        when(serverRequest.headers()).thenReturn(headers);
+        when(headers.header(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"5\""));
+
+        StepVerifier.create(handler.getBranchById(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_MODIFIED
+                        && "\"5\"".equals(response.headers().getETag()))
+                .verifyComplete();
+
+        verify(getBranchByIdUseCase, never()).executeVersioned(anyString(), anyString());
     }
 
     @Test
@@ -500,13 +842,47 @@ class HandlerTest {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
         when(serverRequest.pathVariable("productName")).thenReturn("Test Product");
-        when(getProductByNameUseCase.execute(anyString(), anyString(), anyString())).thenReturn(Mono.just(product));
+        when(getProductByNameUseCase.executeVersioned(anyString(), anyString(), anyString()))
+                .thenReturn(Mono.just(new Versioned<>(product, 0L)));
 
         StepVerifier.create(handler.getProductByName(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
                 .verifyComplete();
 
-        verify(getProductByNameUseCase).execute("1", "1", "Test Product");
+        verify(getProductByNameUseCase).executeVersioned("1", "1", "Test Product");
+    }
+
+    @Test
+    void getProductByName_SendsProductETag() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productName")).thenReturn("Test Product");
+        when(getProductByNameUseCase.executeVersioned("1", "1", "Test Product"))
+                .thenReturn(Mono.just(new Versioned<>(new Product("5", "Test Product", 10), 2L)));
+
+        StepVerifier.create(handler.getProductByName(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"2\"".equals(response.headers().getETag()))
+                .verifyComplete();
+
+        // el ETag sale de la misma consulta que el producto
+        verifyNoInteractions(getResourceVersionUseCase);
+    }
+
+    @Test
+    void getProductByName_NotModified() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.pathVariable("productName")).thenReturn("Test Product");
+        when(getProductByNameUseCase.executeVersioned("1", "1", "Test Product"))
+                .thenReturn(Mono.just(new Versioned<>(new Product("5", "Test Product", 10), 2L)));
+        when(serverRequest.headers()).thenReturn(headers);
+        when(headers.header(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"2\""));
+
+        StepVerifier.create(handler.getProductByName(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_MODIFIED
+                        && "\"2\"".equals(response.headers().getETag()))
+                .verifyComplete();
     }
 
     @Test
@@ -518,6 +894,7 @@ class HandlerTest {
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
         when(getProductsByBranchUseCase.execute(anyString(), anyString()))
                 .thenReturn(Flux.just(product1, product2));
+        stubAccept(MediaType.APPLICATION_JSON);
 
         StepVerifier.create(handler.getProductsByBranch(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
@@ -526,12 +903,57 @@ class HandlerTest {
         verify(getProductsByBranchUseCase).execute("1", "1");
     }
 
+    @Test
+    void getProductsByBranch_Ndjson() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(getProductsByBranchUseCase.execute(anyString(), anyString()))
+                .thenReturn(Flux.just(new Product("1", "Product 1", 10)));
+        stubAccept(MediaType.APPLICATION_NDJSON);
+
+        StepVerifier.create(handler.getProductsByBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && MediaType.APPLICATION_NDJSON.equals(response.headers().getContentType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductsByBranch_PrefersJsonOverNdjsonByQuality() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(getProductsByBranchUseCase.execute(anyString(), anyString()))
+                .thenReturn(Flux.just(new Product("1", "Product 1", 10)));
+        when(headers.accept()).thenReturn(MediaType.parseMediaTypes("application/x-ndjson;q=0.5, application/json"));
+
+        StepVerifier.create(handler.getProductsByBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && MediaType.APPLICATION_JSON.equals(response.headers().getContentType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductsByBranch_NdjsonNotModifiedByJsonETag() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(getResourceVersionUseCase.productListVersion("1", "1")).thenReturn(Mono.just(2L));
+        when(getProductsByBranchUseCase.execute(anyString(), anyString()))
+                .thenReturn(Flux.just(new Product("1", "Product 1", 10)));
+        stubAccept(MediaType.APPLICATION_NDJSON);
+        when(headers.header(HttpHeaders.IF_NONE_MATCH)).thenReturn(List.of("\"2\""));
+
+        StepVerifier.create(handler.getProductsByBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK
+                        && "\"2-ndjson\"".equals(response.headers().getETag()))
+                .verifyComplete();
+    }
+
     @Test
     void getProductsByBranch_Empty() {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
         when(getProductsByBranchUseCase.execute(anyString(), anyString()))
                 .thenReturn(Flux.empty());
+        stubAccept(MediaType.APPLICATION_JSON);
 
         StepVerifier.create(handler.getProductsByBranch(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
@@ -554,12 +976,60 @@ class HandlerTest {
         verify(getProductsByBranchUseCase).execute("1", "1");
     }
 
+    @Test
+    void getAllFranchises_Page() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+
+        when(serverRequest.queryParam(anyString())).thenReturn(Optional.empty());
+        when(serverRequest.queryParam("limit")).thenReturn(Optional.of("1"));
+        when(serverRequest.queryParam("sort")).thenReturn(Optional.of("name"));
+        when(getAllFranchisesUseCase.execute(any(PageQuery.class)))
+                .thenReturn(Mono.just(new ResultPage<>(List.of(franchise), "next-cursor")));
+
+        StepVerifier.create(handler.getAllFranchises(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .verifyComplete();
+
+        verify(getAllFranchisesUseCase).execute(argThat((PageQuery query) -> query.getLimit() == 1
+                && query.getCursor() == null
+                && query.getSort() == ListingSort.NAME));
+        verify(getAllFranchisesUseCase, never()).execute();
+    }
+
+    @Test
+    void getProductsByBranch_PageInvalidCursor() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.queryParam(anyString())).thenReturn(Optional.empty());
+        when(serverRequest.queryParam("cursor")).thenReturn(Optional.of("bad"));
+        when(getProductsByBranchUseCase.execute(eq("1"), eq("1"), any(PageQuery.class)))
+                .thenReturn(Mono.error(new IllegalArgumentException(Constants.ERROR_INVALID_CURSOR)));
+
+        StepVerifier.create(handler.getProductsByBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.BAD_REQUEST)
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductsByBranch_PageBranchNotFound() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.queryParam(anyString())).thenReturn(Optional.empty());
+        when(serverRequest.queryParam("limit")).thenReturn(Optional.of("5"));
+        when(getProductsByBranchUseCase.execute(eq("1"), eq("1"), any(PageQuery.class)))
+                .thenReturn(Mono.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
+
+        StepVerifier.create(handler.getProductsByBranch(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
+                .verifyComplete();
+    }
+
     @Test
     void getProductByName_NotFound() {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
         when(serverRequest.pathVariable("productName")).thenReturn("Unknown");
-        when(getProductByNameUseCase.execute(anyString(), anyString(), anyString())).thenReturn(Mono.error(new IllegalArgumentException("Not found")));
+        when(getProductByNameUseCase.executeVersioned(anyString(), anyString(), anyString())).thenReturn(Mono.error(new IllegalArgumentException("Not found")));
 
         StepVerifier.create(handler.getProductByName(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
@@ -601,7 +1071,7 @@ class HandlerTest {
     void getBranchById_NotFound() {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("999");
-        when(getBranchByIdUseCase.execute(anyString(), anyString())).thenReturn(Mono.error(new IllegalArgumentException("Not found")));
+        when(getBranchByIdUseCase.executeVersioned(anyString(), anyString())).thenReturn(Mono.error(new IllegalArgumentException("Not found")));
 
         StepVerifier.create(handler.getBranchById(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
@@ -614,7 +1084,7 @@ class HandlerTest {
 
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
-        when(getBranchByIdUseCase.execute(anyString(), anyString())).thenReturn(Mono.error(exception));
+        when(getBranchByIdUseCase.executeVersioned(anyString(), anyString())).thenReturn(Mono.error(exception));
 
         StepVerifier.create(handler.getBranchById(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE)
@@ -626,7 +1096,7 @@ class HandlerTest {
         CallNotPermittedException exception = mock(CallNotPermittedException.class);
 
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
-        when(getFranchiseByIdUseCase.execute(anyString())).thenReturn(Mono.error(exception));
+        when(getFranchiseByIdUseCase.executeVersioned(anyString())).thenReturn(Mono.error(exception));
 
         StepVerifier.create(handler.getFranchiseById(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE)
@@ -640,10 +1110,58 @@ class HandlerTest {
         when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
         when(serverRequest.pathVariable("branchId")).thenReturn("1");
         when(serverRequest.pathVariable("productName")).thenReturn("Test Product");
-        when(getProductByNameUseCase.execute(anyString(), anyString(), anyString())).thenReturn(Mono.error(exception));
+        when(getProductByNameUseCase.executeVersioned(anyString(), anyString(), anyString())).thenReturn(Mono.error(exception));
 
         StepVerifier.create(handler.getProductByName(serverRequest))
                 .expectNextMatches(response -> response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE)
                 .verifyComplete();
     }
+
+    @Test
+    void importBranchProducts_Success() {
+        Flux<String> lines = Flux.just("{\"name\":\"Product A\",\"stock\":5}");
+        Flux<ProductImportRecord> records = Flux.empty();
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("1");
+        when(serverRequest.bodyToFlux(String.class)).thenReturn(lines);
+        when(getBranchByIdUseCase.execute("1", "1")).thenReturn(Mono.just(new Branch()));
+        when(productImportParser.parse(lines, "1")).thenReturn(records);
+        when(importProductsUseCase.execute("1", records)).thenReturn(Flux.empty());
+
+        StepVerifier.create(handler.importBranchProducts(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.OK)
+                .verifyComplete();
+    }
+
+    @Test
+    void importBranchProducts_BranchNotFound() {
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(serverRequest.pathVariable("branchId")).thenReturn("999");
+        when(getBranchByIdUseCase.execute("1", "999"))
+                .thenReturn(Mono.error(new IllegalArgumentException("Branch not found")));
+
+        StepVerifier.create(handler.importBranchProducts(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.NOT_FOUND)
+                .verifyComplete();
+
+        verifyNoInteractions(importProductsUseCase);
+    }
+
+    @Test
+    void importFranchiseProducts_CircuitBreakerOpen() {
+        CallNotPermittedException exception = mock(CallNotPermittedException.class);
+
+        when(serverRequest.pathVariable("franchiseId")).thenReturn("1");
+        when(getFranchiseByIdUseCase.execute("1")).thenReturn(Mono.error(exception));
+
+        StepVerifier.create(handler.importFranchiseProducts(serverRequest))
+                .expectNextMatches(response -> response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verifyComplete();
+    }
+
+    private void stubAccept(MediaType mediaType) {
+        when(serverRequest.headers()).thenReturn(headers);
+        when(headers.accept()).thenReturn(List.of(mediaType));
+    }
 }
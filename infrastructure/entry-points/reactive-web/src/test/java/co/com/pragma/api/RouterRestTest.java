@@ -1,45 +1,89 @@
 package co.com.pragma.api;
 
 import co.com.pragma.api.dto.ResponseDto;
+import co.com.pragma.api.helper.ErrorResponseWriter;
+import co.com.pragma.api.helper.ProductImportParser;
+import co.com.pragma.api.helper.RequestCoalescer;
+import co.com.pragma.api.helper.ResponseFormats;
+import co.com.pragma.api.helper.StreamingResponseWriter;
 import co.com.pragma.api.helper.ValidationHelper;
 import co.com.pragma.model.Branch;
 import co.com.pragma.model.Constants;
 import co.com.pragma.model.Franchise;
+import co.com.pragma.model.ImportChunkResult;
+import co.com.pragma.model.ImportRecordError;
+import co.com.pragma.model.ListingSort;
+import co.com.pragma.model.PageQuery;
 import co.com.pragma.model.Product;
+import co.com.pragma.model.ProductImportRecord;
+import co.com.pragma.model.RankedProduct;
+import co.com.pragma.model.RankingOrder;
+import co.com.pragma.model.RankingScope;
+import co.com.pragma.model.ResultPage;
+import co.com.pragma.model.Versioned;
 import co.com.pragma.usecase.addbranch.AddBranchUseCase;
 import co.com.pragma.usecase.addproduct.AddProductUseCase;
+import co.com.pragma.usecase.adjustproductstock.AdjustProductStockUseCase;
 import co.com.pragma.usecase.createfranchise.CreateFranchiseUseCase;
 import co.com.pragma.usecase.deleteproduct.DeleteProductUseCase;
+import co.com.pragma.usecase.expandfranchise.ExpandFranchiseUseCase;
 import co.com.pragma.usecase.getmaxstockproducts.GetMaxStockProductsUseCase;
 import co.com.pragma.usecase.getallfranchises.GetAllFranchisesUseCase;
 import co.com.pragma.usecase.getfranchisebyid.GetFranchiseByIdUseCase;
 import co.com.pragma.usecase.getbranchbyid.GetBranchByIdUseCase;
 import co.com.pragma.usecase.getproductbyname.GetProductByNameUseCase;
 import co.com.pragma.usecase.getproductsbybranch.GetProductsByBranchUseCase;
+import co.com.pragma.usecase.getresourceversion.GetResourceVersionUseCase;
+import co.com.pragma.usecase.getstockranking.GetStockRankingUseCase;
+import co.com.pragma.usecase.importproducts.ImportProductsUseCase;
 import co.com.pragma.usecase.updatebranchname.UpdateBranchNameUseCase;
 import co.com.pragma.usecase.updatebranch.UpdateBranchUseCase;
 import co.com.pragma.usecase.updatefranchisename.UpdateFranchiseNameUseCase;
 import co.com.pragma.usecase.updateproductname.UpdateProductNameUseCase;
 import co.com.pragma.usecase.updateproductstock.UpdateProductStockUseCase;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class RouterRestTest {
 
+    private final ObjectMapper cborMapper = new CBORMapper();
+    private final ObjectMapper smileMapper = new SmileMapper();
+
     private WebTestClient webTestClient;
 
     @Mock
@@ -87,6 +131,21 @@ class RouterRestTest {
     @Mock
     private GetProductsByBranchUseCase getProductsByBranchUseCase;
     
+    @Mock
+    private AdjustProductStockUseCase adjustProductStockUseCase;
+    
+    @Mock
+    private ImportProductsUseCase importProductsUseCase;
+
+    @Mock
+    private GetStockRankingUseCase getStockRankingUseCase;
+
+    @Mock
+    private GetResourceVersionUseCase getResourceVersionUseCase;
+
+    @Mock
+    private ExpandFranchiseUseCase expandFranchiseUseCase;
+    
     @Mock
     private ValidationHelper validationHelper;
 
@@ -103,6 +162,7 @@ class RouterRestTest {
                     }
                     return Mono.just(arg);
                 });
+        when(getResourceVersionUseCase.productListVersion(anyString(), anyString())).thenReturn(Mono.empty());
         
         Handler handler = new Handler(
                 createFranchiseUseCase,
@@ -120,12 +180,33 @@ class RouterRestTest {
                 getBranchByIdUseCase,
                 getProductByNameUseCase,
                 getProductsByBranchUseCase,
-                validationHelper
+                adjustProductStockUseCase,
+                importProductsUseCase,
+                getStockRankingUseCase,
+                getResourceVersionUseCase,
+                expandFranchiseUseCase,
+                validationHelper,
+                new ProductImportParser(new ObjectMapper()),
+                new StreamingResponseWriter(new ObjectMapper(), cborMapper, smileMapper),
+                new RequestCoalescer(new SimpleMeterRegistry()),
+                new ErrorResponseWriter(new ObjectMapper())
         );
         RouterRest routerRest = new RouterRest();
         RouterFunction<ServerResponse> routerFunction = routerRest.routerFunction(handler);
         
-        webTestClient = WebTestClient.bindToRouterFunction(routerFunction).build();
+        ApiExceptionHandler exceptionHandler = new ApiExceptionHandler(new ErrorResponseWriter(new ObjectMapper()),
+                ServerCodecConfigurer.create());
+        webTestClient = WebTestClient.bindToRouterFunction(routerFunction)
+                .handlerStrategies(HandlerStrategies.builder()
+                        .codecs(configurer -> {
+                            configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+                            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+                            configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper));
+                            configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper));
+                        })
+                        .exceptionHandler(exceptionHandler)
+                        .build())
+                .build();
     }
 
     @Test
@@ -209,14 +290,255 @@ class RouterRestTest {
                 });
     }
 
+    @Test
+    void testGetAllFranchisesRouteStreamsEnvelope() {
+        Franchise first = Franchise.builder().id("1").name("First").build();
+        Franchise second = Franchise.builder().id("2").name("Second").build();
+
+        when(getAllFranchisesUseCase.execute())
+                .thenReturn(Flux.just(first, second));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("S200000")
+                .jsonPath("$.data.length()").isEqualTo(2)
+                .jsonPath("$.data[1].name").isEqualTo("Second");
+    }
+
+    @Test
+    void testGetAllFranchisesRouteAsNdjson() {
+        Franchise first = Franchise.builder().id("1").name("First").build();
+        Franchise second = Franchise.builder().id("2").name("Second").build();
+
+        when(getAllFranchisesUseCase.execute())
+                .thenReturn(Flux.just(first, second));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> assertEquals(2, body.lines().count()));
+    }
+
+    @Test
+    void testGetAllFranchisesRouteAsCbor() {
+        Franchise first = Franchise.builder().id("1").name("First").build();
+        Franchise second = Franchise.builder().id("2").name("Second").build();
+
+        when(getAllFranchisesUseCase.execute())
+                .thenReturn(Flux.just(first, second));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(byte[].class)
+                .value(body -> {
+                    ResponseDto<?> response = read(cborMapper, body);
+                    assertEquals("S200000", response.getCode());
+                    assertEquals(2, ((List<?>) response.getData()).size());
+                });
+    }
+
+    @Test
+    void testGetAllFranchisesRoutePrefersJsonByQuality() {
+        when(getAllFranchisesUseCase.execute())
+                .thenReturn(Flux.just(Franchise.builder().id("1").name("First").build()));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH)
+                .header(HttpHeaders.ACCEPT, "application/cbor;q=0.5, application/json")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.data[0].name").isEqualTo("First");
+    }
+
+    @Test
+    void testGetAllFranchisesRoutePrefersJsonOverNdjsonByQuality() {
+        when(getAllFranchisesUseCase.execute())
+                .thenReturn(Flux.just(Franchise.builder().id("1").name("First").build()));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH)
+                .header(HttpHeaders.ACCEPT, "application/x-ndjson;q=0.5, application/json")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.data[0].name").isEqualTo("First");
+    }
+
+    @Test
+    void testGetMaxStockProductsRouteAsSmile() {
+        when(getMaxStockProductsUseCase.execute("1"))
+                .thenReturn(Flux.empty());
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_MAX_STOCK.replace("{franchiseId}", "1"))
+                .accept(ResponseFormats.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(ResponseFormats.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .value(body -> assertEquals(List.of(), read(smileMapper, body).getData()));
+    }
+
+    @Test
+    void testGetAllFranchisesRouteAsSmileStreamsEveryElement() {
+        when(getAllFranchisesUseCase.execute())
+                .thenReturn(Flux.range(1, 3).map(id -> Franchise.builder().id(String.valueOf(id)).name("F" + id).build()));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH)
+                .accept(ResponseFormats.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(ResponseFormats.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .value(body -> {
+                    // los nombres de campo compartidos entre elementos se resuelven dentro del mismo generador
+                    ResponseDto<?> response = read(smileMapper, body);
+                    assertEquals("S200000", response.getCode());
+                    assertEquals(List.of("F1", "F2", "F3"), ((List<?>) response.getData()).stream()
+                            .map(franchise -> ((Map<?, ?>) franchise).get("name"))
+                            .toList());
+                });
+    }
+
+    @Test
+    void testCreateFranchiseRouteReadsCborBody() throws IOException {
+        when(createFranchiseUseCase.execute(argThat(franchise -> "Test Franchise".equals(franchise.getName()))))
+                .thenReturn(Mono.just(Franchise.builder().id("test-id").name("Test Franchise").build()));
+
+        webTestClient.post()
+                .uri(Constants.API_BASE_PATH)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(cborMapper.writeValueAsBytes(Map.of("name", "Test Franchise")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo("test-id");
+    }
+
+    @Test
+    void testGetProductsByBranchRouteNotFoundBeforeStreaming() {
+        when(getProductsByBranchUseCase.execute(anyString(), anyString()))
+                .thenReturn(Flux.error(new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND)));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_PRODUCTS
+                        .replace("{franchiseId}", "1").replace("{branchId}", "2"))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ResponseDto.class)
+                .value(response -> assertEquals("B404000", response.getCode()));
+    }
+
+    @Test
+    void testGetAllFranchisesPageRouteReturnsNextCursor() {
+        Franchise first = Franchise.builder().id("1").name("First").build();
+
+        when(getAllFranchisesUseCase.execute(argThat((PageQuery query) -> query.getLimit() == 1
+                && "abc".equals(query.getCursor()) && query.getSort() == ListingSort.NAME)))
+                .thenReturn(Mono.just(new ResultPage<>(List.of(first), "def")));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + "?limit=1&cursor=abc&sort=name")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.length()").isEqualTo(1)
+                .jsonPath("$.data[0].id").isEqualTo("1")
+                .jsonPath("$.next").isEqualTo("def");
+    }
+
+    @Test
+    void testGetProductsByBranchLastPageOmitsNext() {
+        when(getProductsByBranchUseCase.execute(eq("1"), eq("2"), any(PageQuery.class)))
+                .thenReturn(Mono.just(new ResultPage<>(List.of(new Product("1", "Product 1", 3)), null)));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_PRODUCTS
+                        .replace("{franchiseId}", "1").replace("{branchId}", "2") + "?limit=10&sort=stock")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data[0].stock").isEqualTo(3)
+                .jsonPath("$.next").doesNotExist();
+    }
+
+    @Test
+    void testGetProductsByBranchPageAsSmileHasOwnETag() {
+        when(getResourceVersionUseCase.productListVersion("1", "2"))
+                .thenReturn(Mono.just(4L));
+        when(getProductsByBranchUseCase.execute(eq("1"), eq("2"), any(PageQuery.class)))
+                .thenReturn(Mono.just(new ResultPage<>(List.of(new Product("1", "Product 1", 3)), "next")));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_PRODUCTS
+                        .replace("{franchiseId}", "1").replace("{branchId}", "2") + "?limit=1")
+                .accept(ResponseFormats.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(ResponseFormats.APPLICATION_SMILE)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4-x-jackson-smile\"")
+                .expectBody(byte[].class)
+                .value(body -> assertEquals("next", read(smileMapper, body).getNext()));
+    }
+
+    @Test
+    void testGetStockRankingRoute() {
+        RankedProduct ranked = new RankedProduct(1, new Product("1", "Product 1", 2),
+                Branch.builder().id("10").name("Branch 10").build());
+
+        when(getStockRankingUseCase.execute("1", RankingScope.FRANCHISE, RankingOrder.ASC, 5))
+                .thenReturn(Flux.just(ranked));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_STOCK_RANKING.replace("{franchiseId}", "1")
+                        + "?k=5&order=asc&scope=franchise")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data[0].rank").isEqualTo(1)
+                .jsonPath("$.data[0].product.id").isEqualTo("1")
+                .jsonPath("$.data[0].branch.id").isEqualTo("10");
+    }
+
+    @Test
+    void testGetStockRankingRouteRejectsInvalidSize() {
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_STOCK_RANKING.replace("{franchiseId}", "1") + "?k=many")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void testGetFranchiseByIdRoute() {
         Franchise franchise = new Franchise();
         franchise.setId("1");
         franchise.setName("Test Franchise");
         
-        when(getFranchiseByIdUseCase.execute(anyString()))
-                .thenReturn(Mono.just(franchise));
+        when(getFranchiseByIdUseCase.executeVersioned(anyString()))
+                .thenReturn(Mono.just(new Versioned<>(franchise, 0L)));
         
         webTestClient.get()
                 .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_ID.replace("{franchiseId}", "1"))
@@ -231,6 +553,107 @@ class RouterRestTest {
                 });
     }
 
+    @Test
+    void testGetFranchiseByIdRouteExpanded() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+        Branch branch1 = Branch.builder().id("10").name("Branch 1").build();
+        branch1.setProducts(List.of(new Product("100", "Product 1", 5)));
+        Branch branch2 = Branch.builder().id("11").name("Branch 2").build();
+
+        when(expandFranchiseUseCase.franchise("1", true)).thenReturn(Mono.just(franchise));
+        when(expandFranchiseUseCase.branches("1", true)).thenReturn(Flux.just(branch1, branch2));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + "/1?expand=branches,products")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.ETAG)
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("S200000")
+                .jsonPath("$.data.name").isEqualTo("Franchise 1")
+                .jsonPath("$.data.branches.length()").isEqualTo(2)
+                .jsonPath("$.data.branches[0].products[0].name").isEqualTo("Product 1")
+                .jsonPath("$.data.branches[1].products.length()").isEqualTo(0);
+    }
+
+    @Test
+    void testGetFranchiseByIdRouteExpandedWithoutProducts() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+
+        when(expandFranchiseUseCase.franchise("1", false)).thenReturn(Mono.just(franchise));
+        when(expandFranchiseUseCase.branches("1", false)).thenReturn(Flux.just(Branch.builder().id("10").name("Branch 1").build()));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + "/1?expand=branches")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.branches[0].name").isEqualTo("Branch 1")
+                .jsonPath("$.data.branches[0].products").doesNotExist();
+    }
+
+    @Test
+    void testGetFranchiseByIdRouteExpandedWithoutBranches() {
+        Franchise franchise = Franchise.builder().id("1").name("Franchise 1").build();
+
+        when(expandFranchiseUseCase.franchise("1", false)).thenReturn(Mono.just(franchise));
+        when(expandFranchiseUseCase.branches("1", false)).thenReturn(Flux.empty());
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + "/1?expand=branches")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo("1")
+                .jsonPath("$.data.branches.length()").isEqualTo(0);
+    }
+
+    @Test
+    void testGetFranchiseByIdRouteSendsETag() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+
+        when(getFranchiseByIdUseCase.executeVersioned("1")).thenReturn(Mono.just(new Versioned<>(franchise, 3L)));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_ID.replace("{franchiseId}", "1"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+    }
+
+    @Test
+    void testGetFranchiseByIdRouteAsCbor() {
+        Franchise franchise = Franchise.builder().id("1").name("First").build();
+
+        when(getFranchiseByIdUseCase.executeVersioned("1")).thenReturn(Mono.just(new Versioned<>(franchise, 3L)));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_ID.replace("{franchiseId}", "1"))
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-cbor\"")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(byte[].class)
+                .value(body -> assertEquals("First", ((Map<?, ?>) read(cborMapper, body).getData()).get("name")));
+    }
+
+    @Test
+    void testGetFranchiseByIdRouteNotModified() {
+        when(getFranchiseByIdUseCase.executeVersion("1")).thenReturn(Mono.just(3L));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_ID.replace("{franchiseId}", "1"))
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        verify(getFranchiseByIdUseCase, never()).executeVersioned(anyString());
+    }
+
     @Test
     void testAddBranchRoute() {
         Branch branch = new Branch();
@@ -260,8 +683,8 @@ class RouterRestTest {
         branch.setId("1");
         branch.setName("Test Branch");
         
-        when(getBranchByIdUseCase.execute(anyString(), anyString()))
-                .thenReturn(Mono.just(branch));
+        when(getBranchByIdUseCase.executeVersioned(anyString(), anyString()))
+                .thenReturn(Mono.just(new Versioned<>(branch, 0L)));
         
         webTestClient.get()
                 .uri(Constants.API_BASE_PATH + Constants.PATH_BRANCH_ID.replace("{franchiseId}", "1").replace("{branchId}", "1"))
@@ -307,8 +730,8 @@ class RouterRestTest {
         product.setName("Test Product");
         product.setStock(100);
         
-        when(getProductByNameUseCase.execute(anyString(), anyString(), anyString()))
-                .thenReturn(Mono.just(product));
+        when(getProductByNameUseCase.executeVersioned(anyString(), anyString(), anyString()))
+                .thenReturn(Mono.just(new Versioned<>(product, 0L)));
         
         webTestClient.get()
                 .uri(Constants.API_BASE_PATH + Constants.PATH_PRODUCT_BY_NAME.replace("{franchiseId}", "1").replace("{branchId}", "1").replace("{productName}", "Test Product"))
@@ -322,4 +745,139 @@ class RouterRestTest {
                     assertNotNull(response.getData());
                 });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUpdateProductStockRouteIfMatchConflict() {
+        when(updateProductStockUseCase.execute("1", "1", "1", 50, 4L))
+                .thenReturn(Mono.error(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)));
+
+        webTestClient.put()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_STOCK.replace("{franchiseId}", "1").replace("{branchId}", "1").replace("{productId}", "1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .ifMatch("\"4\"")
+                .bodyValue("{\"stock\":50}")
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody(ResponseDto.class)
+                .value(response -> assertEquals("B412000", response.getCode()));
+    }
+
+    @Test
+    void testAdjustProductStockRoute() {
+        Product product = new Product("1", "Test Product", 97);
+
+        when(adjustProductStockUseCase.execute(anyString(), anyString(), anyString(), any()))
+                .thenReturn(Mono.just(product));
+
+        webTestClient.patch()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_STOCK.replace("{franchiseId}", "1").replace("{branchId}", "1").replace("{productId}", "1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"delta\":-3}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ResponseDto.class)
+                .value(response -> {
+                    assertEquals("S200000", response.getCode());
+                    assertNotNull(response.getData());
+                });
+    }
+
+    @Test
+    void testAdjustProductStockRouteInsufficientStock() {
+        when(adjustProductStockUseCase.execute(anyString(), anyString(), anyString(), any()))
+                .thenReturn(Mono.error(new IllegalStateException(Constants.ERROR_INSUFFICIENT_STOCK)));
+
+        webTestClient.patch()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_STOCK.replace("{franchiseId}", "1").replace("{branchId}", "1").replace("{productId}", "1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"delta\":-300}")
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(ResponseDto.class)
+                .value(response -> assertEquals("B409000", response.getCode()));
+    }
+
+    @Test
+    void testImportBranchProductsRoute() {
+        when(getBranchByIdUseCase.execute("1", "1")).thenReturn(Mono.just(new Branch()));
+        when(importProductsUseCase.execute(anyString(), any())).thenAnswer(invocation -> {
+            Flux<ProductImportRecord> records = invocation.getArgument(1);
+            return records.collectList().map(list -> ImportChunkResult.builder()
+                    .chunk(1)
+                    .received(list.size())
+                    .inserted((int) list.stream().filter(r -> r.getError() == null).count())
+                    .errors(list.stream()
+                            .filter(r -> r.getError() != null)
+                            .map(r -> new ImportRecordError(r.getLine(), r.getError()))
+                            .toList())
+                    .build()).flux();
+        });
+
+        webTestClient.post()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_PRODUCTS_IMPORT.replace("{franchiseId}", "1").replace("{branchId}", "1"))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"name\":\"Product A\",\"stock\":5}\n\n{\"name\":\"Product B\",\"stock\":1}\nnot json\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(ImportChunkResult.class)
+                .value(results -> {
+                    assertEquals(1, results.size());
+                    assertEquals(3, results.get(0).getReceived());
+                    assertEquals(2, results.get(0).getInserted());
+                    assertEquals(4, results.get(0).getErrors().get(0).getLine());
+                });
+    }
+
+    @Test
+    void testImportFranchiseProductsRouteFranchiseNotFound() {
+        when(getFranchiseByIdUseCase.execute("1"))
+                .thenReturn(Mono.error(new IllegalArgumentException(Constants.ERROR_FRANCHISE_NOT_FOUND)));
+
+        webTestClient.post()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_PRODUCTS_IMPORT.replace("{franchiseId}", "1"))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"branchId\":\"1\",\"name\":\"Product A\",\"stock\":5}\n")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ResponseDto.class)
+                .value(response -> assertEquals("B404000", response.getCode()));
+    }
+
+    @Test
+    void testCircuitBreakerOpenServesPreEncodedBody() {
+        when(getFranchiseByIdUseCase.executeVersioned("1")).thenReturn(Mono.error(
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("mongoCircuitBreaker"))));
+
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_ID.replace("{franchiseId}", "1"))
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(ResponseDto.class)
+                .value(response -> {
+                    assertEquals("B503000", response.getCode());
+                    assertEquals("Error", response.getTitle());
+                    assertEquals(1, response.getErrors().size());
+                });
+    }
+
+    @Test
+    void testInvalidPathIdIsHandledGlobally() {
+        webTestClient.get()
+                .uri(Constants.API_BASE_PATH + Constants.PATH_FRANCHISE_ID.replace("{franchiseId}", "bad.id"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ResponseDto.class)
+                .value(response -> assertEquals("B400000", response.getCode()));
+        verify(getFranchiseByIdUseCase, never()).executeVersioned(anyString());
+    }
+
+    private static ResponseDto<?> read(ObjectMapper mapper, byte[] body) {
+        try {
+            return mapper.readValue(body, ResponseDto.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.ResponseDto;
+import co.com.pragma.model.Product;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara JSON, CBOR y Smile al codificar y decodificar un {@link ResponseDto} con 1, 100 y 10.000
+ * productos: imprime el tamaño del payload y la mediana y el p99 de cada operación.
+ * <p>
+ * Es opcional porque solo mide: se ejecuta con {@code -Dbenchmark.formats=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.formats", matches = "true")
+class BinaryFormatBenchmarkTest {
+
+    private static final TypeReference<ResponseDto<List<Product>>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * Productos procesados por medición; los payloads grandes se repiten menos veces.
+     */
+    private static final int PRODUCTS_PER_RUN = 2_000_000;
+
+    private static final Map<String, ObjectMapper> FORMATS = Map.of(
+            "json", new ObjectMapper(),
+            "cbor", new CBORMapper(),
+            "smile", new SmileMapper());
+
+    private static volatile Object sink;
+
+    @Test
+    void benchmarkBinaryFormats() throws IOException {
+        for (int size : new int[]{1, 100, 10_000}) {
+            ResponseDto<List<Product>> response = ResponseUtil.responseSuccessful(IntStream.range(0, size)
+                    .mapToObj(i -> new Product(String.valueOf(i), "Producto " + i, i))
+                    .toList(), BusinessCode.S200000);
+            int iterations = Math.max(100, PRODUCTS_PER_RUN / size);
+            for (String format : List.of("json", "cbor", "smile")) {
+                ObjectWriter writer = FORMATS.get(format).writerFor(RESPONSE_TYPE);
+                ObjectReader reader = FORMATS.get(format).readerFor(RESPONSE_TYPE);
+                byte[] payload = writer.writeValueAsBytes(response);
+                assertEquals(size, reader.<ResponseDto<List<Product>>>readValue(payload).getData().size());
+
+                long[] encode = measure(iterations, () -> writer.writeValueAsBytes(response));
+                long[] decode = measure(iterations, () -> reader.readValue(payload));
+                System.out.printf(Locale.ROOT, "%6d products %-5s %9d bytes encode p50=%10.1fus p99=%10.1fus"
+                                + " decode p50=%10.1fus p99=%10.1fus%n", size, format, payload.length,
+                        encode[iterations / 2] / 1_000.0, encode[iterations * 99 / 100] / 1_000.0,
+                        decode[iterations / 2] / 1_000.0, decode[iterations * 99 / 100] / 1_000.0);
+            }
+        }
+    }
+
+    private static long[] measure(int iterations, Operation operation) throws IOException {
+        for (int i = 0; i < iterations / 10; i++) {
+            sink = operation.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            sink = operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run() throws IOException;
+    }
+}
@@ -0,0 +1,77 @@
+package co.com.pragma.api.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara las expresiones de {@link DangerousInputMatcherTest#REFERENCE_PATTERNS} con
+ * {@link DangerousInputMatcher} sobre nombres habituales y sobre entradas adversarias de longitud
+ * creciente (casi coincidencias y saltos de línea que obligan a las expresiones a retroceder), e imprime la
+ * mediana y el p99 por entrada.
+ * <p>
+ * Es opcional porque solo mide: se ejecuta con {@code -Dbenchmark.sanitizer=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.sanitizer", matches = "true")
+class DangerousInputBenchmarkTest {
+
+    /**
+     * Caracteres procesados por medición; las entradas largas se repiten menos veces.
+     */
+    private static final int CHARACTERS_PER_RUN = 2_000_000;
+    private static final List<String> REALISTIC = List.of("Sucursal Centro", "Franquicia El Buen Sabor",
+            "Producto 42 - Edición especial", "Café de Colombia 500g", "Tienda Norte #3");
+
+    private static volatile boolean sink;
+
+    @Test
+    void benchmarkRealisticNames() {
+        compare("realistic", REALISTIC);
+    }
+
+    @Test
+    void benchmarkAdversarialInputs() {
+        for (int length : new int[]{100, 1_000, 10_000}) {
+            compare("near-miss-" + length, List.of("javascrip".repeat(length / 9) + "t",
+                    "{ ".repeat(length / 2), "onerror ".repeat(length / 8)));
+            compare("newlines-" + length, List.of("{\n".repeat(length / 2) + "x", "a\n".repeat(length / 2) + "$"));
+        }
+    }
+
+    private static void compare(String workload, List<String> inputs) {
+        for (String input : inputs) {
+            assertEquals(DangerousInputMatcherTest.matchesReference(input), DangerousInputMatcher.matches(input));
+        }
+        Predicate<String> regex = DangerousInputMatcherTest::matchesReference;
+        Predicate<String> automaton = DangerousInputMatcher::matches;
+        report(workload, "regex", measure(regex, inputs));
+        report(workload, "automaton", measure(automaton, inputs));
+    }
+
+    private static long[] measure(Predicate<String> matcher, List<String> inputs) {
+        int iterations = Math.max(100, CHARACTERS_PER_RUN / inputs.get(0).length());
+        for (int i = 0; i < iterations / 10; i++) {
+            sink = matcher.test(inputs.get(i % inputs.size()));
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            String input = inputs.get(i % inputs.size());
+            long start = System.nanoTime();
+            sink = matcher.test(input);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void report(String workload, String matcher, long[] samples) {
+        System.out.printf(Locale.ROOT, "%-18s %-10s p50=%10.1fns p99=%10.1fns%n", workload, matcher,
+                (double) samples[samples.length / 2], (double) samples[samples.length * 99 / 100]);
+    }
+}
@@ -0,0 +1,84 @@
+package co.com.pragma.api.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DangerousInputMatcherTest {
+
+    /**
+     * Expresiones que usaba {@link InputSanitizer} antes del autómata; son la referencia de equivalencia.
+     */
+    static final Pattern[] REFERENCE_PATTERNS = {
+            Pattern.compile(".*\\$.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*\\{\\s*\\$.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*\\[\\s*\\$.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*\\|\\|.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*&&.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*javascript:.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*<script.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*onerror=.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*onload=.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*eval\\(.*", Pattern.CASE_INSENSITIVE),
+            Pattern.compile(".*exec\\(.*", Pattern.CASE_INSENSITIVE)
+    };
+
+    private static final String[] FRAGMENTS = {
+            "$", "{", "[", "|", "&", "javascript:", "JavaScript:", "<script", "<SCRIPT", "onerror=", "onLoad=",
+            "eval(", "EXEC(", "exec", "eval", "on", "java", "a", "Z", " ", "\t", "\n", "\r", "\u000B", "\f",
+            "\u0085", "\u2028", "\u2029", "\u212A", "\u017F", "\u00E9", "\uD83D\uDE00"
+    };
+
+    static boolean matchesReference(String input) {
+        return Arrays.stream(REFERENCE_PATTERNS).anyMatch(pattern -> pattern.matcher(input).matches());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Sucursal Centro", "Café & Té", "price $10", "{$gt: 1}", "[ $ne ]", "a || b", "a && b",
+            "JAVASCRIPT:alert(1)", "<ScRiPt>", "img onerror=x", "body ONLOAD=x", "eval(x)", "exec(cmd)",
+            "line\n$", "{\n$", "[\r\n\t$", "{ \n $ tail", "x{\n$", "{\n$\n", "\n{$", "eval(\n", "\u2028$",
+            "{\u2028$", "{\u0085$", "javascript\u212A", "<\u017Fcript", "onerror =", "exe(c(", ""
+    })
+    void testMatchesLikeTheReferencePatterns(String input) {
+        assertEquals(matchesReference(input), DangerousInputMatcher.matches(input), input);
+    }
+
+    @Test
+    void testMatchesLikeTheReferencePatternsOnRandomInputs() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder input = new StringBuilder();
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String candidate = input.toString();
+            assertEquals(matchesReference(candidate), DangerousInputMatcher.matches(candidate), candidate);
+        }
+    }
+
+    @Test
+    void testLineTerminatorsOnlyCountInsideTheBracketSpace() {
+        assertTrue(DangerousInputMatcher.matches("{\r\n$"));
+        assertFalse(DangerousInputMatcher.matches("a\n$"));
+        assertFalse(DangerousInputMatcher.matches("{\u2028$"));
+    }
+
+    @Test
+    void testSanitizerRejectsWhatTheMatcherFlags() {
+        assertThrows(IllegalArgumentException.class, () -> InputSanitizer.sanitize("  {$where: 1}  "));
+        assertEquals("Sucursal Norte", InputSanitizer.sanitize("  Sucursal Norte  "));
+        assertTrue(InputSanitizer.containsDangerousCharacters("<script>"));
+        assertFalse(InputSanitizer.containsDangerousCharacters("   "));
+    }
+}
@@ -0,0 +1,92 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.model.Constants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ErrorResponseWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ErrorResponseWriter errorResponseWriter = new ErrorResponseWriter(objectMapper);
+
+    @Test
+    void testCircuitBreakerOpenWritesThePreEncodedBody() throws Exception {
+        CallNotPermittedException error = CallNotPermittedException.createCallNotPermittedException(
+                CircuitBreaker.ofDefaults("mongoCircuitBreaker"));
+
+        assertEquals(objectMapper.writeValueAsString(ResponseUtil.responseError(BusinessCode.B503000,
+                        ErrorResponseWriter.SERVICE_UNAVAILABLE_MESSAGE)),
+                render(errorResponseWriter.write(error), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void testPreEncodedBodyCanBeWrittenRepeatedly() {
+        RuntimeException error = new RuntimeException("boom");
+
+        String first = render(errorResponseWriter.write(error), HttpStatus.INTERNAL_SERVER_ERROR);
+        String second = render(errorResponseWriter.write(error), HttpStatus.INTERNAL_SERVER_ERROR);
+
+        assertEquals(first, second);
+        assertEquals("{\"code\":\"E500000\",\"title\":\"Error\",\"message\":\"Error interno del servidor\"}", first);
+    }
+
+    @Test
+    void testVersionConflictAndInsufficientStock() {
+        render(errorResponseWriter.write(new IllegalStateException(Constants.ERROR_VERSION_CONFLICT)),
+                HttpStatus.PRECONDITION_FAILED);
+        render(errorResponseWriter.write(new IllegalStateException(Constants.ERROR_INSUFFICIENT_STOCK)),
+                HttpStatus.CONFLICT);
+        render(errorResponseWriter.write(new IllegalStateException(Constants.ERROR_STOCK_LIMIT_EXCEEDED)),
+                HttpStatus.CONFLICT);
+        render(errorResponseWriter.write(new IllegalStateException("Unexpected state")),
+                HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    void testIllegalArgumentStatusDependsOnTheEndpoint() throws Exception {
+        IllegalArgumentException missing = new IllegalArgumentException(Constants.ERROR_BRANCH_NOT_FOUND);
+        IllegalArgumentException invalid = new IllegalArgumentException(Constants.ERROR_INVALID_CURSOR);
+
+        render(errorResponseWriter.write(missing), HttpStatus.BAD_REQUEST);
+        render(errorResponseWriter.writeNotFound(invalid), HttpStatus.NOT_FOUND);
+        render(errorResponseWriter.writeMissingAsNotFound(invalid), HttpStatus.BAD_REQUEST);
+        assertEquals(objectMapper.writeValueAsString(ResponseUtil.responseError(BusinessCode.B404000,
+                        Constants.ERROR_BRANCH_NOT_FOUND)),
+                render(errorResponseWriter.writeMissingAsNotFound(missing), HttpStatus.NOT_FOUND));
+    }
+
+    private static String render(Mono<ServerResponse> response, HttpStatus expectedStatus) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/franchises"));
+        StepVerifier.create(response.flatMap(serverResponse -> {
+                    assertEquals(expectedStatus, serverResponse.statusCode());
+                    return serverResponse.writeTo(exchange, new ServerResponse.Context() {
+                        @Override
+                        public List<HttpMessageWriter<?>> messageWriters() {
+                            return ServerCodecConfigurer.create().getWriters();
+                        }
+
+                        @Override
+                        public List<ViewResolver> viewResolvers() {
+                            return List.of();
+                        }
+                    });
+                }))
+                .verifyComplete();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+}
@@ -0,0 +1,119 @@
+package co.com.pragma.api.helper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry);
+    }
+
+    @Test
+    void testConcurrentIdenticalReadsShareOneSubscription() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.One<String> pending = Sinks.one();
+
+        Mono<String> first = coalescer.mono("franchise", () -> pending.asMono()
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet()), "1");
+        Mono<String> second = coalescer.mono("franchise", () -> pending.asMono()
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet()), "1");
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> pending.tryEmitValue("Franchise 1"))
+                .assertNext(results -> {
+                    assertEquals("Franchise 1", results.getT1());
+                    assertEquals("Franchise 1", results.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(1.0, collapsedCount("franchise"));
+    }
+
+    @Test
+    void testCompletedReadIsNotReused() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(coalescer.mono("franchise", () -> Mono.fromCallable(loads::incrementAndGet), "1"))
+                    .expectNext(i + 1)
+                    .verifyComplete();
+        }
+
+        assertEquals(2, loads.get());
+        assertEquals(0.0, meterRegistry.get(RequestCoalescer.IN_FLIGHT_METRIC).gauge().value());
+    }
+
+    @Test
+    void testDifferentKeysAreNotCoalesced() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> pending = Sinks.one();
+
+        Mono<String> first = coalescer.mono("franchise", () -> pending.asMono()
+                .doOnSubscribe(subscription -> loads.incrementAndGet()), "1");
+        Mono<String> second = coalescer.mono("franchise", () -> pending.asMono()
+                .doOnSubscribe(subscription -> loads.incrementAndGet()), "2");
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> pending.tryEmitValue("Franchise"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testErrorReachesEveryCaller() {
+        Sinks.One<String> pending = Sinks.one();
+
+        Mono<String> first = coalescer.mono("franchise", pending::asMono, "1");
+        Mono<String> second = coalescer.mono("franchise", pending::asMono, "1");
+
+        StepVerifier.create(Mono.zip(first.onErrorReturn("failed"), second.onErrorReturn("failed")))
+                .then(() -> pending.tryEmitError(new IllegalStateException("Database unavailable")))
+                .assertNext(results -> {
+                    assertEquals("failed", results.getT1());
+                    assertEquals("failed", results.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(0.0, meterRegistry.get(RequestCoalescer.IN_FLIGHT_METRIC).gauge().value());
+    }
+
+    @Test
+    void testCancellingEveryCallerCancelsTheRead() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> source = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = coalescer.mono("franchise", () -> source, "1").subscribe();
+        Disposable second = coalescer.mono("franchise", () -> source, "1").subscribe();
+
+        first.dispose();
+        assertEquals(1.0, meterRegistry.get(RequestCoalescer.IN_FLIGHT_METRIC).gauge().value());
+        second.dispose();
+
+        assertTrue(cancelled.get());
+        assertEquals(0.0, meterRegistry.get(RequestCoalescer.IN_FLIGHT_METRIC).gauge().value());
+    }
+
+    private double collapsedCount(String operation) {
+        return meterRegistry.get(RequestCoalescer.COLLAPSED_METRIC).tag("operation", operation).counter().count();
+    }
+}
@@ -0,0 +1,114 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.FranchiseSummaryDto;
+import co.com.pragma.api.dto.ProductListResponseDto;
+import co.com.pragma.api.dto.ResponseDto;
+import co.com.pragma.model.Franchise;
+import co.com.pragma.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseDtoEncoderTest {
+
+    private static final ResolvableType RESPONSE_TYPE = ResolvableType.forClass(ResponseDto.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ResponseDtoEncoder encoder = new ResponseDtoEncoder(new ObjectMapper().registerModule(new BlackbirdModule()));
+    private final Jackson2JsonEncoder jacksonEncoder = new Jackson2JsonEncoder(objectMapper);
+
+    static Stream<ResponseDto<?>> responses() {
+        return Stream.of(
+                ResponseUtil.responseSuccessful(Franchise.builder().id("1").name("Franquicia").build(), BusinessCode.S200000),
+                ResponseUtil.responseSuccessful(FranchiseSummaryDto.builder().id("1").name("Franquicia").build(),
+                        BusinessCode.S200000),
+                ResponseUtil.responseSuccessful(List.of(new Product("1", "Producto", 10), new Product("2", "Otro", null)),
+                        "next-cursor", BusinessCode.S200000),
+                ResponseUtil.responseSuccessful(List.of(), BusinessCode.S200000),
+                ResponseUtil.responseSuccessful(null, BusinessCode.S201000),
+                ResponseUtil.responseError(BusinessCode.B400000, "Name is required"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("responses")
+    void testEncodesTheSameJsonAsJackson2JsonEncoder(ResponseDto<?> response) {
+        String expected = asString(jacksonEncoder.encodeValue(response, DefaultDataBufferFactory.sharedInstance,
+                RESPONSE_TYPE, MediaType.APPLICATION_JSON, null));
+
+        assertEquals(expected, asString(encoder.encodeValue(response, DefaultDataBufferFactory.sharedInstance,
+                RESPONSE_TYPE, MediaType.APPLICATION_JSON, null)));
+        assertEquals(expected, asString(encoder.encode(Mono.just(response), DefaultDataBufferFactory.sharedInstance,
+                RESPONSE_TYPE, MediaType.APPLICATION_JSON, null).single().block()));
+    }
+
+    @Test
+    void testReusesTheWriterResolvedForEachDataType() {
+        Product product = new Product("1", "Producto", 1);
+
+        assertSame(encoder.writerFor(RESPONSE_TYPE, product), encoder.writerFor(RESPONSE_TYPE, new Product()));
+        assertSame(encoder.writerFor(RESPONSE_TYPE, List.of(product)),
+                encoder.writerFor(RESPONSE_TYPE, List.of(new Product(), product)));
+        assertSame(encoder.writerFor(RESPONSE_TYPE, null), encoder.writerFor(RESPONSE_TYPE, List.of()));
+    }
+
+    @Test
+    void testTypesListsByTheDeclaredElementType() {
+        ResolvableType productList = ResolvableType.forClass(ProductListResponseDto.class);
+
+        assertSame(encoder.writerFor(RESPONSE_TYPE, List.of(new Product())),
+                encoder.writerFor(productList, List.of(new Product(), new Product())));
+    }
+
+    @Test
+    void testUsesTheUntypedEnvelopeForMixedOrUndocumentedData() {
+        ObjectWriter envelope = encoder.writerFor(RESPONSE_TYPE, null);
+
+        assertSame(envelope, encoder.writerFor(RESPONSE_TYPE, List.of(new Product(), Franchise.builder().build())));
+        assertSame(envelope, encoder.writerFor(RESPONSE_TYPE, List.of(FranchiseSummaryDto.builder().build())));
+        assertSame(envelope, encoder.writerFor(RESPONSE_TYPE, FranchiseSummaryDto.builder().build()));
+    }
+
+    @Test
+    void testEncodesMixedListsLikeJackson2JsonEncoder() {
+        ResponseDto<?> response = ResponseUtil.responseSuccessful(List.of(new Product("1", "Producto", 10),
+                Franchise.builder().id("2").name("Franquicia").build()), BusinessCode.S200000);
+
+        assertEquals(asString(jacksonEncoder.encodeValue(response, DefaultDataBufferFactory.sharedInstance,
+                        RESPONSE_TYPE, MediaType.APPLICATION_JSON, null)),
+                asString(encoder.encodeValue(response, DefaultDataBufferFactory.sharedInstance,
+                        RESPONSE_TYPE, MediaType.APPLICATION_JSON, null)));
+    }
+
+    @Test
+    void testOnlyEncodesResponseDtoAsJson() {
+        assertTrue(encoder.canEncode(RESPONSE_TYPE, MediaType.APPLICATION_JSON));
+        assertTrue(encoder.canEncode(RESPONSE_TYPE, null));
+        assertFalse(encoder.canEncode(RESPONSE_TYPE, MediaType.APPLICATION_XML));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(Product.class), MediaType.APPLICATION_JSON));
+    }
+
+    private static String asString(DataBuffer buffer) {
+        String json = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return json;
+    }
+}
@@ -0,0 +1,80 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.ResponseDto;
+import co.com.pragma.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Compara el {@link Jackson2JsonEncoder} por defecto con {@link ResponseDtoEncoder} sobre Blackbird al
+ * codificar un {@link ResponseDto} con 1, 100 y 10.000 productos en buffers del pool de Netty, como en
+ * una respuesta real, e imprime la mediana y el p99 de cada tamaño.
+ * <p>
+ * Es opcional porque solo mide: se ejecuta con {@code -Dbenchmark.serialization=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.serialization", matches = "true")
+class ResponseSerializationBenchmarkTest {
+
+    private static final ResolvableType RESPONSE_TYPE = ResolvableType.forClass(ResponseDto.class);
+    private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    /**
+     * Productos codificados por medición; los payloads grandes se repiten menos veces.
+     */
+    private static final int PRODUCTS_PER_RUN = 2_000_000;
+
+    private final Jackson2JsonEncoder jacksonEncoder = new Jackson2JsonEncoder(new ObjectMapper());
+    private final ResponseDtoEncoder responseDtoEncoder =
+            new ResponseDtoEncoder(new ObjectMapper().registerModule(new BlackbirdModule()));
+
+    @Test
+    void benchmarkProductListSerialization() {
+        for (int size : new int[]{1, 100, 10_000}) {
+            ResponseDto<List<Product>> response = ResponseUtil.responseSuccessful(IntStream.range(0, size)
+                    .mapToObj(i -> new Product(String.valueOf(i), "Producto " + i, i))
+                    .toList(), BusinessCode.S200000);
+            int iterations = Math.max(100, PRODUCTS_PER_RUN / size);
+            report(size, "jackson", measure(jacksonEncoder, response, iterations));
+            report(size, "response-dto", measure(responseDtoEncoder, response, iterations));
+        }
+    }
+
+    private static <T> long[] measure(Encoder<T> encoder, T response, int iterations) {
+        for (int i = 0; i < iterations / 10; i++) {
+            DataBufferUtils.release(encode(encoder, response));
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            DataBuffer buffer = encode(encoder, response);
+            samples[i] = System.nanoTime() - start;
+            DataBufferUtils.release(buffer);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static <T> DataBuffer encode(Encoder<T> encoder, T response) {
+        return encoder.encodeValue(response, BUFFER_FACTORY, RESPONSE_TYPE, MediaType.APPLICATION_JSON, null);
+    }
+
+    private static void report(int size, String encoder, long[] samples) {
+        System.out.printf(Locale.ROOT, "%6d products %-13s p50=%10.1fus p99=%10.1fus%n", size, encoder,
+                samples[samples.length / 2] / 1_000.0, samples[samples.length * 99 / 100] / 1_000.0);
+    }
+}
@@ -0,0 +1,112 @@
+package co.com.pragma.api.helper;
+
+import co.com.pragma.api.dto.BranchRequest;
+import co.com.pragma.api.dto.FranchiseRequest;
+import co.com.pragma.api.dto.ProductRequest;
+import co.com.pragma.api.dto.UpdateBranchRequest;
+import co.com.pragma.api.dto.UpdateNameRequest;
+import co.com.pragma.api.dto.UpdateStockDeltaRequest;
+import co.com.pragma.api.dto.UpdateStockRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Email;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ValidationHelperTest {
+
+    private final Validator reflectiveValidator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    static Stream<Object> requests() {
+        return Stream.of(
+                new FranchiseRequest("Tienda Central"),
+                new FranchiseRequest(null),
+                new FranchiseRequest(""),
+                new FranchiseRequest("   "),
+                new FranchiseRequest("\u2003"),
+                new FranchiseRequest("a".repeat(101)),
+                new FranchiseRequest("Bad@Name", "Bad#Description"),
+                new FranchiseRequest("Tienda", "x".repeat(501)),
+                new BranchRequest(null),
+                new BranchRequest(""),
+                new BranchRequest("  "),
+                new BranchRequest("Centro", "Calle 10 #20-30", "Bogota"),
+                new BranchRequest("Centro", "a".repeat(201), "Bogotá"),
+                new ProductRequest(null, null),
+                new ProductRequest("Producto", -1),
+                new ProductRequest("Producto", 1_000_000),
+                new ProductRequest("Producto", 5),
+                new UpdateStockRequest(null),
+                new UpdateStockRequest(-1),
+                new UpdateStockRequest(10),
+                new UpdateStockDeltaRequest(null),
+                new UpdateStockDeltaRequest(-1_000_000),
+                new UpdateStockDeltaRequest(-3),
+                new UpdateNameRequest(""),
+                new UpdateNameRequest("Nuevo nombre"),
+                updateBranch(null, null, null),
+                updateBranch("", "Calle 1", "Cali"),
+                updateBranch("Norte", "Calle $1", "Cali 2")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("requests")
+    void testGeneratedValidatorsReportTheSameViolationsAsJakarta(Object request) {
+        Validator unusedValidator = mock(Validator.class);
+        List<String> expected = reflectiveValidator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
+
+        if (expected.isEmpty()) {
+            StepVerifier.create(new ValidationHelper(unusedValidator).validate(request))
+                    .expectNext(request)
+                    .verifyComplete();
+        } else {
+            StepVerifier.create(new ValidationHelper(unusedValidator).validate(request))
+                    .expectErrorSatisfies(error -> assertEquals(expected,
+                            Arrays.stream(error.getMessage().split(", ")).sorted().toList()))
+                    .verify();
+        }
+        verifyNoInteractions(unusedValidator);
+    }
+
+    @Test
+    void testTypesWithoutGeneratedValidatorFallBackToJakarta() {
+        ValidationHelper validationHelper = new ValidationHelper(reflectiveValidator);
+
+        StepVerifier.create(validationHelper.validate(new ContactRequest("not-an-email")))
+                .expectErrorMessage("Email is invalid")
+                .verify();
+    }
+
+    private static UpdateBranchRequest updateBranch(String name, String address, String city) {
+        UpdateBranchRequest request = new UpdateBranchRequest();
+        request.setName(name);
+        request.setAddress(address);
+        request.setCity(city);
+        return request;
+    }
+
+    static class ContactRequest {
+
+        @Email(message = "Email is invalid")
+        private final String email;
+
+        ContactRequest(String email) {
+            this.email = email;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package co.com.pragma.validator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un DTO de entrada para que {@link RequestValidatorProcessor} genere en compilación su
+ * {@link RequestValidator}, con las restricciones de Jakarta Validation traducidas a comprobaciones de
+ * Java.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateValidator {
+}
@@ -0,0 +1,35 @@
+package co.com.pragma.validator;
+
+/**
+ * Validador generado por {@link RequestValidatorProcessor} para un DTO anotado con
+ * {@link GenerateValidator}. Las implementaciones se registran como servicio de
+ * {@link java.util.ServiceLoader}.
+ *
+ * @param <T> tipo del DTO validado
+ */
+public interface RequestValidator<T> {
+
+    /**
+     * Clase exacta del DTO que valida.
+     */
+    Class<T> type();
+
+    /**
+     * Evalúa todas las restricciones del DTO.
+     *
+     * @return los mensajes de las restricciones incumplidas separados por {@code ", "}, en orden de
+     * declaración, o {@code null} si el DTO es válido
+     */
+    String validate(T request);
+
+    /**
+     * Añade un mensaje al acumulado, creándolo con el primer fallo para no reservar nada cuando el DTO es
+     * válido.
+     */
+    static StringBuilder append(StringBuilder messages, String message) {
+        if (messages == null) {
+            return new StringBuilder(message);
+        }
+        return messages.append(", ").append(message);
+    }
+}
@@ -0,0 +1,384 @@
+package co.com.pragma.validator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Genera, para cada clase anotada con {@link GenerateValidator}, un {@link RequestValidator} que evalúa
+ * con código Java plano las restricciones {@code @NotNull}, {@code @NotBlank}, {@code @Size},
+ * {@code @Min}, {@code @Max} y {@code @Pattern} de sus campos y getters, incluidos los heredados, con los
+ * mismos mensajes que Jakarta Validation. Los validadores generados se registran en
+ * {@code META-INF/services} para que {@link java.util.ServiceLoader} los encuentre.
+ * <p>
+ * Si la clase usa algo que no se sabe traducir (otra restricción, grupos, {@code @Valid}, mensajes con
+ * plantillas o restricciones de clase o de interfaz), no se genera su validador y se informa con una nota:
+ * esa clase se sigue validando con el {@code Validator} reflexivo.
+ */
+@SupportedAnnotationTypes("co.com.pragma.validator.GenerateValidator")
+public class RequestValidatorProcessor extends AbstractProcessor {
+
+    private static final String SERVICE_FILE = "META-INF/services/" + RequestValidator.class.getName();
+    private static final String CONSTRAINT = "jakarta.validation.Constraint";
+    private static final String NOT_NULL = "jakarta.validation.constraints.NotNull";
+    private static final String NOT_BLANK = "jakarta.validation.constraints.NotBlank";
+    private static final String SIZE = "jakarta.validation.constraints.Size";
+    private static final String MIN = "jakarta.validation.constraints.Min";
+    private static final String MAX = "jakarta.validation.constraints.Max";
+    private static final String PATTERN = "jakarta.validation.constraints.Pattern";
+    private static final Set<String> INTEGRAL_TYPES = Set.of("java.lang.Integer", "java.lang.Long",
+            "java.lang.Short", "java.lang.Byte");
+
+    private final Set<String> generatedValidators = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateValidator.class)) {
+            if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)
+                    || element.getModifiers().contains(Modifier.PRIVATE)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@GenerateValidator only applies to concrete, non-private classes", element);
+                continue;
+            }
+            generate((TypeElement) element);
+        }
+        if (roundEnv.processingOver() && !generatedValidators.isEmpty()) {
+            writeServiceFile();
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String source;
+        try {
+            source = new ValidatorSource(type).render();
+        } catch (UnsupportedConstraintException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    type.getQualifiedName() + " is validated reflectively: " + e.getMessage(), type);
+            return;
+        }
+        String validatorName = validatorName(type);
+        try (Writer writer = processingEnv.getFiler().createSourceFile(validatorName, type).openWriter()) {
+            writer.write(source);
+            generatedValidators.add(validatorName);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + validatorName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private void writeServiceFile() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String validator : generatedValidators) {
+                    writer.write(validator);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private String validatorName(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String nestedName = type.getQualifiedName().toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        String simpleName = nestedName.replace('.', '_') + "Validator";
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    /**
+     * Código fuente del validador de una clase: un campo {@link Pattern} por cada {@code @Pattern} y, por
+     * cada propiedad restringida, una variable local con su valor seguida de una comprobación por
+     * restricción.
+     */
+    private class ValidatorSource {
+
+        private final Elements elements = processingEnv.getElementUtils();
+        private final Types types = processingEnv.getTypeUtils();
+        private final TypeMirror charSequence = elements.getTypeElement("java.lang.CharSequence").asType();
+        private final TypeElement type;
+        private final StringBuilder patterns = new StringBuilder();
+        private final StringBuilder checks = new StringBuilder();
+        private final Set<String> locals = new HashSet<>(Set.of("request", "messages"));
+        private int patternCount;
+
+        ValidatorSource(TypeElement type) {
+            this.type = type;
+        }
+
+        String render() {
+            Deque<TypeElement> hierarchy = new ArrayDeque<>();
+            for (TypeElement current = type; current != null; current = superclass(current)) {
+                hierarchy.push(current);
+            }
+            for (TypeElement current : hierarchy) {
+                requireNoValidationAnnotations(current, "class-level constraint");
+                requireUnconstrainedInterfaces(current);
+                for (Element member : current.getEnclosedElements()) {
+                    addChecks(current, member);
+                }
+            }
+
+            String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+            String validatorName = validatorName(type);
+            String simpleName = validatorName.substring(validatorName.lastIndexOf('.') + 1);
+            String typeName = type.getQualifiedName().toString();
+            return (packageName.isEmpty() ? "" : "package " + packageName + ";\n\n")
+                    + "@javax.annotation.processing.Generated(\"" + RequestValidatorProcessor.class.getName() + "\")\n"
+                    + "public final class " + simpleName + " implements "
+                    + RequestValidator.class.getName() + "<" + typeName + "> {\n\n"
+                    + patterns + (patterns.isEmpty() ? "" : "\n")
+                    + "    @Override\n"
+                    + "    public Class<" + typeName + "> type() {\n"
+                    + "        return " + typeName + ".class;\n"
+                    + "    }\n\n"
+                    + "    @Override\n"
+                    + "    public String validate(" + typeName + " request) {\n"
+                    + "        StringBuilder messages = null;\n"
+                    + checks
+                    + "        return messages == null ? null : messages.toString();\n"
+                    + "    }\n"
+                    + "}\n";
+        }
+
+        private TypeElement superclass(TypeElement current) {
+            TypeMirror superclass = current.getSuperclass();
+            if (superclass.getKind() != TypeKind.DECLARED) {
+                return null;
+            }
+            TypeElement element = (TypeElement) types.asElement(superclass);
+            return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+        }
+
+        private void requireUnconstrainedInterfaces(TypeElement current) {
+            for (TypeMirror implemented : current.getInterfaces()) {
+                TypeElement contract = (TypeElement) types.asElement(implemented);
+                requireNoValidationAnnotations(contract, "constraint inherited from an interface");
+                for (Element member : contract.getEnclosedElements()) {
+                    requireNoValidationAnnotations(member, "constraint inherited from an interface");
+                }
+                requireUnconstrainedInterfaces(contract);
+            }
+        }
+
+        private void requireNoValidationAnnotations(Element element, String reason) {
+            for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+                if (isValidationAnnotation(annotation)) {
+                    throw new UnsupportedConstraintException(reason + " " + annotation + " on " + element);
+                }
+            }
+        }
+
+        private void addChecks(TypeElement owner, Element member) {
+            List<? extends AnnotationMirror> annotations = member.getAnnotationMirrors();
+            if (annotations.stream().noneMatch(this::isValidationAnnotation)) {
+                return;
+            }
+            TypeMirror valueType;
+            String access;
+            String property;
+            if (member.getKind() == ElementKind.FIELD && !member.getModifiers().contains(Modifier.STATIC)) {
+                valueType = member.asType();
+                property = member.getSimpleName().toString();
+                access = fieldAccess(owner, (VariableElement) member);
+            } else if (member.getKind() == ElementKind.METHOD && isGetter((ExecutableElement) member)) {
+                valueType = ((ExecutableElement) member).getReturnType();
+                property = propertyName(member.getSimpleName().toString());
+                access = "request." + member.getSimpleName() + "()";
+            } else {
+                throw new UnsupportedConstraintException("constraint on " + member + ", which is not a property");
+            }
+            if (valueType.getKind() == TypeKind.TYPEVAR || valueType instanceof DeclaredType declared
+                    && declared.getTypeArguments().stream().anyMatch(argument -> !argument.getAnnotationMirrors().isEmpty())) {
+                throw new UnsupportedConstraintException("container or generic constraint on " + member);
+            }
+
+            String local = local(property);
+            checks.append("        ").append(typeName(valueType)).append(' ').append(local).append(" = ").append(access).append(";\n");
+            for (AnnotationMirror annotation : annotations) {
+                if (isValidationAnnotation(annotation)) {
+                    appendCheck(member, annotation, valueType, local);
+                }
+            }
+        }
+
+        private void appendCheck(Element member, AnnotationMirror annotation, TypeMirror valueType, String local) {
+            String name = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+            Map<String, Object> values = new HashMap<>();
+            elements.getElementValuesWithDefaults(annotation)
+                    .forEach((attribute, value) -> values.put(attribute.getSimpleName().toString(), value.getValue()));
+            if (!((List<?>) values.getOrDefault("groups", List.of())).isEmpty()) {
+                throw new UnsupportedConstraintException("validation groups on " + member);
+            }
+            String message = String.valueOf(values.get("message"));
+            if (message.chars().anyMatch(c -> c == '{' || c == '}' || c == '$' || c == '\\')) {
+                throw new UnsupportedConstraintException("interpolated message " + message + " on " + member);
+            }
+
+            String condition = switch (name) {
+                case NOT_NULL -> local + " == null";
+                case NOT_BLANK -> {
+                    requireText(member, valueType);
+                    String text = typeName(valueType).equals("java.lang.String") ? local : local + ".toString()";
+                    yield local + " == null || " + text + ".trim().isEmpty()";
+                }
+                case SIZE -> {
+                    requireText(member, valueType);
+                    int min = (Integer) values.get("min");
+                    int max = (Integer) values.get("max");
+                    if (min < 0 || max < min) {
+                        throw new UnsupportedConstraintException("invalid @Size bounds on " + member);
+                    }
+                    String tooShort = local + ".length() < " + min;
+                    String tooLong = local + ".length() > " + max;
+                    yield local + " != null && " + (min == 0 ? tooLong
+                            : max == Integer.MAX_VALUE ? tooShort : "(" + tooShort + " || " + tooLong + ")");
+                }
+                case MIN -> nullGuard(member, valueType, local) + local + " < " + values.get("value") + "L";
+                case MAX -> nullGuard(member, valueType, local) + local + " > " + values.get("value") + "L";
+                case PATTERN -> {
+                    requireText(member, valueType);
+                    if (!((List<?>) values.get("flags")).isEmpty()) {
+                        throw new UnsupportedConstraintException("@Pattern flags on " + member);
+                    }
+                    yield local + " != null && !" + pattern(member, (String) values.get("regexp")) + ".matcher(" + local + ").matches()";
+                }
+                default -> throw new UnsupportedConstraintException("unsupported annotation " + annotation + " on " + member);
+            };
+            checks.append("        if (").append(condition).append(") {\n")
+                    .append("            messages = ").append(RequestValidator.class.getName()).append(".append(messages, ")
+                    .append(elements.getConstantExpression(message)).append(");\n")
+                    .append("        }\n");
+        }
+
+        /**
+         * Nombre del tipo sin las anotaciones de uso de tipo, que las restricciones de Jakarta también son.
+         */
+        private String typeName(TypeMirror valueType) {
+            if (valueType.getKind().isPrimitive()) {
+                return valueType.getKind().name().toLowerCase(Locale.ROOT);
+            }
+            if (valueType.getKind() == TypeKind.DECLARED) {
+                return ((TypeElement) types.asElement(valueType)).getQualifiedName().toString();
+            }
+            return "Object";
+        }
+
+        private String fieldAccess(TypeElement owner, VariableElement field) {
+            if (field.getModifiers().contains(Modifier.PRIVATE)
+                    || !elements.getPackageOf(owner).equals(elements.getPackageOf(type))) {
+                String name = field.getSimpleName().toString();
+                String prefix = field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get";
+                return "request." + prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "()";
+            }
+            return owner.equals(type)
+                    ? "request." + field.getSimpleName()
+                    : "((" + owner.getQualifiedName() + ") request)." + field.getSimpleName();
+        }
+
+        private boolean isGetter(ExecutableElement method) {
+            String name = method.getSimpleName().toString();
+            return !method.getModifiers().contains(Modifier.STATIC) && method.getParameters().isEmpty()
+                    && (name.startsWith("get") && name.length() > 3 && method.getReturnType().getKind() != TypeKind.VOID
+                    || name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN);
+        }
+
+        private String propertyName(String getter) {
+            String name = getter.substring(getter.startsWith("is") ? 2 : 3);
+            return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+
+        private String local(String property) {
+            String local = property;
+            for (int suffix = 2; !locals.add(local); suffix++) {
+                local = property + suffix;
+            }
+            return local;
+        }
+
+        private String pattern(Element member, String regexp) {
+            try {
+                Pattern.compile(regexp);
+            } catch (PatternSyntaxException e) {
+                throw new UnsupportedConstraintException("invalid @Pattern on " + member);
+            }
+            String field = "PATTERN_" + patternCount++;
+            patterns.append("    private static final java.util.regex.Pattern ").append(field)
+                    .append(" = java.util.regex.Pattern.compile(").append(elements.getConstantExpression(regexp)).append(");\n");
+            return field;
+        }
+
+        private void requireText(Element member, TypeMirror valueType) {
+            if (!types.isAssignable(valueType, charSequence)) {
+                throw new UnsupportedConstraintException("text constraint on non-text " + member);
+            }
+        }
+
+        private String nullGuard(Element member, TypeMirror valueType, String local) {
+            switch (valueType.getKind()) {
+                case INT, LONG, SHORT, BYTE:
+                    return "";
+                case DECLARED:
+                    if (INTEGRAL_TYPES.contains(((TypeElement) types.asElement(valueType)).getQualifiedName().toString())) {
+                        return local + " != null && ";
+                    }
+                    break;
+                default:
+                    break;
+            }
+            throw new UnsupportedConstraintException("numeric constraint on non-integral " + member);
+        }
+
+        private boolean isValidationAnnotation(AnnotationMirror annotation) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            String name = annotationType.getQualifiedName().toString();
+            return name.startsWith("jakarta.validation.") || name.startsWith("org.hibernate.validator.")
+                    || annotationType.getAnnotationMirrors().stream().anyMatch(meta ->
+                    ((TypeElement) meta.getAnnotationType().asElement()).getQualifiedName().contentEquals(CONSTRAINT));
+        }
+    }
+
+    private static class UnsupportedConstraintException extends RuntimeException {
+
+        UnsupportedConstraintException(String message) {
+            super(message);
+        }
+    }
+}
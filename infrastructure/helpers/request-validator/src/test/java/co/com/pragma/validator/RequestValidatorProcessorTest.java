@@ -0,0 +1,133 @@
+package co.com.pragma.validator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestValidatorProcessorTest {
+
+    @TempDir
+    Path workDir;
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGeneratesAndRegistersValidatorForSupportedConstraints() throws Exception {
+        assertTrue(compile("""
+                package sample;
+
+                import jakarta.validation.constraints.*;
+
+                @co.com.pragma.validator.GenerateValidator
+                public class Sample extends Base {
+                    @NotBlank(message = "Name is required")
+                    @Size(max = 5, message = "Name must not exceed 5 characters")
+                    @Pattern(regexp = "^[a-z ]*$", message = "Name contains invalid characters")
+                    private final String name;
+
+                    public Sample(String name, Integer stock) {
+                        this.name = name;
+                        this.stock = stock;
+                    }
+
+                    public String getName() {
+                        return name;
+                    }
+                }
+
+                abstract class Base {
+                    @NotNull(message = "Stock is required")
+                    @Min(value = 0, message = "Stock must be greater than or equal to 0")
+                    protected Integer stock;
+                }
+                """));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{workDir.resolve("classes").toUri().toURL()},
+                getClass().getClassLoader())) {
+            RequestValidator<Object> validator = ServiceLoader.load(RequestValidator.class, loader).findFirst().orElseThrow();
+            Class<?> sample = loader.loadClass("sample.Sample");
+            assertEquals(sample, validator.type());
+            assertNull(validator.validate(sample.getConstructor(String.class, Integer.class).newInstance("ok", 1)));
+            assertEquals("Stock must be greater than or equal to 0, Name is required",
+                    validator.validate(sample.getConstructor(String.class, Integer.class).newInstance("  ", -1)));
+            assertEquals("Stock is required, Name must not exceed 5 characters, Name contains invalid characters",
+                    validator.validate(sample.getConstructor(String.class, Integer.class).newInstance("Bad Name", null)));
+        }
+    }
+
+    @Test
+    void testLeavesUnsupportedConstraintsToReflectiveValidation() throws IOException {
+        assertTrue(compile("""
+                package sample;
+
+                import jakarta.validation.constraints.*;
+
+                @co.com.pragma.validator.GenerateValidator
+                public class Sample {
+                    @Email(message = "Email is invalid")
+                    private String email;
+                }
+                """));
+
+        assertFalse(Files.exists(workDir.resolve("generated/sample/SampleValidator.java")));
+        assertFalse(Files.exists(workDir.resolve("classes/META-INF/services/" + RequestValidator.class.getName())));
+        assertTrue(diagnostics.getDiagnostics().stream()
+                .anyMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.NOTE
+                        && diagnostic.getMessage(Locale.ROOT).contains("is validated reflectively")));
+    }
+
+    @Test
+    void testLeavesInterpolatedMessagesToReflectiveValidation() throws IOException {
+        assertTrue(compile("""
+                package sample;
+
+                import jakarta.validation.constraints.*;
+
+                @co.com.pragma.validator.GenerateValidator
+                public class Sample {
+                    @Size(max = 5, message = "Name must not exceed {max} characters")
+                    private String name;
+                }
+                """));
+
+        assertFalse(Files.exists(workDir.resolve("generated/sample/SampleValidator.java")));
+    }
+
+    private boolean compile(String source) throws IOException {
+        Path sourceFile = Files.createDirectories(workDir.resolve("src/sample")).resolve("Sample.java");
+        Files.writeString(sourceFile, source);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT,
+                    List.of(Files.createDirectories(workDir.resolve("classes")).toFile()));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT,
+                    List.of(Files.createDirectories(workDir.resolve("generated")).toFile()));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-classpath", System.getProperty("java.class.path")), null,
+                    fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(List.of(new RequestValidatorProcessor()));
+            return task.call();
+        }
+    }
+}